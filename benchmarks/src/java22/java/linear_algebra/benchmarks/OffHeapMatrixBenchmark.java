@@ -0,0 +1,90 @@
+package linear_algebra.benchmarks;
+
+import java.lang.foreign.Arena;
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.Matrix;
+import linear_algebra.OffHeapMatrix;
+import linear_algebra.Vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a Matrix on the heap with an OffHeapMatrix: creating and
+ * releasing a (size x size) matrix, and multiplying it by a vector. Run
+ * with -prof gc to see the difference in heap allocation. Only built with
+ * the java22 profile.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class OffHeapMatrixBenchmark {
+	
+	@Param({"512", "2048"})
+	public int size;
+	
+	private Arena arena;
+	private Matrix matrix;
+	private OffHeapMatrix offHeap;
+	private Vector vector;
+	private double[] result;
+	
+	
+	@Setup
+	public void setUp() {
+		arena = Arena.ofShared();
+		matrix = new Matrix(BenchmarkData.randomMatrix(size, size));
+		offHeap = new OffHeapMatrix(matrix, arena);
+		vector = new Vector(BenchmarkData.randomVector(size));
+		result = new double[size];
+	}
+	
+	
+	@TearDown
+	public void tearDown() {
+		arena.close();
+	}
+	
+	
+	@Benchmark
+	public Matrix createOnHeap() {
+		return new Matrix(new double[size][size]);
+	}
+	
+	
+	@Benchmark
+	public long createOffHeap() {
+		try (OffHeapMatrix m = new OffHeapMatrix(size, size)) {
+			return m.getSegment().byteSize();
+		}
+	}
+	
+	
+	@Benchmark
+	public double[] multiplyByVectorOnHeap() {
+		return matrix.multiplyBy(vector, result);
+	}
+	
+	
+	@Benchmark
+	public double[] multiplyByVectorOffHeap() {
+		return offHeap.multiplyBy(vector, result);
+	}
+	
+}
@@ -0,0 +1,57 @@
+package linear_algebra.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.AugmentedMatrix;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the reduction and classification of an (n x (n + 1)) augmented matrix.
+ * A new AugmentedMatrix is wrapped around the same array for every call, so a
+ * reduction cached by an earlier call is never reused.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class AugmentedMatrixBenchmark {
+	
+	@Param({"4", "16", "64", "256", "1024", "2048"})
+	public int size;
+	
+	private double[][] array;
+	
+	
+	@Setup
+	public void setUp() {
+		array = BenchmarkData.wellConditionedMatrix(size, size + 1);
+	}
+	
+	
+	@Benchmark
+	public double[][] getReducedMatrix() {
+		return new AugmentedMatrix(array).getReducedMatrix();
+	}
+	
+	
+	@Benchmark
+	public boolean hasOneSolution() {
+		return new AugmentedMatrix(array).hasOneSolution();
+	}
+	
+}
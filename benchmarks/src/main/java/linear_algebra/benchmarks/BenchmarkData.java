@@ -0,0 +1,90 @@
+package linear_algebra.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import linear_algebra.CsrMatrix;
+
+/**
+ * Creates the random matrices and vectors used by the benchmarks. A fixed
+ * seed is used so every run measures the same inputs.
+ * 
+ * @author Aaron Smith
+ */
+final class BenchmarkData {
+	
+	private static final long SEED = 42;
+	
+	
+	private BenchmarkData() {
+		// Only static methods
+	}
+	
+	
+	/**
+	 * Returns a (rows x columns)-matrix of values between -1 and 1.
+	 */
+	static double[][] randomMatrix(int rows, int columns) {
+		Random random = new Random(SEED + 31L * rows + columns);
+		double[][] matrix = new double[rows][columns];
+		for (double[] row : matrix) {
+			for (int j = 0; j < columns; j++) {
+				row[j] = 2 * random.nextDouble() - 1;
+			}
+		}
+		return matrix;
+	}
+	
+	
+	/**
+	 * Returns a (rows x columns)-matrix whose first min(rows, columns) diagonal values
+	 * outweigh the rest of their row, so it has full rank and reduces without trouble.
+	 */
+	static double[][] wellConditionedMatrix(int rows, int columns) {
+		double[][] matrix = randomMatrix(rows, columns);
+		for (int i = 0; i < Math.min(rows, columns); i++) {
+			matrix[i][i] += columns;
+		}
+		return matrix;
+	}
+	
+	
+	/**
+	 * Returns a vector of values between -1 and 1.
+	 */
+	static double[] randomVector(int length) {
+		return randomMatrix(1, length)[0];
+	}
+	
+	
+	/**
+	 * Returns the 5 point Laplacian of a (side x side) grid, a sparse matrix with side * side
+	 * rows and at most 5 values per row.
+	 */
+	static CsrMatrix gridLaplacian(int side) {
+		int n = side * side;
+		int[] rowIndexes = new int[5 * n];
+		int[] columnIndexes = new int[5 * n];
+		double[] entries = new double[5 * n];
+		int count = 0;
+		for (int y = 0; y < side; y++) {
+			for (int x = 0; x < side; x++) {
+				int i = y * side + x;
+				int[] neighbours = {x > 0 ? i - 1 : -1, x < side - 1 ? i + 1 : -1, y > 0 ? i - side : -1, y < side - 1 ? i + side : -1};
+				rowIndexes[count] = i;
+				columnIndexes[count] = i;
+				entries[count++] = 4;
+				for (int j : neighbours) {
+					if (j >= 0) {
+						rowIndexes[count] = i;
+						columnIndexes[count] = j;
+						entries[count++] = -1;
+					}
+				}
+			}
+		}
+		return CsrMatrix.fromEntries(n, n, Arrays.copyOf(rowIndexes, count),
+				Arrays.copyOf(columnIndexes, count), Arrays.copyOf(entries, count));
+	}
+	
+}
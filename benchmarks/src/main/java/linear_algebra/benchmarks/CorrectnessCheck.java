@@ -0,0 +1,1020 @@
+package linear_algebra.benchmarks;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import linear_algebra.AugmentedMatrix;
+import linear_algebra.BiCgStabSolver;
+import linear_algebra.CholeskyDecomposition;
+import linear_algebra.ConjugateGradientSolver;
+import linear_algebra.CscMatrix;
+import linear_algebra.CsrMatrix;
+import linear_algebra.FlatMatrix;
+import linear_algebra.GmresSolver;
+import linear_algebra.IncompleteLUPreconditioner;
+import linear_algebra.IncrementalRowReducer;
+import linear_algebra.InverseUpdater;
+import linear_algebra.IterativeSolution;
+import linear_algebra.IterativeSolver;
+import linear_algebra.JacobiPreconditioner;
+import linear_algebra.LUDecomposition;
+import linear_algebra.Matrix;
+import linear_algebra.MatrixExpression;
+import linear_algebra.MatrixFile;
+import linear_algebra.QRDecomposition;
+import linear_algebra.SingularValueDecomposition;
+import linear_algebra.SquareMatrix;
+import linear_algebra.StreamingLeastSquares;
+import linear_algebra.Vector;
+import linear_algebra.VectorKernels;
+import linear_algebra.Workspace;
+
+/**
+ * Checks the results of the library against independent references and
+ * exits with status 1 if any of them is off. Products are compared with a
+ * naive triple loop, decompositions with the matrix they came from, and
+ * solutions with their residual or with a solve in 34 digit decimals. A
+ * method that promises the same result as another one, like a ForkJoinPool
+ * overload or a method that takes a Workspace, has to match it value for
+ * value. Run it after building the benchmarks with:
+ * 
+ *     java --add-modules jdk.incubator.vector -cp target/benchmarks.jar linear_algebra.benchmarks.CorrectnessCheck
+ * 
+ * and once more with -Dlinear_algebra.disableSimd=true to check the scalar
+ * kernels. The inputs come from a fixed seed, so every run checks the same
+ * cases.
+ * 
+ * @author Aaron Smith
+ */
+public final class CorrectnessCheck {
+	
+	private static final long SEED = 42;
+	private static final double PRODUCT_LIMIT = 1e-13; // Largest error relative to the largest value of the result
+	private static final double DECOMPOSITION_LIMIT = 1e-12;
+	private static final double SOLUTION_LIMIT = 1e-9;
+	
+	private static final Random RANDOM = new Random(SEED);
+	private static final ForkJoinPool POOL = new ForkJoinPool(4);
+	private static int failures;
+	
+	
+	private CorrectnessCheck() {
+		// Only static methods
+	}
+	
+	
+	public static void main(String[] args) throws IOException {
+		System.out.println("Kernels: " + VectorKernels.getImplementation());
+		try {
+			checkProducts();
+			checkMappedProducts();
+			checkExpressions();
+			checkLU();
+			checkInverseUpdates();
+			checkCholesky();
+			checkQR();
+			checkSVD();
+			checkReducers();
+			checkSparse();
+			checkIterativeSolvers();
+			checkStreamingLeastSquares();
+		} finally {
+			POOL.shutdown();
+		}
+		if (failures > 0) {
+			System.out.println(failures + " checks failed");
+			System.exit(1);
+		}
+	}
+	
+	
+	/**
+	 * Checks dense products over 120 random shapes. Each side is stored as a plain matrix, a
+	 * transposed view, a view inside a larger matrix or a FlatMatrix, so every combination of
+	 * transposed operands is used, with both the small and the panel kernels.
+	 */
+	private static void checkProducts() {
+		double worst = 0;
+		boolean identical = true;
+		for (int t = 0; t < 120; t++) {
+			int limit = t % 3 == 0 ? 130 : 40;
+			int rows = 1 + RANDOM.nextInt(limit);
+			int inner = 1 + RANDOM.nextInt(limit);
+			int columns = 1 + RANDOM.nextInt(limit);
+			double[][] a = randomMatrix(rows, inner);
+			double[][] b = randomMatrix(inner, columns);
+			double[][] expected = naiveProduct(a, b);
+			Matrix left = storedAs(a, t % 4);
+			Matrix right = storedAs(b, t / 4 % 4);
+			double[][] product = left.multiplyBy(right);
+			worst = Math.max(worst, difference(product, expected));
+			identical &= Arrays.deepEquals(product, left.multiplyBy(right, POOL));
+			double[][] sum = new double[rows][columns];
+			for (double[] row : sum) {
+				Arrays.fill(row, 1);
+			}
+			left.multiplyBy(right, -0.5, sum);
+			for (double[] row : expected) {
+				for (int j = 0; j < columns; j++) {
+					row[j] = 1 - 0.5 * row[j];
+				}
+			}
+			worst = Math.max(worst, difference(sum, expected));
+			double[] v = randomVector(inner);
+			double[] vectorProduct = left.multiplyBy(new Vector(v));
+			worst = Math.max(worst, difference(vectorProduct, naiveProduct(a, v)));
+			identical &= Arrays.equals(vectorProduct, left.multiplyBy(new Vector(v), POOL));
+		}
+		report("dense products", worst, PRODUCT_LIMIT);
+		require("parallel products match serial ones", identical);
+	}
+	
+	
+	/**
+	 * Checks products with matrices mapped from files, in both layouts, on sizes on either
+	 * side of the tiles they are read in.
+	 */
+	private static void checkMappedProducts() throws IOException {
+		int[] sizes = {1, 7, 255, 256, 257, 300};
+		double worst = 0;
+		Path directory = Files.createTempDirectory("correctness");
+		try {
+			for (int t = 0; t < 12; t++) {
+				int rows = sizes[RANDOM.nextInt(sizes.length)];
+				int inner = sizes[RANDOM.nextInt(sizes.length)];
+				int columns = sizes[RANDOM.nextInt(sizes.length)];
+				double[][] a = randomMatrix(rows, inner);
+				double[][] b = randomMatrix(inner, columns);
+				double[][] expected = naiveProduct(a, b);
+				MatrixFile.Layout layout = t % 2 == 0 ? MatrixFile.Layout.ROW_MAJOR : MatrixFile.Layout.COLUMN_MAJOR;
+				Path pathA = directory.resolve("a.matrix");
+				Path pathB = directory.resolve("b.matrix");
+				MatrixFile.write(new Matrix(a), pathA, layout);
+				MatrixFile.write(new Matrix(b), pathB, layout);
+				Matrix mappedA = MatrixFile.map(pathA);
+				Matrix mappedB = MatrixFile.map(pathB);
+				worst = Math.max(worst, difference(mappedA.multiplyBy(new Matrix(b)), expected));
+				worst = Math.max(worst, difference(new Matrix(a).multiplyBy(mappedB), expected));
+				worst = Math.max(worst, difference(mappedA.multiplyBy(mappedB, POOL), expected));
+				double[] v = randomVector(inner);
+				worst = Math.max(worst, difference(mappedA.multiplyBy(new Vector(v)), naiveProduct(a, v)));
+				Files.delete(pathA);
+				Files.delete(pathB);
+			}
+		} finally {
+			Files.deleteIfExists(directory);
+		}
+		report("mapped matrix products", worst, PRODUCT_LIMIT);
+	}
+	
+	
+	/**
+	 * Checks MatrixExpression with products of sums, transposes, scalars and slices.
+	 */
+	private static void checkExpressions() {
+		double worst = 0;
+		for (int t = 0; t < 100; t++) {
+			int rows = 1 + RANDOM.nextInt(30);
+			int inner = 1 + RANDOM.nextInt(30);
+			int columns = 1 + RANDOM.nextInt(30);
+			double[][] a = randomMatrix(rows, inner);
+			double[][] b = randomMatrix(rows, inner);
+			double[][] c = randomMatrix(inner, columns);
+			double[][] d = randomMatrix(inner, columns);
+			MatrixExpression left = MatrixExpression.of(a).plus(MatrixExpression.of(b).scale(2));
+			MatrixExpression right = MatrixExpression.of(c).minus(MatrixExpression.of(d));
+			MatrixExpression expression = left.times(right).transpose().scale(-3);
+			double[][] expected = naiveProduct(add(a, b, 2), add(c, d, -1));
+			for (double[] row : expected) {
+				for (int j = 0; j < columns; j++) {
+					row[j] *= -3;
+				}
+			}
+			expected = transpose(expected);
+			worst = Math.max(worst, difference(expression.evaluate(), expected));
+			int rowStart = RANDOM.nextInt(columns);
+			int colStart = RANDOM.nextInt(rows);
+			double[][] slice = expression.slice(rowStart, columns, colStart, rows).evaluate();
+			worst = Math.max(worst, difference(slice, subMatrix(expected, rowStart, columns, colStart, rows)));
+		}
+		report("matrix expressions", worst, PRODUCT_LIMIT);
+	}
+	
+	
+	/**
+	 * Checks that PA = LU, that solutions have a small residual, that the batch, Workspace and
+	 * inverse paths match the plain ones, and that a rank one update of the decomposition
+	 * solves the same systems as decomposing the updated matrix again.
+	 */
+	private static void checkLU() {
+		double worst = 0;
+		double residual = 0;
+		double updated = 0;
+		boolean identical = true;
+		Workspace workspace = new Workspace();
+		for (int t = 0; t < 60; t++) {
+			int size = 1 + RANDOM.nextInt(60);
+			double[][] a = randomMatrix(size, size);
+			LUDecomposition decomposition = new LUDecomposition(a);
+			int[] pivot = decomposition.getPivot();
+			double[][] permuted = new double[size][];
+			for (int i = 0; i < size; i++) {
+				permuted[i] = a[pivot[i]];
+			}
+			worst = Math.max(worst, difference(naiveProduct(decomposition.getLower(), decomposition.getUpper()), permuted));
+			double[] b = randomVector(size);
+			double[] x = decomposition.solve(b);
+			residual = Math.max(residual, backwardError(a, x, b));
+			double[][] batch = {b.clone(), randomVector(size)};
+			double[] second = decomposition.solve(batch[1]);
+			decomposition.solveAll(batch, POOL);
+			identical &= Arrays.equals(batch[0], x) && Arrays.equals(batch[1], second);
+			double[][] augmented = new double[size][];
+			for (int i = 0; i < size; i++) {
+				augmented[i] = Arrays.copyOf(a[i], size + 1);
+				augmented[i][size] = b[i];
+			}
+			identical &= Arrays.equals(new AugmentedMatrix(augmented).solve(new double[size], workspace), x);
+			SquareMatrix square = new SquareMatrix(a);
+			identical &= Arrays.deepEquals(square.getInverse(), square.getInverse(new double[size][size], workspace));
+			identical &= square.getDeterminant() == square.getDeterminant(workspace);
+	
+			double[][] wellConditioned = wellConditionedMatrix(size);
+			double[] u = randomVector(size);
+			double[] v = randomVector(size);
+			LUDecomposition update = new LUDecomposition(wellConditioned);
+			update.update(u, v);
+			double[][] changed = add(wellConditioned, outerProduct(u, v), 1);
+			updated = Math.max(updated, difference(update.solve(b), new LUDecomposition(changed).solve(b)));
+		}
+		report("LU reconstruction", worst, DECOMPOSITION_LIMIT);
+		report("LU solve backward error", residual, DECOMPOSITION_LIMIT);
+		report("LU rank one update", updated, SOLUTION_LIMIT);
+		require("LU batch and workspace paths match", identical);
+	}
+	
+	
+	/**
+	 * Checks every InverseUpdater method against inverting the changed matrix again.
+	 */
+	private static void checkInverseUpdates() {
+		double worst = 0;
+		for (int t = 0; t < 60; t++) {
+			int size = 1 + RANDOM.nextInt(30);
+			double[][] a = wellConditionedMatrix(size);
+			double[][] inverse = new SquareMatrix(a).getInverse();
+			int row = RANDOM.nextInt(size);
+			int col = RANDOM.nextInt(size);
+			double[][] changed;
+			switch (t % 5) {
+				case 0:
+					double[] u = randomVector(size);
+					double[] v = randomVector(size);
+					InverseUpdater.update(inverse, u, v);
+					changed = add(a, outerProduct(u, v), 1);
+					break;
+				case 1:
+					InverseUpdater.updateValue(inverse, row, col, 0.5);
+					changed = copy(a);
+					changed[row][col] += 0.5;
+					break;
+				case 2:
+					double[] rowDelta = randomVector(size);
+					InverseUpdater.updateRow(inverse, row, rowDelta);
+					changed = copy(a);
+					for (int j = 0; j < size; j++) {
+						changed[row][j] += rowDelta[j];
+					}
+					break;
+				case 3:
+					double[] columnDelta = randomVector(size);
+					InverseUpdater.updateColumn(inverse, col, columnDelta);
+					changed = copy(a);
+					for (int i = 0; i < size; i++) {
+						changed[i][col] += columnDelta[i];
+					}
+					break;
+				default:
+					int rank = 1 + RANDOM.nextInt(Math.min(size, 3));
+					double[][] uBlock = randomMatrix(size, rank);
+					double[][] vBlock = randomMatrix(size, rank);
+					InverseUpdater.update(inverse, uBlock, vBlock);
+					changed = add(a, naiveProduct(uBlock, transpose(vBlock)), 1);
+					break;
+			}
+			worst = Math.max(worst, difference(inverse, new SquareMatrix(changed).getInverse()));
+		}
+		report("inverse updates", worst, SOLUTION_LIMIT);
+	}
+	
+	
+	/**
+	 * Checks that A = LL^T for symmetric positive definite matrices, the residual of a solve,
+	 * updates and downdates against decomposing again, and that an indefinite matrix is
+	 * reported as one.
+	 */
+	private static void checkCholesky() {
+		double worst = 0;
+		double residual = 0;
+		double updated = 0;
+		boolean detected = true;
+		for (int t = 0; t < 60; t++) {
+			int size = 1 + RANDOM.nextInt(40);
+			double[][] m = randomMatrix(size, size);
+			double[][] a = add(naiveProduct(m, transpose(m)), identity(size), size);
+			CholeskyDecomposition decomposition = new CholeskyDecomposition(a);
+			detected &= decomposition.isPositiveDefinite();
+			double[][] lower = decomposition.getLower();
+			worst = Math.max(worst, difference(naiveProduct(lower, transpose(lower)), a));
+			double[] b = randomVector(size);
+			residual = Math.max(residual, backwardError(a, decomposition.solve(b), b));
+			double[] x = randomVector(size);
+			decomposition.update(x);
+			double[][] changed = add(a, outerProduct(x, x), 1);
+			updated = Math.max(updated, difference(decomposition.getLower(), new CholeskyDecomposition(changed).getLower()));
+			decomposition.downdate(x);
+			updated = Math.max(updated, difference(decomposition.getLower(), lower));
+			a[size - 1][size - 1] = -1;
+			detected &= !new CholeskyDecomposition(a).isPositiveDefinite();
+		}
+		report("Cholesky reconstruction", worst, DECOMPOSITION_LIMIT);
+		report("Cholesky solve backward error", residual, DECOMPOSITION_LIMIT);
+		report("Cholesky update and downdate", updated, SOLUTION_LIMIT);
+		require("Cholesky detects indefinite matrices", detected);
+	}
+	
+	
+	/**
+	 * Checks that AP = QR with orthonormal columns in Q, that least squares solutions satisfy
+	 * the normal equations, and the rank of matrices built with a known rank.
+	 */
+	private static void checkQR() {
+		double worst = 0;
+		double normal = 0;
+		boolean ranks = true;
+		for (int t = 0; t < 60; t++) {
+			int rows = 1 + RANDOM.nextInt(40);
+			int columns = 1 + RANDOM.nextInt(40);
+			double[][] a = randomMatrix(rows, columns);
+			QRDecomposition decomposition = new QRDecomposition(a);
+			double[][] q = decomposition.getQ();
+			int[] permutation = decomposition.getPermutation();
+			double[][] permuted = new double[rows][columns];
+			for (int i = 0; i < rows; i++) {
+				for (int j = 0; j < columns; j++) {
+					permuted[i][j] = a[i][permutation[j]];
+				}
+			}
+			worst = Math.max(worst, difference(naiveProduct(q, decomposition.getR()), permuted));
+			worst = Math.max(worst, difference(naiveProduct(transpose(q), q), identity(q[0].length)));
+			if (rows >= columns) {
+				double[] b = randomVector(rows);
+				double[] x = decomposition.solve(b);
+				double[] gradient = naiveProduct(transpose(a), add(naiveProduct(a, x), b, -1)); // A^T (Ax - b)
+				normal = Math.max(normal, maxAbs(gradient) / (maxAbs(a) * (maxAbs(a) * maxAbs(x) + maxAbs(b))));
+			}
+			int rank = RANDOM.nextInt(Math.min(rows, columns) + 1);
+			ranks &= new QRDecomposition(randomMatrixOfRank(rows, columns, rank)).getRank() == rank;
+		}
+		report("QR reconstruction", worst, DECOMPOSITION_LIMIT);
+		report("QR least squares", normal, DECOMPOSITION_LIMIT);
+		require("QR finds the rank", ranks);
+	}
+	
+	
+	/**
+	 * Checks that A = USV^T, that the rotations converged with the singular values in
+	 * decreasing order, and the rank of matrices built with a known rank.
+	 */
+	private static void checkSVD() {
+		double worst = 0;
+		boolean converged = true;
+		boolean ranks = true;
+		for (int t = 0; t < 60; t++) {
+			int rows = 1 + RANDOM.nextInt(40);
+			int columns = 1 + RANDOM.nextInt(40);
+			double[][] a = randomMatrix(rows, columns);
+			SingularValueDecomposition decomposition = new SingularValueDecomposition(a);
+			converged &= decomposition.isConverged();
+			double[] values = decomposition.getSingularValues();
+			for (int i = 0; i < values.length; i++) {
+				converged &= values[i] >= 0 && (i == 0 || values[i] <= values[i - 1]);
+			}
+			double[][] u = decomposition.getU();
+			for (double[] row : u) {
+				for (int j = 0; j < values.length; j++) {
+					row[j] *= values[j];
+				}
+			}
+			worst = Math.max(worst, difference(naiveProduct(u, transpose(decomposition.getV())), a));
+			int rank = RANDOM.nextInt(Math.min(rows, columns) + 1);
+			ranks &= new SingularValueDecomposition(randomMatrixOfRank(rows, columns, rank)).getRank() == rank;
+		}
+		report("SVD reconstruction", worst, DECOMPOSITION_LIMIT);
+		require("SVD converges with sorted singular values", converged);
+		require("SVD finds the rank", ranks);
+	}
+	
+	
+	/**
+	 * Checks the row reducers. On small integer systems, many of them singular, the reduced
+	 * matrix from a Workspace has to match the plain one, and the incremental reducer has to
+	 * reach the same conclusion about the solutions. On 243 systems with one solution, the
+	 * solutions of both reducers are compared with a solve in 34 digit decimals.
+	 */
+	private static void checkReducers() {
+		boolean identical = true;
+		boolean agree = true;
+		Workspace workspace = new Workspace();
+		for (int t = 0; t < 3000; t++) {
+			int rows = 1 + RANDOM.nextInt(8);
+			int unknowns = 1 + RANDOM.nextInt(8);
+			double[][] augmented = randomIntegerMatrix(rows, unknowns + 1, 2);
+			for (int i = 1; i < rows; i++) {
+				if (RANDOM.nextInt(3) == 0) { // Make some rows depend on earlier ones
+					augmented[i] = add(augmented[i - 1], augmented[RANDOM.nextInt(i)], -2);
+				}
+			}
+			AugmentedMatrix matrix = new AugmentedMatrix(copy(augmented));
+			double[][] reduced = matrix.getReducedMatrix();
+			identical &= Arrays.deepEquals(reduced, matrix.getReducedMatrix(new double[rows][unknowns + 1], workspace));
+			IncrementalRowReducer reducer = new IncrementalRowReducer(unknowns);
+			for (double[] row : augmented) {
+				reducer.append(row);
+			}
+			switch (reducer.getStatus()) {
+				case NO_SOLUTION:
+					agree &= matrix.hasNoSolution();
+					break;
+				case ONE_SOLUTION:
+					agree &= matrix.hasOneSolution();
+					break;
+				default:
+					agree &= matrix.hasInfiniteSolutions();
+					break;
+			}
+		}
+		require("reduced matrices from a Workspace match", identical);
+		require("incremental reducer agrees on the solutions", agree);
+	
+		double worst = 0;
+		int systems = 0;
+		while (systems < 243) {
+			int size = 1 + RANDOM.nextInt(8);
+			double[][] augmented = randomIntegerMatrix(size, size + 1, 9);
+			double[] expected = decimalSolution(augmented);
+			if (expected == null) {
+				continue;
+			}
+			systems++;
+			IncrementalRowReducer reducer = new IncrementalRowReducer(size);
+			for (double[] row : augmented) {
+				reducer.append(row);
+			}
+			worst = Math.max(worst, difference(reducer.getSolution(), expected));
+			double[][] reduced = new AugmentedMatrix(copy(augmented)).getReducedMatrix();
+			double[] column = new double[size];
+			for (int i = 0; i < size; i++) {
+				column[i] = reduced[i][size];
+			}
+			worst = Math.max(worst, difference(column, expected));
+		}
+		report("row reducer solutions", worst, SOLUTION_LIMIT);
+	}
+	
+	
+	/**
+	 * Checks CSR and CSC matrices against the dense matrices they were built from: their
+	 * values, conversions, transposes and products, and that their parallel products match
+	 * the serial ones.
+	 */
+	private static void checkSparse() {
+		double worst = 0;
+		boolean identical = true;
+		for (int t = 0; t < 60; t++) {
+			int rows = 1 + RANDOM.nextInt(60);
+			int columns = 1 + RANDOM.nextInt(60);
+			double density = 0.05 + 0.3 * RANDOM.nextDouble();
+			double[][] dense = new double[rows][columns];
+			int count = 0;
+			for (double[] row : dense) {
+				for (int j = 0; j < columns; j++) {
+					if (RANDOM.nextDouble() < density) {
+						row[j] = 2 * RANDOM.nextDouble() - 1;
+						count++;
+					}
+				}
+			}
+			int[] rowIndexes = new int[2 * count];
+			int[] columnIndexes = new int[2 * count];
+			double[] entries = new double[2 * count];
+			int k = 0;
+			for (int i = 0; i < rows; i++) {
+				for (int j = 0; j < columns; j++) {
+					if (dense[i][j] != 0) { // Each value as two halves, which have to be added up
+						for (int half = 0; half < 2; half++, k++) {
+							rowIndexes[k] = i;
+							columnIndexes[k] = j;
+							entries[k] = dense[i][j] / 2;
+						}
+					}
+				}
+			}
+			CsrMatrix csr = CsrMatrix.fromEntries(rows, columns, rowIndexes, columnIndexes, entries);
+			CscMatrix csc = CscMatrix.fromEntries(rows, columns, rowIndexes, columnIndexes, entries);
+			identical &= Arrays.deepEquals(csr.getMatrix(), dense) && Arrays.deepEquals(csc.getMatrix(), dense);
+			identical &= Arrays.deepEquals(new CsrMatrix(dense).getMatrix(), dense) && Arrays.deepEquals(csr.toCsc().getMatrix(), dense);
+			identical &= Arrays.deepEquals(csc.toCsr().getMatrix(), dense);
+			identical &= Arrays.deepEquals(csr.getSparseTranspose().getMatrix(), transpose(dense));
+			identical &= Arrays.deepEquals(csc.getSparseTranspose().getMatrix(), transpose(dense));
+			identical &= csr.getValue(rows - 1, columns - 1) == dense[rows - 1][columns - 1];
+			identical &= csc.getValue(rows - 1, columns - 1) == dense[rows - 1][columns - 1];
+			double[] v = randomVector(columns);
+			double[] expected = naiveProduct(dense, v);
+			for (Matrix sparse : new Matrix[] {csr, csc}) {
+				double[] product = sparse.multiplyBy(new Vector(v));
+				worst = Math.max(worst, difference(product, expected));
+				identical &= Arrays.equals(product, sparse.multiplyBy(new Vector(v), POOL));
+				double[][] b = randomMatrix(columns, 1 + RANDOM.nextInt(20));
+				double[][] matrixProduct = sparse.multiplyBy(new Matrix(b));
+				worst = Math.max(worst, difference(matrixProduct, naiveProduct(dense, b)));
+				identical &= Arrays.deepEquals(matrixProduct, sparse.multiplyBy(new Matrix(b), POOL));
+				double[][] c = randomMatrix(1 + RANDOM.nextInt(20), rows);
+				worst = Math.max(worst, difference(new Matrix(c).multiplyBy(sparse), naiveProduct(c, dense)));
+			}
+		}
+		report("sparse products", worst, PRODUCT_LIMIT);
+		require("sparse values, conversions and parallel products match", identical);
+	}
+	
+	
+	/**
+	 * Checks that the iterative solvers converge and that the solutions they report have a
+	 * residual within their tolerance: conjugate gradients on a grid Laplacian, and BiCGSTAB
+	 * and GMRES on a convection-diffusion matrix, which isn't symmetric.
+	 */
+	private static void checkIterativeSolvers() {
+		int side = 24;
+		CsrMatrix laplacian = BenchmarkData.gridLaplacian(side);
+		CsrMatrix convection = convectionDiffusion(side, 0.4);
+		double[] b = randomVector(side * side);
+		IterativeSolver conjugateGradient = new ConjugateGradientSolver();
+		checkSolver("conjugate gradients", conjugateGradient, laplacian, b);
+		conjugateGradient.setPreconditioner(new JacobiPreconditioner(laplacian));
+		checkSolver("conjugate gradients with Jacobi", conjugateGradient, laplacian, b);
+		IterativeSolver biCgStab = new BiCgStabSolver();
+		checkSolver("BiCGSTAB", biCgStab, convection, b);
+		biCgStab.setPreconditioner(new IncompleteLUPreconditioner(convection));
+		checkSolver("BiCGSTAB with incomplete LU", biCgStab, convection, b);
+		IterativeSolver gmres = new GmresSolver();
+		checkSolver("GMRES", gmres, convection, b);
+		gmres.setPreconditioner(new IncompleteLUPreconditioner(convection));
+		checkSolver("GMRES with incomplete LU", gmres, convection, b);
+		checkSolver("GMRES on a dense matrix", new GmresSolver(10), new Matrix(convectionDiffusion(8, 0.4).getMatrix()),
+				randomVector(64));
+	}
+	
+	
+	/**
+	 * Solves Ax = b and checks the relative residual of the solution.
+	 */
+	private static void checkSolver(String name, IterativeSolver solver, Matrix a, double[] b) {
+		IterativeSolution solution = solver.solve(a, b);
+		require(name + " converges", solution.isConverged());
+		double[] residual = add(a.multiplyBy(new Vector(solution.getSolution())), b, -1);
+		report(name + " residual", norm(residual) / norm(b), 10 * solver.getTolerance());
+	}
+	
+	
+	/**
+	 * Checks StreamingLeastSquares against the QR decomposition of all the rows at once, and
+	 * that it finds the rank of a long system whose third unknown depends on the other two.
+	 */
+	private static void checkStreamingLeastSquares() {
+		double worst = 0;
+		for (int t = 0; t < 20; t++) {
+			int unknowns = 1 + RANDOM.nextInt(10);
+			int rows = unknowns + RANDOM.nextInt(200);
+			double[][] a = randomMatrix(rows, unknowns);
+			double[] b = randomVector(rows);
+			StreamingLeastSquares rowByRow = new StreamingLeastSquares(unknowns);
+			for (int i = 0; i < rows; i++) {
+				rowByRow.add(a[i], b[i]);
+			}
+			double[][] augmented = new double[rows][];
+			for (int i = 0; i < rows; i++) {
+				augmented[i] = Arrays.copyOf(a[i], unknowns + 1);
+				augmented[i][unknowns] = b[i];
+			}
+			StreamingLeastSquares inChunks = new StreamingLeastSquares(unknowns);
+			inChunks.add(new Matrix(augmented));
+			double[] expected = new QRDecomposition(a).solve(b);
+			worst = Math.max(worst, difference(rowByRow.solve(), expected));
+			worst = Math.max(worst, difference(inChunks.solve(), expected));
+		}
+		report("streaming least squares", worst, SOLUTION_LIMIT);
+		StreamingLeastSquares dependent = new StreamingLeastSquares(3);
+		for (int i = 0; i < 200000; i++) {
+			double x = 2 * RANDOM.nextDouble() - 1;
+			double y = 2 * RANDOM.nextDouble() - 1;
+			dependent.add(new double[] {x, y, x + y}, RANDOM.nextDouble());
+		}
+		require("streaming least squares finds rank 2", dependent.getRank() == 2);
+	}
+	
+	
+	/**
+	 * Prints the worst error of a check, and counts it as failed when it is over the limit.
+	 */
+	private static void report(String name, double worst, double limit) {
+		if (worst <= limit) {
+			System.out.printf("ok   %s: %.3g%n", name, worst);
+		} else { // NaN fails as well
+			System.out.printf("FAIL %s: %.3g, more than %.3g%n", name, worst, limit);
+			failures++;
+		}
+	}
+	
+	
+	/**
+	 * Prints whether a condition of a check holds, and counts it as failed when it doesn't.
+	 */
+	private static void require(String name, boolean condition) {
+		System.out.println((condition ? "ok   " : "FAIL ") + name);
+		if (!condition) {
+			failures++;
+		}
+	}
+	
+	
+	/**
+	 * Returns the matrix stored one of four ways: 0 as a plain Matrix, 1 as a transposed view
+	 * of its transpose, 2 as a view inside a larger matrix and 3 as a FlatMatrix.
+	 */
+	private static Matrix storedAs(double[][] a, int storage) {
+		int rows = a.length;
+		int columns = a[0].length;
+		switch (storage) {
+			case 1:
+				return new Matrix(transpose(a)).getTransposeView();
+			case 2:
+				double[][] larger = randomMatrix(rows + 3, columns + 2);
+				for (int i = 0; i < rows; i++) {
+					System.arraycopy(a[i], 0, larger[i + 2], 1, columns);
+				}
+				return new Matrix(larger).getSubMatrixView(2, rows + 2, 1, columns + 1);
+			case 3:
+				return new FlatMatrix(a);
+			default:
+				return new Matrix(a);
+		}
+	}
+	
+	
+	/**
+	 * Returns a (rows x columns) matrix of values between -1 and 1.
+	 */
+	private static double[][] randomMatrix(int rows, int columns) {
+		double[][] matrix = new double[rows][columns];
+		for (double[] row : matrix) {
+			for (int j = 0; j < columns; j++) {
+				row[j] = 2 * RANDOM.nextDouble() - 1;
+			}
+		}
+		return matrix;
+	}
+	
+	
+	/**
+	 * Returns a (rows x columns) matrix of whole numbers from -bound to bound.
+	 */
+	private static double[][] randomIntegerMatrix(int rows, int columns, int bound) {
+		double[][] matrix = new double[rows][columns];
+		for (double[] row : matrix) {
+			for (int j = 0; j < columns; j++) {
+				row[j] = RANDOM.nextInt(2 * bound + 1) - bound;
+			}
+		}
+		return matrix;
+	}
+	
+	
+	/**
+	 * Returns a (rows x columns) matrix of the given rank, the product of two random matrices.
+	 */
+	private static double[][] randomMatrixOfRank(int rows, int columns, int rank) {
+		if (rank == 0) {
+			return new double[rows][columns];
+		}
+		return naiveProduct(randomMatrix(rows, rank), randomMatrix(rank, columns));
+	}
+	
+	
+	/**
+	 * Returns a square random matrix with size added to its diagonal, which keeps it far from
+	 * singular.
+	 */
+	private static double[][] wellConditionedMatrix(int size) {
+		return add(randomMatrix(size, size), identity(size), size);
+	}
+	
+	
+	/**
+	 * Returns a vector of values between -1 and 1.
+	 */
+	private static double[] randomVector(int length) {
+		double[] vector = new double[length];
+		for (int i = 0; i < length; i++) {
+			vector[i] = 2 * RANDOM.nextDouble() - 1;
+		}
+		return vector;
+	}
+	
+	
+	/**
+	 * Returns the 5 point convection-diffusion matrix of a (side x side) grid, which is the
+	 * grid Laplacian with wind added along the x direction.
+	 */
+	private static CsrMatrix convectionDiffusion(int side, double wind) {
+		int n = side * side;
+		int[] rowIndexes = new int[5 * n];
+		int[] columnIndexes = new int[5 * n];
+		double[] entries = new double[5 * n];
+		int count = 0;
+		for (int y = 0; y < side; y++) {
+			for (int x = 0; x < side; x++) {
+				int i = y * side + x;
+				int[] neighbors = {x > 0 ? i - 1 : -1, x < side - 1 ? i + 1 : -1, y > 0 ? i - side : -1, y < side - 1 ? i + side : -1};
+				double[] values = {-1 - wind, -1 + wind, -1, -1};
+				rowIndexes[count] = i;
+				columnIndexes[count] = i;
+				entries[count++] = 4;
+				for (int k = 0; k < 4; k++) {
+					if (neighbors[k] >= 0) {
+						rowIndexes[count] = i;
+						columnIndexes[count] = neighbors[k];
+						entries[count++] = values[k];
+					}
+				}
+			}
+		}
+		return CsrMatrix.fromEntries(n, n, Arrays.copyOf(rowIndexes, count), Arrays.copyOf(columnIndexes, count),
+				Arrays.copyOf(entries, count));
+	}
+	
+	
+	/**
+	 * Returns the solution of a square system given as an augmented matrix, found by Gaussian
+	 * elimination with partial pivoting in 34 digit decimals, or null if the system is
+	 * singular. The values must be whole numbers, so a singular system has an exactly zero
+	 * pivot, which the decimals can't mistake for a tiny one.
+	 */
+	private static double[] decimalSolution(double[][] augmented) {
+		int size = augmented.length;
+		MathContext context = MathContext.DECIMAL128;
+		BigDecimal[][] rows = new BigDecimal[size][size + 1];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j <= size; j++) {
+				rows[i][j] = new BigDecimal(augmented[i][j]);
+			}
+		}
+		BigDecimal negligible = new BigDecimal("1e-20");
+		for (int col = 0; col < size; col++) {
+			int pivot = col;
+			for (int i = col + 1; i < size; i++) {
+				if (rows[i][col].abs().compareTo(rows[pivot][col].abs()) > 0) {
+					pivot = i;
+				}
+			}
+			if (rows[pivot][col].abs().compareTo(negligible) < 0) {
+				return null;
+			}
+			BigDecimal[] swap = rows[pivot];
+			rows[pivot] = rows[col];
+			rows[col] = swap;
+			for (int i = col + 1; i < size; i++) {
+				BigDecimal factor = rows[i][col].divide(rows[col][col], context);
+				for (int j = col; j <= size; j++) {
+					rows[i][j] = rows[i][j].subtract(factor.multiply(rows[col][j], context), context);
+				}
+			}
+		}
+		BigDecimal[] x = new BigDecimal[size];
+		double[] solution = new double[size];
+		for (int i = size - 1; i >= 0; i--) {
+			BigDecimal sum = rows[i][size];
+			for (int j = i + 1; j < size; j++) {
+				sum = sum.subtract(rows[i][j].multiply(x[j], context), context);
+			}
+			x[i] = sum.divide(rows[i][i], context);
+			solution[i] = x[i].doubleValue();
+		}
+		return solution;
+	}
+	
+	
+	/**
+	 * Returns the product of two matrices, with the plain triple loop.
+	 */
+	private static double[][] naiveProduct(double[][] a, double[][] b) {
+		int inner = b.length;
+		int columns = b[0].length;
+		double[][] product = new double[a.length][columns];
+		for (int i = 0; i < a.length; i++) {
+			for (int j = 0; j < columns; j++) {
+				double sum = 0;
+				for (int k = 0; k < inner; k++) {
+					sum += a[i][k] * b[k][j];
+				}
+				product[i][j] = sum;
+			}
+		}
+		return product;
+	}
+	
+	
+	/**
+	 * Returns the product of a matrix and a vector, with the plain double loop.
+	 */
+	private static double[] naiveProduct(double[][] a, double[] v) {
+		double[] product = new double[a.length];
+		for (int i = 0; i < a.length; i++) {
+			for (int k = 0; k < v.length; k++) {
+				product[i] += a[i][k] * v[k];
+			}
+		}
+		return product;
+	}
+	
+	
+	/**
+	 * Returns the outer product uv^T.
+	 */
+	private static double[][] outerProduct(double[] u, double[] v) {
+		return naiveProduct(transpose(new double[][] {u}), new double[][] {v});
+	}
+	
+	
+	/**
+	 * Returns a + scale * b as a new matrix.
+	 */
+	private static double[][] add(double[][] a, double[][] b, double scale) {
+		double[][] sum = new double[a.length][];
+		for (int i = 0; i < a.length; i++) {
+			sum[i] = new double[a[i].length];
+			for (int j = 0; j < a[i].length; j++) {
+				sum[i][j] = a[i][j] + scale * b[i][j];
+			}
+		}
+		return sum;
+	}
+	
+	
+	/**
+	 * Returns a + scale * b as a new vector.
+	 */
+	private static double[] add(double[] a, double[] b, double scale) {
+		return add(new double[][] {a}, new double[][] {b}, scale)[0];
+	}
+	
+	
+	/**
+	 * Returns the transpose of a matrix as a new matrix.
+	 */
+	private static double[][] transpose(double[][] a) {
+		double[][] transpose = new double[a[0].length][a.length];
+		for (int i = 0; i < a.length; i++) {
+			for (int j = 0; j < a[0].length; j++) {
+				transpose[j][i] = a[i][j];
+			}
+		}
+		return transpose;
+	}
+	
+	
+	/**
+	 * Returns rows rowStart to rowEnd and columns colStart to colEnd of a matrix, end indexes
+	 * being exclusive.
+	 */
+	private static double[][] subMatrix(double[][] a, int rowStart, int rowEnd, int colStart, int colEnd) {
+		double[][] result = new double[rowEnd - rowStart][];
+		for (int i = rowStart; i < rowEnd; i++) {
+			result[i - rowStart] = Arrays.copyOfRange(a[i], colStart, colEnd);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Returns the (size x size) identity matrix.
+	 */
+	private static double[][] identity(int size) {
+		double[][] identity = new double[size][size];
+		for (int i = 0; i < size; i++) {
+			identity[i][i] = 1;
+		}
+		return identity;
+	}
+	
+	
+	/**
+	 * Returns a copy of a matrix.
+	 */
+	private static double[][] copy(double[][] a) {
+		double[][] copy = new double[a.length][];
+		for (int i = 0; i < a.length; i++) {
+			copy[i] = a[i].clone();
+		}
+		return copy;
+	}
+	
+	
+	/**
+	 * Returns the largest difference between two matrices of the same size, relative to the
+	 * largest absolute value of the expected one, or to 1 if that is smaller.
+	 */
+	private static double difference(double[][] actual, double[][] expected) {
+		if (actual.length != expected.length) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double worst = 0;
+		for (int i = 0; i < actual.length; i++) {
+			if (actual[i].length != expected[i].length) {
+				return Double.POSITIVE_INFINITY;
+			}
+			for (int j = 0; j < actual[i].length; j++) {
+				worst = Math.max(worst, Math.abs(actual[i][j] - expected[i][j])); // Stays NaN once it is
+			}
+		}
+		return worst / Math.max(1, maxAbs(expected));
+	}
+	
+	
+	/**
+	 * Returns the largest difference between two vectors, as difference(double[][], double[][]) does.
+	 */
+	private static double difference(double[] actual, double[] expected) {
+		return difference(new double[][] {actual}, new double[][] {expected});
+	}
+	
+	
+	/**
+	 * Returns the normwise backward error of a solution x of Ax = b:
+	 * ||b - Ax|| / (||A|| ||x|| + ||b||), in the max norm.
+	 */
+	private static double backwardError(double[][] a, double[] x, double[] b) {
+		double[] residual = add(b, naiveProduct(a, x), -1);
+		double normA = 0;
+		for (double[] row : a) {
+			double sum = 0;
+			for (double value : row) {
+				sum += Math.abs(value);
+			}
+			normA = Math.max(normA, sum);
+		}
+		return maxAbs(residual) / (normA * maxAbs(x) + maxAbs(b));
+	}
+	
+	
+	/**
+	 * Returns the largest absolute value of a matrix.
+	 */
+	private static double maxAbs(double[][] a) {
+		double max = 0;
+		for (double[] row : a) {
+			max = Math.max(max, maxAbs(row));
+		}
+		return max;
+	}
+	
+	
+	/**
+	 * Returns the largest absolute value of a vector.
+	 */
+	private static double maxAbs(double[] v) {
+		double max = 0;
+		for (double value : v) {
+			max = Math.max(max, Math.abs(value));
+		}
+		return max;
+	}
+	
+	
+	/**
+	 * Returns the Euclidean norm of a vector.
+	 */
+	private static double norm(double[] v) {
+		double sum = 0;
+		for (double value : v) {
+			sum += value * value;
+		}
+		return Math.sqrt(sum);
+	}
+	
+}
@@ -0,0 +1,108 @@
+package linear_algebra.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.CholeskyDecomposition;
+import linear_algebra.LUDecomposition;
+import linear_algebra.Matrix;
+import linear_algebra.QRDecomposition;
+import linear_algebra.SingularValueDecomposition;
+import linear_algebra.SquareMatrix;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the decompositions of the same symmetric positive definite
+ * matrix, and solving with each once it has been computed. Cholesky does
+ * half the arithmetic of LU, QR about twice as much and the SVD far more.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class DecompositionBenchmark {
+	
+	@Param({"64", "256"})
+	public int size;
+	
+	private SquareMatrix matrix;
+	private double[] b;
+	private double[] x;
+	private LUDecomposition lu;
+	private CholeskyDecomposition cholesky;
+	private QRDecomposition qr;
+	
+	
+	@Setup
+	public void setUp() {
+		Matrix g = new Matrix(BenchmarkData.randomMatrix(size, size));
+		double[][] spd = new Matrix(g.getTranspose()).multiplyBy(g); // G^T G + nI is positive definite
+		for (int i = 0; i < size; i++) {
+			spd[i][i] += size;
+		}
+		matrix = new SquareMatrix(spd);
+		matrix.setResultCaching(false); // Measure the decompositions, not the cache
+		b = BenchmarkData.randomVector(size);
+		x = new double[size];
+		lu = matrix.getLUDecomposition();
+		cholesky = matrix.getCholeskyDecomposition();
+		qr = matrix.getQRDecomposition();
+	}
+	
+	
+	@Benchmark
+	public LUDecomposition lu() {
+		return matrix.getLUDecomposition();
+	}
+	
+	
+	@Benchmark
+	public CholeskyDecomposition cholesky() {
+		return matrix.getCholeskyDecomposition();
+	}
+	
+	
+	@Benchmark
+	public QRDecomposition qr() {
+		return matrix.getQRDecomposition();
+	}
+	
+	
+	@Benchmark
+	public SingularValueDecomposition svd() {
+		return matrix.getSingularValueDecomposition();
+	}
+	
+	
+	@Benchmark
+	public double[] luSolve() {
+		return lu.solve(b, x);
+	}
+	
+	
+	@Benchmark
+	public double[] choleskySolve() {
+		return cholesky.solve(b, x);
+	}
+	
+	
+	@Benchmark
+	public double[] qrSolve() {
+		return qr.solve(b, x);
+	}
+	
+}
@@ -0,0 +1,68 @@
+package linear_algebra.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.AugmentedMatrix;
+import linear_algebra.IncrementalRowReducer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Feeds the rows of an (n x (n + 1)) system in one at a time and checks the
+ * status after each, first by building a new AugmentedMatrix from every row
+ * so far and reducing it, then with an IncrementalRowReducer.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class IncrementalRowReducerBenchmark {
+	
+	@Param({"16", "64"})
+	public int size;
+	
+	private double[][] rows;
+	
+	
+	@Setup
+	public void setUp() {
+		rows = BenchmarkData.wellConditionedMatrix(size, size + 1);
+	}
+	
+	
+	@Benchmark
+	public boolean reduceEveryTime() {
+		boolean solved = false;
+		for (int i = 1; i <= size; i++) {
+			solved = new AugmentedMatrix(Arrays.copyOf(rows, i)).hasOneSolution();
+		}
+		return solved;
+	}
+	
+	
+	@Benchmark
+	public boolean appendRows() {
+		IncrementalRowReducer reducer = new IncrementalRowReducer(size);
+		IncrementalRowReducer.Status status = null;
+		for (double[] row : rows) {
+			status = reducer.append(row);
+		}
+		return status == IncrementalRowReducer.Status.ONE_SOLUTION;
+	}
+	
+}
@@ -0,0 +1,87 @@
+package linear_algebra.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.InverseUpdater;
+import linear_algebra.LUDecomposition;
+import linear_algebra.SquareMatrix;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares finding an inverse or an LU decomposition again after a rank one
+ * change with updating the one already known. The updates are applied to
+ * the same state over and over, so they keep changing the matrix; the
+ * vectors are small enough that it stays well conditioned.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class InverseUpdateBenchmark {
+	
+	@Param({"64", "256"})
+	public int size;
+	
+	private SquareMatrix matrix;
+	private double[][] inverse;
+	private LUDecomposition decomposition;
+	private double[] u;
+	private double[] v;
+	
+	
+	@Setup
+	public void setUp() {
+		matrix = new SquareMatrix(BenchmarkData.wellConditionedMatrix(size, size));
+		matrix.setResultCaching(false); // Measure inverting again, not the cache
+		inverse = matrix.getInverse();
+		decomposition = matrix.getLUDecomposition();
+		u = BenchmarkData.randomVector(size);
+		v = BenchmarkData.randomVector(size);
+		for (int i = 0; i < size; i++) {
+			u[i] *= 1e-6;
+			v[i] *= 1e-6;
+		}
+	}
+	
+	
+	@Benchmark
+	public double[][] invertAgain() {
+		return matrix.getInverse();
+	}
+	
+	
+	@Benchmark
+	public double[][] shermanMorrison() {
+		InverseUpdater.update(inverse, u, v);
+		return inverse;
+	}
+	
+	
+	@Benchmark
+	public LUDecomposition decomposeAgain() {
+		return matrix.getLUDecomposition();
+	}
+	
+	
+	@Benchmark
+	public LUDecomposition luUpdate() {
+		decomposition.update(u, v);
+		return decomposition;
+	}
+	
+}
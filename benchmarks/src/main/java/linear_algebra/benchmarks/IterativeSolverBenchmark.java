@@ -0,0 +1,86 @@
+package linear_algebra.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.BiCgStabSolver;
+import linear_algebra.ConjugateGradientSolver;
+import linear_algebra.CsrMatrix;
+import linear_algebra.GmresSolver;
+import linear_algebra.IncompleteLUPreconditioner;
+import linear_algebra.IterativeSolution;
+import linear_algebra.IterativeSolver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the iterative solvers on the Laplacian of a (side x side) grid,
+ * with and without an ILU(0) preconditioner. The largest size has 100k
+ * unknowns.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class IterativeSolverBenchmark {
+	
+	@Param({"32", "100", "316"})
+	public int side;
+	
+	@Param({"false", "true"})
+	public boolean preconditioned;
+	
+	private CsrMatrix matrix;
+	private double[] b;
+	private IterativeSolver conjugateGradient;
+	private IterativeSolver gmres;
+	private IterativeSolver biCgStab;
+	
+	
+	@Setup
+	public void setUp() {
+		matrix = BenchmarkData.gridLaplacian(side);
+		b = BenchmarkData.randomVector(side * side);
+		conjugateGradient = new ConjugateGradientSolver();
+		gmres = new GmresSolver();
+		biCgStab = new BiCgStabSolver();
+		for (IterativeSolver solver : new IterativeSolver[] {conjugateGradient, gmres, biCgStab}) {
+			solver.setMaxIterations(10000);
+			if (preconditioned) {
+				solver.setPreconditioner(new IncompleteLUPreconditioner(matrix));
+			}
+		}
+	}
+	
+	
+	@Benchmark
+	public IterativeSolution conjugateGradient() {
+		return conjugateGradient.solve(matrix, b);
+	}
+	
+	
+	@Benchmark
+	public IterativeSolution gmres() {
+		return gmres.solve(matrix, b);
+	}
+	
+	
+	@Benchmark
+	public IterativeSolution biCgStab() {
+		return biCgStab.solve(matrix, b);
+	}
+	
+}
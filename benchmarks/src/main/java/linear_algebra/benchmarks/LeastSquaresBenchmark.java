@@ -0,0 +1,69 @@
+package linear_algebra.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.AugmentedMatrix;
+import linear_algebra.Matrix;
+import linear_algebra.StreamingLeastSquares;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fits a tall, skinny overdetermined system with a QR decomposition of the
+ * whole coefficient matrix, and with StreamingLeastSquares, which folds the
+ * rows in one at a time and keeps only an (n x n) factor.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class LeastSquaresBenchmark {
+	
+	@Param({"10000"})
+	public int rows;
+	
+	@Param({"8", "32"})
+	public int unknowns;
+	
+	private AugmentedMatrix augmented;
+	private Matrix matrix;
+	private StreamingLeastSquares streaming;
+	
+	
+	@Setup
+	public void setUp() {
+		double[][] array = BenchmarkData.randomMatrix(rows, unknowns + 1);
+		augmented = new AugmentedMatrix(array);
+		matrix = new Matrix(array);
+		streaming = new StreamingLeastSquares(unknowns);
+	}
+	
+	
+	@Benchmark
+	public double[] qr() {
+		return augmented.getLeastSquaresSolution();
+	}
+	
+	
+	@Benchmark
+	public double[] streaming() {
+		streaming.clear();
+		streaming.add(matrix);
+		return streaming.solve();
+	}
+	
+}
@@ -0,0 +1,72 @@
+package linear_algebra.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.Matrix;
+import linear_algebra.Vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the arithmetic methods of Matrix on square (n x n)-matrices.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class MatrixBenchmark {
+	
+	@Param({"4", "16", "64", "256", "1024", "2048"})
+	public int size;
+	
+	private Matrix matrix;
+	private Matrix other;
+	private Vector vector;
+	
+	
+	@Setup
+	public void setUp() {
+		matrix = new Matrix(BenchmarkData.randomMatrix(size, size));
+		other = new Matrix(BenchmarkData.randomMatrix(size, size));
+		vector = new Vector(BenchmarkData.randomVector(size));
+	}
+	
+	
+	@Benchmark
+	public double[][] multiplyByScalar() {
+		return matrix.multiplyBy(1.5);
+	}
+	
+	
+	@Benchmark
+	public double[] multiplyByVector() {
+		return matrix.multiplyBy(vector);
+	}
+	
+	
+	@Benchmark
+	public double[][] multiplyByMatrix() {
+		return matrix.multiplyBy(other);
+	}
+	
+	
+	@Benchmark
+	public double[][] getTranspose() {
+		return matrix.getTranspose();
+	}
+	
+}
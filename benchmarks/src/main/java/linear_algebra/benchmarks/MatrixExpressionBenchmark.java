@@ -0,0 +1,79 @@
+package linear_algebra.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.Matrix;
+import linear_algebra.MatrixExpression;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares 2 * (A * B)^T computed by chaining Matrix methods, which
+ * creates a new array at every step, with the same MatrixExpression
+ * evaluated into one reused array. productOfSums evaluates
+ * (A + B)(C + D)(E + F), which should cost three matrix multiplications
+ * rather than the eight of the expanded sum of products.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class MatrixExpressionBenchmark {
+	
+	@Param({"16", "64", "256", "1024"})
+	public int size;
+	
+	private Matrix a;
+	private Matrix b;
+	private MatrixExpression expression;
+	private MatrixExpression productOfSums;
+	private double[][] result;
+	
+	
+	@Setup
+	public void setUp() {
+		a = new Matrix(BenchmarkData.randomMatrix(size, size));
+		b = new Matrix(BenchmarkData.randomMatrix(size, size));
+		expression = MatrixExpression.of(a).times(MatrixExpression.of(b)).transpose().scale(2.0);
+		MatrixExpression[] sums = new MatrixExpression[3];
+		for (int i = 0; i < sums.length; i++) {
+			sums[i] = MatrixExpression.of(BenchmarkData.randomMatrix(size, size))
+					.plus(MatrixExpression.of(BenchmarkData.randomMatrix(size, size)));
+		}
+		productOfSums = sums[0].times(sums[1]).times(sums[2]);
+		result = new double[size][size];
+	}
+	
+	
+	@Benchmark
+	public double[][] chained() {
+		return new Matrix(new Matrix(a.multiplyBy(b)).getTranspose()).multiplyBy(2.0);
+	}
+	
+	
+	@Benchmark
+	public double[][] expression() {
+		return expression.evaluate(result);
+	}
+	
+	
+	@Benchmark
+	public double[][] productOfSums() {
+		return productOfSums.evaluate(result);
+	}
+	
+}
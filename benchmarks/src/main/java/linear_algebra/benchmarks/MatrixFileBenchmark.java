@@ -0,0 +1,93 @@
+package linear_algebra.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.MappedMatrix;
+import linear_algebra.Matrix;
+import linear_algebra.MatrixFile;
+import linear_algebra.Vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures opening a matrix file, compared with reading it into memory,
+ * and multiplying the mapped matrix by a vector, compared with the same
+ * product on a Matrix held in memory. The file is small enough to stay in
+ * the page cache, so this measures the cost of reading through the mapping
+ * rather than the speed of the disk.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class MatrixFileBenchmark {
+	
+	@Param({"64", "512", "2048"})
+	public int size;
+	
+	private Path path;
+	private Matrix matrix;
+	private MappedMatrix mapped;
+	private Vector vector;
+	private double[] result;
+	
+	
+	@Setup
+	public void setUp() throws IOException {
+		path = Files.createTempFile("matrix", ".lamx");
+		matrix = new Matrix(BenchmarkData.randomMatrix(size, size));
+		MatrixFile.write(matrix, path);
+		mapped = MatrixFile.map(path);
+		vector = new Vector(BenchmarkData.randomVector(size));
+		result = new double[size];
+	}
+	
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(path);
+	}
+	
+	
+	@Benchmark
+	public MappedMatrix map() throws IOException {
+		return MatrixFile.map(path);
+	}
+	
+	
+	@Benchmark
+	public Matrix read() throws IOException {
+		return MatrixFile.read(path);
+	}
+	
+	
+	@Benchmark
+	public double[] mappedMultiplyByVector() {
+		return mapped.multiplyBy(vector, result);
+	}
+	
+	
+	@Benchmark
+	public double[] multiplyByVector() {
+		return matrix.multiplyBy(vector, result);
+	}
+	
+}
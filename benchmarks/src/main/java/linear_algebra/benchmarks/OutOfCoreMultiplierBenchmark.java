@@ -0,0 +1,104 @@
+package linear_algebra.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.MappedMatrix;
+import linear_algebra.Matrix;
+import linear_algebra.MatrixFile;
+import linear_algebra.OutOfCoreMultiplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the out-of-core product of two (size x size) mapped matrices
+ * into a mapped result, with and without the prefetching reader thread,
+ * against the in-memory product of the same matrices. The budget is set
+ * so that the product is split into many tiles.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class OutOfCoreMultiplierBenchmark {
+	
+	@Param({"512", "1024"})
+	public int size;
+	
+	@Param({"4194304"})
+	public long memoryBudget;
+	
+	private Path aPath;
+	private Path bPath;
+	private Path resultPath;
+	private Matrix a;
+	private Matrix b;
+	private MappedMatrix mappedA;
+	private MappedMatrix mappedB;
+	private MappedMatrix result;
+	private OutOfCoreMultiplier prefetching;
+	private OutOfCoreMultiplier sequential;
+	
+	
+	@Setup
+	public void setUp() throws IOException {
+		aPath = Files.createTempFile("a", ".lamx");
+		bPath = Files.createTempFile("b", ".lamx");
+		resultPath = Files.createTempFile("result", ".lamx");
+		a = new Matrix(BenchmarkData.randomMatrix(size, size));
+		b = new Matrix(BenchmarkData.randomMatrix(size, size));
+		MatrixFile.write(a, aPath);
+		MatrixFile.write(b, bPath);
+		mappedA = MatrixFile.map(aPath);
+		mappedB = MatrixFile.map(bPath);
+		result = MatrixFile.create(resultPath, size, size, MatrixFile.Layout.ROW_MAJOR);
+		prefetching = new OutOfCoreMultiplier(memoryBudget, true);
+		sequential = new OutOfCoreMultiplier(memoryBudget, false);
+	}
+	
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(aPath);
+		Files.deleteIfExists(bPath);
+		Files.deleteIfExists(resultPath);
+	}
+	
+	
+	@Benchmark
+	public MappedMatrix prefetching() {
+		prefetching.multiply(mappedA, mappedB, result);
+		return result;
+	}
+	
+	
+	@Benchmark
+	public MappedMatrix sequential() {
+		sequential.multiply(mappedA, mappedB, result);
+		return result;
+	}
+	
+	
+	@Benchmark
+	public double[][] inMemory() {
+		return a.multiplyBy(b);
+	}
+	
+}
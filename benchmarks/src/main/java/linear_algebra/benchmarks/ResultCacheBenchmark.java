@@ -0,0 +1,81 @@
+package linear_algebra.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.AugmentedMatrix;
+import linear_algebra.SquareMatrix;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Asks the same matrix for its determinant, inverse and solution analysis
+ * over and over, with result caching on and off. With caching on, only the
+ * first call does the work, and later ones return the cached result (or a
+ * copy of it, for the inverse). The "Modified" benchmarks change a value
+ * before every call, so the cache never hits and only its bookkeeping is
+ * measured.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ResultCacheBenchmark {
+	
+	@Param({"64", "256"})
+	public int size;
+	
+	@Param({"true", "false"})
+	public boolean caching;
+	
+	private SquareMatrix matrix;
+	private AugmentedMatrix augmented;
+	
+	
+	@Setup
+	public void setUp() {
+		matrix = new SquareMatrix(BenchmarkData.wellConditionedMatrix(size, size));
+		matrix.setResultCaching(caching);
+		augmented = new AugmentedMatrix(BenchmarkData.wellConditionedMatrix(size, size + 1));
+		augmented.setResultCaching(caching);
+	}
+	
+	
+	@Benchmark
+	public double getDeterminant() {
+		return matrix.getDeterminant();
+	}
+	
+	
+	@Benchmark
+	public double getDeterminantModified() {
+		matrix.setValue(0, 0, matrix.getValue(0, 0));
+		return matrix.getDeterminant();
+	}
+	
+	
+	@Benchmark
+	public double[][] getInverse() {
+		return matrix.getInverse();
+	}
+	
+	
+	@Benchmark
+	public boolean hasOneSolution() {
+		return augmented.hasOneSolution();
+	}
+	
+}
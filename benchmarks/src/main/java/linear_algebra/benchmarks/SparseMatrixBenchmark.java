@@ -0,0 +1,86 @@
+package linear_algebra.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.CscMatrix;
+import linear_algebra.CsrMatrix;
+import linear_algebra.Matrix;
+import linear_algebra.Vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the sparse matrix products on the Laplacian of a (side x side)
+ * grid, which has side * side rows. The largest size has a million rows.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SparseMatrixBenchmark {
+	
+	@Param({"32", "316", "1000"})
+	public int side;
+	
+	private CsrMatrix csr;
+	private CscMatrix csc;
+	private Vector vector;
+	private double[] result;
+	private Matrix block;
+	
+	
+	@Setup
+	public void setUp() {
+		csr = BenchmarkData.gridLaplacian(side);
+		csc = csr.toCsc();
+		vector = new Vector(BenchmarkData.randomVector(side * side));
+		result = new double[side * side];
+		block = new Matrix(BenchmarkData.randomMatrix(side * side, 4));
+	}
+	
+	
+	@Benchmark
+	public double[] csrMultiplyByVector() {
+		return csr.multiplyBy(vector, result);
+	}
+	
+	
+	@Benchmark
+	public double[] cscMultiplyByVector() {
+		return csc.multiplyBy(vector, result);
+	}
+	
+	
+	@Benchmark
+	public double[] csrMultiplyByVectorParallel() {
+		return csr.multiplyBy(vector, ForkJoinPool.commonPool());
+	}
+	
+	
+	@Benchmark
+	public double[][] csrMultiplyByMatrix() {
+		return csr.multiplyBy(block);
+	}
+	
+	
+	@Benchmark
+	public CscMatrix toCsc() {
+		return csr.toCsc();
+	}
+	
+}
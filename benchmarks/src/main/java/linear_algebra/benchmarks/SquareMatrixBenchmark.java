@@ -0,0 +1,56 @@
+package linear_algebra.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.SquareMatrix;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the determinant and inverse of SquareMatrix. A new SquareMatrix is
+ * wrapped around the same array for every call, so nothing is reused between calls.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SquareMatrixBenchmark {
+	
+	@Param({"4", "16", "64", "256", "1024", "2048"})
+	public int size;
+	
+	private double[][] array;
+	
+	
+	@Setup
+	public void setUp() {
+		array = BenchmarkData.wellConditionedMatrix(size, size);
+	}
+	
+	
+	@Benchmark
+	public double getDeterminant() {
+		return new SquareMatrix(array).getDeterminant();
+	}
+	
+	
+	@Benchmark
+	public double[][] getInverse() {
+		return new SquareMatrix(array).getInverse();
+	}
+	
+}
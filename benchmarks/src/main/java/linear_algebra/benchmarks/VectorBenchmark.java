@@ -0,0 +1,54 @@
+package linear_algebra.benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.Vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures Vector.isLinearlyIndependent() on n independent vectors of length n,
+ * which is the worst case since no vector can be rejected early.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class VectorBenchmark {
+	
+	@Param({"4", "16", "64", "256", "1024", "2048"})
+	public int size;
+	
+	private ArrayList<Vector> vectors;
+	
+	
+	@Setup
+	public void setUp() {
+		vectors = new ArrayList<>();
+		for (double[] row : BenchmarkData.wellConditionedMatrix(size, size)) {
+			vectors.add(new Vector(row));
+		}
+	}
+	
+	
+	@Benchmark
+	public boolean isLinearlyIndependent() {
+		return Vector.isLinearlyIndependent(vectors);
+	}
+	
+}
@@ -0,0 +1,74 @@
+package linear_algebra.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs WorkspaceBenchmark with the gc profiler and exits with status 1 if
+ * any operation allocates once it has warmed up. Run it after building
+ * the benchmarks with:
+ * 
+ *     java -cp target/benchmarks.jar linear_algebra.benchmarks.WorkspaceAllocationCheck
+ * 
+ * JMH allocates a few hundred bytes of its own every iteration, which the
+ * profiler spreads over the operations in that iteration. For an operation
+ * that runs only a few times a second, like the adjoint of a 64 x 64
+ * matrix, that reads as over 100 B/op, so the limit is on the bytes
+ * allocated per iteration instead. An operation that allocates on every
+ * call runs thousands of times an iteration and goes far past it.
+ * 
+ * @author Aaron Smith
+ */
+public final class WorkspaceAllocationCheck {
+	
+	private static final double MAX_BYTES_PER_ITERATION = 2048; // Above what JMH allocates per iteration
+	private static final int ITERATION_SECONDS = 1;
+	
+	
+	private WorkspaceAllocationCheck() {
+		// Only static methods
+	}
+	
+	
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(WorkspaceBenchmark.class.getName() + "\\.")
+				.addProfiler(GCProfiler.class)
+				.timeUnit(TimeUnit.SECONDS)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(ITERATION_SECONDS))
+				.measurementIterations(3)
+				.measurementTime(TimeValue.seconds(ITERATION_SECONDS))
+				.build();
+		int failures = 0;
+		for (RunResult result : new Runner(options).run()) {
+			String name = result.getParams().getBenchmark() + " size=" + result.getParams().getParam("size");
+			Result<?> allocation = result.getSecondaryResults().get("gc.alloc.rate.norm");
+			if (allocation == null) {
+				System.out.println("FAIL " + name + ": no allocation rate was measured");
+				failures++;
+				continue;
+			}
+			double bytesPerOperation = allocation.getScore();
+			double bytesPerIteration = bytesPerOperation * result.getPrimaryResult().getScore() * ITERATION_SECONDS;
+			if (bytesPerIteration > MAX_BYTES_PER_ITERATION) {
+				System.out.printf("FAIL %s: %.1f B/op, %.0f B per iteration%n", name, bytesPerOperation, bytesPerIteration);
+				failures++;
+			} else {
+				System.out.printf("ok   %s: %.3f B/op%n", name, bytesPerOperation);
+			}
+		}
+		if (failures > 0) {
+			System.exit(1);
+		}
+	}
+	
+}
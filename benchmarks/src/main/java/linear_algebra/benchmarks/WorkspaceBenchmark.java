@@ -0,0 +1,117 @@
+package linear_algebra.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import linear_algebra.AugmentedMatrix;
+import linear_algebra.Matrix;
+import linear_algebra.SquareMatrix;
+import linear_algebra.Vector;
+import linear_algebra.Workspace;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the operations that write into arrays supplied by the caller
+ * and keep their temporaries in a Workspace. The result arrays and the
+ * workspace are reused across calls, as in a control loop, so run with
+ * -prof gc: gc.alloc.rate.norm should be about 0 bytes per operation.
+ * WorkspaceAllocationCheck runs these with the profiler and fails if any
+ * of them allocates.
+ * 
+ * @author Aaron Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class WorkspaceBenchmark {
+	
+	@Param({"8", "64"})
+	public int size;
+	
+	private Workspace workspace;
+	private Matrix matrix;
+	private SquareMatrix square;
+	private AugmentedMatrix augmented;
+	private Vector vector;
+	private double[] vectorResult;
+	private double[] solution;
+	private double[][] result;
+	private double[][] augmentedResult;
+	
+	
+	@Setup
+	public void setUp() {
+		workspace = new Workspace();
+		double[][] array = BenchmarkData.wellConditionedMatrix(size, size);
+		matrix = new Matrix(array);
+		square = new SquareMatrix(array);
+		augmented = new AugmentedMatrix(BenchmarkData.wellConditionedMatrix(size, size + 1));
+		vector = new Vector(BenchmarkData.randomVector(size));
+		vectorResult = new double[size];
+		solution = new double[size];
+		result = new double[size][size];
+		augmentedResult = new double[size][size + 1];
+	}
+	
+	
+	@Benchmark
+	public double[] solve() {
+		return augmented.solve(solution, workspace);
+	}
+	
+	
+	@Benchmark
+	public double getDeterminant() {
+		return square.getDeterminant(workspace);
+	}
+	
+	
+	@Benchmark
+	public double[][] getInverse() {
+		return square.getInverse(result, workspace);
+	}
+	
+	
+	@Benchmark
+	public double[][] getReducedMatrix() {
+		return augmented.getReducedMatrix(augmentedResult, workspace);
+	}
+	
+	
+	@Benchmark
+	public double[][] getAdjoint() {
+		return square.getAdjoint(result, workspace);
+	}
+	
+	
+	@Benchmark
+	public double[][] multiplyByMatrix() {
+		return matrix.multiplyBy(square, result);
+	}
+	
+	
+	@Benchmark
+	public double[] multiplyByVector() {
+		return matrix.multiplyBy(vector, vectorResult);
+	}
+	
+	
+	@Benchmark
+	public double[][] getTranspose() {
+		return matrix.getTranspose(result);
+	}
+	
+}
@@ -0,0 +1,480 @@
+package linear_algebra;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class models a matrix whose values are stored outside the Java
+ * heap, in a MemorySegment allocated from an Arena. A large double[][]
+ * puts a lot of work on the garbage collector, since every row is a
+ * separate object and very large ones take up whole regions of the heap.
+ * An OffHeapMatrix is a single small object on the heap, and its memory
+ * is freed when its arena is closed rather than by the garbage collector.
+ * 
+ * A matrix made with OffHeapMatrix(rows, columns) has its own shared arena,
+ * which close() releases. Passing an Arena instead places the matrix in
+ * that arena, to be released with everything else in it when the caller
+ * closes it. Matrices in a shared arena can be read and written from any
+ * thread; a confined arena limits them to the thread that created it.
+ * Using a matrix after its arena is closed throws IllegalStateException.
+ * 
+ * Values are stored in row-major order. Methods that work value by value
+ * or row by row read the segment directly, and multiply(), transpose() and
+ * reduce() keep their results off the heap as well. Methods that have to
+ * return a double[][], like getMatrix(), copy the whole matrix onto the heap.
+ * 
+ * This class uses the Foreign Function and Memory API, which is final as
+ * of Java 22. It is kept out of the main sources so the rest of the
+ * library still builds on Java 17.
+ * 
+ * @author Aaron Smith
+ */
+public class OffHeapMatrix extends Matrix implements AutoCloseable {
+	
+	private static final long ALIGNMENT = 64; // Start the values on a cache line
+	private static final long PRODUCT_MEMORY_BUDGET = 3L * 256 * 256 * Double.BYTES; // 256 x 256 tiles on the heap
+	
+	private final Arena arena;
+	private final boolean ownsArena;
+	private final MemorySegment segment;
+	private final int rows;
+	private final int columns;
+	
+	
+	/**
+	 * Constructs an OffHeapMatrix object filled with zeros, in its own shared arena.
+	 * Call close() to release its memory.
+	 * 
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 */
+	public OffHeapMatrix(int rows, int columns) {
+		this(rows, columns, Arena.ofShared(), true);
+	}
+	
+	
+	/**
+	 * Constructs an OffHeapMatrix object filled with zeros, in an arena supplied by the caller.
+	 * Its memory is released when the arena is closed.
+	 * 
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param arena The arena to allocate the values from.
+	 */
+	public OffHeapMatrix(int rows, int columns, Arena arena) {
+		this(rows, columns, arena, false);
+	}
+	
+	
+	/**
+	 * Constructs an OffHeapMatrix object holding a copy of another matrix, in an arena
+	 * supplied by the caller.
+	 * 
+	 * @param m The matrix to copy.
+	 * @param arena The arena to allocate the values from.
+	 */
+	public OffHeapMatrix(Matrix m, Arena arena) {
+		this(m.getRowCount(), m.getColumnCount(), arena, false);
+		double[][] line = new double[1][columns];
+		for (int i = 0; i < rows; i++) {
+			m.readBlock(i, 0, 1, columns, line);
+			this.writeBlock(i, 0, 1, columns, line);
+		}
+	}
+	
+	
+	private OffHeapMatrix(int rows, int columns, Arena arena, boolean ownsArena) {
+		super(null); // Values live in the segment
+		if (rows < 0 || columns < 0) {
+			throw new IllegalArgumentException("Invalid matrix dimensions");
+		}
+		this.rows = rows;
+		this.columns = columns;
+		this.arena = arena;
+		this.ownsArena = ownsArena;
+		this.segment = arena.allocate((long) rows * columns * Double.BYTES, ALIGNMENT); // Filled with zeros
+	}
+	
+	
+	/**
+	 * Returns the segment holding the values in row-major order. It is not a copy, so it can
+	 * be passed to native code.
+	 * 
+	 * @return The segment.
+	 */
+	public MemorySegment getSegment() {
+		return segment;
+	}
+	
+	
+	/**
+	 * Releases the memory of a matrix made with OffHeapMatrix(rows, columns). A matrix in an
+	 * arena supplied by the caller is released when that arena is closed, so this does nothing.
+	 */
+	@Override
+	public void close() {
+		if (ownsArena) {
+			arena.close();
+		}
+	}
+	
+	
+	/**
+	 * Returns the position of entry (row, col) in the segment, counted in doubles.
+	 */
+	private long index(int row, int col) {
+		return (long) row * columns + col;
+	}
+	
+	
+	@Override
+	public int getRowCount() {
+		return rows;
+	}
+	
+	
+	@Override
+	public int getColumnCount() {
+		return columns;
+	}
+	
+	
+	@Override
+	public double getValue(int row, int col) {
+		if (row < 0 || col < 0 || row >= rows || col >= columns) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		return segment.getAtIndex(ValueLayout.JAVA_DOUBLE, this.index(row, col));
+	}
+	
+	
+	@Override
+	public void setValue(int row, int col, double value) {
+		if (row < 0 || col < 0 || row >= rows || col >= columns) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		segment.setAtIndex(ValueLayout.JAVA_DOUBLE, this.index(row, col), value);
+		this.markModified();
+	}
+	
+	
+	/**
+	 * Copies part of a row into an array.
+	 */
+	private void readRow(int row, int col, double[] target, int length) {
+		MemorySegment.copy(segment, ValueLayout.JAVA_DOUBLE, this.index(row, col) * Double.BYTES, target, col, length);
+	}
+	
+	
+	/**
+	 * Copies part of an array into a row.
+	 */
+	private void writeRow(int row, int col, double[] source, int length) {
+		MemorySegment.copy(source, col, segment, ValueLayout.JAVA_DOUBLE, this.index(row, col) * Double.BYTES, length);
+		this.markModified();
+	}
+	
+	
+	@Override
+	public double[] getRow(int rowNumber) {
+		if (rowNumber < 0 || rowNumber >= rows) {
+			throw new IllegalArgumentException("Row " + rowNumber + " does not exist");
+		}
+		double[] result = new double[columns];
+		this.readRow(rowNumber, 0, result, columns);
+		return result;
+	}
+	
+	
+	@Override
+	public double[] getColumn(int columnNumber) {
+		if (columnNumber < 0 || columnNumber >= columns) {
+			throw new IllegalArgumentException("Column " + columnNumber + " does not exist");
+		}
+		double[] result = new double[rows];
+		for (int i = 0; i < rows; i++) {
+			result[i] = segment.getAtIndex(ValueLayout.JAVA_DOUBLE, this.index(i, columnNumber));
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Returns a copy of the whole matrix on the heap.
+	 */
+	@Override
+	public double[][] getMatrix() {
+		double[][] result = new double[rows][];
+		for (int i = 0; i < rows; i++) {
+			result[i] = this.getRow(i);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Copies the values of a 2d array into the matrix.
+	 */
+	@Override
+	public void setMatrix(double[][] matrix) {
+		if (matrix.length != rows || (rows > 0 && matrix[0].length != columns)) {
+			throw new IllegalArgumentException("Matrix is not " + rows + " x " + columns);
+		}
+		for (int i = 0; i < rows; i++) {
+			this.writeRow(i, 0, matrix[i], columns);
+		}
+	}
+	
+	
+	/**
+	 * Copies a block of the matrix into a 2d array, one bulk copy per row.
+	 */
+	@Override
+	void readBlock(int row, int col, int blockRows, int blockColumns, double[][] target) {
+		for (int i = 0; i < blockRows; i++) {
+			MemorySegment.copy(segment, ValueLayout.JAVA_DOUBLE, this.index(row + i, col) * Double.BYTES,
+					target[i], 0, blockColumns);
+		}
+	}
+	
+	
+	/**
+	 * Copies a 2d array into a block of the matrix, one bulk copy per row.
+	 */
+	@Override
+	void writeBlock(int row, int col, int blockRows, int blockColumns, double[][] source) {
+		this.markModified();
+		for (int i = 0; i < blockRows; i++) {
+			MemorySegment.copy(source[i], 0, segment, ValueLayout.JAVA_DOUBLE, this.index(row + i, col) * Double.BYTES,
+					blockColumns);
+		}
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by a vector and stores the product in result, one dot product
+	 * per row.
+	 * 
+	 * @param v Vector to multiply by.
+	 * @param result The double[] to store the product in, one value per row.
+	 * @return The result double[].
+	 */
+	@Override
+	public double[] multiplyBy(Vector v, double[] result) {
+		double[] vector = v.getVector();
+		if (columns != vector.length) {
+			throw new IllegalArgumentException("Number of columns in matrix != number of rows in vector");
+		}
+		if (result.length != rows) {
+			throw new IllegalArgumentException("Result vector length != number of rows in matrix");
+		}
+		this.multiplyRows(vector, result, 0, rows);
+		return result;
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by a vector using the threads of a ForkJoinPool. The rows
+	 * are split between tasks, which read the segment at the same time, so the matrix must be
+	 * in a shared arena.
+	 * 
+	 * @param v Vector to multiply by.
+	 * @param pool The pool to run the multiplication on, such as ForkJoinPool.commonPool().
+	 * @return The resulting vector as a double[].
+	 */
+	@Override
+	public double[] multiplyBy(Vector v, ForkJoinPool pool) {
+		double[] vector = v.getVector();
+		if (columns != vector.length) {
+			throw new IllegalArgumentException("Number of columns in matrix != number of rows in vector");
+		}
+		double[] result = new double[rows];
+		pool.invoke(new RowsTask(vector, result, 0, rows));
+		return result;
+	}
+	
+	
+	/**
+	 * Computes rows rowStart to rowEnd of the product with a vector.
+	 */
+	private void multiplyRows(double[] vector, double[] result, int rowStart, int rowEnd) {
+		double[] line = new double[columns];
+		for (int i = rowStart; i < rowEnd; i++) {
+			this.readRow(i, 0, line, columns);
+			result[i] = VectorKernels.dot(line, 0, vector, 0, columns);
+		}
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by another matrix, and stores the product in a new OffHeapMatrix.
+	 * The product is computed a tile at a time by an OutOfCoreMultiplier, so only a few small
+	 * tiles are ever on the heap.
+	 * 
+	 * @param m Other matrix to multiply by.
+	 * @param resultArena The arena to allocate the product from.
+	 * @return The product.
+	 */
+	public OffHeapMatrix multiply(Matrix m, Arena resultArena) {
+		if (columns != m.getRowCount()) {
+			throw new IllegalArgumentException("Number of columns in matrix 1 != number of rows in matrix 2");
+		}
+		OffHeapMatrix result = new OffHeapMatrix(rows, m.getColumnCount(), resultArena);
+		new OutOfCoreMultiplier(PRODUCT_MEMORY_BUDGET, false).multiply(this, m, result);
+		return result;
+	}
+	
+	
+	/**
+	 * Returns the transpose of the matrix as a new OffHeapMatrix. It is copied in square
+	 * tiles, so both matrices are read and written a row of a tile at a time.
+	 * 
+	 * @param resultArena The arena to allocate the transpose from.
+	 * @return The transpose.
+	 */
+	public OffHeapMatrix transpose(Arena resultArena) {
+		OffHeapMatrix result = new OffHeapMatrix(columns, rows, resultArena);
+		int size = 64;
+		double[][] tile = new double[size][size];
+		double[][] transposed = new double[size][size];
+		for (int i = 0; i < rows; i += size) {
+			int tileRows = Math.min(size, rows - i);
+			for (int j = 0; j < columns; j += size) {
+				int tileColumns = Math.min(size, columns - j);
+				this.readBlock(i, j, tileRows, tileColumns, tile);
+				for (int r = 0; r < tileRows; r++) {
+					for (int c = 0; c < tileColumns; c++) {
+						transposed[c][r] = tile[r][c]; // Transposes...
+					}
+				}
+				result.writeBlock(j, i, tileColumns, tileRows, transposed);
+			}
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Reduces the matrix into reduced row echelon form in place, using the same Gauss-Jordan
+	 * elimination with partial pivoting as the in-memory matrices. Any column can hold a pivot.
+	 * The rows being combined are copied onto the heap one at a time.
+	 * 
+	 * @param tolerance Values at or below tolerance * (largest absolute value in the matrix) are
+	 * treated as zero.
+	 * @return The rank, which is the number of pivots found.
+	 */
+	public int reduce(double tolerance) {
+		return this.reduce(columns, tolerance);
+	}
+	
+	
+	/**
+	 * Reduces the matrix into reduced row echelon form in place, using the same Gauss-Jordan
+	 * elimination with partial pivoting as the in-memory matrices. Only the first
+	 * pivotColumnLimit columns can hold pivots, so passing columns - 1 reduces an augmented
+	 * matrix the way AugmentedMatrix does. Rows that end up all zero are moved to the bottom.
+	 * The rows being combined are copied onto the heap one at a time.
+	 * 
+	 * @param pivotColumnLimit The number of columns, starting from the left, to look for pivots in.
+	 * @param tolerance Values at or below tolerance * (largest absolute value in the matrix) are
+	 * treated as zero.
+	 * @return The rank, which is the number of pivots found.
+	 * @throws IllegalArgumentException If pivotColumnLimit is negative or more than the number of columns.
+	 */
+	public int reduce(int pivotColumnLimit, double tolerance) {
+		if (pivotColumnLimit < 0 || pivotColumnLimit > columns) {
+			throw new IllegalArgumentException("Pivot column limit must be between 0 and " + columns);
+		}
+		int[] pivotColumns = new int[Math.min(rows, pivotColumnLimit)];
+		return RowReducer.reduce(new ReducerRows(), pivotColumnLimit, tolerance, pivotColumns);
+	}
+	
+	
+	/**
+	 * Gives the row reducer access to the rows, copying them in and out of heap buffers.
+	 */
+	private class ReducerRows implements RowReducer.Rows {
+		
+		private final double[] swapBuffer = new double[columns];
+		
+		@Override
+		public int rows() {
+			return rows;
+		}
+		
+		@Override
+		public int columns() {
+			return columns;
+		}
+		
+		@Override
+		public double get(int row, int col) {
+			return segment.getAtIndex(ValueLayout.JAVA_DOUBLE, OffHeapMatrix.this.index(row, col));
+		}
+		
+		@Override
+		public void set(int row, int col, double value) {
+			segment.setAtIndex(ValueLayout.JAVA_DOUBLE, OffHeapMatrix.this.index(row, col), value);
+			OffHeapMatrix.this.markModified();
+		}
+		
+		@Override
+		public double[] buffer() {
+			return new double[columns];
+		}
+		
+		@Override
+		public double[] read(int row, int col, double[] buffer) {
+			OffHeapMatrix.this.readRow(row, col, buffer, columns - col);
+			return buffer;
+		}
+		
+		@Override
+		public void write(int row, int col, double[] values) {
+			OffHeapMatrix.this.writeRow(row, col, values, columns - col);
+		}
+		
+		@Override
+		public void swap(int i, int j) {
+			OffHeapMatrix.this.readRow(i, 0, swapBuffer, columns);
+			MemorySegment.copy(segment, OffHeapMatrix.this.index(j, 0) * Double.BYTES, segment,
+					OffHeapMatrix.this.index(i, 0) * Double.BYTES, (long) columns * Double.BYTES);
+			OffHeapMatrix.this.writeRow(j, 0, swapBuffer, columns);
+		}
+		
+	}
+	
+	
+	/**
+	 * Task that computes a range of rows of a matrix-vector product.
+	 */
+	private class RowsTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		private final double[] vector, result;
+		private final int rowStart, rowEnd;
+		
+		RowsTask(double[] vector, double[] result, int rowStart, int rowEnd) {
+			this.vector = vector;
+			this.result = result;
+			this.rowStart = rowStart;
+			this.rowEnd = rowEnd;
+		}
+		
+		@Override
+		protected void compute() {
+			int count = rowEnd - rowStart;
+			if (count <= 1 || (long) count * columns <= MatrixMultiplier.PARALLEL_THRESHOLD) {
+				multiplyRows(vector, result, rowStart, rowEnd);
+			} else {
+				int middle = rowStart + count / 2;
+				invokeAll(new RowsTask(vector, result, rowStart, middle), new RowsTask(vector, result, middle, rowEnd));
+			}
+		}
+		
+	}
+	
+}
@@ -11,6 +11,14 @@ package linear_algebra;
  */
 public class AugmentedMatrix extends Matrix {
 	
+	/**
+	 * The relative tolerance used by default when reducing a matrix.
+	 */
+	public static final double DEFAULT_TOLERANCE = 1e-10;
+	
+	private double tolerance = DEFAULT_TOLERANCE;
+	
+	
 	/**
 	 * Constructs an AugmentedMatrix object with an initial 2d array.
 	 * 
@@ -38,197 +46,172 @@ public class AugmentedMatrix extends Matrix {
 	
 	
 	/**
-	 * Checks if the rest of a given array starting from an index is made up of all zeros.
+	 * This method reduces the matrix into reduced row echelon form using the 
+	 * Gauss-Jordan Elimination Method with partial pivoting. The reduction runs
+	 * in place on a single copy of the matrix, so the original matrix isn't edited.
+	 * Only the columns left of the last column can hold pivots. Values that are 
+	 * negligible compared to the largest value in the matrix, according to the 
+	 * tolerance, are set to zero.
 	 * 
-	 * @param column The column/array to test.
-	 * @param index The index in the array indicating where to start searching for zeros.
-	 * @return True if the rest of the array is made up of all zeros, otherwise returns false.
+	 * @return The reduced matrix.
 	 */
-	private boolean restOfArrayIsZero(double[] column, int index) {
-		for (int i = index; i < column.length; i++) {
-			if (column[i] != 0) {
-				return false;
-			}
-		}
-		return true;
+	public double[][] getReducedMatrix() {
+		return this.getSolutionAnalysis().getReducedMatrix();
 	}
 	
 	
 	/**
-	 * This moves a row to the bottom of a matrix.
+	 * Reduces the matrix into reduced row echelon form, the same way as getReducedMatrix(),
+	 * and writes it into a 2d array supplied by the caller. The pivot columns are kept in the
+	 * workspace, so nothing is allocated, and the cached solution analysis isn't touched.
 	 * 
-	 * @param matrix The matrix to perform the operation on.
-	 * @param row The index of the row to move to the bottom.
-	 * @return The changed matrix.
+	 * @param result The 2d array to write the reduced matrix into, the same size as the matrix.
+	 * Its rows may end up in a different order, since rows are swapped by reference. It may be
+	 * the matrix's own array, but must not share only some of its rows.
+	 * @param workspace The workspace to hold the pivot columns.
+	 * @return The result array.
 	 */
-	private double[][] moveRowToBottom(double[][] matrix, int row) {
-		if (row >= matrix.length) {
-			throw new IllegalArgumentException("Row does not exist");
-		} else if (row == matrix.length - 1) { // Checks if row is already at the bottom of matrix.
-			return matrix;
+	public double[][] getReducedMatrix(double[][] result, Workspace workspace) {
+		int rows = this.getRowCount();
+		int columns = this.getColumnCount();
+		if (result.length != rows || (rows > 0 && result[0].length != columns)) {
+			throw new IllegalArgumentException("Result matrix is not " + rows + " x " + columns);
 		}
-		double[] rowToMove = matrix[row];
-		for (int i = 0; i < matrix.length - 1; i++) {
-			double[] currentRow = matrix[i];
-			if (rowToMove == currentRow) {
-				matrix = this.rowInterchange(matrix, i, i + 1);
-			}
+		if (this.sharesArray(result)) { // Reducing in place changes the matrix
+			this.markModified();
 		}
-		return matrix;
+		this.readBlock(0, 0, rows, columns, result);
+		int unknowns = columns - 1;
+		RowReducer.reduce(workspace.rows(result), unknowns, tolerance, workspace.indexes(Math.min(rows, unknowns)));
+		return result;
 	}
 	
 	
 	/**
-	 * This method scales a row so that it's leading number is a 1.
-	 * In linear algebra, this is a row operation that is equivalent to
-	 * multiplying an entire row by a scalar. It is written like: (scalar)rowX
+	 * Solves a square system, with one equation per unknown, and writes the solution into
+	 * an array supplied by the caller. The coefficient part is decomposed in the workspace and
+	 * the last column is used as the right hand side, so once the workspace is set up this
+	 * allocates nothing, which suits loops that solve a changing system of a fixed size.
 	 * 
-	 * @param row The row to scale.
-	 * @param numberToReduceBy The scale to reduce the row by.
-	 * @return The scaled row.
+	 * @param x The array to write the solution into, one value per unknown.
+	 * @param workspace The workspace to hold the decomposition and right hand side.
+	 * @return The x array holding the solution.
+	 * @throws IllegalArgumentException If the coefficient matrix is not square or is singular.
 	 */
-	private double[] rowScale(double[] row, double numberToReduceBy) {
-		if (numberToReduceBy == 0) {
-			throw new IllegalArgumentException("Can't reduce/divide by zero");
+	public double[] solve(double[] x, Workspace workspace) {
+		int size = this.getRowCount();
+		if (size != this.getColumnCount() - 1) {
+			throw new IllegalArgumentException("Coefficient matrix is not square");
 		}
-		for (int i = 0; i < row.length; i++) {
-			row[i] = row[i] / numberToReduceBy;
+		LUDecomposition decomposition = workspace.decomposition(size);
+		double[] b = workspace.vector(size);
+		for (int i = 0; i < size; i++) {
+			b[i] = this.getValue(i, size);
 		}
-		return row;
+		decomposition.decomposeLeading(this, size); // Read a block at a time, so views and mapped matrices aren't copied whole
+		return decomposition.solve(b, x);
 	}
 	
 	
 	/**
-	 * This method switches two rows with each other. In linear algebra, this is
-	 * a row operation that is written like: rowX <-> rowY.
+	 * Returns the analysis of the system of equations, which holds the rank, pivot columns,
+	 * free variables, consistency, a particular solution and a null space basis. The matrix is
+	 * only reduced the first time this is called; the result is kept until the matrix is changed
+	 * through setMatrix(), setValue() or setTolerance(). If the array returned by getMatrix() is
+	 * edited directly, call markModified() afterwards so the analysis is redone, or turn caching
+	 * off with setResultCaching(false).
 	 * 
-	 * @param matrix The matrix to edit.
-	 * @param row1 The index of the first row to switch.
-	 * @param row2 The index of the second row to switch.
-	 * @return The matrix with two rows interchanged.
+	 * @return The solution analysis.
 	 */
-	private double[][] rowInterchange(double[][] matrix, int row1, int row2) {
-		if (row1 >= matrix.length || row2 >= matrix.length) {
-			throw new IllegalArgumentException("Row does not exist");
+	public SolutionAnalysis getSolutionAnalysis() {
+		SolutionAnalysis analysis = (SolutionAnalysis) this.getCachedResult(ResultCache.Key.SOLUTION_ANALYSIS);
+		if (analysis == null) {
+			analysis = SolutionAnalysis.analyze(this, tolerance);
+			this.setCachedResult(ResultCache.Key.SOLUTION_ANALYSIS, analysis);
 		}
-		double[] placeHolder = matrix[row1];
-		matrix[row1] = matrix[row2];
-		matrix[row2] = placeHolder;
-		return matrix;
+		return analysis;
 	}
-
+	
 	
 	/**
-	 * This method takes a row, multiplies it by some factor, and then adds it to 
-	 * another row in order to transform that other row. In linear algebra, this 
-	 * is a row operation that is written like: (scalar)rowX + rowY -> rowY.
+	 * Returns an incremental reducer that already holds the rows of this matrix and uses the
+	 * same tolerance. More equations can then be appended to it one at a time, each reduced
+	 * against the pivots found so far instead of reducing the whole system again.
 	 * 
-	 * @param matrix The matrix to edit.
-	 * @param rowX The first row, multiplied by a scalar and added to second row.
-	 * @param rowY The second row, which is the only the row to be changed in the matrix.
-	 * @param scalar The scalar to be multiplied by the first row.
-	 * @return Returns the edited matrix.
+	 * @return The incremental reducer.
 	 */
-	private double[][] rowAddition(double[][] matrix, int rowX, int rowY, double scalar) {
-		if (rowX >= matrix.length || rowY >= matrix.length) { // Checks if rowX/rowY are bigger than matrix size
-			throw new IllegalArgumentException("Row does not exist");
-		}
-		for (int i = 0; i < matrix[0].length; i++) {
-			matrix[rowY][i] += matrix[rowX][i] * scalar; // (scalar)rowX + rowY -> rowY
-		}
-		return matrix;
+	public IncrementalRowReducer getIncrementalReducer() {
+		IncrementalRowReducer reducer = new IncrementalRowReducer(this.getColumnCount() - 1, tolerance);
+		reducer.append(this);
+		return reducer;
 	}
 	
 	
 	/**
-	 * This method reduces the matrix into reduced row echelon form using the 
-	 * Gauss-Jordan Elimination Method. It does this by looping over every value
-	 * in the augmented matrix and editing it in the appropriate way by using 
-	 * various methods defined in this class.
+	 * Returns the LU decomposition of the coefficient part of the augmented matrix (every
+	 * column except the last). The decomposition can then solve the same system for many other
+	 * right hand sides without building a new augmented matrix for each one.
 	 * 
-	 * @return The reduced matrix.
+	 * @return The LU decomposition of the coefficient matrix.
 	 */
-	public double[][] getReducedMatrix() {
-		double[][] matrix = super.getMatrix();
-		double[][] reducedMatrix = new double[matrix.length][];
-		for (int i = 0; i < matrix.length; i ++) { // This is to make a clone of the matrix and call it reducedMatrix
-			reducedMatrix[i] = matrix[i].clone();  // so that this method doesn't edit the original matrix.
+	public LUDecomposition getCoefficientDecomposition() {
+		int size = this.getRowCount();
+		if (size != this.getColumnCount() - 1) {
+			throw new IllegalArgumentException("Coefficient matrix is not square");
 		}
-		int rowsOfZero = 0; // Keeps track of how many rows of all zeros there are
-		int nonPivotColumns = 0; // Keeps track of columns without pivots
-		
-		for (int i = 0; i < reducedMatrix[0].length - 1; i++) { // Loops through each column except very last
-			
-			double[] column = super.getColumn(reducedMatrix, i); // Gets the current column
-			if (this.arrayIsZero(column) || restOfArrayIsZero(column, i)) { // Handles non pivot columns
-				// nonPivotColumns++;
-				continue;
-			} 
-			
-			for (int j = 0; j < reducedMatrix.length; j++) { // Loops through each row
-				
-				double[] row = super.getRow(reducedMatrix, j); // Gets the current row
-				double value = reducedMatrix[j][i]; // Current value
-				if (i == j + nonPivotColumns) { // Handles a pivot coordinate
-					if (value != 0) { // Handles a found pivot
-						reducedMatrix[j] = this.rowScale(row, value); // Replaces row with edited row
-						// Now that the pivot value is found, make all values above it in the column equal zero
-						for (int k = 0; k < j; k++) {
-							double currentValue = reducedMatrix[k][i];
-							if (currentValue != 0) { // Makes value equal to zero if not already
-								// Add pivot row to make value equal zero
-								reducedMatrix = this.rowAddition(reducedMatrix, j, k, -currentValue);
-							}
-						}
-					} else {
-						for (int k = j; k < column.length; k++) {
-							if (column[k] != 0) { // Find next non zero value in column
-								// Switch current row with row with non zero value
-								reducedMatrix = this.rowInterchange(reducedMatrix, j, k);
-								j -= 1; // Return to same row on next loop
-							}
-						}
-					}
-				} else if (i < j + nonPivotColumns) { // Handles values below the pivot in the column
-					if (value != 0) { // Makes value equal to zero if not already
-						// Add pivot row to current row to make value equal zero
-						reducedMatrix = this.rowAddition(reducedMatrix, i + nonPivotColumns, j, -value);
-					}
-				}
-			}
-		}
-		reducedMatrix = super.roundMatrix(reducedMatrix); // Need to round values before checking for rows of zero
-		for (int i = 0; i < reducedMatrix.length; i++) { // This is to move all rows of zeros to the bottom
-			double[] row = super.getRow(reducedMatrix, i);
-			if (this.arrayIsZero(row) && i <= reducedMatrix.length - 1 - rowsOfZero) {
-				reducedMatrix = this.moveRowToBottom(reducedMatrix, i);
-				rowsOfZero++; // Increment counter
-				i--; // Return to same row on next loop
-			}
-		}
-		
-		return reducedMatrix;
+		return new LUDecomposition(this.getSubMatrixView(0, size, 0, size));
 	}
 	
-
+	
 	/**
-	 * Checks if a row in a matrix is invalid. This tests if the row is made up of zeros except
-	 * the rightmost value isn't zero. If this is the case, then the method returns false. In linear
-	 * algebra, this is testing if the augmented matrix is inconsistent.
+	 * Returns the QR decomposition of the coefficient part of the augmented matrix (every
+	 * column except the last), which can have any number of rows. The decomposition can then
+	 * find least squares solutions for many other right hand sides.
 	 * 
-	 * @param row The row/array from the matrix to test.
-	 * @return True if invalid, false if not invalid.
+	 * @return The QR decomposition of the coefficient matrix.
 	 */
-	private boolean arrayIsInvalid(double[] row) {
-		int numberOfZeros = 0;
-		for (int i = 0; i < row.length; i++) {
-			if (row[i] == 0) {
-				numberOfZeros++;
-			} else if (i == row.length - 1 && numberOfZeros == row.length -1) {
-				return true;
-			}
+	public QRDecomposition getCoefficientQRDecomposition() {
+		return new QRDecomposition(this.getSubMatrixView(0, this.getRowCount(), 0, this.getColumnCount() - 1));
+	}
+	
+	
+	/**
+	 * Finds the least squares solution of the system, the x that makes ||Ax - b|| as small as
+	 * possible. This is the best fit for an overdetermined system that has no solution, and the
+	 * exact solution for one that has only one. It uses a QR decomposition of the coefficients
+	 * rather than the normal equations, so the condition number isn't squared. If the columns
+	 * are linearly dependent, the unknowns that aren't needed are set to zero. For systems too
+	 * large to hold in memory, use StreamingLeastSquares.
+	 * 
+	 * @return The solution as a new double[], one value per unknown.
+	 */
+	public double[] getLeastSquaresSolution() {
+		return this.getCoefficientQRDecomposition().solve(this.getColumn(this.getColumnCount() - 1));
+	}
+	
+	
+	/**
+	 * Returns the relative tolerance used when reducing the matrix.
+	 * 
+	 * @return The tolerance.
+	 */
+	public double getTolerance() {
+		return tolerance;
+	}
+	
+	
+	/**
+	 * Sets the relative tolerance used when reducing the matrix. While reducing, any value
+	 * at or below tolerance * (largest absolute value in the matrix) is treated as zero.
+	 * 
+	 * @param tolerance The new tolerance, which must not be negative.
+	 */
+	public void setTolerance(double tolerance) {
+		if (tolerance < 0 || Double.isNaN(tolerance)) {
+			throw new IllegalArgumentException("Tolerance can't be negative");
 		}
-		return false;
+		this.tolerance = tolerance;
+		this.setCachedResult(ResultCache.Key.SOLUTION_ANALYSIS, null);
 	}
 	
 	
@@ -238,50 +221,18 @@ public class AugmentedMatrix extends Matrix {
 	 * @return True if it has infinite solutions, false if not.
 	 */
 	public boolean hasInfiniteSolutions() {
-		double[][] matrix = this.getReducedMatrix();
-		int rowsOfZero = 0; // Keeps track of how many rows of zeros there are
-		int countOfNonZeros = 0; // Keeps track of how many non zero numbers are in each row
-		boolean notOneSolution = false; // Keeps track of whether or not there is only one solution
-		for (int i = 0; i < matrix.length; i++) { // Checks each row
-			if (this.arrayIsInvalid(matrix[i])) {
-				return false; // Means there is no solution
-			} else if (this.arrayIsZero(matrix[i])) {
-				rowsOfZero++;
-			} else { // Else make sure each row only has one solution
-				for (int j = 0; j < matrix[0].length; j++) {
-					if (matrix[i][j] != 0 && j != matrix[0].length - 1) {
-						countOfNonZeros++;
-					}
-				}
-			}
-			if (countOfNonZeros > 1) {  // This means that there are more than one non zero values in a row
-				notOneSolution = true;  // which means the matrix has infinite solutions or no solution.
-			}
-			countOfNonZeros = 0; // Reset counter for each row
-		}
-		if (matrix.length - rowsOfZero < matrix[0].length - 1) { // Final check to make sure only one solution per row
-			return true;
-		}
-		return notOneSolution; // Means there is only one solution
+		return this.getSolutionAnalysis().hasInfiniteSolutions();
 	}
 	
 	
 	/**
-	 * Checks if an augmented matrix has no solution.
+	 * Checks if an augmented matrix has no solution. For an overdetermined system, the best
+	 * fit can still be found with getLeastSquaresSolution().
 	 * 
 	 * @return True if no solution, false if otherwise.
 	 */
 	public boolean hasNoSolution() {
-		if (this.hasInfiniteSolutions()) {
-			return false;
-		}
-		double[][] matrix = this.getReducedMatrix();
-		for (int i = 0; i < matrix.length; i++) { // Checks each row
-			if (this.arrayIsInvalid(matrix[i])) { // Means there is no solution
-				return true;
-			}
-		}
-		return false;
+		return this.getSolutionAnalysis().hasNoSolution();
 	}
 	
 	
@@ -291,7 +242,7 @@ public class AugmentedMatrix extends Matrix {
 	 * @return True if only one solution, false if otherwise.
 	 */
 	public boolean hasOneSolution() {
-		return !this.hasNoSolution() && !this.hasInfiniteSolutions();
+		return this.getSolutionAnalysis().hasOneSolution();
 	}
 	
 	
@@ -317,9 +268,10 @@ public class AugmentedMatrix extends Matrix {
 	 * Prints out an evaluation of the matrix, which states how many solutions the augmented matrix has. 
 	 */
 	public void printEvaluation() {
-		if (this.hasInfiniteSolutions()) {
+		SolutionAnalysis analysis = this.getSolutionAnalysis();
+		if (analysis.hasInfiniteSolutions()) {
 			System.out.println("System has infinite solutions.");
-		} else if (this.hasNoSolution()) {
+		} else if (analysis.hasNoSolution()) {
 			System.out.println("System has no solution.");
 		} else {
 			System.out.println("System has only one solution.");
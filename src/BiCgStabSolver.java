@@ -0,0 +1,81 @@
+package linear_algebra;
+
+/**
+ * This class solves Ax = b with the stabilized biconjugate gradient method
+ * (BiCGSTAB), using the preconditioner on the right. It works for square
+ * matrices that are not symmetric, keeps a fixed number of vectors no
+ * matter how many iterations it takes, and costs two matrix vector
+ * products per iteration. Its residual doesn't always go down every
+ * iteration, and it can break down on some matrices, in which case the
+ * solver stops early and reports that it didn't converge.
+ * 
+ * @author Aaron Smith
+ */
+public class BiCgStabSolver extends IterativeSolver {
+	
+	
+	@Override
+	IterativeSolution iterate(Matrix a, double[] b, double[] x, double threshold) {
+		int size = b.length;
+		double[] r = new double[size];
+		double[] rHat = new double[size]; // The shadow residual, fixed at the initial residual
+		double[] p = new double[size];
+		double[] v = new double[size];
+		double[] pHat = new double[size]; // M^-1 p
+		double[] sHat = new double[size]; // M^-1 s
+		double[] t = new double[size];
+		Vector pHatVector = new Vector(pHat);
+		Vector sHatVector = new Vector(sHat);
+		residual(a, new Vector(x), b, r);
+		System.arraycopy(r, 0, rHat, 0, size);
+		double residualNorm = norm(r);
+		this.report(0, residualNorm);
+		if (residualNorm <= threshold) {
+			return new IterativeSolution(x, 0, residualNorm, true);
+		}
+		double rho = 1;
+		double alpha = 1;
+		double omega = 1;
+		for (int k = 1; k <= this.getMaxIterations(); k++) {
+			double rhoNext = VectorKernels.dot(rHat, 0, r, 0, size);
+			if (rhoNext == 0) { // Breakdown, r is orthogonal to the shadow residual
+				return new IterativeSolution(x, k - 1, residualNorm, false);
+			}
+			if (k == 1) {
+				System.arraycopy(r, 0, p, 0, size);
+			} else { // p = r + beta(p - omega * v)
+				double beta = (rhoNext / rho) * (alpha / omega);
+				VectorKernels.axpy(-omega, v, 0, p, 0, size);
+				VectorKernels.scale(beta, p, 0, p, 0, size);
+				VectorKernels.axpy(1, r, 0, p, 0, size);
+			}
+			rho = rhoNext;
+			this.precondition(p, pHat);
+			a.multiplyBy(pHatVector, v);
+			alpha = rho / VectorKernels.dot(rHat, 0, v, 0, size);
+			VectorKernels.axpy(-alpha, v, 0, r, 0, size); // r now holds s = r - alpha * v
+			VectorKernels.axpy(alpha, pHat, 0, x, 0, size);
+			residualNorm = norm(r);
+			if (residualNorm <= threshold) {
+				this.report(k, residualNorm);
+				return new IterativeSolution(x, k, residualNorm, true);
+			}
+			this.precondition(r, sHat);
+			a.multiplyBy(sHatVector, t);
+			double tt = VectorKernels.dot(t, 0, t, 0, size);
+			omega = tt == 0 ? 0 : VectorKernels.dot(t, 0, r, 0, size) / tt;
+			VectorKernels.axpy(omega, sHat, 0, x, 0, size);
+			VectorKernels.axpy(-omega, t, 0, r, 0, size);
+			residualNorm = norm(r);
+			this.report(k, residualNorm);
+			if (residualNorm <= threshold) {
+				return new IterativeSolution(x, k, residualNorm, true);
+			}
+			if (omega == 0) { // Breakdown, the next p can't be formed
+				return new IterativeSolution(x, k, residualNorm, false);
+			}
+		}
+		return new IterativeSolution(x, this.getMaxIterations(), residualNorm, false);
+	}
+	
+}
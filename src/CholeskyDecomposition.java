@@ -0,0 +1,341 @@
+package linear_algebra;
+
+/**
+ * This class computes the Cholesky decomposition of a symmetric positive
+ * definite matrix, written as A = LL^T, where L is lower triangular with
+ * a positive diagonal. It takes half the work of an LU decomposition and
+ * needs no pivoting, and it is the usual way to solve systems with a
+ * covariance matrix or any other symmetric positive definite matrix.
+ * Solving with L alone whitens a vector: if x has covariance A, then the
+ * solution of Ly = x has the identity as its covariance.
+ * 
+ * Only the lower triangle of the matrix is read; the upper triangle is
+ * assumed to match it. If a pivot comes out negative or negligible, the
+ * matrix isn't positive definite, and the decomposition stops there.
+ * 
+ * @author Aaron Smith
+ */
+public class CholeskyDecomposition {
+	
+	private double[][] l; // L on and below the diagonal, zeros above it
+	private int rank; // Number of pivots found, which is n for a positive definite matrix
+	
+	
+	/**
+	 * Constructs the Cholesky decomposition of a symmetric positive definite matrix. The
+	 * given array is copied, so the original matrix is never edited.
+	 * 
+	 * @param matrix The square 2d array to decompose.
+	 */
+	public CholeskyDecomposition(double[][] matrix) {
+		if (matrix.length != 0 && matrix.length != matrix[0].length) {
+			throw new IllegalArgumentException("Matrix # of rows != # of columns");
+		}
+		this.l = MatrixBlock.of(matrix).toArray();
+		this.decompose();
+	}
+	
+	
+	/**
+	 * Constructs the Cholesky decomposition of a symmetric positive definite Matrix object.
+	 * The values are copied once, and the original matrix is never edited.
+	 * 
+	 * @param m The square matrix to decompose.
+	 */
+	public CholeskyDecomposition(Matrix m) {
+		if (m.getRowCount() != m.getColumnCount()) {
+			throw new IllegalArgumentException("Matrix # of rows != # of columns");
+		}
+		this.l = MatrixBlock.of(m).toArray();
+		this.decompose();
+	}
+	
+	
+	/**
+	 * Performs the decomposition in place, one row at a time. Each value of L is a dot
+	 * product of two rows of L computed so far, so the inner loop reads both rows in the
+	 * order they are laid out in memory.
+	 */
+	private void decompose() {
+		int size = l.length;
+		double maxAbsValue = 0;
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j <= i; j++) {
+				maxAbsValue = Math.max(maxAbsValue, Math.abs(l[i][j]));
+			}
+		}
+		double tolerance = size * Math.ulp(maxAbsValue); // Same test as LUDecomposition.isSingular()
+		rank = size;
+		for (int i = 0; i < size; i++) {
+			double[] row = l[i];
+			for (int j = 0; j < i; j++) { // l[i][j] = (a[i][j] - (row i of L) . (row j of L)) / l[j][j]
+				row[j] = (row[j] - VectorKernels.dot(row, 0, l[j], 0, j)) / l[j][j];
+			}
+			double pivot = row[i] - VectorKernels.dot(row, 0, row, 0, i);
+			if (pivot <= tolerance) { // Not positive definite, so stop here
+				rank = i;
+				break;
+			}
+			row[i] = Math.sqrt(pivot);
+			for (int j = i + 1; j < size; j++) {
+				row[j] = 0;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Replaces this decomposition of A with the decomposition of A + xx^T in O(n^2) time,
+	 * by rotating x into L one column at a time. Adding xx^T keeps a positive definite matrix
+	 * positive definite, so this always works.
+	 * 
+	 * @param x The vector, of length n.
+	 */
+	public void update(double[] x) {
+		this.checkPositiveDefinite();
+		this.rotate(x, 1);
+	}
+	
+	
+	/**
+	 * Replaces this decomposition of A with the decomposition of A - xx^T in O(n^2) time,
+	 * which removes an observation from a covariance matrix. A - xx^T is only positive
+	 * definite if ||L^-1 x|| < 1, which is checked first.
+	 * 
+	 * @param x The vector, of length n.
+	 * @throws IllegalArgumentException If A - xx^T isn't positive definite, in which case this
+	 * decomposition isn't changed.
+	 */
+	public void downdate(double[] x) {
+		int size = l.length;
+		double[] p = ScratchPool.borrowVector(size);
+		try {
+			this.solveLower(x, p);
+			if (1 - VectorKernels.dot(p, 0, p, 0, size) <= size * Math.ulp(1.0)) {
+				throw new IllegalArgumentException("Matrix is not positive definite");
+			}
+		} finally {
+			ScratchPool.release(p);
+		}
+		this.rotate(x, -1);
+	}
+	
+	
+	/**
+	 * Applies the rotations for A + sign * xx^T.
+	 */
+	private void rotate(double[] x, int sign) {
+		int size = l.length;
+		if (x.length != size) {
+			throw new IllegalArgumentException("Vector must have length " + size);
+		}
+		double[] w = ScratchPool.borrowVector(size);
+		System.arraycopy(x, 0, w, 0, size);
+		for (int k = 0; k < size; k++) {
+			double diagonal = l[k][k];
+			double newDiagonal = Math.sqrt(diagonal * diagonal + sign * w[k] * w[k]);
+			double c = newDiagonal / diagonal;
+			double s = w[k] / diagonal;
+			l[k][k] = newDiagonal;
+			for (int i = k + 1; i < size; i++) { // Column k of L, and what is left of w
+				l[i][k] = (l[i][k] + sign * s * w[i]) / c;
+				w[i] = c * w[i] - s * l[i][k];
+			}
+		}
+		ScratchPool.release(w);
+	}
+	
+	
+	/**
+	 * Returns the size n of the (n x n)-matrix that was decomposed.
+	 * 
+	 * @return The number of rows (and columns) of the matrix.
+	 */
+	public int getSize() {
+		return l.length;
+	}
+	
+	
+	/**
+	 * Checks if the matrix is positive definite, which is when the decomposition finished.
+	 * 
+	 * @return True if the matrix is symmetric positive definite, false if not.
+	 */
+	public boolean isPositiveDefinite() {
+		return rank == l.length;
+	}
+	
+	
+	/**
+	 * Returns the number of pivots found before the decomposition finished or stopped. This
+	 * is n for a positive definite matrix. For a positive semidefinite matrix it is where the
+	 * first dependent row was found, which is not always the rank; use a
+	 * SingularValueDecomposition to find the rank of a matrix that might be singular.
+	 * 
+	 * @return The number of pivots.
+	 */
+	public int getRank() {
+		return rank;
+	}
+	
+	
+	/**
+	 * Throws if the decomposition didn't finish.
+	 */
+	private void checkPositiveDefinite() {
+		if (!this.isPositiveDefinite()) {
+			throw new IllegalArgumentException("Matrix is not positive definite");
+		}
+	}
+	
+	
+	/**
+	 * Returns the determinant of the decomposed matrix, which is the square of the product
+	 * of the diagonal of L.
+	 * 
+	 * @return The determinant.
+	 */
+	public double getDeterminant() {
+		this.checkPositiveDefinite();
+		double product = 1;
+		for (int i = 0; i < l.length; i++) {
+			product *= l[i][i];
+		}
+		return product * product;
+	}
+	
+	
+	/**
+	 * Returns the natural log of the determinant, which doesn't overflow or underflow for
+	 * large matrices the way the determinant can. This is the term that appears in the
+	 * log likelihood of a multivariate normal distribution.
+	 * 
+	 * @return The log of the determinant.
+	 */
+	public double getLogDeterminant() {
+		this.checkPositiveDefinite();
+		double sum = 0;
+		for (int i = 0; i < l.length; i++) {
+			sum += Math.log(l[i][i]);
+		}
+		return 2 * sum;
+	}
+	
+	
+	/**
+	 * Returns a cheap estimate of the condition number in the 2-norm, the square of the
+	 * ratio of the largest to the smallest diagonal value of L. It is never more than the true
+	 * condition number, and is usually close to it; use a SingularValueDecomposition for the
+	 * exact value.
+	 * 
+	 * @return The estimated condition number.
+	 */
+	public double getConditionNumber() {
+		this.checkPositiveDefinite();
+		double max = 0;
+		double min = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < l.length; i++) {
+			max = Math.max(max, l[i][i]);
+			min = Math.min(min, l[i][i]);
+		}
+		return l.length == 0 ? 1 : (max / min) * (max / min);
+	}
+	
+	
+	/**
+	 * Returns the lower triangular factor L as a new double[][].
+	 * 
+	 * @return The matrix L.
+	 */
+	public double[][] getLower() {
+		return MatrixBlock.of(l).toArray();
+	}
+	
+	
+	/**
+	 * Solves the system Ax = b for one right hand side.
+	 * 
+	 * @param b The right hand side, of length n.
+	 * @return The solution x as a new double[].
+	 */
+	public double[] solve(double[] b) {
+		return this.solve(b, new double[l.length]);
+	}
+	
+	
+	/**
+	 * Solves the system Ax = b for one right hand side, and writes the solution into an
+	 * array supplied by the caller.
+	 * 
+	 * @param b The right hand side, of length n.
+	 * @param x The array of length n to write the solution into. It may be b itself.
+	 * @return The x array holding the solution.
+	 */
+	public double[] solve(double[] b, double[] x) {
+		this.solveLower(b, x);
+		int size = l.length;
+		for (int i = size - 1; i >= 0; i--) { // Back substitution, L^T x = y, reading L by rows
+			x[i] /= l[i][i];
+			if (x[i] != 0) {
+				VectorKernels.axpy(-x[i], l[i], 0, x, 0, i);
+			}
+		}
+		return x;
+	}
+	
+	
+	/**
+	 * Solves Ly = b, the first half of solving Ax = b. If b has covariance A, then y has the
+	 * identity as its covariance, so this is how vectors are whitened.
+	 * 
+	 * @param b The right hand side, of length n.
+	 * @param y The array of length n to write the solution into. It may be b itself.
+	 * @return The y array holding the solution.
+	 */
+	public double[] solveLower(double[] b, double[] y) {
+		int size = l.length;
+		if (b.length != size || y.length != size) {
+			throw new IllegalArgumentException("Right hand side and solution must have length " + size);
+		}
+		this.checkPositiveDefinite();
+		for (int i = 0; i < size; i++) { // Forward substitution, Ly = b
+			y[i] = (b[i] - VectorKernels.dot(l[i], 0, y, 0, i)) / l[i][i];
+		}
+		return y;
+	}
+	
+	
+	/**
+	 * Solves the system AX = B, where each column of the (n x k) matrix B is a right hand side.
+	 * 
+	 * @param b The (n x k) right hand sides.
+	 * @return The (n x k) solutions as a new double[][].
+	 */
+	public double[][] solve(double[][] b) {
+		int size = l.length;
+		if (b.length != size) {
+			throw new IllegalArgumentException("Right hand side must have " + size + " rows");
+		}
+		this.checkPositiveDefinite();
+		int columns = size == 0 ? 0 : b[0].length;
+		double[][] x = MatrixBlock.of(b).toArray();
+		for (int i = 0; i < size; i++) { // Forward substitution, LY = B
+			for (int k = 0; k < i; k++) {
+				if (l[i][k] != 0) {
+					VectorKernels.axpy(-l[i][k], x[k], 0, x[i], 0, columns);
+				}
+			}
+			VectorKernels.scale(1 / l[i][i], x[i], 0, x[i], 0, columns);
+		}
+		for (int i = size - 1; i >= 0; i--) { // Back substitution, L^T X = Y
+			VectorKernels.scale(1 / l[i][i], x[i], 0, x[i], 0, columns);
+			for (int k = 0; k < i; k++) {
+				if (l[i][k] != 0) {
+					VectorKernels.axpy(-l[i][k], x[i], 0, x[k], 0, columns);
+				}
+			}
+		}
+		return x;
+	}
+	
+}
@@ -0,0 +1,57 @@
+package linear_algebra;
+
+/**
+ * This class solves Ax = b with the (preconditioned) conjugate gradient
+ * method. It only works when A is symmetric positive definite, which
+ * covers most systems from finite element models and graph Laplacians,
+ * and for those it is the fastest of the solvers: each iteration is one
+ * matrix vector product, two dot products and three vector updates, and
+ * only four vectors are kept. The preconditioner must be symmetric positive
+ * definite too, which the Jacobi preconditioner of such a matrix always is.
+ * 
+ * @author Aaron Smith
+ */
+public class ConjugateGradientSolver extends IterativeSolver {
+	
+	
+	@Override
+	IterativeSolution iterate(Matrix a, double[] b, double[] x, double threshold) {
+		int size = b.length;
+		double[] r = new double[size];
+		double[] z = new double[size];
+		double[] p = new double[size];
+		double[] ap = new double[size];
+		Vector pVector = new Vector(p);
+		residual(a, new Vector(x), b, r);
+		double residualNorm = norm(r);
+		this.report(0, residualNorm);
+		if (residualNorm <= threshold) {
+			return new IterativeSolution(x, 0, residualNorm, true);
+		}
+		this.precondition(r, z);
+		System.arraycopy(z, 0, p, 0, size);
+		double rz = VectorKernels.dot(r, 0, z, 0, size);
+		for (int k = 1; k <= this.getMaxIterations(); k++) {
+			a.multiplyBy(pVector, ap);
+			double pAp = VectorKernels.dot(p, 0, ap, 0, size);
+			if (!(pAp > 0)) {
+				throw new IllegalArgumentException("Matrix is not symmetric positive definite");
+			}
+			double alpha = rz / pAp;
+			VectorKernels.axpy(alpha, p, 0, x, 0, size);
+			VectorKernels.axpy(-alpha, ap, 0, r, 0, size);
+			residualNorm = norm(r);
+			this.report(k, residualNorm);
+			if (residualNorm <= threshold) {
+				return new IterativeSolution(x, k, residualNorm, true);
+			}
+			this.precondition(r, z);
+			double rzNext = VectorKernels.dot(r, 0, z, 0, size);
+			VectorKernels.scale(rzNext / rz, p, 0, p, 0, size); // p = z + (rzNext / rz)p
+			VectorKernels.axpy(1, z, 0, p, 0, size);
+			rz = rzNext;
+		}
+		return new IterativeSolution(x, this.getMaxIterations(), residualNorm, false);
+	}
+	
+}
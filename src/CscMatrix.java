@@ -0,0 +1,338 @@
+package linear_algebra;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class models a sparse matrix in compressed sparse column (CSC)
+ * form. The values of each column are stored together, in order of their
+ * row, which makes reading a column or solving against a triangular factor
+ * column by column cheap. Use CsrMatrix when the matrix is read by rows
+ * instead, which is usually faster for multiplying by a vector.
+ * 
+ * @author Aaron Smith
+ */
+public class CscMatrix extends SparseMatrix {
+	
+	
+	/**
+	 * Constructs an empty CscMatrix object, which is all zeros.
+	 * 
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 */
+	public CscMatrix(int rows, int columns) {
+		super(rows, columns, new int[columns + 1], new int[0], new double[0]);
+	}
+	
+	
+	/**
+	 * Constructs a CscMatrix object from its compressed arrays, without copying them.
+	 * The values of column j are values[columnPointers[j]] up to values[columnPointers[j + 1] - 1],
+	 * and their rows are in the same places of rowIndexes.
+	 * 
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param columnPointers The start of each column in values, followed by the number of values.
+	 * @param rowIndexes The row of each value, increasing within each column.
+	 * @param values The values.
+	 */
+	public CscMatrix(int rows, int columns, int[] columnPointers, int[] rowIndexes, double[] values) {
+		super(rows, columns, columnPointers, rowIndexes, values);
+	}
+	
+	
+	/**
+	 * Constructs a CscMatrix object from a dense 2d array, keeping the values that are not zero.
+	 * 
+	 * @param matrix The 2d array to compress.
+	 */
+	public CscMatrix(double[][] matrix) {
+		this(0, 0);
+		this.setMatrix(matrix);
+	}
+	
+	
+	/**
+	 * Constructs a CscMatrix object holding the same values as another matrix. A CsrMatrix is
+	 * converted without going through a dense copy.
+	 * 
+	 * @param m The matrix to copy.
+	 */
+	public CscMatrix(Matrix m) {
+		this(0, 0);
+		if (m instanceof SparseMatrix) {
+			SparseMatrix other = (SparseMatrix) m;
+			if (other instanceof CscMatrix) {
+				this.rows = other.rows;
+				this.columns = other.columns;
+				this.pointers = other.pointers.clone();
+				this.indexes = other.indexes.clone();
+				this.values = other.values.clone();
+			} else {
+				other.swapMajorInto(this);
+			}
+		} else {
+			this.setMatrix(m.getMatrix());
+		}
+	}
+	
+	
+	/**
+	 * Builds a CscMatrix from lists of entries, in any order. Entries at the same position
+	 * are added up, which is how finite element style assembly usually works.
+	 * 
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param rowIndexes The row of each entry.
+	 * @param columnIndexes The column of each entry.
+	 * @param entries The value of each entry.
+	 * @return The resulting CscMatrix.
+	 */
+	public static CscMatrix fromEntries(int rows, int columns, int[] rowIndexes, int[] columnIndexes, double[] entries) {
+		CscMatrix result = new CscMatrix(rows, columns);
+		result.fillFromEntries(columnIndexes, rowIndexes, entries);
+		return result;
+	}
+	
+	
+	@Override
+	int majorCount() {
+		return columns;
+	}
+	
+	
+	@Override
+	int minorCount() {
+		return rows;
+	}
+	
+	
+	/**
+	 * Returns the array holding the start of each column in getValues(). It is not a copy.
+	 * 
+	 * @return The column pointers.
+	 */
+	public int[] getColumnPointers() {
+		return pointers;
+	}
+	
+	
+	/**
+	 * Returns the array holding the row of each stored value. It is not a copy.
+	 * 
+	 * @return The row indexes.
+	 */
+	public int[] getRowIndexes() {
+		return indexes;
+	}
+	
+	
+	/**
+	 * Returns the array holding the stored values. It is not a copy, and only the first
+	 * getNonZeroCount() values are used. Call markModified() after editing it.
+	 * 
+	 * @return The values.
+	 */
+	public double[] getValues() {
+		return values;
+	}
+	
+	
+	/**
+	 * Returns a dense copy of the matrix.
+	 */
+	@Override
+	public double[][] getMatrix() {
+		double[][] result = new double[rows][columns];
+		for (int j = 0; j < columns; j++) {
+			for (int p = pointers[j]; p < pointers[j + 1]; p++) {
+				result[indexes[p]][j] = values[p];
+			}
+		}
+		return result;
+	}
+	
+	
+	@Override
+	public void setMatrix(double[][] matrix) {
+		this.compress(matrix, false);
+	}
+	
+	
+	@Override
+	public double getValue(int row, int col) {
+		if (row < 0 || col < 0 || row >= rows || col >= columns) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		return this.getEntry(col, row);
+	}
+	
+	
+	@Override
+	public void setValue(int row, int col, double value) {
+		if (row < 0 || col < 0 || row >= rows || col >= columns) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		this.setEntry(col, row, value);
+	}
+	
+	
+	@Override
+	public double[] getRow(int rowNumber) {
+		if (rowNumber < 0 || rowNumber >= rows) {
+			throw new IllegalArgumentException("Row " + rowNumber + " does not exist");
+		}
+		double[] result = new double[columns];
+		for (int j = 0; j < columns; j++) {
+			result[j] = this.getEntry(j, rowNumber);
+		}
+		return result;
+	}
+	
+	
+	@Override
+	public double[] getColumn(int columnNumber) {
+		if (columnNumber < 0 || columnNumber >= columns) {
+			throw new IllegalArgumentException("Column " + columnNumber + " does not exist");
+		}
+		double[] result = new double[rows];
+		for (int p = pointers[columnNumber]; p < pointers[columnNumber + 1]; p++) {
+			result[indexes[p]] = values[p];
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by a vector and stores the product in result. Each column
+	 * is scaled by its value in the vector and added into the result, so columns whose value
+	 * in the vector is zero are skipped.
+	 * 
+	 * @param v Vector to multiply by.
+	 * @param result The double[] to store the product in, one value per row.
+	 * @return The result double[].
+	 */
+	@Override
+	public double[] multiplyBy(Vector v, double[] result) {
+		double[] vector = v.getVector();
+		if (columns != vector.length) {
+			throw new IllegalArgumentException("Number of columns in matrix != number of rows in vector");
+		}
+		if (result.length != rows) {
+			throw new IllegalArgumentException("Result vector length != number of rows in matrix");
+		}
+		this.multiplyRange(vector, result, 0, rows);
+		return result;
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by a vector with multiplyBy(Vector), on the calling thread.
+	 * Every column adds into rows all over the result, so splitting the rows between tasks
+	 * would make each task walk every column, and splitting the columns would change the
+	 * order the values of the result are added up in.
+	 * 
+	 * @param v Vector to multiply by.
+	 * @param pool Not used.
+	 * @return The resulting vector as a double[].
+	 */
+	@Override
+	public double[] multiplyBy(Vector v, ForkJoinPool pool) {
+		return this.multiplyBy(v);
+	}
+	
+	
+	/**
+	 * Computes rows rowStart to rowEnd of the product with a vector. The rows of each column
+	 * are sorted, so the first one in range is found with a binary search.
+	 */
+	@Override
+	void multiplyRange(double[] vector, double[] result, int rowStart, int rowEnd) {
+		Arrays.fill(result, rowStart, rowEnd, 0);
+		for (int j = 0; j < columns; j++) {
+			double x = vector[j];
+			if (x != 0) {
+				int p = pointers[j];
+				if (rowStart > 0) {
+					p = this.find(j, rowStart);
+					p = p >= 0 ? p : -p - 1;
+				}
+				for (; p < pointers[j + 1] && indexes[p] < rowEnd; p++) {
+					result[indexes[p]] += values[p] * x;
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by another matrix and a scalar, and adds the product to an
+	 * existing result matrix: result += alpha * this * m. For every stored value (i, k), row k
+	 * of m times the value is added to row i of the result, so the work is proportional to
+	 * the number of non zero values times the number of columns of m.
+	 * 
+	 * @param m Other matrix to multiply by. A sparse m is copied into a dense 2d array first.
+	 * @param alpha The scalar to multiply the product by.
+	 * @param result The double[][] to add the product to.
+	 * @return The result double[][], now holding the sum.
+	 */
+	@Override
+	public double[][] multiplyBy(Matrix m, double alpha, double[][] result) {
+		if (columns != m.getRowCount()) {
+			throw new IllegalArgumentException("Number of columns in matrix 1 != number of rows in matrix 2");
+		}
+		int otherColumns = m.getColumnCount();
+		if (result.length != rows || (rows > 0 && result[0].length != otherColumns)) {
+			throw new IllegalArgumentException("Result matrix is not " + rows + " x " + otherColumns);
+		}
+		this.multiplyRange(m.getMatrix(), alpha, result, 0, otherColumns);
+		return result;
+	}
+	
+	
+	/**
+	 * Adds alpha times columns colStart to colEnd of the product to result.
+	 */
+	@Override
+	void multiplyRange(double[][] other, double alpha, double[][] result, int colStart, int colEnd) {
+		for (int k = 0; k < columns; k++) {
+			double[] otherRow = other[k];
+			for (int p = pointers[k]; p < pointers[k + 1]; p++) { // (alpha * value)rowK + resultI -> resultI
+				VectorKernels.axpy(alpha * values[p], otherRow, colStart, result[indexes[p]], colStart, colEnd - colStart);
+			}
+		}
+	}
+	
+	
+	@Override
+	int productRange(int otherColumns) {
+		return otherColumns;
+	}
+	
+	
+	/**
+	 * Returns the same matrix in compressed sparse row form.
+	 * 
+	 * @return The matrix as a CsrMatrix.
+	 */
+	public CsrMatrix toCsr() {
+		CsrMatrix result = new CsrMatrix(0, 0);
+		this.swapMajorInto(result);
+		return result;
+	}
+	
+	
+	/**
+	 * Returns the transpose of the matrix without copying anything: the columns of this
+	 * matrix are the rows of the transpose, so the same arrays read as a CsrMatrix
+	 * are the transpose. The two matrices share their arrays, so only change values that are
+	 * already stored in either of them, or copy the transpose with new CsrMatrix(Matrix) first.
+	 * 
+	 * @return The transpose as a CsrMatrix.
+	 */
+	public CsrMatrix getSparseTranspose() {
+		return new CsrMatrix(columns, rows, pointers, indexes, values);
+	}
+	
+}
@@ -0,0 +1,306 @@
+package linear_algebra;
+
+/**
+ * This class models a sparse matrix in compressed sparse row (CSR) form.
+ * The values of each row are stored together, in order of their column,
+ * so multiplying by a vector or by a dense matrix walks each row once and
+ * only touches the values that are not zero. Use CscMatrix when the
+ * matrix is read by columns instead.
+ * 
+ * @author Aaron Smith
+ */
+public class CsrMatrix extends SparseMatrix {
+	
+	
+	/**
+	 * Constructs an empty CsrMatrix object, which is all zeros.
+	 * 
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 */
+	public CsrMatrix(int rows, int columns) {
+		super(rows, columns, new int[rows + 1], new int[0], new double[0]);
+	}
+	
+	
+	/**
+	 * Constructs a CsrMatrix object from its compressed arrays, without copying them.
+	 * The values of row i are values[rowPointers[i]] up to values[rowPointers[i + 1] - 1],
+	 * and their columns are in the same places of columnIndexes.
+	 * 
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param rowPointers The start of each row in values, followed by the number of values.
+	 * @param columnIndexes The column of each value, increasing within each row.
+	 * @param values The values.
+	 */
+	public CsrMatrix(int rows, int columns, int[] rowPointers, int[] columnIndexes, double[] values) {
+		super(rows, columns, rowPointers, columnIndexes, values);
+	}
+	
+	
+	/**
+	 * Constructs a CsrMatrix object from a dense 2d array, keeping the values that are not zero.
+	 * 
+	 * @param matrix The 2d array to compress.
+	 */
+	public CsrMatrix(double[][] matrix) {
+		this(0, 0);
+		this.setMatrix(matrix);
+	}
+	
+	
+	/**
+	 * Constructs a CsrMatrix object holding the same values as another matrix. A CscMatrix is
+	 * converted without going through a dense copy.
+	 * 
+	 * @param m The matrix to copy.
+	 */
+	public CsrMatrix(Matrix m) {
+		this(0, 0);
+		if (m instanceof SparseMatrix) {
+			SparseMatrix other = (SparseMatrix) m;
+			if (other instanceof CsrMatrix) {
+				this.rows = other.rows;
+				this.columns = other.columns;
+				this.pointers = other.pointers.clone();
+				this.indexes = other.indexes.clone();
+				this.values = other.values.clone();
+			} else {
+				other.swapMajorInto(this);
+			}
+		} else {
+			this.setMatrix(m.getMatrix());
+		}
+	}
+	
+	
+	/**
+	 * Builds a CsrMatrix from lists of entries, in any order. Entries at the same position
+	 * are added up, which is how finite element style assembly usually works.
+	 * 
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param rowIndexes The row of each entry.
+	 * @param columnIndexes The column of each entry.
+	 * @param entries The value of each entry.
+	 * @return The resulting CsrMatrix.
+	 */
+	public static CsrMatrix fromEntries(int rows, int columns, int[] rowIndexes, int[] columnIndexes, double[] entries) {
+		CsrMatrix result = new CsrMatrix(rows, columns);
+		result.fillFromEntries(rowIndexes, columnIndexes, entries);
+		return result;
+	}
+	
+	
+	@Override
+	int majorCount() {
+		return rows;
+	}
+	
+	
+	@Override
+	int minorCount() {
+		return columns;
+	}
+	
+	
+	/**
+	 * Returns the array holding the start of each row in getValues(). It is not a copy.
+	 * 
+	 * @return The row pointers.
+	 */
+	public int[] getRowPointers() {
+		return pointers;
+	}
+	
+	
+	/**
+	 * Returns the array holding the column of each stored value. It is not a copy.
+	 * 
+	 * @return The column indexes.
+	 */
+	public int[] getColumnIndexes() {
+		return indexes;
+	}
+	
+	
+	/**
+	 * Returns the array holding the stored values. It is not a copy, and only the first
+	 * getNonZeroCount() values are used. Call markModified() after editing it.
+	 * 
+	 * @return The values.
+	 */
+	public double[] getValues() {
+		return values;
+	}
+	
+	
+	/**
+	 * Returns a dense copy of the matrix.
+	 */
+	@Override
+	public double[][] getMatrix() {
+		double[][] result = new double[rows][columns];
+		for (int i = 0; i < rows; i++) {
+			for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+				result[i][indexes[p]] = values[p];
+			}
+		}
+		return result;
+	}
+	
+	
+	@Override
+	public void setMatrix(double[][] matrix) {
+		this.compress(matrix, true);
+	}
+	
+	
+	@Override
+	public double getValue(int row, int col) {
+		if (row < 0 || col < 0 || row >= rows || col >= columns) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		return this.getEntry(row, col);
+	}
+	
+	
+	@Override
+	public void setValue(int row, int col, double value) {
+		if (row < 0 || col < 0 || row >= rows || col >= columns) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		this.setEntry(row, col, value);
+	}
+	
+	
+	@Override
+	public double[] getRow(int rowNumber) {
+		if (rowNumber < 0 || rowNumber >= rows) {
+			throw new IllegalArgumentException("Row " + rowNumber + " does not exist");
+		}
+		double[] result = new double[columns];
+		for (int p = pointers[rowNumber]; p < pointers[rowNumber + 1]; p++) {
+			result[indexes[p]] = values[p];
+		}
+		return result;
+	}
+	
+	
+	@Override
+	public double[] getColumn(int columnNumber) {
+		if (columnNumber < 0 || columnNumber >= columns) {
+			throw new IllegalArgumentException("Column " + columnNumber + " does not exist");
+		}
+		double[] result = new double[rows];
+		for (int i = 0; i < rows; i++) {
+			result[i] = this.getEntry(i, columnNumber);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by a vector and stores the product in result. Each value of
+	 * the result is the dot product of one compressed row with the vector.
+	 * 
+	 * @param v Vector to multiply by.
+	 * @param result The double[] to store the product in, one value per row.
+	 * @return The result double[].
+	 */
+	@Override
+	public double[] multiplyBy(Vector v, double[] result) {
+		double[] vector = v.getVector();
+		if (columns != vector.length) {
+			throw new IllegalArgumentException("Number of columns in matrix != number of rows in vector");
+		}
+		if (result.length != rows) {
+			throw new IllegalArgumentException("Result vector length != number of rows in matrix");
+		}
+		this.multiplyRange(vector, result, 0, rows);
+		return result;
+	}
+	
+	
+	@Override
+	void multiplyRange(double[] vector, double[] result, int rowStart, int rowEnd) {
+		for (int i = rowStart; i < rowEnd; i++) {
+			double sum = 0;
+			for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+				sum += values[p] * vector[indexes[p]];
+			}
+			result[i] = sum;
+		}
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by another matrix and a scalar, and adds the product to an
+	 * existing result matrix: result += alpha * this * m. Row i of the result gets value
+	 * (i, k) times row k of m added to it for every stored value, so the work is proportional
+	 * to the number of non zero values times the number of columns of m.
+	 * 
+	 * @param m Other matrix to multiply by. A sparse m is copied into a dense 2d array first.
+	 * @param alpha The scalar to multiply the product by.
+	 * @param result The double[][] to add the product to.
+	 * @return The result double[][], now holding the sum.
+	 */
+	@Override
+	public double[][] multiplyBy(Matrix m, double alpha, double[][] result) {
+		if (columns != m.getRowCount()) {
+			throw new IllegalArgumentException("Number of columns in matrix 1 != number of rows in matrix 2");
+		}
+		int otherColumns = m.getColumnCount();
+		if (result.length != rows || (rows > 0 && result[0].length != otherColumns)) {
+			throw new IllegalArgumentException("Result matrix is not " + rows + " x " + otherColumns);
+		}
+		this.multiplyRange(m.getMatrix(), alpha, result, 0, rows);
+		return result;
+	}
+	
+	
+	/**
+	 * Adds alpha times rows rowStart to rowEnd of the product to result.
+	 */
+	@Override
+	void multiplyRange(double[][] other, double alpha, double[][] result, int rowStart, int rowEnd) {
+		for (int i = rowStart; i < rowEnd; i++) {
+			for (int p = pointers[i]; p < pointers[i + 1]; p++) { // (alpha * value)rowK + resultI -> resultI
+				VectorKernels.axpy(alpha * values[p], other[indexes[p]], 0, result[i], 0, result[i].length);
+			}
+		}
+	}
+	
+	
+	@Override
+	int productRange(int otherColumns) {
+		return rows;
+	}
+	
+	
+	/**
+	 * Returns the same matrix in compressed sparse column form.
+	 * 
+	 * @return The matrix as a CscMatrix.
+	 */
+	public CscMatrix toCsc() {
+		CscMatrix result = new CscMatrix(0, 0);
+		this.swapMajorInto(result);
+		return result;
+	}
+	
+	
+	/**
+	 * Returns the transpose of the matrix without copying anything: the rows of this
+	 * matrix are the columns of the transpose, so the same arrays read as a CscMatrix
+	 * are the transpose. The two matrices share their arrays, so only change values that are
+	 * already stored in either of them, or copy the transpose with new CscMatrix(Matrix) first.
+	 * 
+	 * @return The transpose as a CscMatrix.
+	 */
+	public CscMatrix getSparseTranspose() {
+		return new CscMatrix(columns, rows, pointers, indexes, values);
+	}
+	
+}
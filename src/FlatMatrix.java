@@ -0,0 +1,304 @@
+package linear_algebra;
+
+/**
+ * This class models a matrix stored in a single contiguous double[]
+ * in row-major order, instead of a 2d array made up of separate row
+ * arrays. Entry (row, col) is stored at offset + row * rowStride + col,
+ * which lets a FlatMatrix also describe a block inside a larger buffer.
+ * It supports the same methods as Matrix, but getMatrix() returns a
+ * copy of the values, so edit the matrix through setValue() or through
+ * the buffer returned by getData().
+ * 
+ * @author Aaron Smith
+ */
+public class FlatMatrix extends Matrix {
+	
+	private double[] data;
+	private int offset;
+	private int rows;
+	private int columns;
+	private int rowStride;
+	
+	
+	/**
+	 * Constructs a FlatMatrix object filled with zeros.
+	 * 
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 */
+	public FlatMatrix(int rows, int columns) {
+		this(new double[rows * columns], 0, rows, columns, columns);
+	}
+	
+	
+	/**
+	 * Constructs a FlatMatrix object that uses the given buffer without copying it.
+	 * The buffer holds the rows one after another.
+	 * 
+	 * @param data The buffer holding rows * columns values in row-major order.
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 */
+	public FlatMatrix(double[] data, int rows, int columns) {
+		this(data, 0, rows, columns, columns);
+	}
+	
+	
+	/**
+	 * Constructs a FlatMatrix object over a region of a buffer without copying it.
+	 * 
+	 * @param data The buffer holding the values.
+	 * @param offset The index in data of the value at row 0, column 0.
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param rowStride The distance in data between the start of one row and the next.
+	 */
+	public FlatMatrix(double[] data, int offset, int rows, int columns, int rowStride) {
+		super(null); // Values live in data, not in a double[][]
+		if (rows < 0 || columns < 0 || offset < 0 || rowStride < columns) {
+			throw new IllegalArgumentException("Invalid matrix dimensions");
+		}
+		if (rows > 0 && offset + (long) (rows - 1) * rowStride + columns > data.length) {
+			throw new IllegalArgumentException("Buffer is too small for a " + rows + " x " + columns + " matrix");
+		}
+		this.data = data;
+		this.offset = offset;
+		this.rows = rows;
+		this.columns = columns;
+		this.rowStride = rowStride;
+	}
+	
+	
+	/**
+	 * Constructs a FlatMatrix object by copying the values of a 2d array.
+	 * 
+	 * @param matrix The 2d array to copy.
+	 */
+	public FlatMatrix(double[][] matrix) {
+		this(matrix.length, matrix.length == 0 ? 0 : matrix[0].length);
+		this.setMatrix(matrix);
+	}
+	
+	
+	/**
+	 * Returns the buffer that holds the values of the matrix. Changes to the buffer
+	 * change the matrix; call markModified() after making them so cached results are redone.
+	 * 
+	 * @return The backing double[].
+	 */
+	public double[] getData() {
+		return data;
+	}
+	
+	
+	/**
+	 * Returns the index in the buffer of the value at row 0, column 0.
+	 * 
+	 * @return The offset.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+	
+	
+	/**
+	 * Returns the distance in the buffer between the start of one row and the next.
+	 * 
+	 * @return The row stride.
+	 */
+	public int getRowStride() {
+		return rowStride;
+	}
+	
+	
+	@Override
+	public int getRowCount() {
+		return rows;
+	}
+	
+	
+	@Override
+	public int getColumnCount() {
+		return columns;
+	}
+	
+	
+	/**
+	 * Returns a copy of the matrix as a 2d array. Editing the returned array does
+	 * not change this matrix.
+	 * 
+	 * @return The matrix as a new double[][].
+	 */
+	@Override
+	public double[][] getMatrix() {
+		double[][] matrix = new double[rows][];
+		for (int i = 0; i < rows; i++) {
+			matrix[i] = this.getRow(i);
+		}
+		return matrix;
+	}
+	
+	
+	/**
+	 * Copies the values of a 2d array into the matrix. If the array has different
+	 * dimensions, a new buffer is allocated for it.
+	 * 
+	 * @param matrix The 2d array to copy.
+	 */
+	@Override
+	public void setMatrix(double[][] matrix) {
+		int newColumns = matrix.length == 0 ? 0 : matrix[0].length;
+		if (matrix.length != rows || newColumns != columns) {
+			this.data = new double[matrix.length * newColumns];
+			this.offset = 0;
+			this.rows = matrix.length;
+			this.columns = newColumns;
+			this.rowStride = newColumns;
+		}
+		for (int i = 0; i < rows; i++) {
+			if (matrix[i].length != columns) {
+				throw new IllegalArgumentException("Row " + i + " does not have " + columns + " columns");
+			}
+			System.arraycopy(matrix[i], 0, data, offset + i * rowStride, columns);
+		}
+		this.markModified();
+	}
+	
+	
+	@Override
+	public double getValue(int row, int col) {
+		if (row < 0 || col < 0 || row >= rows || col >= columns) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		return data[offset + row * rowStride + col];
+	}
+	
+	
+	@Override
+	public void setValue(int row, int col, double value) {
+		if (row < 0 || col < 0 || row >= rows || col >= columns) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		data[offset + row * rowStride + col] = value;
+		this.markModified();
+	}
+	
+	
+	@Override
+	public double[] getColumn(int columnNumber) {
+		if (columnNumber < 0 || columnNumber >= columns) {
+			throw new IllegalArgumentException("Column " + columnNumber + " does not exist");
+		}
+		double[] column = new double[rows];
+		for (int i = 0; i < rows; i++) {
+			column[i] = data[offset + i * rowStride + columnNumber];
+		}
+		return column;
+	}
+	
+	
+	@Override
+	public double[] getRow(int rowNumber) {
+		if (rowNumber < 0 || rowNumber >= rows) {
+			throw new IllegalArgumentException("Row " + rowNumber + " does not exist");
+		}
+		double[] row = new double[columns];
+		System.arraycopy(data, offset + rowNumber * rowStride, row, 0, columns);
+		return row;
+	}
+	
+	
+	@Override
+	public double[][] multiplyBy(double scalar) {
+		double[][] result = new double[rows][columns];
+		for (int i = 0; i < rows; i++) {
+			VectorKernels.scale(scalar, data, offset + i * rowStride, result[i], 0, columns);
+		}
+		return result;
+	}
+	
+	
+	@Override
+	public double[] multiplyBy(Vector v, double[] result) {
+		double[] vector = v.getVector();
+		if (columns != vector.length) {
+			throw new IllegalArgumentException("Number of columns in matrix != number of rows in vector");
+		}
+		if (result.length != rows) {
+			throw new IllegalArgumentException("Result vector length != number of rows in matrix");
+		}
+		for (int i = 0; i < rows; i++) {
+			result[i] = VectorKernels.dot(data, offset + i * rowStride, vector, 0, columns);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by another matrix. If the other matrix is also a FlatMatrix,
+	 * the multiplication runs directly on both buffers.
+	 * 
+	 * @param m Other matrix to multiply by.
+	 * @return The resulting matrix as a double[][].
+	 */
+	@Override
+	public double[][] multiplyBy(Matrix m) {
+		FlatMatrix other = m instanceof FlatMatrix ? (FlatMatrix) m : new FlatMatrix(m.getMatrix());
+		return this.multiplyBy(other, 1, new FlatMatrix(rows, other.columns)).getMatrix();
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by another FlatMatrix and a scalar, and adds the product to
+	 * an existing FlatMatrix: result += alpha * this * m. No double[][] is created.
+	 * 
+	 * @param m Other matrix to multiply by.
+	 * @param alpha The scalar to multiply the product by.
+	 * @param result The matrix to add the product to. Must not share its buffer region with
+	 * either matrix being multiplied.
+	 * @return The result matrix, now holding the sum.
+	 */
+	public FlatMatrix multiplyBy(FlatMatrix m, double alpha, FlatMatrix result) {
+		if (columns != m.rows) {
+			throw new IllegalArgumentException("Number of columns in matrix 1 != number of rows in matrix 2");
+		}
+		if (result.rows != rows || result.columns != m.columns) {
+			throw new IllegalArgumentException("Result matrix is not " + rows + " x " + m.columns);
+		}
+		MatrixMultiplier.multiply(rows, columns, m.columns, alpha, data, offset, rowStride,
+				m.data, m.offset, m.rowStride, result.data, result.offset, result.rowStride);
+		result.markModified();
+		return result;
+	}
+	
+	
+	@Override
+	public double[][] getTranspose() {
+		double[][] result = new double[columns][rows];
+		for (int i = 0; i < rows; i++) {
+			int start = offset + i * rowStride;
+			for (int j = 0; j < columns; j++) {
+				result[j][i] = data[start + j];
+			}
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Returns the transpose of the matrix as a new FlatMatrix.
+	 * 
+	 * @return The transpose.
+	 */
+	public FlatMatrix getFlatTranspose() {
+		FlatMatrix result = new FlatMatrix(columns, rows);
+		for (int i = 0; i < rows; i++) {
+			int start = offset + i * rowStride;
+			for (int j = 0; j < columns; j++) {
+				result.data[j * rows + i] = data[start + j];
+			}
+		}
+		return result;
+	}
+	
+}
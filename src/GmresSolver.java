@@ -0,0 +1,138 @@
+package linear_algebra;
+
+import java.util.Arrays;
+
+/**
+ * This class solves Ax = b with the restarted generalized minimal residual
+ * method, GMRES(m), using the preconditioner on the right. It works for any
+ * square matrix that isn't singular and its residual never goes up. Every
+ * iteration adds one vector to an orthonormal basis and costs one matrix
+ * vector product plus work that grows with the size of the basis, so the
+ * basis is thrown away and the method restarted from the current solution
+ * after every m iterations. A larger restart length converges in fewer
+ * iterations but keeps m + 1 vectors in memory.
+ * 
+ * @author Aaron Smith
+ */
+public class GmresSolver extends IterativeSolver {
+	
+	public static final int DEFAULT_RESTART = 30;
+	
+	private final int restart;
+	
+	
+	/**
+	 * Constructs a GMRES solver that restarts every DEFAULT_RESTART iterations.
+	 */
+	public GmresSolver() {
+		this(DEFAULT_RESTART);
+	}
+	
+	
+	/**
+	 * Constructs a GMRES solver.
+	 * 
+	 * @param restart The number of iterations between restarts, which is the largest size of the basis.
+	 */
+	public GmresSolver(int restart) {
+		if (restart < 1) {
+			throw new IllegalArgumentException("Restart length must be at least 1");
+		}
+		this.restart = restart;
+	}
+	
+	
+	/**
+	 * Returns the number of iterations between restarts.
+	 * 
+	 * @return The restart length.
+	 */
+	public int getRestart() {
+		return restart;
+	}
+	
+	
+	/**
+	 * Runs the iterations. The residual norm reported for each iteration is the one given by
+	 * the least squares problem, without computing b - Ax, and the true residual is computed
+	 * at every restart.
+	 */
+	@Override
+	IterativeSolution iterate(Matrix a, double[] b, double[] x, double threshold) {
+		int size = b.length;
+		int m = Math.min(restart, Math.max(size, 1));
+		double[][] basis = new double[m + 1][size];
+		double[][] h = new double[m + 1][m]; // The Hessenberg matrix, turned upper triangular by the rotations
+		double[] cosines = new double[m];
+		double[] sines = new double[m];
+		double[] g = new double[m + 1]; // The rotated right hand side of the least squares problem
+		double[] y = new double[m];
+		double[] z = new double[size];
+		double[] r = new double[size];
+		Vector zVector = new Vector(z);
+		Vector xVector = new Vector(x);
+		int iteration = 0;
+		residual(a, xVector, b, r);
+		double residualNorm = norm(r);
+		this.report(0, residualNorm);
+		boolean breakdown = false;
+		while (residualNorm > threshold && iteration < this.getMaxIterations() && !breakdown) {
+			VectorKernels.scale(1 / residualNorm, r, 0, basis[0], 0, size);
+			Arrays.fill(g, 0);
+			g[0] = residualNorm;
+			int j = 0;
+			while (j < m && iteration < this.getMaxIterations()) {
+				iteration++;
+				this.precondition(basis[j], z);
+				double[] w = basis[j + 1];
+				a.multiplyBy(zVector, w);
+				for (int i = 0; i <= j; i++) { // Modified Gram-Schmidt against the basis
+					h[i][j] = VectorKernels.dot(w, 0, basis[i], 0, size);
+					VectorKernels.axpy(-h[i][j], basis[i], 0, w, 0, size);
+				}
+				h[j + 1][j] = norm(w);
+				if (h[j + 1][j] != 0) {
+					VectorKernels.scale(1 / h[j + 1][j], w, 0, w, 0, size);
+				}
+				for (int i = 0; i < j; i++) { // Apply the earlier rotations to the new column
+					double value = cosines[i] * h[i][j] + sines[i] * h[i + 1][j];
+					h[i + 1][j] = -sines[i] * h[i][j] + cosines[i] * h[i + 1][j];
+					h[i][j] = value;
+				}
+				double d = Math.hypot(h[j][j], h[j + 1][j]);
+				cosines[j] = d == 0 ? 1 : h[j][j] / d;
+				sines[j] = d == 0 ? 0 : h[j + 1][j] / d;
+				h[j][j] = d;
+				h[j + 1][j] = 0;
+				g[j + 1] = -sines[j] * g[j];
+				g[j] = cosines[j] * g[j];
+				j++;
+				residualNorm = Math.abs(g[j]);
+				this.report(iteration, residualNorm);
+				if (d == 0) { // The new column is all zero, so A is singular and no progress is possible
+					breakdown = true;
+				}
+				if (residualNorm <= threshold || breakdown) {
+					break;
+				}
+			}
+			for (int i = j - 1; i >= 0; i--) { // Back substitution for the basis coefficients
+				double sum = g[i];
+				for (int k = i + 1; k < j; k++) {
+					sum -= h[i][k] * y[k];
+				}
+				y[i] = h[i][i] == 0 ? 0 : sum / h[i][i];
+			}
+			Arrays.fill(r, 0);
+			for (int i = 0; i < j; i++) { // x += M^-1 (basis * y)
+				VectorKernels.axpy(y[i], basis[i], 0, r, 0, size);
+			}
+			this.precondition(r, z);
+			VectorKernels.axpy(1, z, 0, x, 0, size);
+			residual(a, xVector, b, r); // Restart from the true residual
+			residualNorm = norm(r);
+		}
+		return new IterativeSolution(x, iteration, residualNorm, residualNorm <= threshold);
+	}
+	
+}
@@ -0,0 +1,98 @@
+package linear_algebra;
+
+import java.util.Arrays;
+
+/**
+ * This class is the ILU(0) preconditioner: an incomplete LU decomposition
+ * that only keeps the values of L and U where the original matrix has a
+ * stored value, and drops the fill in that a full decomposition would
+ * create. The factors take the same memory as the matrix and are applied
+ * with one forward and one back substitution. The factorization is done
+ * on a CsrMatrix copy of the matrix, so a dense Matrix is compressed
+ * first and its zeros are dropped.
+ * 
+ * @author Aaron Smith
+ */
+public class IncompleteLUPreconditioner implements Preconditioner {
+	
+	private final CsrMatrix lu; // Holds L below the diagonal (its ones are implied) and U on and above it
+	private final int[] diagonal; // Position of each diagonal value in lu's values
+	
+	
+	/**
+	 * Constructs the ILU(0) preconditioner of a square matrix.
+	 * 
+	 * @param m The square matrix. Every value on its diagonal must be stored and non zero.
+	 */
+	public IncompleteLUPreconditioner(Matrix m) {
+		if (m.getRowCount() != m.getColumnCount()) {
+			throw new IllegalArgumentException("Matrix # of rows != # of columns");
+		}
+		this.lu = new CsrMatrix(m);
+		this.diagonal = new int[lu.rows];
+		this.decompose();
+	}
+	
+	
+	/**
+	 * Performs the incomplete decomposition in place, row by row. Row k of U is subtracted
+	 * from row i for every stored value (i, k) left of the diagonal, but only where row i
+	 * already has a stored value.
+	 */
+	private void decompose() {
+		int size = lu.rows;
+		int[] pointers = lu.pointers;
+		int[] indexes = lu.indexes;
+		double[] values = lu.values;
+		int[] position = new int[size]; // Position of each column in the current row, or -1
+		Arrays.fill(position, -1);
+		for (int i = 0; i < size; i++) {
+			for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+				position[indexes[p]] = p;
+			}
+			int p = pointers[i];
+			for (; p < pointers[i + 1] && indexes[p] < i; p++) {
+				int k = indexes[p];
+				double multiplier = values[p] / values[diagonal[k]];
+				values[p] = multiplier;
+				for (int q = diagonal[k] + 1; q < pointers[k + 1]; q++) { // (-multiplier)rowK + rowI -> rowI
+					int target = position[indexes[q]];
+					if (target >= 0) {
+						values[target] -= multiplier * values[q];
+					}
+				}
+			}
+			if (p == pointers[i + 1] || indexes[p] != i || values[p] == 0) {
+				throw new IllegalArgumentException("Diagonal value " + i + " is zero");
+			}
+			diagonal[i] = p;
+			for (int q = pointers[i]; q < pointers[i + 1]; q++) {
+				position[indexes[q]] = -1;
+			}
+		}
+	}
+	
+	
+	@Override
+	public void apply(double[] r, double[] z) {
+		int size = lu.rows;
+		int[] pointers = lu.pointers;
+		int[] indexes = lu.indexes;
+		double[] values = lu.values;
+		for (int i = 0; i < size; i++) { // Forward substitution with L
+			double sum = r[i];
+			for (int p = pointers[i]; p < diagonal[i]; p++) {
+				sum -= values[p] * z[indexes[p]];
+			}
+			z[i] = sum;
+		}
+		for (int i = size - 1; i >= 0; i--) { // Back substitution with U
+			double sum = z[i];
+			for (int p = diagonal[i] + 1; p < pointers[i + 1]; p++) {
+				sum -= values[p] * z[indexes[p]];
+			}
+			z[i] = sum / values[diagonal[i]];
+		}
+	}
+	
+}
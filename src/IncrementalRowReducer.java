@@ -0,0 +1,286 @@
+package linear_algebra;
+
+/**
+ * This class keeps a system of equations in row echelon form as equations
+ * are added one at a time, such as readings from a sensor feed. Each new
+ * row is eliminated against the pivot rows found so far, from left to right,
+ * so adding a row costs O(rank * n) instead of reducing every row again.
+ * After every row it reports whether the system has no solution, one
+ * solution or infinitely many.
+ * 
+ * Elimination uses partial pivoting: when the new row has a larger value
+ * than the pivot row in that row's pivot column, the two trade places and
+ * the old pivot row is eliminated instead, so no row is ever multiplied by
+ * more than one. The pivot rows aren't divided by their pivots until the
+ * reduced matrix or a solution is asked for.
+ * 
+ * Rows that turn out to depend on earlier rows aren't kept; they only
+ * matter if they make the system inconsistent, which is remembered. Like
+ * RowReducer, values at or below tolerance * (largest absolute value seen
+ * so far) are treated as zero. The pivot for a new row is its first value
+ * that isn't negligible once the earlier pivot columns are cleared, which
+ * gives the same reduced matrix, pivot columns and free variables as
+ * reducing every row at once.
+ * 
+ * @author Aaron Smith
+ */
+public class IncrementalRowReducer {
+	
+	/**
+	 * What the equations added so far say about the solutions of the system.
+	 */
+	public enum Status {
+		/** Some equations contradict each other. */
+		NO_SOLUTION,
+		/** Every unknown has a pivot, and the equations agree. */
+		ONE_SOLUTION,
+		/** Some unknowns are still free, and the equations agree. */
+		INFINITE_SOLUTIONS
+	}
+	
+	private final int unknowns;
+	private final double tolerance;
+	private final double[][] pivotRows; // pivotRows[col] is zero left of col and has its pivot at col, or is null
+	private int rank;
+	private double maxAbsValue;
+	private boolean consistent = true;
+	private long rowCount;
+	
+	
+	/**
+	 * Constructs a reducer with no equations yet, using AugmentedMatrix.DEFAULT_TOLERANCE.
+	 * 
+	 * @param unknowns The number of unknowns n. Each row has n + 1 values, the last one being
+	 * the right hand side.
+	 */
+	public IncrementalRowReducer(int unknowns) {
+		this(unknowns, AugmentedMatrix.DEFAULT_TOLERANCE);
+	}
+	
+	
+	/**
+	 * Constructs a reducer with no equations yet.
+	 * 
+	 * @param unknowns The number of unknowns n. Each row has n + 1 values, the last one being
+	 * the right hand side.
+	 * @param tolerance Values at or below tolerance * (largest absolute value seen so far) are
+	 * treated as zero.
+	 */
+	public IncrementalRowReducer(int unknowns, double tolerance) {
+		if (unknowns < 0) {
+			throw new IllegalArgumentException("Invalid number of unknowns");
+		}
+		if (tolerance < 0 || Double.isNaN(tolerance)) {
+			throw new IllegalArgumentException("Tolerance can't be negative");
+		}
+		this.unknowns = unknowns;
+		this.tolerance = tolerance;
+		this.pivotRows = new double[unknowns][];
+	}
+	
+	
+	/**
+	 * Adds one equation and eliminates it against the equations added so far. The row is
+	 * copied, not edited.
+	 * 
+	 * @param row The n coefficients of the equation followed by its right hand side.
+	 * @return The status of the system with the new equation.
+	 */
+	public Status append(double[] row) {
+		if (row.length != unknowns + 1) {
+			throw new IllegalArgumentException("Row must have length " + (unknowns + 1));
+		}
+		double[] work = row.clone();
+		for (double value : work) {
+			maxAbsValue = Math.max(maxAbsValue, Math.abs(value));
+		}
+		double threshold = tolerance * maxAbsValue;
+		rowCount++;
+		for (int col = 0; col < unknowns; col++) {
+			double[] pivotRow = pivotRows[col];
+			if (pivotRow == null) {
+				if (Math.abs(work[col]) <= threshold) { // No pivot here yet, and none in the new row
+					work[col] = 0;
+					continue;
+				}
+				pivotRows[col] = work; // The first value left that isn't negligible is the new pivot
+				rank++;
+				return this.getStatus();
+			}
+			if (work[col] == 0) {
+				continue;
+			}
+			if (Math.abs(work[col]) > Math.abs(pivotRow[col])) { // The larger value becomes the pivot
+				pivotRows[col] = work;
+				work = pivotRow;
+				pivotRow = pivotRows[col];
+			}
+			// (-factor)pivotRow + work -> work, the columns left of col are already zero in both
+			double factor = work[col] / pivotRow[col];
+			VectorKernels.axpy(-factor, pivotRow, col, work, col, unknowns + 1 - col);
+			work[col] = 0;
+		}
+		if (Math.abs(work[unknowns]) > threshold) { // [0 ... 0 | c], so there is no solution
+			consistent = false;
+		}
+		return this.getStatus();
+	}
+	
+	
+	/**
+	 * Adds every row of an augmented matrix, in order.
+	 * 
+	 * @param augmentedMatrix The rows to add, with n + 1 columns.
+	 * @return The status of the system with the new equations.
+	 */
+	public Status append(Matrix augmentedMatrix) {
+		if (augmentedMatrix.getColumnCount() != unknowns + 1) {
+			throw new IllegalArgumentException("Augmented matrix must have " + (unknowns + 1) + " columns");
+		}
+		for (int i = 0; i < augmentedMatrix.getRowCount(); i++) {
+			this.append(augmentedMatrix.getRow(i));
+		}
+		return this.getStatus();
+	}
+	
+	
+	/**
+	 * Returns the status of the system of the equations added so far.
+	 * 
+	 * @return The status.
+	 */
+	public Status getStatus() {
+		if (!consistent) {
+			return Status.NO_SOLUTION;
+		}
+		return rank == unknowns ? Status.ONE_SOLUTION : Status.INFINITE_SOLUTIONS;
+	}
+	
+	
+	/**
+	 * Returns the number of unknowns n.
+	 * 
+	 * @return The number of unknowns.
+	 */
+	public int getUnknownCount() {
+		return unknowns;
+	}
+	
+	
+	/**
+	 * Returns the number of rows added so far, including the ones that weren't kept.
+	 * 
+	 * @return The number of rows.
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+	
+	
+	/**
+	 * Returns the rank of the coefficients added so far, which is the number of pivots.
+	 * 
+	 * @return The rank.
+	 */
+	public int getRank() {
+		return rank;
+	}
+	
+	
+	/**
+	 * Returns the reduced row echelon form of the equations added so far: the pivot rows
+	 * ordered by their pivot column, followed by a row [0 ... 0 | 1] if the system has no
+	 * solution. The equations that weren't kept add nothing else to it. The pivot rows are
+	 * divided by their pivots and cleared above each pivot here, which takes O(rank^2 * n) time.
+	 * 
+	 * @return The reduced matrix as a new double[][].
+	 */
+	public double[][] getReducedMatrix() {
+		double[][] result = new double[consistent ? rank : rank + 1][];
+		int[] pivotColumns = this.getPivotColumns();
+		for (int r = rank - 1; r >= 0; r--) { // Back substitution, from the last pivot up
+			int col = pivotColumns[r];
+			double[] row = pivotRows[col].clone();
+			double pivot = row[col];
+			for (int j = col + 1; j <= unknowns; j++) { // Divide rather than multiply by 1/pivot to keep exact quotients
+				row[j] /= pivot;
+			}
+			row[col] = 1;
+			for (int i = r + 1; i < rank; i++) { // Clear the later pivot columns, using the rows already reduced
+				int other = pivotColumns[i];
+				double value = row[other];
+				if (value != 0) {
+					VectorKernels.axpy(-value, result[i], other, row, other, unknowns + 1 - other);
+					row[other] = 0;
+				}
+			}
+			result[r] = row;
+		}
+		double threshold = tolerance * maxAbsValue;
+		for (int r = 0; r < rank; r++) { // Clean up round off left next to the zeros, and -0.0 values
+			double[] row = result[r];
+			for (int j = 0; j <= unknowns; j++) {
+				if (Math.abs(row[j]) <= threshold) {
+					row[j] = 0;
+				}
+			}
+		}
+		if (!consistent) {
+			result[rank] = new double[unknowns + 1];
+			result[rank][unknowns] = 1;
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Returns the analysis of the equations added so far, which holds the free variables, a
+	 * particular solution and a null space basis. It is built from the reduced matrix without
+	 * eliminating any equations again.
+	 * 
+	 * @return The solution analysis.
+	 */
+	public SolutionAnalysis getSolutionAnalysis() {
+		double[][] reducedMatrix = this.getReducedMatrix();
+		if (reducedMatrix.length == 0) { // No pivots yet, which is one row of zeros
+			reducedMatrix = new double[1][unknowns + 1];
+		}
+		return new SolutionAnalysis(reducedMatrix, rank, this.getPivotColumns());
+	}
+	
+	
+	/**
+	 * Returns the solution of the system once it has only one solution, found by back
+	 * substitution through the pivot rows in O(n^2) time.
+	 * 
+	 * @return The solution as a new double[], one value per unknown.
+	 * @throws IllegalArgumentException If the system doesn't have exactly one solution.
+	 */
+	public double[] getSolution() {
+		if (this.getStatus() != Status.ONE_SOLUTION) {
+			throw new IllegalArgumentException("System does not have only one solution");
+		}
+		double[] solution = new double[unknowns];
+		for (int col = unknowns - 1; col >= 0; col--) {
+			double[] row = pivotRows[col];
+			double sum = row[unknowns] - VectorKernels.dot(row, col + 1, solution, col + 1, unknowns - col - 1);
+			solution[col] = sum / row[col];
+		}
+		return solution;
+	}
+	
+	
+	/**
+	 * Returns the pivot columns in increasing order.
+	 */
+	private int[] getPivotColumns() {
+		int[] pivotColumns = new int[rank];
+		for (int col = 0, r = 0; col < unknowns; col++) {
+			if (pivotRows[col] != null) {
+				pivotColumns[r++] = col;
+			}
+		}
+		return pivotColumns;
+	}
+	
+}
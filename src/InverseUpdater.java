@@ -0,0 +1,241 @@
+package linear_algebra;
+
+import java.util.Arrays;
+
+/**
+ * This class updates an inverse that has already been computed after a
+ * low rank change to its matrix, in O(n^2) time for a rank one change
+ * instead of the O(n^3) time of inverting again. The Sherman-Morrison
+ * formula gives the inverse of A + uv^T as
+ * 
+ * A^-1 - (A^-1 u)(v^T A^-1) / (1 + v^T A^-1 u),
+ * 
+ * and the Woodbury formula does the same for A + UV^T, where U and V have
+ * k columns, by solving one (k x k) system. Changing one value, row or
+ * column of A is a rank one change. Every update is done in place on the
+ * inverse, which must have been found for the matrix as it was before the
+ * change. Round off builds up over many updates, so invert again from time
+ * to time when a long series of updates is applied.
+ * 
+ * @author Aaron Smith
+ */
+public final class InverseUpdater {
+	
+	private InverseUpdater() {
+		// Only static methods
+	}
+	
+	
+	/**
+	 * Updates the inverse of A to the inverse of A + uv^T.
+	 * 
+	 * @param inverse The (n x n) inverse of A. It is replaced by the new inverse.
+	 * @param u The column vector, of length n.
+	 * @param v The row vector, of length n.
+	 * @throws IllegalArgumentException If A + uv^T is singular, in which case the inverse isn't changed.
+	 */
+	public static void update(double[][] inverse, double[] u, double[] v) {
+		int size = checkSize(inverse);
+		if (u.length != size || v.length != size) {
+			throw new IllegalArgumentException("Vectors must have length " + size);
+		}
+		double[] column = ScratchPool.borrowVector(size); // A^-1 u
+		double[] row = ScratchPool.borrowVector(size); // v^T A^-1
+		try {
+			Arrays.fill(row, 0);
+			for (int i = 0; i < size; i++) {
+				column[i] = VectorKernels.dot(inverse[i], 0, u, 0, size);
+				if (v[i] != 0) {
+					VectorKernels.axpy(v[i], inverse[i], 0, row, 0, size);
+				}
+			}
+			apply(inverse, column, row, VectorKernels.dot(v, 0, column, 0, size));
+		} finally {
+			ScratchPool.release(column);
+			ScratchPool.release(row);
+		}
+	}
+	
+	
+	/**
+	 * Updates the inverse of A after one value of A is changed by delta.
+	 * 
+	 * @param inverse The (n x n) inverse of A. It is replaced by the new inverse.
+	 * @param row The row of the value.
+	 * @param col The column of the value.
+	 * @param delta The amount added to the value.
+	 * @throws IllegalArgumentException If the new matrix is singular, in which case the inverse isn't changed.
+	 */
+	public static void updateValue(double[][] inverse, int row, int col, double delta) {
+		int size = checkSize(inverse);
+		if (row < 0 || col < 0 || row >= size || col >= size) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		double[] column = ScratchPool.borrowVector(size); // A^-1 (delta e_row)
+		double[] copy = ScratchPool.borrowVector(size); // e_col^T A^-1, copied since it is updated too
+		try {
+			for (int i = 0; i < size; i++) {
+				column[i] = delta * inverse[i][row];
+			}
+			System.arraycopy(inverse[col], 0, copy, 0, size);
+			apply(inverse, column, copy, column[col]);
+		} finally {
+			ScratchPool.release(column);
+			ScratchPool.release(copy);
+		}
+	}
+	
+	
+	/**
+	 * Updates the inverse of A after a vector is added to one row of A.
+	 * 
+	 * @param inverse The (n x n) inverse of A. It is replaced by the new inverse.
+	 * @param row The row that changed.
+	 * @param delta The amount added to each value of the row, of length n.
+	 * @throws IllegalArgumentException If the new matrix is singular, in which case the inverse isn't changed.
+	 */
+	public static void updateRow(double[][] inverse, int row, double[] delta) {
+		int size = checkSize(inverse);
+		if (row < 0 || row >= size) {
+			throw new IllegalArgumentException("Row " + row + " does not exist");
+		}
+		if (delta.length != size) {
+			throw new IllegalArgumentException("Vectors must have length " + size);
+		}
+		double[] column = ScratchPool.borrowVector(size); // A^-1 e_row
+		double[] product = ScratchPool.borrowVector(size); // delta^T A^-1
+		try {
+			Arrays.fill(product, 0);
+			for (int i = 0; i < size; i++) {
+				column[i] = inverse[i][row];
+				if (delta[i] != 0) {
+					VectorKernels.axpy(delta[i], inverse[i], 0, product, 0, size);
+				}
+			}
+			apply(inverse, column, product, VectorKernels.dot(delta, 0, column, 0, size));
+		} finally {
+			ScratchPool.release(column);
+			ScratchPool.release(product);
+		}
+	}
+	
+	
+	/**
+	 * Updates the inverse of A after a vector is added to one column of A.
+	 * 
+	 * @param inverse The (n x n) inverse of A. It is replaced by the new inverse.
+	 * @param col The column that changed.
+	 * @param delta The amount added to each value of the column, of length n.
+	 * @throws IllegalArgumentException If the new matrix is singular, in which case the inverse isn't changed.
+	 */
+	public static void updateColumn(double[][] inverse, int col, double[] delta) {
+		int size = checkSize(inverse);
+		if (col < 0 || col >= size) {
+			throw new IllegalArgumentException("Column " + col + " does not exist");
+		}
+		if (delta.length != size) {
+			throw new IllegalArgumentException("Vectors must have length " + size);
+		}
+		double[] product = ScratchPool.borrowVector(size); // A^-1 delta
+		double[] copy = ScratchPool.borrowVector(size); // e_col^T A^-1, copied since it is updated too
+		try {
+			for (int i = 0; i < size; i++) {
+				product[i] = VectorKernels.dot(inverse[i], 0, delta, 0, size);
+			}
+			System.arraycopy(inverse[col], 0, copy, 0, size);
+			apply(inverse, product, copy, product[col]);
+		} finally {
+			ScratchPool.release(product);
+			ScratchPool.release(copy);
+		}
+	}
+	
+	
+	/**
+	 * Updates the inverse of A to the inverse of A + UV^T, using the Woodbury formula
+	 * A^-1 - A^-1 U (I + V^T A^-1 U)^-1 V^T A^-1. This takes O(n^2 k) time, so it pays off
+	 * while k is small compared to n.
+	 * 
+	 * @param inverse The (n x n) inverse of A. It is replaced by the new inverse.
+	 * @param u The (n x k) matrix U.
+	 * @param v The (n x k) matrix V.
+	 * @throws IllegalArgumentException If A + UV^T is singular, in which case the inverse isn't changed.
+	 */
+	public static void update(double[][] inverse, double[][] u, double[][] v) {
+		int size = checkSize(inverse);
+		int rank = u.length == 0 ? 0 : u[0].length;
+		if (u.length != size || v.length != size || (size > 0 && v[0].length != rank)) {
+			throw new IllegalArgumentException("U and V must both be " + size + " x " + rank);
+		}
+		double[][] inverseU = ScratchPool.borrowMatrix(size, rank); // A^-1 U
+		double[][] vInverse = ScratchPool.borrowMatrix(rank, size); // V^T A^-1
+		double[][] solved = ScratchPool.borrowMatrix(rank, size); // (I + V^T A^-1 U)^-1 V^T A^-1
+		double[][] capacitance = ScratchPool.borrowMatrix(rank, rank); // I + V^T A^-1 U
+		double[][] lu = ScratchPool.borrowMatrix(rank, rank);
+		int[] pivot = ScratchPool.borrowIndexes(rank);
+		try {
+			fill(inverseU, 0);
+			MatrixMultiplier.multiply(inverse, u, inverseU, 1);
+			fill(vInverse, 0);
+			MatrixMultiplier.multiply(rank, size, size, 1, v, 0, 0, true, inverse, 0, 0, false, vInverse, 0, 0);
+			fill(capacitance, 0);
+			for (int i = 0; i < rank; i++) {
+				capacitance[i][i] = 1;
+			}
+			MatrixMultiplier.multiply(rank, size, rank, 1, v, 0, 0, true, inverseU, 0, 0, false, capacitance, 0, 0);
+			LUDecomposition decomposition = new LUDecomposition(lu, pivot);
+			decomposition.decompose(capacitance);
+			if (decomposition.isSingular()) {
+				throw new IllegalArgumentException("Matrix is singular");
+			}
+			decomposition.solve(vInverse, solved);
+			MatrixMultiplier.multiply(inverseU, solved, inverse, -1);
+		} finally {
+			ScratchPool.release(inverseU);
+			ScratchPool.release(vInverse);
+			ScratchPool.release(solved);
+			ScratchPool.release(capacitance);
+			ScratchPool.release(lu);
+			ScratchPool.release(pivot);
+		}
+	}
+	
+	
+	/**
+	 * Sets every value of a 2d array to value.
+	 */
+	private static void fill(double[][] matrix, double value) {
+		for (double[] row : matrix) {
+			Arrays.fill(row, value);
+		}
+	}
+	
+	
+	/**
+	 * Replaces the inverse with inverse - column * row / (1 + denominatorTerm), the last step
+	 * of every rank one update. column and row must not share an array with the inverse.
+	 */
+	private static void apply(double[][] inverse, double[] column, double[] row, double denominatorTerm) {
+		double denominator = 1 + denominatorTerm;
+		if (Math.abs(denominator) <= inverse.length * Math.ulp(1 + Math.abs(denominatorTerm))) {
+			throw new IllegalArgumentException("Matrix is singular");
+		}
+		for (int i = 0; i < inverse.length; i++) { // (-column[i] / denominator)row + inverseI -> inverseI
+			if (column[i] != 0) {
+				VectorKernels.axpy(-column[i] / denominator, row, 0, inverse[i], 0, inverse.length);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Checks that an inverse is square and returns its size.
+	 */
+	private static int checkSize(double[][] inverse) {
+		if (inverse.length != 0 && inverse.length != inverse[0].length) {
+			throw new IllegalArgumentException("Matrix # of rows != # of columns");
+		}
+		return inverse.length;
+	}
+	
+}
@@ -0,0 +1,76 @@
+package linear_algebra;
+
+/**
+ * This class holds the result of an iterative solver: the solution it
+ * ended with, how many iterations it took, the norm of the residual
+ * b - Ax at the end, and whether that residual met the tolerance.
+ * 
+ * @author Aaron Smith
+ */
+public class IterativeSolution {
+	
+	private final double[] solution;
+	private final int iterations;
+	private final double residualNorm;
+	private final boolean converged;
+	
+	
+	/**
+	 * Constructs an IterativeSolution object.
+	 * 
+	 * @param solution The solution. It is kept, not copied.
+	 * @param iterations The number of iterations done.
+	 * @param residualNorm The norm of the residual of the solution.
+	 * @param converged True if the residual met the tolerance.
+	 */
+	IterativeSolution(double[] solution, int iterations, double residualNorm, boolean converged) {
+		this.solution = solution;
+		this.iterations = iterations;
+		this.residualNorm = residualNorm;
+		this.converged = converged;
+	}
+	
+	
+	/**
+	 * Returns the solution the solver ended with. When the solver didn't converge this is
+	 * the best approximation it found, which can still be used as the initial guess of
+	 * another solve.
+	 * 
+	 * @return The solution as a double[].
+	 */
+	public double[] getSolution() {
+		return solution.clone();
+	}
+	
+	
+	/**
+	 * Returns the number of iterations the solver did.
+	 * 
+	 * @return The number of iterations.
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+	
+	
+	/**
+	 * Returns the Euclidean norm of the residual b - Ax of the solution, as tracked by the
+	 * solver. It can differ slightly from a freshly computed residual because of round off.
+	 * 
+	 * @return The residual norm.
+	 */
+	public double getResidualNorm() {
+		return residualNorm;
+	}
+	
+	
+	/**
+	 * Checks if the residual met the tolerance before the iteration limit was reached.
+	 * 
+	 * @return True if the solver converged, false if not.
+	 */
+	public boolean isConverged() {
+		return converged;
+	}
+	
+}
@@ -0,0 +1,206 @@
+package linear_algebra;
+
+/**
+ * This class is the base of the iterative solvers for the system Ax = b.
+ * Unlike the reduction done by AugmentedMatrix, an iterative solver only
+ * ever multiplies the coefficient matrix by a vector, so it works with any
+ * Matrix, including a CsrMatrix or CscMatrix that would never fit in memory
+ * as a 2d array, and each iteration costs one pass over its stored values.
+ * The solver stops once the norm of the residual b - Ax is at or below
+ * tolerance * (norm of b), or after the maximum number of iterations.
+ * A solver object holds only its settings, so it can be reused for any
+ * number of systems.
+ * 
+ * @author Aaron Smith
+ */
+public abstract class IterativeSolver {
+	
+	public static final double DEFAULT_TOLERANCE = 1e-8;
+	public static final int DEFAULT_MAX_ITERATIONS = 1000;
+	
+	private double tolerance = DEFAULT_TOLERANCE;
+	private int maxIterations = DEFAULT_MAX_ITERATIONS;
+	private Preconditioner preconditioner;
+	private ResidualListener listener;
+	
+	
+	/**
+	 * Returns the relative tolerance the residual has to meet.
+	 * 
+	 * @return The tolerance.
+	 */
+	public double getTolerance() {
+		return tolerance;
+	}
+	
+	
+	/**
+	 * Sets the relative tolerance: the solver stops once the norm of the residual is at or
+	 * below tolerance * (norm of b).
+	 * 
+	 * @param tolerance The new tolerance.
+	 */
+	public void setTolerance(double tolerance) {
+		if (tolerance < 0) {
+			throw new IllegalArgumentException("Tolerance can't be negative");
+		}
+		this.tolerance = tolerance;
+	}
+	
+	
+	/**
+	 * Returns the maximum number of iterations.
+	 * 
+	 * @return The maximum number of iterations.
+	 */
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+	
+	
+	/**
+	 * Sets the maximum number of iterations, after which the solver gives up and returns
+	 * the approximation it has.
+	 * 
+	 * @param maxIterations The new maximum number of iterations.
+	 */
+	public void setMaxIterations(int maxIterations) {
+		if (maxIterations < 0) {
+			throw new IllegalArgumentException("Max iterations can't be negative");
+		}
+		this.maxIterations = maxIterations;
+	}
+	
+	
+	/**
+	 * Returns the preconditioner, or null if none is used.
+	 * 
+	 * @return The preconditioner.
+	 */
+	public Preconditioner getPreconditioner() {
+		return preconditioner;
+	}
+	
+	
+	/**
+	 * Sets the preconditioner, such as a JacobiPreconditioner or IncompleteLUPreconditioner
+	 * built from the coefficient matrix. Use null for no preconditioner.
+	 * 
+	 * @param preconditioner The new preconditioner.
+	 */
+	public void setPreconditioner(Preconditioner preconditioner) {
+		this.preconditioner = preconditioner;
+	}
+	
+	
+	/**
+	 * Returns the residual listener, or null if none is set.
+	 * 
+	 * @return The residual listener.
+	 */
+	public ResidualListener getResidualListener() {
+		return listener;
+	}
+	
+	
+	/**
+	 * Sets an object that is told the residual norm after every iteration. Use null to stop
+	 * listening.
+	 * 
+	 * @param listener The new residual listener.
+	 */
+	public void setResidualListener(ResidualListener listener) {
+		this.listener = listener;
+	}
+	
+	
+	/**
+	 * Solves the system Ax = b starting from x = 0.
+	 * 
+	 * @param a The square coefficient matrix.
+	 * @param b The right hand side.
+	 * @return The solution along with how the solver did.
+	 */
+	public IterativeSolution solve(Matrix a, double[] b) {
+		return this.solve(a, b, null);
+	}
+	
+	
+	/**
+	 * Solves the system Ax = b starting from an initial guess, such as the solution of a
+	 * previous, similar system. A good guess can save most of the iterations.
+	 * 
+	 * @param a The square coefficient matrix.
+	 * @param b The right hand side.
+	 * @param initialGuess The solution to start from, or null to start from zero. It is copied.
+	 * @return The solution along with how the solver did.
+	 */
+	public IterativeSolution solve(Matrix a, double[] b, double[] initialGuess) {
+		int size = a.getRowCount();
+		if (size != a.getColumnCount()) {
+			throw new IllegalArgumentException("Matrix # of rows != # of columns");
+		}
+		if (b.length != size) {
+			throw new IllegalArgumentException("Right hand side length != number of rows in matrix");
+		}
+		if (initialGuess != null && initialGuess.length != size) {
+			throw new IllegalArgumentException("Initial guess length != number of columns in matrix");
+		}
+		double[] x = initialGuess == null ? new double[size] : initialGuess.clone();
+		return this.iterate(a, b, x, tolerance * norm(b));
+	}
+	
+	
+	/**
+	 * Runs the solver's iterations.
+	 * 
+	 * @param a The square coefficient matrix.
+	 * @param b The right hand side.
+	 * @param x The initial guess, which is edited in place into the solution.
+	 * @param threshold The solver has converged once the residual norm is at or below this.
+	 * @return The solution along with how the solver did.
+	 */
+	abstract IterativeSolution iterate(Matrix a, double[] b, double[] x, double threshold);
+	
+	
+	/**
+	 * Applies the preconditioner, z = M^-1 r, or copies r into z if there is none.
+	 */
+	void precondition(double[] r, double[] z) {
+		if (preconditioner == null) {
+			System.arraycopy(r, 0, z, 0, r.length);
+		} else {
+			preconditioner.apply(r, z);
+		}
+	}
+	
+	
+	/**
+	 * Tells the listener, if there is one, the residual norm after an iteration.
+	 */
+	void report(int iteration, double residualNorm) {
+		if (listener != null) {
+			listener.iterationDone(iteration, residualNorm);
+		}
+	}
+	
+	
+	/**
+	 * Computes the residual r = b - Ax.
+	 */
+	static void residual(Matrix a, Vector x, double[] b, double[] r) {
+		a.multiplyBy(x, r);
+		for (int i = 0; i < r.length; i++) {
+			r[i] = b[i] - r[i];
+		}
+	}
+	
+	
+	/**
+	 * Returns the Euclidean norm of a vector.
+	 */
+	static double norm(double[] x) {
+		return Math.sqrt(VectorKernels.dot(x, 0, x, 0, x.length));
+	}
+	
+}
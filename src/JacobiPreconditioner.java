@@ -0,0 +1,44 @@
+package linear_algebra;
+
+/**
+ * This class is the Jacobi (diagonal) preconditioner, which approximates
+ * the coefficient matrix by its diagonal. It costs one division per value
+ * to apply, and helps most when the rows of the matrix are scaled very
+ * differently from each other.
+ * 
+ * @author Aaron Smith
+ */
+public class JacobiPreconditioner implements Preconditioner {
+	
+	private final double[] inverseDiagonal;
+	
+	
+	/**
+	 * Constructs the Jacobi preconditioner of a square matrix.
+	 * 
+	 * @param m The square matrix. Every value on its diagonal must be non zero.
+	 */
+	public JacobiPreconditioner(Matrix m) {
+		int size = m.getRowCount();
+		if (size != m.getColumnCount()) {
+			throw new IllegalArgumentException("Matrix # of rows != # of columns");
+		}
+		inverseDiagonal = new double[size];
+		for (int i = 0; i < size; i++) {
+			double value = m.getValue(i, i);
+			if (value == 0) {
+				throw new IllegalArgumentException("Diagonal value " + i + " is zero");
+			}
+			inverseDiagonal[i] = 1 / value;
+		}
+	}
+	
+	
+	@Override
+	public void apply(double[] r, double[] z) {
+		for (int i = 0; i < inverseDiagonal.length; i++) {
+			z[i] = r[i] * inverseDiagonal[i];
+		}
+	}
+	
+}
@@ -0,0 +1,574 @@
+package linear_algebra;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class computes the LU decomposition of a square matrix using
+ * Gaussian elimination with partial pivoting. The decomposition is
+ * written as PA = LU, where P is a permutation of the rows, L is a unit
+ * lower triangular matrix and U is an upper triangular matrix. Once
+ * computed, the decomposition can be reused to answer several questions
+ * about the matrix (such as its determinant) in O(n^2) time or less.
+ * In particular, once a coefficient matrix has been decomposed, the
+ * system Ax = b can be solved for any number of right hand sides b with
+ * one forward and one back substitution each, in O(n^2) time.
+ * 
+ * @author Aaron Smith
+ */
+public class LUDecomposition {
+	
+	private double[][] lu; // Holds L below the diagonal (its ones are implied) and U on and above it
+	private int[] pivot; // pivot[i] is the row of the original matrix that ended up in row i
+	private int pivotSign; // +1 for an even number of row interchanges, -1 for an odd number
+	private double maxAbsValue; // Largest absolute value in the original matrix, used for tolerances
+	
+	
+	/**
+	 * Constructs the LU decomposition of a square matrix. The given array is
+	 * copied, so the original matrix is never edited.
+	 * 
+	 * @param matrix The square 2d array to decompose.
+	 */
+	public LUDecomposition(double[][] matrix) {
+		if (matrix.length != 0 && matrix.length != matrix[0].length) {
+			throw new IllegalArgumentException("Matrix # of rows != # of columns");
+		}
+		int size = matrix.length;
+		this.lu = new double[size][];
+		for (int i = 0; i < size; i++) { // Work on a copy so the original matrix isn't edited
+			this.lu[i] = matrix[i].clone();
+		}
+		this.pivot = new int[size];
+		this.decompose();
+	}
+	
+	
+	/**
+	 * Constructs the LU decomposition of a square Matrix object, such as a SquareMatrix or a
+	 * view of part of a matrix. The values are copied once, straight from the array the
+	 * matrix is stored in, and the original matrix is never edited.
+	 * 
+	 * @param m The square matrix to decompose.
+	 */
+	public LUDecomposition(Matrix m) {
+		if (m.getRowCount() != m.getColumnCount()) {
+			throw new IllegalArgumentException("Matrix # of rows != # of columns");
+		}
+		this.lu = MatrixBlock.of(m).toArray();
+		this.pivot = new int[lu.length];
+		this.decompose();
+	}
+	
+	
+	/**
+	 * Constructs an empty decomposition for (size x size) matrices, to be filled by one of
+	 * the decompose() methods. Used by Workspace.
+	 */
+	LUDecomposition(int size) {
+		this(new double[size][size], new int[size]);
+	}
+	
+	
+	/**
+	 * Constructs an empty decomposition that works in the given arrays, to be filled by one
+	 * of the decompose() methods. Used with arrays borrowed from ScratchPool.
+	 */
+	LUDecomposition(double[][] lu, int[] pivot) {
+		this.lu = lu;
+		this.pivot = pivot;
+	}
+	
+	
+	/**
+	 * Replaces this decomposition with the decomposition of another square matrix. The
+	 * arrays of this object are reused when the size is the same, so nothing is allocated.
+	 * 
+	 * @param matrix The square 2d array to decompose. It is copied, not edited.
+	 */
+	public void decompose(double[][] matrix) {
+		if (matrix.length != 0 && matrix.length != matrix[0].length) {
+			throw new IllegalArgumentException("Matrix # of rows != # of columns");
+		}
+		this.decomposeLeading(matrix, matrix.length);
+	}
+	
+	
+	/**
+	 * Replaces this decomposition with the decomposition of a square Matrix object. The
+	 * arrays of this object are reused when the size is the same.
+	 * 
+	 * @param m The square matrix to decompose. It is copied, not edited.
+	 */
+	public void decompose(Matrix m) {
+		if (m.getRowCount() != m.getColumnCount()) {
+			throw new IllegalArgumentException("Matrix # of rows != # of columns");
+		}
+		this.resize(m.getRowCount());
+		m.readBlock(0, 0, lu.length, lu.length, lu);
+		this.decompose();
+	}
+	
+	
+	/**
+	 * Replaces this decomposition with the decomposition of the leading (size x size) block
+	 * of a 2d array, such as the coefficient part of an augmented matrix.
+	 */
+	void decomposeLeading(double[][] matrix, int size) {
+		this.resize(size);
+		for (int i = 0; i < size; i++) {
+			System.arraycopy(matrix[i], 0, lu[i], 0, size);
+		}
+		this.decompose();
+	}
+	
+	
+	/**
+	 * Replaces this decomposition with the decomposition of the leading (size x size) block
+	 * of a Matrix object. The block is read straight into the working array with readBlock().
+	 */
+	void decomposeLeading(Matrix m, int size) {
+		this.resize(size);
+		m.readBlock(0, 0, size, size, lu);
+		this.decompose();
+	}
+	
+	
+	/**
+	 * Replaces this decomposition with the decomposition of the minor of a square 2d array
+	 * that leaves out one row and one column. The minor is copied straight into the working
+	 * array, so nothing is allocated when this decomposition already has the minor's size.
+	 * 
+	 * @param matrix The square 2d array.
+	 * @param row The row to leave out.
+	 * @param col The column to leave out.
+	 */
+	void decomposeMinor(double[][] matrix, int row, int col) {
+		int size = matrix.length - 1;
+		this.resize(size);
+		for (int i = 0; i < size; i++) {
+			double[] source = matrix[i < row ? i : i + 1];
+			System.arraycopy(source, 0, lu[i], 0, col);
+			System.arraycopy(source, col + 1, lu[i], col, size - col);
+		}
+		this.decompose();
+	}
+	
+	
+	/**
+	 * Makes the working arrays hold (size x size) matrices, creating new ones only when the
+	 * size changes.
+	 */
+	private void resize(int size) {
+		if (lu.length != size) {
+			lu = new double[size][size];
+			pivot = new int[size];
+		}
+	}
+	
+	
+	/**
+	 * Performs the decomposition in place on the working copy. For each column,
+	 * the row with the largest absolute value on or below the diagonal is swapped
+	 * into the pivot position, then the multipliers are stored below the pivot and
+	 * the rows beneath it are updated. The inner loop walks along rows, which is
+	 * the order a double[][] is laid out in memory.
+	 */
+	private void decompose() {
+		int size = lu.length;
+		pivotSign = 1;
+		maxAbsValue = 0;
+		for (int i = 0; i < size; i++) {
+			pivot[i] = i;
+			for (int j = 0; j < size; j++) {
+				maxAbsValue = Math.max(maxAbsValue, Math.abs(lu[i][j]));
+			}
+		}
+		for (int k = 0; k < size; k++) {
+			int p = k; // Find the largest value in the column to use as the pivot
+			for (int i = k + 1; i < size; i++) {
+				if (Math.abs(lu[i][k]) > Math.abs(lu[p][k])) {
+					p = i;
+				}
+			}
+			if (p != k) { // rowP <-> rowK
+				double[] placeHolder = lu[p];
+				lu[p] = lu[k];
+				lu[k] = placeHolder;
+				int index = pivot[p];
+				pivot[p] = pivot[k];
+				pivot[k] = index;
+				pivotSign = -pivotSign;
+			}
+			double[] pivotRow = lu[k];
+			double pivotValue = pivotRow[k];
+			if (pivotValue == 0) { // Whole column is zero, nothing left to eliminate
+				continue;
+			}
+			for (int i = k + 1; i < size; i++) {
+				double[] row = lu[i];
+				double multiplier = row[k] / pivotValue;
+				row[k] = multiplier;
+				if (multiplier != 0) {
+					for (int j = k + 1; j < size; j++) {
+						row[j] -= multiplier * pivotRow[j]; // (-multiplier)rowK + rowI -> rowI
+					}
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Replaces this decomposition of A with the decomposition of A + uv^T in O(n^2) time,
+	 * using Bennett's algorithm. The rows keep the order chosen when A was decomposed, so a
+	 * pivot can shrink a lot along the way; when one loses more than half of its digits to
+	 * cancellation, the matrix is rebuilt from the factors and decomposed again with
+	 * pivoting, which takes O(n^3) time.
+	 * 
+	 * @param u The column vector, of length n.
+	 * @param v The row vector, of length n.
+	 */
+	public void update(double[] u, double[] v) {
+		int size = lu.length;
+		if (u.length != size || v.length != size) {
+			throw new IllegalArgumentException("Vectors must have length " + size);
+		}
+		double[][] original = ScratchPool.borrowMatrix(size, size);
+		double[] x = ScratchPool.borrowVector(size);
+		double[] y = ScratchPool.borrowVector(size);
+		try {
+			double maxU = 0;
+			double maxV = 0;
+			for (int i = 0; i < size; i++) {
+				System.arraycopy(lu[i], 0, original[i], 0, size);
+				x[i] = u[pivot[i]]; // LU + (Pu)v^T = P(A + uv^T)
+				y[i] = v[i];
+				maxU = Math.max(maxU, Math.abs(u[i]));
+				maxV = Math.max(maxV, Math.abs(v[i]));
+			}
+			maxAbsValue += maxU * maxV; // Bounds the new largest value for the singularity test
+			for (int k = 0; k < size; k++) {
+				double[] rowK = lu[k];
+				double pivotValue = rowK[k];
+				double x1 = x[k];
+				double y1 = y[k];
+				double newPivot = pivotValue + x1 * y1;
+				if (Math.abs(newPivot) <= 1e-8 * (Math.abs(pivotValue) + Math.abs(x1 * y1))) {
+					this.redecompose(original, u, v);
+					return;
+				}
+				for (int i = k + 1; i < size; i++) { // New column of L, and what is left of x
+					double multiplier = lu[i][k];
+					lu[i][k] = (pivotValue * multiplier + y1 * x[i]) / newPivot;
+					x[i] -= x1 * multiplier;
+				}
+				for (int j = k + 1; j < size; j++) { // New row of U, and what is left of y
+					double value = rowK[j];
+					rowK[j] = value + x1 * y[j];
+					y[j] = (pivotValue * y[j] - y1 * value) / newPivot;
+				}
+				rowK[k] = newPivot;
+			}
+		} finally {
+			ScratchPool.release(original);
+			ScratchPool.release(x);
+			ScratchPool.release(y);
+		}
+	}
+	
+	
+	/**
+	 * Rebuilds A + uv^T from a copy of the factors of A and decomposes it again.
+	 */
+	private void redecompose(double[][] original, double[] u, double[] v) {
+		int size = lu.length;
+		for (int i = 0; i < size; i++) { // Row i of PA is row i of L times U
+			double[] row = lu[pivot[i]];
+			Arrays.fill(row, 0);
+			for (int k = 0; k < i; k++) {
+				VectorKernels.axpy(original[i][k], original[k], k, row, k, size - k);
+			}
+			VectorKernels.axpy(1, original[i], i, row, i, size - i);
+		}
+		for (int i = 0; i < size; i++) { // lu now holds A with its rows in the original order
+			if (u[i] != 0) {
+				VectorKernels.axpy(u[i], v, 0, lu[i], 0, size);
+			}
+		}
+		this.decompose();
+	}
+	
+	
+	/**
+	 * Returns the size n of the (n x n)-matrix that was decomposed.
+	 * 
+	 * @return The number of rows (and columns) of the matrix.
+	 */
+	public int getSize() {
+		return lu.length;
+	}
+	
+	
+	/**
+	 * Returns the determinant of the decomposed matrix. Since det(P)det(A) = det(L)det(U),
+	 * and det(L) = 1, this is the product of the diagonal of U times the sign of the
+	 * permutation.
+	 * 
+	 * @return The determinant.
+	 */
+	public double getDeterminant() {
+		double determinant = pivotSign;
+		for (int i = 0; i < lu.length; i++) {
+			determinant *= lu[i][i];
+		}
+		return determinant;
+	}
+	
+	
+	/**
+	 * Checks if the decomposed matrix is singular. Because of floating point round off,
+	 * a pivot of a singular matrix rarely comes out as exactly zero, so any pivot that is
+	 * negligible compared to the largest value in the matrix counts as zero.
+	 * 
+	 * @return True if the matrix is singular (not invertible), false if not.
+	 */
+	public boolean isSingular() {
+		double tolerance = lu.length * Math.ulp(maxAbsValue);
+		for (int i = 0; i < lu.length; i++) {
+			if (Math.abs(lu[i][i]) <= tolerance) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	
+	/**
+	 * Returns the unit lower triangular factor L as a new double[][].
+	 * 
+	 * @return The matrix L.
+	 */
+	public double[][] getLower() {
+		int size = lu.length;
+		return this.getLower(new double[size][size]);
+	}
+	
+	
+	/**
+	 * Writes the unit lower triangular factor L into a 2d array supplied by the caller.
+	 * 
+	 * @param result The (n x n) 2d array to write L into. Every value is overwritten.
+	 * @return The result array holding L.
+	 */
+	public double[][] getLower(double[][] result) {
+		int size = lu.length;
+		this.checkSize(result);
+		for (int i = 0; i < size; i++) {
+			System.arraycopy(lu[i], 0, result[i], 0, i);
+			result[i][i] = 1;
+			Arrays.fill(result[i], i + 1, size, 0);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Returns the upper triangular factor U as a new double[][].
+	 * 
+	 * @return The matrix U.
+	 */
+	public double[][] getUpper() {
+		int size = lu.length;
+		return this.getUpper(new double[size][size]);
+	}
+	
+	
+	/**
+	 * Writes the upper triangular factor U into a 2d array supplied by the caller.
+	 * 
+	 * @param result The (n x n) 2d array to write U into. Every value is overwritten.
+	 * @return The result array holding U.
+	 */
+	public double[][] getUpper(double[][] result) {
+		int size = lu.length;
+		this.checkSize(result);
+		for (int i = 0; i < size; i++) {
+			Arrays.fill(result[i], 0, i, 0);
+			System.arraycopy(lu[i], i, result[i], i, size - i);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Checks that a result array is (n x n).
+	 */
+	private void checkSize(double[][] result) {
+		int size = lu.length;
+		if (result.length != size || (size > 0 && result[0].length != size)) {
+			throw new IllegalArgumentException("Result must be a " + size + " x " + size + " array");
+		}
+	}
+	
+	
+	/**
+	 * Returns the row permutation used while pivoting. Row i of PA is row
+	 * getPivot()[i] of the original matrix.
+	 * 
+	 * @return A copy of the pivot array.
+	 */
+	public int[] getPivot() {
+		return pivot.clone();
+	}
+	
+	
+	/**
+	 * Solves the system Ax = b for one right hand side.
+	 * 
+	 * @param b The right hand side, of length n.
+	 * @return The solution x as a new double[].
+	 */
+	public double[] solve(double[] b) {
+		return this.solve(b, new double[lu.length]);
+	}
+	
+	
+	/**
+	 * Solves the system Ax = b for one right hand side, and writes the solution into an
+	 * array supplied by the caller.
+	 * 
+	 * @param b The right hand side, of length n.
+	 * @param x The array of length n to write the solution into. It may be b itself.
+	 * @return The x array holding the solution.
+	 */
+	public double[] solve(double[] b, double[] x) {
+		int size = lu.length;
+		if (b.length != size || x.length != size) {
+			throw new IllegalArgumentException("Right hand side and solution must have length " + size);
+		}
+		if (this.isSingular()) {
+			throw new IllegalArgumentException("Matrix is singular");
+		}
+		if (x == b) { // Applying the permutation needs a copy when solving in place
+			b = b.clone();
+		}
+		for (int i = 0; i < size; i++) { // Forward substitution, Ly = Pb
+			x[i] = b[pivot[i]] - VectorKernels.dot(lu[i], 0, x, 0, i);
+		}
+		for (int i = size - 1; i >= 0; i--) { // Back substitution, Ux = y
+			x[i] = (x[i] - VectorKernels.dot(lu[i], i + 1, x, i + 1, size - i - 1)) / lu[i][i];
+		}
+		return x;
+	}
+	
+	
+	/**
+	 * Solves the system AX = B, where each column of the (n x k) matrix B is a right hand side.
+	 * The substitutions work on whole rows of X at a time, so all k systems are solved together.
+	 * 
+	 * @param b The (n x k) right hand sides.
+	 * @return The (n x k) solutions as a new double[][].
+	 */
+	public double[][] solve(double[][] b) {
+		int columns = b.length == 0 ? 0 : b[0].length;
+		return this.solve(b, new double[b.length][columns]);
+	}
+	
+	
+	/**
+	 * Solves the system AX = B, where each column of the (n x k) matrix B is a right hand side,
+	 * and writes the solutions into a 2d array supplied by the caller.
+	 * 
+	 * @param b The (n x k) right hand sides.
+	 * @param x The (n x k) 2d array to write the solutions into. Must not share any rows with b.
+	 * @return The x array holding the solutions.
+	 */
+	public double[][] solve(double[][] b, double[][] x) {
+		int size = lu.length;
+		if (b.length != size || x.length != size) {
+			throw new IllegalArgumentException("Right hand side and solution must have " + size + " rows");
+		}
+		if (this.isSingular()) {
+			throw new IllegalArgumentException("Matrix is singular");
+		}
+		int columns = size == 0 ? 0 : b[0].length;
+		if (size > 0 && x[0].length != columns) {
+			throw new IllegalArgumentException("Solution must have " + columns + " columns");
+		}
+		for (int i = 0; i < size; i++) { // Forward substitution, LY = PB
+			System.arraycopy(b[pivot[i]], 0, x[i], 0, columns);
+			for (int k = 0; k < i; k++) {
+				if (lu[i][k] != 0) {
+					VectorKernels.axpy(-lu[i][k], x[k], 0, x[i], 0, columns);
+				}
+			}
+		}
+		for (int i = size - 1; i >= 0; i--) { // Back substitution, UX = Y
+			for (int k = i + 1; k < size; k++) {
+				if (lu[i][k] != 0) {
+					VectorKernels.axpy(-lu[i][k], x[k], 0, x[i], 0, columns);
+				}
+			}
+			VectorKernels.scale(1 / lu[i][i], x[i], 0, x[i], 0, columns);
+		}
+		return x;
+	}
+	
+	
+	/**
+	 * Solves the system Ax = b for a batch of right hand sides using the threads of a
+	 * ForkJoinPool. Unlike solve(double[][]), each right hand side here is a row of the
+	 * batch, and the solutions are written back into the same rows.
+	 * 
+	 * @param batch The right hand sides, one per row, each of length n. Replaced by the solutions.
+	 * @param pool The pool to run the solves on, such as ForkJoinPool.commonPool().
+	 * @return The batch array, now holding the solutions.
+	 */
+	public double[][] solveAll(double[][] batch, ForkJoinPool pool) {
+		if (this.isSingular()) {
+			throw new IllegalArgumentException("Matrix is singular");
+		}
+		pool.invoke(new SolveTask(batch, 0, batch.length));
+		return batch;
+	}
+	
+	
+	/**
+	 * Task that solves a range of rows of a batch, splitting it in half while it is big enough.
+	 */
+	private class SolveTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		private final double[][] batch;
+		private final int start, end;
+		
+		SolveTask(double[][] batch, int start, int end) {
+			this.batch = batch;
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		protected void compute() {
+			int count = end - start;
+			if (count == 1 || (long) count * lu.length * lu.length <= MatrixMultiplier.PARALLEL_THRESHOLD) {
+				double[] x = ScratchPool.borrowVector(lu.length); // One solution buffer for the whole range
+				try {
+					for (int i = start; i < end; i++) {
+						solve(batch[i], x);
+						System.arraycopy(x, 0, batch[i], 0, x.length);
+					}
+				} finally {
+					ScratchPool.release(x);
+				}
+			} else {
+				int middle = start + count / 2;
+				invokeAll(new SolveTask(batch, start, middle), new SolveTask(batch, middle, end));
+			}
+		}
+		
+	}
+
+}
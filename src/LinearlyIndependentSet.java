@@ -0,0 +1,167 @@
+package linear_algebra;
+
+/**
+ * This class keeps a set of vectors that is known to be linearly
+ * independent, and answers whether adding one more vector keeps it that
+ * way without starting over. The vectors are stored already reduced, in
+ * echelon form, in one packed double[]: each stored row has a pivot
+ * value of 1 in its own pivot column and zeros in the pivot columns of
+ * the rows before it. A new vector is reduced against the stored rows in
+ * O(r * n) time, where r is the size of the set and n the length of the
+ * vectors, and it is independent if anything is left over.
+ * 
+ * @author Aaron Smith
+ */
+public class LinearlyIndependentSet {
+	
+	private final int dimension;
+	private final double tolerance;
+	private double[] rows; // The reduced rows, one after another
+	private int[] pivotColumns;
+	private int size;
+	private final double[] scratch; // Holds the vector being reduced
+	
+	
+	/**
+	 * Constructs an empty set for vectors of the given length, using the default tolerance.
+	 * 
+	 * @param dimension The length of the vectors.
+	 */
+	public LinearlyIndependentSet(int dimension) {
+		this(dimension, AugmentedMatrix.DEFAULT_TOLERANCE);
+	}
+	
+	
+	/**
+	 * Constructs an empty set for vectors of the given length.
+	 * 
+	 * @param dimension The length of the vectors.
+	 * @param tolerance A vector is treated as dependent when every value left over after
+	 * reducing it is at or below tolerance * (largest absolute value in the vector).
+	 */
+	public LinearlyIndependentSet(int dimension, double tolerance) {
+		if (dimension < 0 || tolerance < 0) {
+			throw new IllegalArgumentException("Dimension and tolerance can't be negative");
+		}
+		this.dimension = dimension;
+		this.tolerance = tolerance;
+		this.rows = new double[dimension * Math.min(dimension, 4)];
+		this.pivotColumns = new int[dimension];
+		this.scratch = new double[dimension];
+	}
+	
+	
+	/**
+	 * Returns the length of the vectors in the set.
+	 * 
+	 * @return The dimension.
+	 */
+	public int getDimension() {
+		return dimension;
+	}
+	
+	
+	/**
+	 * Returns the number of vectors in the set, which is also the rank of the set.
+	 * 
+	 * @return The size of the set.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	
+	/**
+	 * Checks if the set would still be linearly independent with the given vector added,
+	 * without adding it.
+	 * 
+	 * @param v The vector to test.
+	 * @return True if v is not a linear combination of the vectors in the set.
+	 */
+	public boolean isIndependentOf(Vector v) {
+		return this.reduce(v.getVector()) >= 0;
+	}
+	
+	
+	/**
+	 * Adds a vector to the set if the set stays linearly independent.
+	 * 
+	 * @param v The vector to add.
+	 * @return True if the vector was added, false if it depends on the vectors already in the set.
+	 */
+	public boolean add(Vector v) {
+		return this.add(v.getVector());
+	}
+	
+	
+	/**
+	 * Adds a vector, given as a double[], to the set if the set stays linearly independent.
+	 * 
+	 * @param vector The vector to add.
+	 * @return True if the vector was added, false if it depends on the vectors already in the set.
+	 */
+	public boolean add(double[] vector) {
+		int pivot = this.reduce(vector);
+		if (pivot < 0) {
+			return false;
+		}
+		if ((size + 1) * dimension > rows.length) { // Grow the packed buffer
+			double[] newRows = new double[Math.min(dimension * dimension, 2 * rows.length + dimension)];
+			System.arraycopy(rows, 0, newRows, 0, size * dimension);
+			rows = newRows;
+		}
+		int start = size * dimension;
+		double pivotValue = scratch[pivot];
+		for (int j = 0; j < dimension; j++) { // Store the leftover part with a pivot value of 1
+			rows[start + j] = scratch[j] / pivotValue;
+		}
+		pivotColumns[size] = pivot;
+		size++;
+		return true;
+	}
+	
+	
+	/**
+	 * Removes every vector from the set.
+	 */
+	public void clear() {
+		size = 0;
+	}
+	
+	
+	/**
+	 * Reduces a vector against the stored rows, leaving what is left over in scratch.
+	 * 
+	 * @param vector The vector to reduce.
+	 * @return The column of the largest value left over, or -1 if nothing significant is left.
+	 */
+	private int reduce(double[] vector) {
+		if (vector.length != dimension) {
+			throw new IllegalArgumentException("Vector length != " + dimension);
+		}
+		if (size == dimension) { // n independent vectors of length n span everything
+			return -1;
+		}
+		double maxAbsValue = 0;
+		for (int j = 0; j < dimension; j++) {
+			scratch[j] = vector[j];
+			maxAbsValue = Math.max(maxAbsValue, Math.abs(vector[j]));
+		}
+		for (int r = 0; r < size; r++) { // (-scratch[pivot])rowR + scratch -> scratch
+			double value = scratch[pivotColumns[r]];
+			if (value != 0) {
+				VectorKernels.axpy(-value, rows, r * dimension, scratch, 0, dimension);
+			}
+		}
+		int pivot = -1;
+		double largest = tolerance * maxAbsValue;
+		for (int j = 0; j < dimension; j++) {
+			if (Math.abs(scratch[j]) > largest) {
+				largest = Math.abs(scratch[j]);
+				pivot = j;
+			}
+		}
+		return pivot;
+	}
+	
+}
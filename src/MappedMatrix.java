@@ -0,0 +1,335 @@
+package linear_algebra;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * This class models a matrix whose values live in a file written by
+ * MatrixFile, mapped into memory with FileChannel.map(). Opening one only
+ * reads the header; the operating system pages values in from disk the
+ * first time they are read, and pages them out again when memory is
+ * needed, so the matrix can be far larger than the Java heap. A mapping
+ * is limited to 2 GB, so the values are mapped in chunks of 1 GB.
+ * 
+ * Methods that work value by value or a tile at a time, like getValue(),
+ * getRow(), multiplyBy(Vector) and multiplyBy(Matrix), read straight from
+ * the file. Methods that have to return a double[][], like getMatrix(),
+ * copy the whole matrix into memory.
+ * 
+ * @author Aaron Smith
+ */
+public class MappedMatrix extends Matrix {
+	
+	static final int CHUNK_SHIFT = 30; // Each chunk maps 2^30 bytes
+	private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+	
+	private final MappedByteBuffer[] chunks;
+	private final DoubleBuffer[] doubleChunks; // The same chunks read as doubles, for bulk copies
+	private final int rows;
+	private final int columns;
+	private final MatrixFile.Layout layout;
+	private final boolean writable;
+	
+	
+	/**
+	 * Maps the values of an open matrix file. The mappings stay valid after the channel
+	 * is closed.
+	 */
+	MappedMatrix(FileChannel channel, boolean writable, int rows, int columns, MatrixFile.Layout layout) throws IOException {
+		super(null); // Values live in the mapped file
+		this.rows = rows;
+		this.columns = columns;
+		this.layout = layout;
+		this.writable = writable;
+		long size = MatrixFile.dataSize(rows, columns);
+		int count = (int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+		this.chunks = new MappedByteBuffer[count];
+		this.doubleChunks = new DoubleBuffer[count];
+		FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+		for (int k = 0; k < count; k++) {
+			long start = (long) k << CHUNK_SHIFT;
+			long length = Math.min(1L << CHUNK_SHIFT, size - start);
+			chunks[k] = channel.map(mode, MatrixFile.HEADER_SIZE + start, length);
+			chunks[k].order(ByteOrder.LITTLE_ENDIAN);
+			doubleChunks[k] = chunks[k].asDoubleBuffer();
+		}
+	}
+	
+	
+	/**
+	 * Returns the order the values are stored in.
+	 * 
+	 * @return The layout.
+	 */
+	public MatrixFile.Layout getLayout() {
+		return layout;
+	}
+	
+	
+	/**
+	 * Checks if the matrix can be edited.
+	 * 
+	 * @return True if setValue() writes to the file, false if the matrix is read only.
+	 */
+	public boolean isWritable() {
+		return writable;
+	}
+	
+	
+	/**
+	 * Writes any changes made through setValue() out to the file.
+	 */
+	public void force() {
+		if (writable) {
+			for (MappedByteBuffer chunk : chunks) {
+				chunk.force();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Returns the byte offset of entry (row, col) from the start of the values.
+	 */
+	private long offset(int row, int col) {
+		long index = layout == MatrixFile.Layout.ROW_MAJOR ? (long) row * columns + col : (long) col * rows + row;
+		return index * Double.BYTES;
+	}
+	
+	
+	/**
+	 * Reads the double at a byte offset. A double never crosses chunks, since the chunk
+	 * size is a multiple of 8.
+	 */
+	double read(long offset) {
+		return chunks[(int) (offset >>> CHUNK_SHIFT)].getDouble((int) (offset & CHUNK_MASK));
+	}
+	
+	
+	/**
+	 * Copies values that follow each other in the file into an array, with one bulk copy
+	 * per chunk they fall in.
+	 * 
+	 * @param offset The byte offset of the first value.
+	 * @param target The array to copy into.
+	 * @param targetOffset Where to start in the array.
+	 * @param length The number of values.
+	 */
+	void read(long offset, double[] target, int targetOffset, int length) {
+		while (length > 0) {
+			int chunk = (int) (offset >>> CHUNK_SHIFT);
+			int index = (int) ((offset & CHUNK_MASK) / Double.BYTES);
+			int count = Math.min(length, doubleChunks[chunk].limit() - index);
+			doubleChunks[chunk].get(index, target, targetOffset, count);
+			offset += (long) count * Double.BYTES;
+			targetOffset += count;
+			length -= count;
+		}
+	}
+	
+	
+	/**
+	 * Copies values from an array into consecutive places in the file, with one bulk copy
+	 * per chunk they fall in.
+	 * 
+	 * @param offset The byte offset of the first value.
+	 * @param source The array to copy from.
+	 * @param sourceOffset Where to start in the array.
+	 * @param length The number of values.
+	 */
+	void write(long offset, double[] source, int sourceOffset, int length) {
+		this.markModified();
+		while (length > 0) {
+			int chunk = (int) (offset >>> CHUNK_SHIFT);
+			int index = (int) ((offset & CHUNK_MASK) / Double.BYTES);
+			int count = Math.min(length, doubleChunks[chunk].limit() - index);
+			doubleChunks[chunk].put(index, source, sourceOffset, count);
+			offset += (long) count * Double.BYTES;
+			sourceOffset += count;
+			length -= count;
+		}
+	}
+	
+	
+	/**
+	 * Copies a block of the matrix into a 2d array, one bulk copy per row or column.
+	 */
+	@Override
+	void readBlock(int row, int col, int blockRows, int blockColumns, double[][] target) {
+		if (layout == MatrixFile.Layout.ROW_MAJOR) {
+			for (int i = 0; i < blockRows; i++) {
+				this.read(this.offset(row + i, col), target[i], 0, blockColumns);
+			}
+		} else {
+			double[] line = new double[blockRows];
+			for (int j = 0; j < blockColumns; j++) {
+				this.read(this.offset(row, col + j), line, 0, blockRows);
+				for (int i = 0; i < blockRows; i++) {
+					target[i][j] = line[i];
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Copies a 2d array into a block of the matrix, one bulk copy per row or column.
+	 */
+	@Override
+	void writeBlock(int row, int col, int blockRows, int blockColumns, double[][] source) {
+		if (!writable) {
+			throw new IllegalArgumentException("Matrix is read only");
+		}
+		if (layout == MatrixFile.Layout.ROW_MAJOR) {
+			for (int i = 0; i < blockRows; i++) {
+				this.write(this.offset(row + i, col), source[i], 0, blockColumns);
+			}
+		} else {
+			double[] line = new double[blockRows];
+			for (int j = 0; j < blockColumns; j++) {
+				for (int i = 0; i < blockRows; i++) {
+					line[i] = source[i][j];
+				}
+				this.write(this.offset(row, col + j), line, 0, blockRows);
+			}
+		}
+	}
+	
+	
+	@Override
+	public int getRowCount() {
+		return rows;
+	}
+	
+	
+	@Override
+	public int getColumnCount() {
+		return columns;
+	}
+	
+	
+	@Override
+	public double getValue(int row, int col) {
+		if (row < 0 || col < 0 || row >= rows || col >= columns) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		return this.read(this.offset(row, col));
+	}
+	
+	
+	@Override
+	public void setValue(int row, int col, double value) {
+		if (row < 0 || col < 0 || row >= rows || col >= columns) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		if (!writable) {
+			throw new IllegalArgumentException("Matrix is read only");
+		}
+		long offset = this.offset(row, col);
+		chunks[(int) (offset >>> CHUNK_SHIFT)].putDouble((int) (offset & CHUNK_MASK), value);
+		this.markModified();
+	}
+	
+	
+	@Override
+	public double[] getRow(int rowNumber) {
+		if (rowNumber < 0 || rowNumber >= rows) {
+			throw new IllegalArgumentException("Row " + rowNumber + " does not exist");
+		}
+		double[] result = new double[columns];
+		if (layout == MatrixFile.Layout.ROW_MAJOR) {
+			this.read(this.offset(rowNumber, 0), result, 0, columns);
+		} else {
+			for (int j = 0; j < columns; j++) {
+				result[j] = this.read(this.offset(rowNumber, j));
+			}
+		}
+		return result;
+	}
+	
+	
+	@Override
+	public double[] getColumn(int columnNumber) {
+		if (columnNumber < 0 || columnNumber >= columns) {
+			throw new IllegalArgumentException("Column " + columnNumber + " does not exist");
+		}
+		double[] result = new double[rows];
+		if (layout == MatrixFile.Layout.COLUMN_MAJOR) {
+			this.read(this.offset(0, columnNumber), result, 0, rows);
+		} else {
+			for (int i = 0; i < rows; i++) {
+				result[i] = this.read(this.offset(i, columnNumber));
+			}
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Returns a copy of the whole matrix held in memory.
+	 */
+	@Override
+	public double[][] getMatrix() {
+		double[][] result = new double[rows][];
+		for (int i = 0; i < rows; i++) {
+			result[i] = this.getRow(i);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Writes the values of a 2d array into the file.
+	 */
+	@Override
+	public void setMatrix(double[][] matrix) {
+		if (matrix.length != rows || (rows > 0 && matrix[0].length != columns)) {
+			throw new IllegalArgumentException("Matrix is not " + rows + " x " + columns);
+		}
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				this.setValue(i, j, matrix[i][j]);
+			}
+		}
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by a vector and stores the product in result, reading the
+	 * file once from start to end: one dot product per row for a row-major file, or adding
+	 * up the scaled columns for a column-major one.
+	 * 
+	 * @param v Vector to multiply by.
+	 * @param result The double[] to store the product in, one value per row.
+	 * @return The result double[].
+	 */
+	@Override
+	public double[] multiplyBy(Vector v, double[] result) {
+		double[] vector = v.getVector();
+		if (columns != vector.length) {
+			throw new IllegalArgumentException("Number of columns in matrix != number of rows in vector");
+		}
+		if (result.length != rows) {
+			throw new IllegalArgumentException("Result vector length != number of rows in matrix");
+		}
+		double[] line = new double[layout == MatrixFile.Layout.ROW_MAJOR ? columns : rows];
+		if (layout == MatrixFile.Layout.ROW_MAJOR) {
+			for (int i = 0; i < rows; i++) {
+				this.read(this.offset(i, 0), line, 0, columns);
+				result[i] = VectorKernels.dot(line, 0, vector, 0, columns);
+			}
+		} else {
+			Arrays.fill(result, 0);
+			for (int j = 0; j < columns; j++) {
+				this.read(this.offset(0, j), line, 0, rows);
+				VectorKernels.axpy(vector[j], line, 0, result, 0, rows);
+			}
+		}
+		return result;
+	}
+	
+}
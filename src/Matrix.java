@@ -1,6 +1,7 @@
 package linear_algebra;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 import java.text.DecimalFormat;
 
 /**
@@ -12,7 +13,13 @@ import java.text.DecimalFormat;
  */
 public class Matrix {
 	
+	private static final int TILE_SIZE = 256; // Rows and columns read at a time from a matrix without a 2d array
+	
 	private double[][] matrix;
+	private MatrixBlock block; // Block of matrix, kept so the kernels don't create one on every call
+	private long modificationCount; // Goes up on every change made through the methods of the matrix
+	private boolean resultCaching = true;
+	private ResultCache results; // Derived results, created the first time one is cached
 	
 	
 	/**
@@ -25,6 +32,109 @@ public class Matrix {
 	}
 	
 	
+	/**
+	 * Returns the number of times the matrix has been changed through its own methods, such
+	 * as setValue() and setMatrix(). Results derived from the matrix, like its determinant or
+	 * inverse, are cached until this count changes. A view returns the count of the matrix it
+	 * is a view of.
+	 * 
+	 * @return The modification count.
+	 */
+	public long getModificationCount() {
+		return modificationCount;
+	}
+	
+	
+	/**
+	 * Records a change to the matrix, which makes every cached result stale. Call this after
+	 * editing the array returned by getMatrix() directly, since the matrix can't see such
+	 * edits, or turn result caching off with setResultCaching(false).
+	 */
+	public void markModified() {
+		modificationCount++;
+	}
+	
+	
+	/**
+	 * Checks if the matrix caches derived results, which it does unless turned off.
+	 * 
+	 * @return True if results are cached, false if not.
+	 */
+	public boolean isResultCaching() {
+		return resultCaching;
+	}
+	
+	
+	/**
+	 * Turns the caching of derived results, such as the determinant, inverse, QR and
+	 * singular value decompositions and the solution analysis of an augmented matrix, on or
+	 * off. Turn it off when the array returned by getMatrix() is edited directly and
+	 * calling markModified() after every edit isn't practical. Turning it off throws away
+	 * what is cached.
+	 * 
+	 * @param enabled True to cache results, false to compute them on every call.
+	 */
+	public void setResultCaching(boolean enabled) {
+		this.resultCaching = enabled;
+		if (!enabled) {
+			this.results = null;
+		}
+	}
+	
+	
+	/**
+	 * Checks if a 2d array is the one the matrix is stored in, or holds the same rows at the
+	 * same indexes, in which case writing into the array changes the matrix. An array that
+	 * shares only some rows, or holds them in a different order, isn't detected; methods
+	 * writing into a result don't support it.
+	 */
+	final boolean sharesArray(double[][] array) {
+		MatrixBlock block = this.getBlock();
+		if (block == null) {
+			return false;
+		}
+		if (block.matrix == array) {
+			return true;
+		}
+		int rows = Math.min(array.length, block.transposed ? block.columns : block.rows);
+		for (int i = 0; i < rows; i++) {
+			if (array[i] == block.matrix[block.row + i]) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	
+	/**
+	 * Returns a cached result that is still current, or null if there is none.
+	 */
+	final Object getCachedResult(ResultCache.Key key) {
+		return results == null ? null : results.get(key, this.getModificationCount());
+	}
+	
+	
+	/**
+	 * Caches a result derived from the matrix as it is now, if result caching is on. A null
+	 * result throws away what was cached.
+	 */
+	final void setCachedResult(ResultCache.Key key, Object result) {
+		if (result == null) {
+			if (results != null) {
+				results.remove(key);
+			}
+			return;
+		}
+		if (!resultCaching) {
+			return;
+		}
+		if (results == null) {
+			results = new ResultCache();
+		}
+		results.put(key, result, this.getModificationCount());
+	}
+	
+	
 	/**
 	 * Returns the matrix that belongs to the object.
 	 * 
@@ -35,6 +145,79 @@ public class Matrix {
 	}
 	
 	
+	/**
+	 * Returns the block of a 2d array the matrix is stored in, without copying it, or null
+	 * if the matrix isn't stored that way. The kernels read matrices through this, so views
+	 * of a matrix are read straight from its array.
+	 * 
+	 * @return The block, or null.
+	 */
+	MatrixBlock getBlock() {
+		double[][] array = matrix;
+		if (array == null) {
+			return null;
+		}
+		MatrixBlock current = block;
+		if (current == null || current.matrix != array) { // Made again after setMatrix()
+			current = MatrixBlock.of(array);
+			block = current;
+		}
+		return current;
+	}
+	
+	
+	/**
+	 * Copies a block of the matrix into the top left corner of a 2d array. Subclasses that
+	 * don't keep their values in a double[][] override this to copy in bulk.
+	 * 
+	 * @param row The first row of the block.
+	 * @param col The first column of the block.
+	 * @param blockRows The number of rows in the block.
+	 * @param blockColumns The number of columns in the block.
+	 * @param target The double[][] to copy into.
+	 */
+	void readBlock(int row, int col, int blockRows, int blockColumns, double[][] target) {
+		MatrixBlock block = this.getBlock();
+		for (int i = 0; i < blockRows; i++) {
+			if (block != null && !block.transposed) {
+				System.arraycopy(block.matrix[block.row + row + i], block.column + col, target[i], 0, blockColumns);
+			} else {
+				for (int j = 0; j < blockColumns; j++) {
+					target[i][j] = block != null ? block.get(row + i, col + j) : this.getValue(row + i, col + j);
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Copies the top left corner of a 2d array into a block of the matrix.
+	 * 
+	 * @param row The first row of the block.
+	 * @param col The first column of the block.
+	 * @param blockRows The number of rows in the block.
+	 * @param blockColumns The number of columns in the block.
+	 * @param source The double[][] to copy from.
+	 */
+	void writeBlock(int row, int col, int blockRows, int blockColumns, double[][] source) {
+		this.markModified();
+		MatrixBlock block = this.getBlock();
+		for (int i = 0; i < blockRows; i++) {
+			if (block != null && !block.transposed) {
+				System.arraycopy(source[i], 0, block.matrix[block.row + row + i], block.column + col, blockColumns);
+			} else {
+				for (int j = 0; j < blockColumns; j++) {
+					if (block != null) {
+						block.set(row + i, col + j, source[i][j]);
+					} else {
+						this.setValue(row + i, col + j, source[i][j]);
+					}
+				}
+			}
+		}
+	}
+	
+	
 	/**
 	 * Sets the matrix to equal a new matrix.
 	 * 
@@ -42,6 +225,7 @@ public class Matrix {
 	 */
 	public void setMatrix(double[][] matrix) {
 		this.matrix = matrix;
+		this.markModified();
 	}
 	
 	
@@ -72,6 +256,27 @@ public class Matrix {
 			throw new IllegalArgumentException("Column/Row does not exist");
 		}
 		matrix[row][col] = value;
+		this.markModified();
+	}
+	
+	
+	/**
+	 * Returns the number of rows in the matrix.
+	 * 
+	 * @return The number of rows.
+	 */
+	public int getRowCount() {
+		return matrix.length;
+	}
+	
+	
+	/**
+	 * Returns the number of columns in the matrix.
+	 * 
+	 * @return The number of columns.
+	 */
+	public int getColumnCount() {
+		return matrix.length == 0 ? 0 : matrix[0].length;
 	}
 	
 	
@@ -109,6 +314,89 @@ public class Matrix {
 	}
 	
 	
+	/**
+	 * Overloads getColumn() to return a whole column of the default matrix.
+	 * 
+	 * @param columnNumber The index of the column to return.
+	 * @return Returns an array of doubles that represents the desired column.
+	 */
+	public double[] getColumn(int columnNumber) {
+		return this.getColumn(this.getMatrix(), columnNumber);
+	}
+	
+	
+	/**
+	 * Overloads getRow() to return a whole row of the default matrix.
+	 * 
+	 * @param rowNumber The index of the row to return.
+	 * @return Returns an array of doubles that represents the desired row.
+	 */
+	public double[] getRow(int rowNumber) {
+		return this.getRow(this.getMatrix(), rowNumber);
+	}
+	
+	
+	/**
+	 * Returns a view of the transpose of the matrix, which doesn't copy anything.
+	 * Use getTranspose() for a copy.
+	 * 
+	 * @return The transposed view.
+	 */
+	public TransposedView getTransposeView() {
+		return new TransposedView(this);
+	}
+	
+	
+	/**
+	 * Returns a view of a block of the matrix, which doesn't copy anything.
+	 * End indexes are exclusive.
+	 * 
+	 * @param rowStart The first row of the block.
+	 * @param rowEnd The row to stop at.
+	 * @param colStart The first column of the block.
+	 * @param colEnd The column to stop at.
+	 * @return The view of the block.
+	 */
+	public SubMatrixView getSubMatrixView(int rowStart, int rowEnd, int colStart, int colEnd) {
+		return new SubMatrixView(this, rowStart, rowEnd, colStart, colEnd);
+	}
+	
+	
+	/**
+	 * Returns a view of the matrix with one row and one column left out, which doesn't
+	 * copy anything. Its determinant is the minor of entry (row, col).
+	 * 
+	 * @param row The row to leave out.
+	 * @param col The column to leave out.
+	 * @return The view of the minor.
+	 */
+	public SubMatrixView getMinorView(int row, int col) {
+		return SubMatrixView.minor(this, row, col);
+	}
+	
+	
+	/**
+	 * Returns a view of one row of the matrix as a Vector, which doesn't copy anything.
+	 * 
+	 * @param rowNumber The index of the row.
+	 * @return The view of the row.
+	 */
+	public VectorView getRowView(int rowNumber) {
+		return VectorView.row(this, rowNumber);
+	}
+	
+	
+	/**
+	 * Returns a view of one column of the matrix as a Vector, which doesn't copy anything.
+	 * 
+	 * @param columnNumber The index of the column.
+	 * @return The view of the column.
+	 */
+	public VectorView getColumnView(int columnNumber) {
+		return VectorView.column(this, columnNumber);
+	}
+	
+	
 	/**
 	 * This multiplies the matrix by a scalar, and returns the resulting matrix as a double[][].
 	 * 
@@ -116,11 +404,31 @@ public class Matrix {
 	 * @return The resulting matrix as a double[][].
 	 */
 	public double[][] multiplyBy(double scalar) {
-		double[][] result = new double[this.matrix.length][this.matrix[0].length];
-		for (int i = 0; i < result.length; i++) {
-			for (int j = 0; j < result[0].length; j++) {
-				result[i][j] = this.getMatrix()[i][j] * scalar;
-			}
+		return this.multiplyBy(scalar, new double[this.getRowCount()][this.getColumnCount()]);
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by a scalar, and writes the resulting matrix into a 2d array
+	 * supplied by the caller instead of allocating a new one.
+	 * 
+	 * @param scalar The scalar to multiply the matrix by.
+	 * @param result The 2d array to write the result into, the same size as the matrix. It may be
+	 * the matrix's own array, but must not share only some of its rows.
+	 * @return The result array.
+	 */
+	public double[][] multiplyBy(double scalar, double[][] result) {
+		int rows = this.getRowCount();
+		int columns = this.getColumnCount();
+		if (result.length != rows || (rows > 0 && result[0].length != columns)) {
+			throw new IllegalArgumentException("Result matrix is not " + rows + " x " + columns);
+		}
+		if (this.sharesArray(result)) { // Scaling in place changes the matrix
+			this.markModified();
+		}
+		this.readBlock(0, 0, rows, columns, result);
+		for (int i = 0; i < rows; i++) {
+			VectorKernels.scale(scalar, result[i], 0, result[i], 0, columns);
 		}
 		return result;
 	}
@@ -133,22 +441,81 @@ public class Matrix {
 	 * @return The resulting vector as a double[]
 	 */
 	public double[] multiplyBy(Vector v) {
-		if (this.matrix[0].length != v.getVector().length) {
+		return this.multiplyBy(v, new double[this.getRowCount()]);
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by a vector, and writes the resulting vector into an array
+	 * supplied by the caller instead of allocating a new one. A matrix that isn't stored in a
+	 * 2d array is read a tile at a time with readBlock() instead of being copied whole.
+	 * 
+	 * @param v Vector to multiply by the matrix.
+	 * @param result The array to write the result into. Its length must equal the number of rows,
+	 * and it must not be the vector's own array.
+	 * @return The result array.
+	 */
+	public double[] multiplyBy(Vector v, double[] result) {
+		int rows = this.getRowCount();
+		int columns = this.getColumnCount();
+		double[] vector = v.getVector();
+		if (columns != vector.length) {
 			throw new IllegalArgumentException("Number of columns in matrix != number of rows in vector");
 		}
-		double[] result = new double[this.matrix.length];
-		double value = 0;
-		for (int i = 0; i < this.matrix.length; i++) {
-			for (int j = 0; j < this.matrix[0].length; j++) {
-				value += matrix[i][j] * v.getVector()[j];
+		if (result.length != rows) {
+			throw new IllegalArgumentException("Result vector length != number of rows in matrix");
+		}
+		MatrixBlock block = this.getBlock();
+		if (block != null) {
+			MatrixMultiplier.multiply(block, vector, result);
+			return result;
+		}
+		Arrays.fill(result, 0);
+		double[][] tile = ScratchPool.borrowMatrix(Math.min(TILE_SIZE, rows), Math.min(TILE_SIZE, columns));
+		try {
+			for (int i = 0; i < rows; i += TILE_SIZE) {
+				int tileRows = Math.min(TILE_SIZE, rows - i);
+				for (int j = 0; j < columns; j += TILE_SIZE) {
+					int tileColumns = Math.min(TILE_SIZE, columns - j);
+					this.readBlock(i, j, tileRows, tileColumns, tile);
+					for (int r = 0; r < tileRows; r++) {
+						result[i + r] += VectorKernels.dot(tile[r], 0, vector, j, tileColumns);
+					}
+				}
 			}
-			result[i] = value;
-			value = 0;
+		} finally {
+			ScratchPool.release(tile);
 		}
 		return result;
 	}
 	
 	
+	/**
+	 * This multiplies the matrix by a vector using the threads of a ForkJoinPool, and returns
+	 * the resulting vector as a double[]. Small products are run on the calling thread, and
+	 * the result is always identical to multiplyBy(Vector). A matrix that isn't stored in a 2d
+	 * array, such as a MappedMatrix, is multiplied with multiplyBy(Vector) instead, which
+	 * never copies it whole.
+	 * 
+	 * @param v Vector to multiply by the matrix.
+	 * @param pool The pool to run the multiplication on, such as ForkJoinPool.commonPool().
+	 * @return The resulting vector as a double[]
+	 */
+	public double[] multiplyBy(Vector v, ForkJoinPool pool) {
+		MatrixBlock block = this.getBlock(); // Views are read straight from their backing arrays
+		if (block == null) {
+			return this.multiplyBy(v);
+		}
+		double[] vector = v.getVector();
+		if (block.columns != vector.length) {
+			throw new IllegalArgumentException("Number of columns in matrix != number of rows in vector");
+		}
+		double[] result = new double[block.rows];
+		MatrixMultiplier.multiply(block, vector, result, pool);
+		return result;
+	}
+	
+	
 	/**
 	 * This multiplies the matrix by another matrix, and returns the resulting matrix as a double[][].
 	 * Note that the number of columns in the first matrix has to equal the number of rows in the second matrix.
@@ -157,27 +524,178 @@ public class Matrix {
 	 * @return The resulting matrix as a double[][].
 	 */
 	public double[][] multiplyBy(Matrix m) {
-		double[][] otherMatrix = m.getMatrix();
+		return this.multiplyBy(m, 1, new double[this.getRowCount()][m.getColumnCount()]);
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by another matrix, and writes the resulting matrix into a 2d
+	 * array supplied by the caller instead of allocating a new one. Unlike
+	 * multiplyBy(Matrix, double, double[][]), whatever the array held is overwritten.
+	 * 
+	 * @param m Other matrix to multiply by.
+	 * @param result The (m x p) 2d array to write the product into. Must not share any rows with
+	 * either matrix being multiplied.
+	 * @return The result array.
+	 */
+	public double[][] multiplyBy(Matrix m, double[][] result) {
+		for (double[] row : result) {
+			Arrays.fill(row, 0);
+		}
+		return this.multiplyBy(m, 1, result);
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by another matrix and a scalar, and adds the product to an
+	 * existing result matrix: result += alpha * this * m. This avoids allocating a new double[][]
+	 * for every product. The multiplication is done in cache sized blocks, so it stays fast
+	 * for large matrices. A matrix that isn't stored in a 2d array, such as a MappedMatrix, is
+	 * read a tile at a time with readBlock() instead of being copied whole.
+	 * 
+	 * @param m Other matrix to multiply by.
+	 * @param alpha The scalar to multiply the product by.
+	 * @param result The (m x p) double[][] to add the product to. Must not share any rows with 
+	 * either matrix being multiplied.
+	 * @return The result double[][], now holding the sum.
+	 */
+	public double[][] multiplyBy(Matrix m, double alpha, double[][] result) {
+		int rows = this.getRowCount();
+		int columns = m.getColumnCount();
 		// Multiplying an (m x n)-matrix by an (n x p)-matrix yields a (m x p)-matrix. Check to 
 		// make sure that is the case.
-		if (this.matrix[0].length != otherMatrix.length) {
+		if (this.getColumnCount() != m.getRowCount()) {
 			throw new IllegalArgumentException("Number of columns in matrix 1 != number of rows in matrix 2");
 		}
-		double[][] result = new double[this.matrix.length][otherMatrix[0].length];
-		double value = 0;
-		for (int i = 0; i < result.length; i++) {
-			for (int j = 0; j < result[0].length; j++) {
-				for (int k = 0; k < this.matrix[0].length; k++) {
-					value += this.matrix[i][k] * otherMatrix[k][j];
+		if (result.length != rows || (rows > 0 && result[0].length != columns)) {
+			throw new IllegalArgumentException("Result matrix is not " + rows + " x " + columns);
+		}
+		MatrixBlock a = this.getBlock(); // Views are read straight from their backing arrays
+		MatrixBlock b = m.getBlock();
+		if (a == null || b == null) {
+			this.multiplyByTiles(a, m, b, alpha, result);
+			return result;
+		}
+		MatrixMultiplier.multiply(a.rows, a.columns, b.columns, alpha, a.matrix, a.row, a.column, a.transposed,
+				b.matrix, b.row, b.column, b.transposed, result, 0, 0);
+		return result;
+	}
+	
+	
+	/**
+	 * Computes result += alpha * this * m when a or b, the blocks of the two matrices, is
+	 * null. The product of each tile of this matrix and each tile of m is added into result
+	 * in turn, going through the inner dimension in order. A matrix with a block is read from
+	 * it in place, and one without is read into a borrowed tile with readBlock(): this
+	 * matrix once, and m once for every row of tiles.
+	 */
+	private void multiplyByTiles(MatrixBlock a, Matrix m, MatrixBlock b, double alpha, double[][] result) {
+		int rows = this.getRowCount();
+		int innerSize = this.getColumnCount();
+		int columns = m.getColumnCount();
+		double[][] tileA = a == null ? ScratchPool.borrowMatrix(Math.min(TILE_SIZE, rows), Math.min(TILE_SIZE, innerSize)) : null;
+		double[][] tileB = b == null ? ScratchPool.borrowMatrix(Math.min(TILE_SIZE, innerSize), Math.min(TILE_SIZE, columns)) : null;
+		try {
+			for (int k = 0; k < innerSize; k += TILE_SIZE) {
+				int tileInner = Math.min(TILE_SIZE, innerSize - k);
+				for (int i = 0; i < rows; i += TILE_SIZE) {
+					int tileRows = Math.min(TILE_SIZE, rows - i);
+					MatrixBlock left = tile(this, a, i, k, tileRows, tileInner, tileA);
+					for (int j = 0; j < columns; j += TILE_SIZE) {
+						int tileColumns = Math.min(TILE_SIZE, columns - j);
+						MatrixBlock right = tile(m, b, k, j, tileInner, tileColumns, tileB);
+						MatrixMultiplier.multiply(tileRows, tileInner, tileColumns, alpha,
+								left.matrix, left.row, left.column, left.transposed,
+								right.matrix, right.row, right.column, right.transposed, result, i, j);
+					}
 				}
-				result[i][j] = value;
-				value = 0;
 			}
+		} finally {
+			if (tileA != null) {
+				ScratchPool.release(tileA);
+			}
+			if (tileB != null) {
+				ScratchPool.release(tileB);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Returns a tile of a matrix as a block: a slice of its block, or when it has none, the
+	 * tile read into buffer.
+	 */
+	private static MatrixBlock tile(Matrix m, MatrixBlock block, int row, int col, int rows, int columns, double[][] buffer) {
+		if (block != null) {
+			return block.slice(row, row + rows, col, col + columns);
 		}
+		m.readBlock(row, col, rows, columns, buffer);
+		return new MatrixBlock(buffer, 0, 0, rows, columns, false, true);
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by another matrix using the threads of a ForkJoinPool, and returns 
+	 * the resulting matrix as a double[][]. The result is split into blocks of rows and columns that
+	 * are computed by separate tasks. Small products are run on the calling thread, and the result
+	 * is always identical to multiplyBy(Matrix). When either matrix isn't stored in a 2d array,
+	 * such as a MappedMatrix, the product is computed with multiplyBy(Matrix) instead, which
+	 * reads that matrix a tile at a time rather than copying it whole.
+	 * 
+	 * @param m Other matrix to multiply by.
+	 * @param pool The pool to run the multiplication on, such as ForkJoinPool.commonPool().
+	 * @return The resulting matrix as a double[][].
+	 */
+	public double[][] multiplyBy(Matrix m, ForkJoinPool pool) {
+		MatrixBlock a = this.getBlock(); // Views are read straight from their backing arrays
+		MatrixBlock b = m.getBlock();
+		if (a == null || b == null) {
+			return this.multiplyBy(m);
+		}
+		if (a.columns != b.rows) {
+			throw new IllegalArgumentException("Number of columns in matrix 1 != number of rows in matrix 2");
+		}
+		double[][] result = new double[a.rows][b.columns];
+		MatrixMultiplier.multiply(a, b, result, 1, pool);
 		return result;
 	}
 	
 	
+	/**
+	 * Returns the QR decomposition of the matrix, which finds least squares solutions and the
+	 * rank of the matrix. The decomposition can't be changed, so it is cached and the same one
+	 * is returned until the matrix changes.
+	 * 
+	 * @return The QR decomposition.
+	 */
+	public QRDecomposition getQRDecomposition() {
+		QRDecomposition decomposition = (QRDecomposition) this.getCachedResult(ResultCache.Key.QR_DECOMPOSITION);
+		if (decomposition == null) {
+			decomposition = new QRDecomposition(this);
+			this.setCachedResult(ResultCache.Key.QR_DECOMPOSITION, decomposition);
+		}
+		return decomposition;
+	}
+	
+	
+	/**
+	 * Returns the singular value decomposition of the matrix, which finds its exact rank,
+	 * 2-norm and condition number. Like the QR decomposition, it is cached until the matrix
+	 * changes.
+	 * 
+	 * @return The singular value decomposition.
+	 */
+	public SingularValueDecomposition getSingularValueDecomposition() {
+		SingularValueDecomposition decomposition = (SingularValueDecomposition) this.getCachedResult(
+				ResultCache.Key.SINGULAR_VALUE_DECOMPOSITION);
+		if (decomposition == null) {
+			decomposition = new SingularValueDecomposition(this);
+			this.setCachedResult(ResultCache.Key.SINGULAR_VALUE_DECOMPOSITION, decomposition);
+		}
+		return decomposition;
+	}
+	
+	
 	/**
 	 * Returns the transpose of a matrix, which simply means that each row
 	 * in the matrix is rotated to become a column, and that is the matrix's transpose.
@@ -185,11 +703,39 @@ public class Matrix {
 	 * @return The resulting matrix as a double[][].
 	 */
 	public double[][] getTranspose() {
-		double[][] matrix = this.getMatrix();
-		double[][] result = new double[matrix[0].length][matrix.length];
-		for (int i = 0; i < result.length; i++) {
-			for (int j = 0; j < result[0].length; j++) {
-				result[i][j] = matrix[j][i]; // Transposes...
+		return this.getTranspose(new double[this.getColumnCount()][this.getRowCount()]);
+	}
+	
+	
+	/**
+	 * Writes the transpose of the matrix into a 2d array supplied by the caller instead of
+	 * allocating a new one.
+	 * 
+	 * @param result The (n x m) 2d array to write the transpose of this (m x n) matrix into.
+	 * For a square matrix it may be the matrix's own array, which is then transposed in place.
+	 * @return The result array.
+	 */
+	public double[][] getTranspose(double[][] result) {
+		int rows = this.getRowCount();
+		int columns = this.getColumnCount();
+		if (result.length != columns || (columns > 0 && result[0].length != rows)) {
+			throw new IllegalArgumentException("Result matrix is not " + columns + " x " + rows);
+		}
+		MatrixBlock block = this.getBlock();
+		if (block != null && block.matrix == result && !block.transposed && block.row == 0 && block.column == 0) {
+			this.markModified();
+			for (int i = 0; i < rows; i++) { // Square and in place, so swap across the diagonal
+				for (int j = i + 1; j < columns; j++) {
+					double placeHolder = result[i][j];
+					result[i][j] = result[j][i];
+					result[j][i] = placeHolder;
+				}
+			}
+			return result;
+		}
+		for (int i = 0; i < columns; i++) {
+			for (int j = 0; j < rows; j++) {
+				result[i][j] = block != null ? block.get(j, i) : this.getValue(j, i); // Transposes...
 			}
 		}
 		return result;
@@ -204,7 +750,26 @@ public class Matrix {
 	 * @return The double[][] with rounded values.
 	 */
 	public double[][] roundMatrix(double[][] matrix) {
-		double[][] result = new double[matrix.length][matrix[0].length];
+		return this.roundMatrix(matrix, new double[matrix.length][matrix[0].length]);
+	}
+	
+	
+	/**
+	 * This method rounds each value of a double[][] to four decimal places, and writes the
+	 * rounded values into a 2d array supplied by the caller instead of allocating a new one.
+	 * 
+	 * @param matrix The double[][] to round the values of.
+	 * @param result The 2d array to write the rounded values into, the same size as matrix. It
+	 * may be matrix itself, but must not share only some of its rows.
+	 * @return The result array.
+	 */
+	public double[][] roundMatrix(double[][] matrix, double[][] result) {
+		if (result.length != matrix.length || (matrix.length > 0 && result[0].length != matrix[0].length)) {
+			throw new IllegalArgumentException("Result matrix is not the same size as the matrix");
+		}
+		if (this.sharesArray(result)) { // Rounding the matrix's own values changes it
+			this.markModified();
+		}
 		for (int i = 0; i < result.length; i++) {
 			for (int j = 0; j < result[0].length; j++) {
 				if (Math.abs(matrix[i][j]) < .00001) { // Eliminates -0.0 values
@@ -242,7 +807,7 @@ public class Matrix {
 	 * Prints out the default matrix.
 	 */
 	public void printMatrix() {
-		this.printMatrix(this.matrix);
+		this.printMatrix(this.getMatrix());
 	}
 	
 }
@@ -0,0 +1,121 @@
+package linear_algebra;
+
+import java.util.Arrays;
+
+/**
+ * This class describes a block of rows x columns values inside a 2d array,
+ * read either as is or transposed, without copying it. Entry (i, j) of the
+ * block is matrix[row + i][column + j], or matrix[row + j][column + i] when
+ * it is transposed. The kernels read views, expressions and plain matrices
+ * through a MatrixBlock, so a transpose or a slice only changes how the
+ * backing array is read.
+ * 
+ * @author Aaron Smith
+ */
+final class MatrixBlock {
+	
+	final double[][] matrix;
+	final int row; // First row of the block in matrix
+	final int column; // First column of the block in matrix
+	final int rows; // Number of rows of the block as it is read
+	final int columns; // Number of columns of the block as it is read
+	final boolean transposed;
+	final boolean owned; // True when matrix is a copy that nothing else refers to
+	
+	
+	MatrixBlock(double[][] matrix, int row, int column, int rows, int columns, boolean transposed, boolean owned) {
+		this.matrix = matrix;
+		this.row = row;
+		this.column = column;
+		this.rows = rows;
+		this.columns = columns;
+		this.transposed = transposed;
+		this.owned = owned;
+	}
+	
+	
+	/**
+	 * Returns a block covering a whole 2d array, which is not copied.
+	 */
+	static MatrixBlock of(double[][] matrix) {
+		return new MatrixBlock(matrix, 0, 0, matrix.length, matrix.length == 0 ? 0 : matrix[0].length, false, false);
+	}
+	
+	
+	/**
+	 * Returns the block a matrix is stored in. A matrix that isn't stored as a block of a 2d
+	 * array, like a FlatMatrix or a CsrMatrix, is copied into a new one through getMatrix().
+	 */
+	static MatrixBlock of(Matrix m) {
+		MatrixBlock block = m.getBlock();
+		if (block != null) {
+			return block;
+		}
+		return new MatrixBlock(m.getMatrix(), 0, 0, m.getRowCount(), m.getColumnCount(), false, true);
+	}
+	
+	
+	/**
+	 * Returns entry (i, j) of the block.
+	 */
+	double get(int i, int j) {
+		return transposed ? matrix[row + j][column + i] : matrix[row + i][column + j];
+	}
+	
+	
+	/**
+	 * Sets entry (i, j) of the block.
+	 */
+	void set(int i, int j, double value) {
+		if (transposed) {
+			matrix[row + j][column + i] = value;
+		} else {
+			matrix[row + i][column + j] = value;
+		}
+	}
+	
+	
+	/**
+	 * Returns the transpose of the block, which reads the same values.
+	 */
+	MatrixBlock transpose() {
+		return new MatrixBlock(matrix, row, column, columns, rows, !transposed, owned);
+	}
+	
+	
+	/**
+	 * Returns part of the block, which reads the same values. End indexes are exclusive.
+	 */
+	MatrixBlock slice(int rowStart, int rowEnd, int colStart, int colEnd) {
+		if (transposed) { // Rows of the block are columns of the array
+			return new MatrixBlock(matrix, row + colStart, column + rowStart, rowEnd - rowStart, colEnd - colStart, true, owned);
+		}
+		return new MatrixBlock(matrix, row + rowStart, column + colStart, rowEnd - rowStart, colEnd - colStart, false, owned);
+	}
+	
+	
+	/**
+	 * Returns the values of the block as a 2d array that can be edited freely. The backing
+	 * array is returned as is when it is already a copy covering exactly the block, and
+	 * copied otherwise.
+	 */
+	double[][] toArray() {
+		if (owned && !transposed && row == 0 && column == 0 && rows == matrix.length
+				&& (rows == 0 || columns == matrix[0].length)) {
+			return matrix;
+		}
+		double[][] result = new double[rows][];
+		for (int i = 0; i < rows; i++) {
+			if (transposed) {
+				result[i] = new double[columns];
+				for (int j = 0; j < columns; j++) {
+					result[i][j] = matrix[row + j][column + i];
+				}
+			} else {
+				result[i] = Arrays.copyOfRange(matrix[row + i], column, column + columns);
+			}
+		}
+		return result;
+	}
+	
+}
@@ -0,0 +1,409 @@
+package linear_algebra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class models a matrix expression that is only computed when
+ * evaluate() is called. Chaining methods like getTranspose() and
+ * multiplyBy() on Matrix creates a new double[][] at every step, while
+ * chaining transpose(), scale(), plus(), times() and slice() here only
+ * records the operations, and evaluate() then writes the whole expression
+ * into one result array.
+ * 
+ * Every expression is kept as a sum of terms, where each term is a scalar
+ * times a product of factors. A factor is a block of one of the original
+ * matrices, or a sum that is multiplied by something else, such as A + B in
+ * (A + B) * C. Such a sum is evaluated into one array before it is
+ * multiplied, so a product of sums costs one matrix multiplication per
+ * factor rather than one per expanded term. Scalars are folded into the
+ * scalar of their term, and so into the alpha of the matrix multiplication.
+ * A transpose or slice is never computed either: it only changes how a
+ * block reads its backing 2d array, so (A * B)^T is evaluated as B^T * A^T
+ * straight from the arrays of A and B. Products of three or more factors
+ * are multiplied in the order that does the fewest operations.
+ * 
+ * Expressions never copy their matrices, so editing a matrix before
+ * evaluate() is called changes the result.
+ * 
+ * @author Aaron Smith
+ */
+public final class MatrixExpression {
+	
+	private final int rows;
+	private final int columns;
+	private final List<Term> terms;
+	
+	
+	private MatrixExpression(int rows, int columns, List<Term> terms) {
+		this.rows = rows;
+		this.columns = columns;
+		this.terms = terms;
+	}
+	
+	
+	/**
+	 * Returns an expression holding a matrix. A plain Matrix, or a view of one, is read
+	 * straight from its 2d array. Other types of Matrix, such as FlatMatrix or CsrMatrix,
+	 * are read through getMatrix(), which makes a dense copy.
+	 * 
+	 * @param m The matrix.
+	 * @return The expression.
+	 */
+	public static MatrixExpression of(Matrix m) {
+		return of(MatrixBlock.of(m));
+	}
+	
+	
+	/**
+	 * Returns an expression holding a matrix stored as a 2d array. The array is not copied.
+	 * 
+	 * @param matrix The 2d array.
+	 * @return The expression.
+	 */
+	public static MatrixExpression of(double[][] matrix) {
+		return of(MatrixBlock.of(matrix));
+	}
+	
+	
+	private static MatrixExpression of(MatrixBlock block) {
+		List<Term> terms = new ArrayList<>();
+		terms.add(new Term(1, new Factor[] {new Factor(block, null)}));
+		return new MatrixExpression(block.rows, block.columns, terms);
+	}
+	
+	
+	/**
+	 * Returns the number of rows of the result.
+	 * 
+	 * @return The number of rows.
+	 */
+	public int getRowCount() {
+		return rows;
+	}
+	
+	
+	/**
+	 * Returns the number of columns of the result.
+	 * 
+	 * @return The number of columns.
+	 */
+	public int getColumnCount() {
+		return columns;
+	}
+	
+	
+	/**
+	 * Returns the transpose of this expression.
+	 * 
+	 * @return The new expression.
+	 */
+	public MatrixExpression transpose() {
+		List<Term> result = new ArrayList<>(terms.size());
+		for (Term term : terms) { // (A * B)^T = B^T * A^T
+			Factor[] factors = new Factor[term.factors.length];
+			for (int i = 0; i < factors.length; i++) {
+				factors[i] = term.factors[factors.length - 1 - i].transpose();
+			}
+			result.add(new Term(term.alpha, factors));
+		}
+		return new MatrixExpression(columns, rows, result);
+	}
+	
+	
+	/**
+	 * Returns this expression multiplied by a scalar.
+	 * 
+	 * @param scalar The scalar to multiply by.
+	 * @return The new expression.
+	 */
+	public MatrixExpression scale(double scalar) {
+		List<Term> result = new ArrayList<>(terms.size());
+		for (Term term : terms) {
+			result.add(new Term(scalar * term.alpha, term.factors));
+		}
+		return new MatrixExpression(rows, columns, result);
+	}
+	
+	
+	/**
+	 * Returns the sum of this expression and another one of the same size.
+	 * 
+	 * @param other The expression to add.
+	 * @return The new expression.
+	 */
+	public MatrixExpression plus(MatrixExpression other) {
+		if (rows != other.rows || columns != other.columns) {
+			throw new IllegalArgumentException("Matrices are not the same size");
+		}
+		List<Term> result = new ArrayList<>(terms);
+		result.addAll(other.terms);
+		return new MatrixExpression(rows, columns, result);
+	}
+	
+	
+	/**
+	 * Returns this expression minus another one of the same size.
+	 * 
+	 * @param other The expression to subtract.
+	 * @return The new expression.
+	 */
+	public MatrixExpression minus(MatrixExpression other) {
+		return this.plus(other.scale(-1));
+	}
+	
+	
+	/**
+	 * Returns the product of this expression and another one. A side that is a sum of more
+	 * than one term becomes a single factor, evaluated into one array before it is
+	 * multiplied; a side with one term adds its factors to the product and its scalar to
+	 * the scalar of the product.
+	 * 
+	 * @param other The expression to multiply by, on the right.
+	 * @return The new expression.
+	 */
+	public MatrixExpression times(MatrixExpression other) {
+		if (columns != other.rows) {
+			throw new IllegalArgumentException("Number of columns in matrix 1 != number of rows in matrix 2");
+		}
+		Term left = this.asTerm();
+		Term right = other.asTerm();
+		Factor[] factors = new Factor[left.factors.length + right.factors.length];
+		System.arraycopy(left.factors, 0, factors, 0, left.factors.length);
+		System.arraycopy(right.factors, 0, factors, left.factors.length, right.factors.length);
+		List<Term> result = new ArrayList<>(1);
+		result.add(new Term(left.alpha * right.alpha, factors));
+		return new MatrixExpression(rows, other.columns, result);
+	}
+	
+	
+	/**
+	 * Returns the expression as one term: its only term, or the whole sum as a single factor.
+	 */
+	private Term asTerm() {
+		if (terms.size() == 1) {
+			return terms.get(0);
+		}
+		return new Term(1, new Factor[] {new Factor(null, this)});
+	}
+	
+	
+	/**
+	 * Returns a block of this expression. Only the rows and columns of the block are ever
+	 * computed: slicing a product slices the rows of its first matrix and the columns of
+	 * its last one.
+	 * 
+	 * @param rowStart The first row of the block.
+	 * @param rowEnd The row to stop at (exclusive).
+	 * @param colStart The first column of the block.
+	 * @param colEnd The column to stop at (exclusive).
+	 * @return The new expression.
+	 */
+	public MatrixExpression slice(int rowStart, int rowEnd, int colStart, int colEnd) {
+		if (rowStart < 0 || colStart < 0 || rowEnd > rows || colEnd > columns || rowStart > rowEnd || colStart > colEnd) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		List<Term> result = new ArrayList<>(terms.size());
+		for (Term term : terms) {
+			Factor[] factors = term.factors.clone();
+			int last = factors.length - 1;
+			if (last == 0) {
+				factors[0] = factors[0].slice(rowStart, rowEnd, colStart, colEnd);
+			} else {
+				factors[0] = factors[0].slice(rowStart, rowEnd, 0, factors[0].columns());
+				factors[last] = factors[last].slice(0, factors[last].rows(), colStart, colEnd);
+			}
+			result.add(new Term(term.alpha, factors));
+		}
+		return new MatrixExpression(rowEnd - rowStart, colEnd - colStart, result);
+	}
+	
+	
+	/**
+	 * Computes the expression into a new 2d array.
+	 * 
+	 * @return The result as a double[][].
+	 */
+	public double[][] evaluate() {
+		return this.evaluate(new double[rows][columns]);
+	}
+	
+	
+	/**
+	 * Computes the expression into an existing 2d array, overwriting what it held.
+	 * 
+	 * @param result The double[][] to write the result into. Must not share any rows with the
+	 * matrices in the expression.
+	 * @return The result double[][].
+	 */
+	public double[][] evaluate(double[][] result) {
+		if (result.length != rows || (rows > 0 && result[0].length != columns)) {
+			throw new IllegalArgumentException("Result matrix is not " + rows + " x " + columns);
+		}
+		if (this.uses(result)) {
+			throw new IllegalArgumentException("Result matrix is used in the expression");
+		}
+		for (double[] row : result) {
+			Arrays.fill(row, 0);
+		}
+		for (Term term : terms) {
+			if (term.alpha != 0) {
+				term.addTo(result);
+			}
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Checks if a 2d array is read by any factor of the expression.
+	 */
+	private boolean uses(double[][] array) {
+		for (Term term : terms) {
+			for (Factor factor : term.factors) {
+				if (factor.block != null ? factor.block.matrix == array : factor.sum.uses(array)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	
+	/**
+	 * Computes the expression into a new Matrix.
+	 * 
+	 * @return The result as a Matrix.
+	 */
+	public Matrix toMatrix() {
+		return new Matrix(this.evaluate());
+	}
+	
+	
+	/**
+	 * One factor of a product: either a block of a matrix or a sum of terms.
+	 */
+	private static final class Factor {
+	
+		private final MatrixBlock block;
+		private final MatrixExpression sum;
+	
+		Factor(MatrixBlock block, MatrixExpression sum) {
+			this.block = block;
+			this.sum = sum;
+		}
+	
+		int rows() {
+			return block != null ? block.rows : sum.rows;
+		}
+	
+		int columns() {
+			return block != null ? block.columns : sum.columns;
+		}
+	
+		Factor transpose() {
+			return block != null ? new Factor(block.transpose(), null) : new Factor(null, sum.transpose());
+		}
+	
+		Factor slice(int rowStart, int rowEnd, int colStart, int colEnd) {
+			return block != null ? new Factor(block.slice(rowStart, rowEnd, colStart, colEnd), null)
+					: new Factor(null, sum.slice(rowStart, rowEnd, colStart, colEnd));
+		}
+	
+		/**
+		 * Returns the factor as a block, evaluating a sum into a new 2d array.
+		 */
+		MatrixBlock toBlock() {
+			return block != null ? block : new MatrixBlock(sum.evaluate(), 0, 0, sum.rows, sum.columns, false, true);
+		}
+	
+	}
+	
+	
+	/**
+	 * One term of the sum: alpha times the product of its factors.
+	 */
+	private static final class Term {
+	
+		private final double alpha;
+		private final Factor[] factors;
+	
+		Term(double alpha, Factor[] factors) {
+			this.alpha = alpha;
+			this.factors = factors;
+		}
+	
+		/**
+		 * Adds the term to result. Sums are evaluated first, so every factor is a block. A
+		 * single block is added value by value. For a product, the cheapest order to multiply
+		 * the blocks in is found with the usual matrix chain dynamic program, and the last
+		 * multiplication adds alpha times its product straight into result.
+		 */
+		void addTo(double[][] result) {
+			int count = factors.length;
+			MatrixBlock[] blocks = new MatrixBlock[count];
+			for (int i = 0; i < count; i++) {
+				blocks[i] = factors[i].toBlock();
+			}
+			if (count == 1) {
+				MatrixBlock block = blocks[0];
+				for (int i = 0; i < block.rows; i++) {
+					if (!block.transposed) {
+						VectorKernels.axpy(alpha, block.matrix[block.row + i], block.column, result[i], 0, block.columns);
+					} else {
+						for (int j = 0; j < block.columns; j++) {
+							result[i][j] += alpha * block.matrix[block.row + j][block.column + i];
+						}
+					}
+				}
+				return;
+			}
+			long[][] cost = new long[count][count]; // Multiply-adds needed for blocks i to j
+			int[][] split = new int[count][count]; // Where the last multiplication for blocks i to j splits them
+			for (int length = 2; length <= count; length++) {
+				for (int i = 0; i + length <= count; i++) {
+					int j = i + length - 1;
+					cost[i][j] = Long.MAX_VALUE;
+					for (int k = i; k < j; k++) {
+						long value = cost[i][k] + cost[k + 1][j]
+								+ (long) blocks[i].rows * blocks[k].columns * blocks[j].columns;
+						if (value < cost[i][j]) {
+							cost[i][j] = value;
+							split[i][j] = k;
+						}
+					}
+				}
+			}
+			int k = split[0][count - 1];
+			multiply(product(blocks, 0, k, split), product(blocks, k + 1, count - 1, split), alpha, result);
+		}
+	
+		/**
+		 * Returns the product of blocks first to last as a block. A single block is returned
+		 * as is, anything else is computed into a new 2d array.
+		 */
+		private static MatrixBlock product(MatrixBlock[] blocks, int first, int last, int[][] split) {
+			if (first == last) {
+				return blocks[first];
+			}
+			int k = split[first][last];
+			MatrixBlock left = product(blocks, first, k, split);
+			MatrixBlock right = product(blocks, k + 1, last, split);
+			double[][] matrix = new double[left.rows][right.columns];
+			multiply(left, right, 1, matrix);
+			return new MatrixBlock(matrix, 0, 0, left.rows, right.columns, false, true);
+		}
+	
+		/**
+		 * Computes result += alpha * left * right.
+		 */
+		private static void multiply(MatrixBlock left, MatrixBlock right, double alpha, double[][] result) {
+			MatrixMultiplier.multiply(left.rows, left.columns, right.columns, alpha,
+					left.matrix, left.row, left.column, left.transposed,
+					right.matrix, right.row, right.column, right.transposed, result, 0, 0);
+		}
+	
+	}
+	
+}
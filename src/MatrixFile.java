@@ -0,0 +1,260 @@
+package linear_algebra;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class reads and writes matrices in a compact binary file format,
+ * and opens such files as a MappedMatrix, which pages values in from disk
+ * only when they are used. A file is a 64 byte header followed by the raw
+ * values, all little-endian:
+ * 
+ *   offset  size  field
+ *   0       4     magic number, the bytes "LAMX"
+ *   4       4     format version, currently 1
+ *   8       4     data type, 1 for 64-bit doubles (the only one so far)
+ *   12      4     layout, 0 for row-major and 1 for column-major
+ *   16      8     number of rows
+ *   24      8     number of columns
+ *   32      32    reserved, all zeros
+ *   64      ...   rows * columns doubles in the given layout
+ * 
+ * Since the values start at a multiple of 64 bytes, every double is
+ * aligned in the file and in memory when the file is mapped.
+ * 
+ * @author Aaron Smith
+ */
+public final class MatrixFile {
+	
+	/**
+	 * The order the values of a matrix are stored in.
+	 */
+	public enum Layout {
+		/** One row after another. */
+		ROW_MAJOR,
+		/** One column after another. */
+		COLUMN_MAJOR
+	}
+	
+	static final int MAGIC = 0x584D414C; // "LAMX" read as a little-endian int
+	static final int VERSION = 1;
+	static final int DTYPE_FLOAT64 = 1;
+	static final int HEADER_SIZE = 64;
+	
+	private static final int BUFFER_SIZE = 1 << 20; // Bytes written to the channel at a time
+	
+	
+	private MatrixFile() {
+		// Only static methods
+	}
+	
+	
+	/**
+	 * Writes a matrix to a file in row-major order, replacing the file if it exists.
+	 * 
+	 * @param m The matrix to write.
+	 * @param path The file to write.
+	 * @throws IOException If the file can't be written.
+	 */
+	public static void write(Matrix m, Path path) throws IOException {
+		write(m, path, Layout.ROW_MAJOR);
+	}
+	
+	
+	/**
+	 * Writes a matrix to a file, replacing the file if it exists. The values are streamed
+	 * through a small buffer, so writing a MappedMatrix doesn't load it all into memory.
+	 * 
+	 * @param m The matrix to write.
+	 * @param path The file to write.
+	 * @param layout The order to store the values in.
+	 * @throws IOException If the file can't be written.
+	 */
+	public static void write(Matrix m, Path path, Layout layout) throws IOException {
+		int rows = m.getRowCount();
+		int columns = m.getColumnCount();
+		MatrixBlock block = m.getBlock(); // Read plain matrices and views without copying
+		boolean rowMajor = layout == Layout.ROW_MAJOR;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			putHeader(buffer, rows, columns, layout);
+			int lines = rowMajor ? rows : columns;
+			int length = rowMajor ? columns : rows;
+			for (int k = 0; k < lines; k++) {
+				double[] line = null;
+				if (block == null) {
+					line = rowMajor ? m.getRow(k) : m.getColumn(k);
+				}
+				for (int i = 0; i < length; i++) {
+					if (buffer.remaining() < Double.BYTES) {
+						drain(channel, buffer);
+					}
+					if (line != null) {
+						buffer.putDouble(line[i]);
+					} else {
+						buffer.putDouble(rowMajor ? block.get(k, i) : block.get(i, k));
+					}
+				}
+			}
+			drain(channel, buffer);
+		}
+	}
+	
+	
+	/**
+	 * Reads a whole file into a new Matrix held in memory. Use map() for files too large
+	 * to fit in a double[][].
+	 * 
+	 * @param path The file to read.
+	 * @return The matrix.
+	 * @throws IOException If the file can't be read.
+	 */
+	public static Matrix read(Path path) throws IOException {
+		MappedMatrix mapped = map(path);
+		return new Matrix(mapped.getMatrix());
+	}
+	
+	
+	/**
+	 * Opens a file as a read only MappedMatrix. Only the header is read; values are paged
+	 * in from disk by the operating system the first time they are used, so even very large
+	 * files open at once.
+	 * 
+	 * @param path The file to open.
+	 * @return The matrix backed by the file.
+	 * @throws IOException If the file can't be read.
+	 */
+	public static MappedMatrix map(Path path) throws IOException {
+		return map(path, false);
+	}
+	
+	
+	/**
+	 * Opens a file as a MappedMatrix. When writable, setValue() writes through to the file.
+	 * 
+	 * @param path The file to open.
+	 * @param writable True to allow the matrix to be edited.
+	 * @return The matrix backed by the file.
+	 * @throws IOException If the file can't be opened.
+	 * @throws IllegalArgumentException If the file isn't a matrix file, its header is invalid,
+	 * or it is shorter than its header says.
+	 */
+	public static MappedMatrix map(Path path, boolean writable) throws IOException {
+		try (FileChannel channel = writable
+				? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+				: FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+				// Keep reading until the header is full or the file ends
+			}
+			if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+				throw new IllegalArgumentException(path + " is not a matrix file");
+			}
+			if (header.getInt(4) != VERSION) {
+				throw new IllegalArgumentException("Unsupported matrix file version " + header.getInt(4));
+			}
+			if (header.getInt(8) != DTYPE_FLOAT64) {
+				throw new IllegalArgumentException("Unsupported matrix file data type " + header.getInt(8));
+			}
+			int layoutCode = header.getInt(12);
+			long rows = header.getLong(16);
+			long columns = header.getLong(24);
+			if (layoutCode < 0 || layoutCode > 1 || rows < 0 || columns < 0
+					|| rows > Integer.MAX_VALUE || columns > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException(path + " has an invalid header");
+			}
+			if (channel.size() - HEADER_SIZE < dataSize(rows, columns)) {
+				throw new IllegalArgumentException(path + " is shorter than its header says");
+			}
+			return new MappedMatrix(channel, writable, (int) rows, (int) columns, Layout.values()[layoutCode]);
+		}
+	}
+	
+	
+	/**
+	 * Creates a file for a matrix filled with zeros and opens it as a writable MappedMatrix,
+	 * replacing the file if it exists. The file is sparse on file systems that support it,
+	 * so creating it is fast whatever its size.
+	 * 
+	 * @param path The file to create.
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param layout The order to store the values in.
+	 * @return The matrix backed by the new file.
+	 * @throws IOException If the file can't be created.
+	 */
+	public static MappedMatrix create(Path path, int rows, int columns, Layout layout) throws IOException {
+		if (rows < 0 || columns < 0) {
+			throw new IllegalArgumentException("Invalid matrix dimensions");
+		}
+		long size = HEADER_SIZE + dataSize(rows, columns);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			putHeader(header, rows, columns, layout);
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			if (size > HEADER_SIZE) { // Writing the last byte sets the file size
+				channel.write(ByteBuffer.allocate(1), size - 1);
+			}
+			return new MappedMatrix(channel, true, rows, columns, layout);
+		}
+	}
+	
+	
+	/**
+	 * Returns the number of bytes the values of a matrix take up after the header. The size
+	 * is checked for overflow, since a header can claim up to 2^31 - 1 rows and columns.
+	 * 
+	 * @throws IllegalArgumentException If the values are too large to map.
+	 */
+	static long dataSize(long rows, long columns) {
+		long size;
+		try {
+			size = Math.multiplyExact(Math.multiplyExact(rows, columns), (long) Double.BYTES);
+			Math.addExact(size, HEADER_SIZE);
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException("Matrix is too large to map");
+		}
+		if ((size >>> MappedMatrix.CHUNK_SHIFT) >= Integer.MAX_VALUE) { // One mapping per chunk, counted with an int
+			throw new IllegalArgumentException("Matrix is too large to map");
+		}
+		return size;
+	}
+	
+	
+	/**
+	 * Puts the 64 byte header into a buffer.
+	 */
+	private static void putHeader(ByteBuffer buffer, long rows, long columns, Layout layout) {
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(DTYPE_FLOAT64);
+		buffer.putInt(layout.ordinal());
+		buffer.putLong(rows);
+		buffer.putLong(columns);
+		while (buffer.position() < HEADER_SIZE) {
+			buffer.put((byte) 0);
+		}
+	}
+	
+	
+	/**
+	 * Writes everything in the buffer to the channel and clears the buffer.
+	 */
+	private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+}
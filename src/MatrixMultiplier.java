@@ -0,0 +1,463 @@
+package linear_algebra;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class holds the kernel used to multiply two matrices stored as
+ * 2d arrays of doubles. It computes C += alpha * A * B by splitting the
+ * work into blocks small enough to stay in the processor's cache and by
+ * looping in i-k-j order, so the innermost loop walks along rows of B and
+ * C instead of down columns. Within a block, the values of A for four rows
+ * of C are copied, already multiplied by alpha, into a small panel, and the
+ * block of B is copied into one array unless it is stored that way already.
+ * The micro kernel, VectorKernels.multiply4(), then works through the four
+ * rows of C in small tiles that stay in registers for the whole k loop of
+ * the block, so each value of C is loaded and stored once per block rather
+ * than once per k. Products too small to pay for the copies update four
+ * rows of C at a time with VectorKernels.axpy4() instead. The kernels use
+ * SIMD instructions when the Vector API is available.
+ * 
+ * Products can also be run on a ForkJoinPool, which recursively splits the
+ * rows and columns of the result between tasks until each piece is smaller
+ * than a threshold. Since every value of the result is computed by exactly
+ * one task, in the same order as the sequential kernel, the parallel result
+ * is identical to the sequential one.
+ * 
+ * @author Aaron Smith
+ */
+final class MatrixMultiplier {
+	
+	private static final int CACHE_SIZE_IN_DOUBLES = 256 * 1024 / 8; // Roughly a 256 KB L2 cache
+	private static final int MAX_INNER_BLOCK = 256; // Most rows of B kept in one block
+	private static final int MIN_COLUMN_BLOCK = 64; // Fewest columns of B kept in one block
+	private static final long MIN_PANEL_WORK = 1L << 15; // Fewest multiply-adds worth copying panels for
+	
+	/**
+	 * Number of multiply-adds below which a product, or a piece of one, is run sequentially.
+	 */
+	static final long PARALLEL_THRESHOLD = 1L << 18;
+	
+	
+	private MatrixMultiplier() {
+		// Only static methods
+	}
+	
+	
+	/**
+	 * Returns how many rows of B (and columns of A) to keep in one block, given
+	 * the inner dimension of the product.
+	 * 
+	 * @param innerSize Number of columns of A, which equals the number of rows of B.
+	 * @return The block size for the k loop.
+	 */
+	static int innerBlockSize(int innerSize) {
+		return Math.min(innerSize, MAX_INNER_BLOCK);
+	}
+	
+	
+	/**
+	 * Returns how many columns of B and C to keep in one block, chosen so that a
+	 * block of B fits in the cache.
+	 * 
+	 * @param innerBlockSize The block size returned by innerBlockSize().
+	 * @param columns Number of columns of B.
+	 * @return The block size for the j loop.
+	 */
+	static int columnBlockSize(int innerBlockSize, int columns) {
+		int blockSize = Math.max(MIN_COLUMN_BLOCK, CACHE_SIZE_IN_DOUBLES / Math.max(1, innerBlockSize));
+		return Math.min(columns, blockSize);
+	}
+	
+	
+	/**
+	 * Computes C += alpha * A * B over the whole of C.
+	 * 
+	 * @param a The (m x n) left hand matrix.
+	 * @param b The (n x p) right hand matrix.
+	 * @param c The (m x p) matrix to add the product to. Must not share rows with a or b.
+	 * @param alpha The scalar to multiply the product by.
+	 */
+	static void multiply(double[][] a, double[][] b, double[][] c, double alpha) {
+		multiply(a, b, c, alpha, 0, c.length, 0, c.length == 0 ? 0 : c[0].length);
+	}
+	
+	
+	/**
+	 * Computes C += alpha * A * B for the rows rowStart to rowEnd and the columns
+	 * colStart to colEnd of C (end indexes are exclusive). Each value of C always
+	 * adds up its terms in increasing k order, so the result doesn't depend on the
+	 * block sizes or on how C is split up between calls.
+	 * 
+	 * @param a The (m x n) left hand matrix.
+	 * @param b The (n x p) right hand matrix.
+	 * @param c The (m x p) matrix to add the product to. Must not share rows with a or b.
+	 * @param alpha The scalar to multiply the product by.
+	 * @param rowStart First row of C to compute.
+	 * @param rowEnd Row of C to stop at.
+	 * @param colStart First column of C to compute.
+	 * @param colEnd Column of C to stop at.
+	 */
+	static void multiply(double[][] a, double[][] b, double[][] c, double alpha,
+			int rowStart, int rowEnd, int colStart, int colEnd) {
+		multiply(rowEnd - rowStart, b.length, colEnd - colStart, alpha, a, rowStart, 0, false,
+				b, 0, colStart, false, c, rowStart, colStart);
+	}
+	
+	
+	/**
+	 * Computes C += alpha * A * B for matrices stored in flat row-major double[] buffers,
+	 * where entry (i, j) of a matrix is at offset + i * stride + j. Uses the same blocking,
+	 * loop order and micro kernel as the double[][] version.
+	 * 
+	 * @param rows Number of rows of A and C.
+	 * @param innerSize Number of columns of A, which equals the number of rows of B.
+	 * @param columns Number of columns of B and C.
+	 * @param alpha The scalar to multiply the product by.
+	 * @param a Buffer holding A.
+	 * @param aOffset Index of A's first entry.
+	 * @param aStride Distance between rows of A.
+	 * @param b Buffer holding B.
+	 * @param bOffset Index of B's first entry.
+	 * @param bStride Distance between rows of B.
+	 * @param c Buffer holding C. The region of C must not overlap A or B.
+	 * @param cOffset Index of C's first entry.
+	 * @param cStride Distance between rows of C.
+	 */
+	static void multiply(int rows, int innerSize, int columns, double alpha,
+			double[] a, int aOffset, int aStride, double[] b, int bOffset, int bStride,
+			double[] c, int cOffset, int cStride) {
+		int innerBlock = innerBlockSize(innerSize);
+		int columnBlock = columnBlockSize(innerBlock, columns);
+		boolean panels = rows >= 4 && (long) rows * innerSize * columns >= MIN_PANEL_WORK;
+		double[] panelA = panels ? ScratchPool.borrowVector(4 * innerBlock) : null;
+		try {
+			for (int kk = 0; kk < innerSize; kk += innerBlock) {
+				int kCount = Math.min(innerBlock, innerSize - kk);
+				for (int jj = 0; jj < columns; jj += columnBlock) {
+					int width = Math.min(columnBlock, columns - jj);
+					int i = 0;
+					for (; i + 3 < rows; i += 4) { // Four rows of C at a time
+						int a0 = aOffset + i * aStride + kk;
+						int c0 = cOffset + i * cStride + jj;
+						if (!panels) {
+							for (int k = 0; k < kCount; k++) {
+								VectorKernels.axpy4(alpha * a[a0 + k], alpha * a[a0 + aStride + k],
+										alpha * a[a0 + 2 * aStride + k], alpha * a[a0 + 3 * aStride + k],
+										b, bOffset + (kk + k) * bStride + jj, c, c0, c, c0 + cStride,
+										c, c0 + 2 * cStride, c, c0 + 3 * cStride, width);
+							}
+							continue;
+						}
+						for (int k = 0; k < kCount; k++) {
+							panelA[4 * k] = alpha * a[a0 + k];
+							panelA[4 * k + 1] = alpha * a[a0 + aStride + k];
+							panelA[4 * k + 2] = alpha * a[a0 + 2 * aStride + k];
+							panelA[4 * k + 3] = alpha * a[a0 + 3 * aStride + k];
+						}
+						VectorKernels.multiply4(panelA, 0, kCount, b, bOffset + kk * bStride + jj, bStride,
+								c, c0, c, c0 + cStride, c, c0 + 2 * cStride, c, c0 + 3 * cStride, width);
+					}
+					for (; i < rows; i++) { // Rows left over
+						int c0 = cOffset + i * cStride + jj;
+						for (int k = kk; k < kk + kCount; k++) {
+							VectorKernels.axpy(alpha * a[aOffset + i * aStride + k], b, bOffset + k * bStride + jj,
+									c, c0, width);
+						}
+					}
+				}
+			}
+		} finally {
+			if (panels) {
+				ScratchPool.release(panelA);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Computes C += alpha * op(A) * op(B) for blocks inside larger 2d arrays, where op(X) is
+	 * either X or its transpose. Entry (i, k) of op(A) is a[aRow + i][aColumn + k], or
+	 * a[aRow + k][aColumn + i] when aTransposed is true, and the same goes for B. Transposed
+	 * blocks are read in place instead of being copied:
+	 * A * B and A^T * B use the blocked i-k-j loop, reading the scalars of A down a column
+	 * when it is transposed. A * B^T takes the dot product of a row of A and a row of B for
+	 * each value of C. A^T * B^T is computed as (B * A)^T, a few rows of B * A at a time.
+	 * 
+	 * @param rows Number of rows of op(A) and C.
+	 * @param innerSize Number of columns of op(A), which equals the number of rows of op(B).
+	 * @param columns Number of columns of op(B) and C.
+	 * @param alpha The scalar to multiply the product by.
+	 * @param a The array holding A.
+	 * @param aRow First row of A's block.
+	 * @param aColumn First column of A's block.
+	 * @param aTransposed True to use the transpose of A's block.
+	 * @param b The array holding B.
+	 * @param bRow First row of B's block.
+	 * @param bColumn First column of B's block.
+	 * @param bTransposed True to use the transpose of B's block.
+	 * @param c The array holding C. Must not share rows with a or b.
+	 * @param cRow First row of C's block.
+	 * @param cColumn First column of C's block.
+	 */
+	static void multiply(int rows, int innerSize, int columns, double alpha,
+			double[][] a, int aRow, int aColumn, boolean aTransposed,
+			double[][] b, int bRow, int bColumn, boolean bTransposed,
+			double[][] c, int cRow, int cColumn) {
+		if (aTransposed && bTransposed) { // Done a few columns of C at a time, to keep the temporary array small
+			double[][] product = ScratchPool.borrowMatrix(Math.min(columns, MIN_COLUMN_BLOCK), rows);
+			try {
+				for (int jj = 0; jj < columns; jj += product.length) {
+					int width = Math.min(product.length, columns - jj);
+					for (int j = 0; j < width; j++) {
+						Arrays.fill(product[j], 0);
+					}
+					multiply(width, innerSize, rows, alpha, b, bRow + jj, bColumn, false, a, aRow, aColumn, false, product, 0, 0);
+					for (int i = 0; i < rows; i++) {
+						double[] rowC = c[cRow + i];
+						for (int j = 0; j < width; j++) {
+							rowC[cColumn + jj + j] += product[j][i];
+						}
+					}
+				}
+			} finally {
+				ScratchPool.release(product);
+			}
+			return;
+		}
+		if (bTransposed) {
+			for (int i = 0; i < rows; i++) {
+				double[] rowA = a[aRow + i];
+				double[] rowC = c[cRow + i];
+				for (int j = 0; j < columns; j++) {
+					rowC[cColumn + j] += alpha * VectorKernels.dot(rowA, aColumn, b[bRow + j], bColumn, innerSize);
+				}
+			}
+			return;
+		}
+		int innerBlock = innerBlockSize(innerSize);
+		int columnBlock = columnBlockSize(innerBlock, columns);
+		boolean panels = rows >= 4 && (long) rows * innerSize * columns >= MIN_PANEL_WORK;
+		double[] panel = panels ? ScratchPool.borrowVector(innerBlock * (columnBlock + 4)) : null; // B, then A
+		int panelA = innerBlock * columnBlock;
+		try {
+			for (int kk = 0; kk < innerSize; kk += innerBlock) {
+				int kCount = Math.min(innerBlock, innerSize - kk);
+				for (int jj = 0; jj < columns; jj += columnBlock) {
+					int width = Math.min(columnBlock, columns - jj);
+					int bStart = bColumn + jj;
+					int cStart = cColumn + jj;
+					int i = 0;
+					if (panels) { // Copy the block of B into the panel, one row after another
+						for (int k = 0; k < kCount; k++) {
+							System.arraycopy(b[bRow + kk + k], bStart, panel, k * width, width);
+						}
+					}
+					for (; i + 3 < rows; i += 4) { // Four rows of C at a time
+						double[] rowC0 = c[cRow + i];
+						double[] rowC1 = c[cRow + i + 1];
+						double[] rowC2 = c[cRow + i + 2];
+						double[] rowC3 = c[cRow + i + 3];
+						if (!panels) {
+							for (int k = kk; k < kk + kCount; k++) {
+								VectorKernels.axpy4(alpha * entry(a, aRow, aColumn, aTransposed, i, k),
+										alpha * entry(a, aRow, aColumn, aTransposed, i + 1, k),
+										alpha * entry(a, aRow, aColumn, aTransposed, i + 2, k),
+										alpha * entry(a, aRow, aColumn, aTransposed, i + 3, k),
+										b[bRow + k], bStart, rowC0, cStart, rowC1, cStart, rowC2, cStart, rowC3, cStart, width);
+							}
+							continue;
+						}
+						for (int k = 0; k < kCount; k++) {
+							for (int r = 0; r < 4; r++) {
+								panel[panelA + 4 * k + r] = alpha * entry(a, aRow, aColumn, aTransposed, i + r, kk + k);
+							}
+						}
+						VectorKernels.multiply4(panel, panelA, kCount, panel, 0, width, rowC0, cStart,
+								rowC1, cStart, rowC2, cStart, rowC3, cStart, width);
+					}
+					for (; i < rows; i++) { // Rows left over
+						double[] rowC = c[cRow + i];
+						for (int k = kk; k < kk + kCount; k++) {
+							VectorKernels.axpy(alpha * entry(a, aRow, aColumn, aTransposed, i, k), b[bRow + k], bStart,
+									rowC, cStart, width);
+						}
+					}
+				}
+			}
+		} finally {
+			if (panels) {
+				ScratchPool.release(panel);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Returns entry (i, k) of a block inside a 2d array, or of its transpose.
+	 */
+	private static double entry(double[][] x, int row, int column, boolean transposed, int i, int k) {
+		return transposed ? x[row + k][column + i] : x[row + i][column + k];
+	}
+	
+	
+	/**
+	 * Computes y = A * x, where A is a block of a 2d array.
+	 * 
+	 * @param a The (m x n) block.
+	 * @param x The vector of length n.
+	 * @param y The vector of length m to write the result into.
+	 */
+	static void multiply(MatrixBlock a, double[] x, double[] y) {
+		multiply(a, x, y, 0, a.rows);
+	}
+	
+	
+	/**
+	 * Computes y = A * x for the rows rowStart to rowEnd of y (rowEnd is exclusive), where A
+	 * is a block of a 2d array. Each value of y is added up in the same order however the
+	 * rows are split.
+	 * 
+	 * @param a The (m x n) block.
+	 * @param x The vector of length n.
+	 * @param y The vector of length m to write the result into.
+	 * @param rowStart First row of y to compute.
+	 * @param rowEnd Row of y to stop at.
+	 */
+	static void multiply(MatrixBlock a, double[] x, double[] y, int rowStart, int rowEnd) {
+		if (a.transposed) { // Columns of A are rows of the array, so add them up scaled by x
+			Arrays.fill(y, rowStart, rowEnd, 0);
+			for (int k = 0; k < a.columns; k++) {
+				VectorKernels.axpy(x[k], a.matrix[a.row + k], a.column + rowStart, y, rowStart, rowEnd - rowStart);
+			}
+		} else {
+			for (int i = rowStart; i < rowEnd; i++) {
+				y[i] = VectorKernels.dot(a.matrix[a.row + i], a.column, x, 0, a.columns);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Computes C += alpha * A * B for the rows rowStart to rowEnd and the columns colStart to
+	 * colEnd of C (end indexes are exclusive), where A and B are blocks of 2d arrays that may
+	 * be transposed.
+	 */
+	private static void multiply(MatrixBlock a, MatrixBlock b, double[][] c, double alpha,
+			int rowStart, int rowEnd, int colStart, int colEnd) {
+		MatrixBlock left = a.slice(rowStart, rowEnd, 0, a.columns);
+		MatrixBlock right = b.slice(0, b.rows, colStart, colEnd);
+		multiply(rowEnd - rowStart, a.columns, colEnd - colStart, alpha,
+				left.matrix, left.row, left.column, left.transposed,
+				right.matrix, right.row, right.column, right.transposed, c, rowStart, colStart);
+	}
+	
+	
+	/**
+	 * Computes C += alpha * A * B over the whole of C using the given pool, where A and B are
+	 * blocks of 2d arrays, so views are read in place.
+	 * 
+	 * @param a The (m x n) left hand block.
+	 * @param b The (n x p) right hand block.
+	 * @param c The (m x p) matrix to add the product to. Must not share rows with a or b.
+	 * @param alpha The scalar to multiply the product by.
+	 * @param pool The pool to run the tasks on.
+	 */
+	static void multiply(MatrixBlock a, MatrixBlock b, double[][] c, double alpha, ForkJoinPool pool) {
+		pool.invoke(new MatrixProductTask(a, b, c, alpha, 0, a.rows, 0, b.columns));
+	}
+	
+	
+	/**
+	 * Computes y = A * x using the given pool, where A is a block of a 2d array.
+	 * 
+	 * @param a The (m x n) block.
+	 * @param x The vector of length n.
+	 * @param y The vector of length m to write the result into.
+	 * @param pool The pool to run the tasks on.
+	 */
+	static void multiply(MatrixBlock a, double[] x, double[] y, ForkJoinPool pool) {
+		pool.invoke(new VectorProductTask(a, x, y, 0, a.rows));
+	}
+	
+	
+	/**
+	 * Task that computes one block of a matrix product. Blocks that are too big are 
+	 * split in half along their longer side, keeping row splits on multiples of four
+	 * so the micro kernel still gets full groups of rows.
+	 */
+	private static class MatrixProductTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		private final MatrixBlock a, b;
+		private final double[][] c;
+		private final double alpha;
+		private final int rowStart, rowEnd, colStart, colEnd;
+		
+		MatrixProductTask(MatrixBlock a, MatrixBlock b, double[][] c, double alpha,
+				int rowStart, int rowEnd, int colStart, int colEnd) {
+			this.a = a;
+			this.b = b;
+			this.c = c;
+			this.alpha = alpha;
+			this.rowStart = rowStart;
+			this.rowEnd = rowEnd;
+			this.colStart = colStart;
+			this.colEnd = colEnd;
+		}
+		
+		@Override
+		protected void compute() {
+			int rows = rowEnd - rowStart;
+			int columns = colEnd - colStart;
+			long work = (long) rows * columns * a.columns;
+			if (work <= PARALLEL_THRESHOLD || (rows <= 4 && columns <= MIN_COLUMN_BLOCK)) {
+				multiply(a, b, c, alpha, rowStart, rowEnd, colStart, colEnd);
+			} else if (rows >= columns || columns <= MIN_COLUMN_BLOCK) { // Split the rows
+				int middle = rowStart + Math.max(4, (rows / 2) & ~3);
+				invokeAll(new MatrixProductTask(a, b, c, alpha, rowStart, middle, colStart, colEnd),
+						new MatrixProductTask(a, b, c, alpha, middle, rowEnd, colStart, colEnd));
+			} else { // Split the columns
+				int middle = colStart + columns / 2;
+				invokeAll(new MatrixProductTask(a, b, c, alpha, rowStart, rowEnd, colStart, middle),
+						new MatrixProductTask(a, b, c, alpha, rowStart, rowEnd, middle, colEnd));
+			}
+		}
+		
+	}
+	
+	
+	/**
+	 * Task that computes a range of rows of a matrix-vector product.
+	 */
+	private static class VectorProductTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		private final MatrixBlock a;
+		private final double[] x, y;
+		private final int rowStart, rowEnd;
+		
+		VectorProductTask(MatrixBlock a, double[] x, double[] y, int rowStart, int rowEnd) {
+			this.a = a;
+			this.x = x;
+			this.y = y;
+			this.rowStart = rowStart;
+			this.rowEnd = rowEnd;
+		}
+		
+		@Override
+		protected void compute() {
+			int rows = rowEnd - rowStart;
+			if ((long) rows * x.length <= PARALLEL_THRESHOLD || rows <= 1) {
+				multiply(a, x, y, rowStart, rowEnd);
+			} else {
+				int middle = rowStart + rows / 2;
+				invokeAll(new VectorProductTask(a, x, y, rowStart, middle),
+						new VectorProductTask(a, x, y, middle, rowEnd));
+			}
+		}
+		
+	}
+
+}
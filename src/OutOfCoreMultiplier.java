@@ -0,0 +1,284 @@
+package linear_algebra;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class multiplies matrices that are too large to hold in memory,
+ * such as a MappedMatrix, within a fixed memory budget. The result is
+ * split into square tiles, and each tile of C = A * B is computed by
+ * adding up the products of a row of tiles of A and a column of tiles of
+ * B. Only one tile of C and two tiles each of A and B are held at a time,
+ * and the tile size is the largest that keeps them within the budget.
+ * 
+ * With prefetching on, a separate reader thread copies the next pair of
+ * tiles of A and B into memory while the current pair is multiplied, so
+ * reading from disk overlaps with the arithmetic. The two threads trade
+ * the same two pairs of tile buffers back and forth, so no tiles are
+ * allocated while the product runs.
+ * 
+ * @author Aaron Smith
+ */
+public class OutOfCoreMultiplier {
+	
+	/**
+	 * The memory budget used by the default constructor, 256 MB.
+	 */
+	public static final long DEFAULT_MEMORY_BUDGET = 256L << 20;
+	
+	private final long memoryBudget;
+	private final boolean prefetch;
+	private final int tileSize;
+	
+	
+	/**
+	 * Constructs an OutOfCoreMultiplier with the default memory budget and prefetching on.
+	 */
+	public OutOfCoreMultiplier() {
+		this(DEFAULT_MEMORY_BUDGET, true);
+	}
+	
+	
+	/**
+	 * Constructs an OutOfCoreMultiplier.
+	 * 
+	 * @param memoryBudget The most memory, in bytes, to use for tiles.
+	 * @param prefetch True to read the next tiles on a separate thread while the current ones are multiplied.
+	 */
+	public OutOfCoreMultiplier(long memoryBudget, boolean prefetch) {
+		int buffers = prefetch ? 5 : 3; // Tiles held at once: one of C, and one or two each of A and B
+		long tile = (long) Math.sqrt((double) memoryBudget / (buffers * Double.BYTES));
+		if (tile < 1) {
+			throw new IllegalArgumentException("Memory budget is too small");
+		}
+		if (tile >= 8) { // Keep whole groups of four rows for the multiplication kernel
+			tile &= ~3;
+		}
+		this.memoryBudget = memoryBudget;
+		this.prefetch = prefetch;
+		this.tileSize = (int) Math.min(tile, Integer.MAX_VALUE / 2);
+	}
+	
+	
+	/**
+	 * Returns the memory budget.
+	 * 
+	 * @return The most memory, in bytes, used for tiles.
+	 */
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+	
+	
+	/**
+	 * Checks if tiles are read on a separate thread.
+	 * 
+	 * @return True if prefetching is on.
+	 */
+	public boolean isPrefetch() {
+		return prefetch;
+	}
+	
+	
+	/**
+	 * Returns the number of rows and columns of each tile, which is set by the memory budget.
+	 * 
+	 * @return The tile size.
+	 */
+	public int getTileSize() {
+		return tileSize;
+	}
+	
+	
+	/**
+	 * Multiplies two matrices into a new row-major matrix file, replacing the file if it exists.
+	 * 
+	 * @param a The (m x n) left hand matrix.
+	 * @param b The (n x p) right hand matrix.
+	 * @param resultPath The file to write the (m x p) product to.
+	 * @return The product, mapped from the new file.
+	 * @throws IOException If the file can't be created.
+	 */
+	public MappedMatrix multiply(Matrix a, Matrix b, Path resultPath) throws IOException {
+		if (a.getColumnCount() != b.getRowCount()) {
+			throw new IllegalArgumentException("Number of columns in matrix 1 != number of rows in matrix 2");
+		}
+		MappedMatrix result = MatrixFile.create(resultPath, a.getRowCount(), b.getColumnCount(), MatrixFile.Layout.ROW_MAJOR);
+		this.multiply(a, b, result);
+		result.force();
+		return result;
+	}
+	
+	
+	/**
+	 * Multiplies two matrices and stores the product in result, overwriting what it held.
+	 * Any Matrix works as an input or result. A MappedMatrix or a plain Matrix is read and
+	 * written a row of a tile at a time, while types without a bulk copy go value by value.
+	 * 
+	 * @param a The (m x n) left hand matrix.
+	 * @param b The (n x p) right hand matrix.
+	 * @param result The (m x p) matrix to store the product in. Must not be a or b.
+	 */
+	public void multiply(Matrix a, Matrix b, Matrix result) {
+		int rows = a.getRowCount();
+		int innerSize = a.getColumnCount();
+		int columns = b.getColumnCount();
+		if (innerSize != b.getRowCount()) {
+			throw new IllegalArgumentException("Number of columns in matrix 1 != number of rows in matrix 2");
+		}
+		if (result.getRowCount() != rows || result.getColumnCount() != columns) {
+			throw new IllegalArgumentException("Result matrix is not " + rows + " x " + columns);
+		}
+		if (result == a || result == b) {
+			throw new IllegalArgumentException("Result matrix is used in the product");
+		}
+		int size = tileSize;
+		double[][] c = new double[Math.min(size, rows)][Math.min(size, columns)];
+		TileReader reader = new TileReader(a, b, size, prefetch ? 2 : 1);
+		Thread thread = null;
+		if (prefetch) {
+			thread = new Thread(reader, "OutOfCoreMultiplier reader");
+			thread.setDaemon(true);
+			thread.start();
+		}
+		try {
+			for (int i = 0; i < rows; i += size) {
+				int tileRows = Math.min(size, rows - i);
+				for (int j = 0; j < columns; j += size) {
+					int tileColumns = Math.min(size, columns - j);
+					for (int r = 0; r < tileRows; r++) {
+						Arrays.fill(c[r], 0, tileColumns, 0);
+					}
+					for (int k = 0; k < innerSize; k += size) {
+						int tileInner = Math.min(size, innerSize - k);
+						TilePair pair = prefetch ? reader.takeFull() : reader.load(reader.empty.remove(), i, k, j);
+						MatrixMultiplier.multiply(tileRows, tileInner, tileColumns, 1,
+								pair.a, 0, 0, false, pair.b, 0, 0, false, c, 0, 0);
+						reader.empty.add(pair);
+					}
+					result.writeBlock(i, j, tileRows, tileColumns, c);
+				}
+			}
+		} finally {
+			if (thread != null) {
+				thread.interrupt();
+				try {
+					thread.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * A tile of A and the tile of B it is multiplied by. A pair with a failure set tells the
+	 * multiplying thread that the reader stopped with an error.
+	 */
+	private static final class TilePair {
+		
+		final double[][] a;
+		final double[][] b;
+		Throwable failure;
+		
+		TilePair(int size) {
+			this.a = new double[size][size];
+			this.b = new double[size][size];
+		}
+		
+	}
+	
+	
+	/**
+	 * Reads the pairs of tiles in the order they are multiplied. On the reader thread, run()
+	 * takes each empty buffer pair, fills it with the next tiles and hands it over through
+	 * a queue; without prefetching the multiplying thread calls load() itself.
+	 */
+	private static final class TileReader implements Runnable {
+		
+		private final Matrix a;
+		private final Matrix b;
+		private final int size;
+		final BlockingQueue<TilePair> empty;
+		private final BlockingQueue<TilePair> full;
+		
+		TileReader(Matrix a, Matrix b, int size, int buffers) {
+			this.a = a;
+			this.b = b;
+			this.size = size;
+			this.empty = new ArrayBlockingQueue<>(buffers);
+			this.full = new ArrayBlockingQueue<>(buffers);
+			int rows = Math.min(size, Math.max(a.getRowCount(), a.getColumnCount()));
+			int columns = Math.min(size, Math.max(b.getRowCount(), b.getColumnCount()));
+			for (int n = 0; n < buffers; n++) {
+				empty.add(new TilePair(Math.max(rows, columns)));
+			}
+		}
+		
+		/**
+		 * Fills a pair with tile (i, k) of A and tile (k, j) of B, given by their first rows
+		 * and columns.
+		 */
+		TilePair load(TilePair pair, int i, int k, int j) {
+			int tileRows = Math.min(size, a.getRowCount() - i);
+			int tileInner = Math.min(size, a.getColumnCount() - k);
+			int tileColumns = Math.min(size, b.getColumnCount() - j);
+			a.readBlock(i, k, tileRows, tileInner, pair.a);
+			b.readBlock(k, j, tileInner, tileColumns, pair.b);
+			return pair;
+		}
+		
+		/**
+		 * Waits for the next filled pair, and rethrows the reader's error if it failed.
+		 */
+		TilePair takeFull() {
+			TilePair pair;
+			try {
+				pair = full.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for tiles", e);
+			}
+			if (pair.failure instanceof RuntimeException) {
+				throw (RuntimeException) pair.failure;
+			}
+			if (pair.failure instanceof Error) {
+				throw (Error) pair.failure;
+			}
+			return pair;
+		}
+		
+		@Override
+		public void run() {
+			int rows = a.getRowCount();
+			int innerSize = a.getColumnCount();
+			int columns = b.getColumnCount();
+			TilePair pair = null;
+			try {
+				for (int i = 0; i < rows; i += size) {
+					for (int j = 0; j < columns; j += size) {
+						for (int k = 0; k < innerSize; k += size) {
+							pair = empty.take();
+							full.put(this.load(pair, i, k, j));
+							pair = null;
+						}
+					}
+				}
+			} catch (InterruptedException e) {
+				// The product finished or failed, so stop reading
+			} catch (RuntimeException | Error e) {
+				if (pair == null) {
+					pair = new TilePair(0);
+				}
+				pair.failure = e;
+				full.offer(pair); // There is always room: the failed pair was taken from the empty queue
+			}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,21 @@
+package linear_algebra;
+
+/**
+ * This interface is implemented by preconditioners for the iterative
+ * solvers. A preconditioner M is an approximation of the coefficient
+ * matrix A that is cheap to solve against, so applying it to the residual
+ * every iteration makes the solver converge in far fewer iterations.
+ * 
+ * @author Aaron Smith
+ */
+public interface Preconditioner {
+	
+	/**
+	 * Solves Mz = r, which approximates solving Az = r.
+	 * 
+	 * @param r The vector to apply the preconditioner to. It must not be edited.
+	 * @param z The double[] to store the result in, of the same length as r.
+	 */
+	void apply(double[] r, double[] z);
+	
+}
@@ -0,0 +1,353 @@
+package linear_algebra;
+
+/**
+ * This class computes the QR decomposition of any (m x n)-matrix using
+ * Householder reflections with column pivoting. The decomposition is
+ * written as AP = QR, where P is a permutation of the columns, Q has
+ * orthonormal columns and R is upper triangular. At each step the column
+ * with the largest remaining norm is moved to the front, so the diagonal
+ * of R shrinks in size and shows the rank of the matrix, even when the
+ * matrix is singular or has more columns than rows.
+ * 
+ * Because Q is orthogonal, solving with a QR decomposition doesn't square
+ * the condition number the way the normal equations A^T Ax = A^T b do, so
+ * it is the usual way to find least squares solutions of overdetermined
+ * systems.
+ * 
+ * The reflections only ever touch whole columns, so the decomposition
+ * works on a transposed copy of the matrix, where each column is one row
+ * of a 2d array and every inner loop reads memory in order.
+ * 
+ * @author Aaron Smith
+ */
+public class QRDecomposition {
+	
+	private double[][] qr; // Row j is column j of AP: the Householder vector below the diagonal, R above it
+	private double[] rDiag; // Diagonal of R
+	private int[] permutation; // permutation[j] is the column of A that ended up in column j of AP
+	private int rows;
+	private int columns;
+	private int sign; // Determinant of QP^T: -1 per reflection and per column interchange
+	
+	
+	/**
+	 * Constructs the QR decomposition of a matrix. The given array is copied, so the
+	 * original matrix is never edited.
+	 * 
+	 * @param matrix The 2d array to decompose.
+	 */
+	public QRDecomposition(double[][] matrix) {
+		this(MatrixBlock.of(matrix));
+	}
+	
+	
+	/**
+	 * Constructs the QR decomposition of a Matrix object. The values are copied once, and
+	 * the original matrix is never edited.
+	 * 
+	 * @param m The matrix to decompose.
+	 */
+	public QRDecomposition(Matrix m) {
+		this(MatrixBlock.of(m));
+	}
+	
+	
+	private QRDecomposition(MatrixBlock block) {
+		this.rows = block.rows;
+		this.columns = block.columns;
+		this.qr = block.transpose().toArray();
+		this.rDiag = new double[columns];
+		this.permutation = new int[columns];
+		this.decompose();
+	}
+	
+	
+	/**
+	 * Performs the decomposition in place. The squared norm of what is left of each column
+	 * is updated after every step instead of being recomputed, and is only recomputed when
+	 * the update has cancelled away most of its digits.
+	 */
+	private void decompose() {
+		double[] norms = new double[columns];
+		double[] reference = new double[columns]; // Norms at the last time they were computed in full
+		for (int j = 0; j < columns; j++) {
+			permutation[j] = j;
+			norms[j] = VectorKernels.dot(qr[j], 0, qr[j], 0, rows);
+			reference[j] = norms[j];
+		}
+		sign = 1;
+		int steps = Math.min(rows, columns);
+		for (int k = 0; k < steps; k++) {
+			int p = k;
+			for (int j = k + 1; j < columns; j++) { // Find the column with the largest remaining norm
+				if (norms[j] > norms[p]) {
+					p = j;
+				}
+			}
+			if (p != k) { // Swapping columns only swaps two references
+				double[] column = qr[k];
+				qr[k] = qr[p];
+				qr[p] = column;
+				int index = permutation[k];
+				permutation[k] = permutation[p];
+				permutation[p] = index;
+				norms[p] = norms[k];
+				reference[p] = reference[k];
+				sign = -sign;
+			}
+			double[] v = qr[k];
+			double norm = Math.sqrt(VectorKernels.dot(v, k, v, k, rows - k));
+			if (norm == 0) { // The rest of the matrix is zero
+				rDiag[k] = 0;
+				continue;
+			}
+			if (v[k] < 0) {
+				norm = -norm;
+			}
+			VectorKernels.scale(1 / norm, v, k, v, k, rows - k);
+			v[k] += 1;
+			for (int j = k + 1; j < columns; j++) { // Apply the reflection to the remaining columns
+				double s = -VectorKernels.dot(v, k, qr[j], k, rows - k) / v[k];
+				VectorKernels.axpy(s, v, k, qr[j], k, rows - k);
+				norms[j] -= qr[j][k] * qr[j][k];
+				if (norms[j] <= 1e-8 * reference[j]) { // Most digits cancelled, so recompute
+					norms[j] = VectorKernels.dot(qr[j], k + 1, qr[j], k + 1, rows - k - 1);
+					reference[j] = norms[j];
+				}
+			}
+			rDiag[k] = -norm;
+			sign = -sign;
+		}
+	}
+	
+	
+	/**
+	 * Returns the number of rows m of the matrix that was decomposed.
+	 * 
+	 * @return The number of rows.
+	 */
+	public int getRowCount() {
+		return rows;
+	}
+	
+	
+	/**
+	 * Returns the number of columns n of the matrix that was decomposed.
+	 * 
+	 * @return The number of columns.
+	 */
+	public int getColumnCount() {
+		return columns;
+	}
+	
+	
+	/**
+	 * Returns the numerical rank of the matrix: the number of diagonal values of R that are
+	 * larger than max(m, n) ulps of the largest one.
+	 * 
+	 * @return The rank.
+	 */
+	public int getRank() {
+		int steps = Math.min(rows, columns);
+		return steps == 0 ? 0 : this.getRank(Math.max(rows, columns) * Math.ulp(Math.abs(rDiag[0])));
+	}
+	
+	
+	/**
+	 * Returns the number of diagonal values of R larger than a tolerance. Because of the
+	 * column pivoting, these come first.
+	 * 
+	 * @param tolerance The absolute value a diagonal value of R must be larger than.
+	 * @return The rank.
+	 */
+	public int getRank(double tolerance) {
+		int steps = Math.min(rows, columns);
+		int rank = 0;
+		while (rank < steps && Math.abs(rDiag[rank]) > tolerance) {
+			rank++;
+		}
+		return rank;
+	}
+	
+	
+	/**
+	 * Checks if the columns of the matrix are linearly independent.
+	 * 
+	 * @return True if the rank is n, false if not.
+	 */
+	public boolean isFullRank() {
+		return this.getRank() == columns;
+	}
+	
+	
+	/**
+	 * Returns the determinant of a square matrix, which is the product of the diagonal of R,
+	 * with a sign change for every reflection and column interchange.
+	 * 
+	 * @return The determinant.
+	 */
+	public double getDeterminant() {
+		if (rows != columns) {
+			throw new IllegalArgumentException("Matrix # of rows != # of columns");
+		}
+		double determinant = sign;
+		for (int k = 0; k < columns; k++) {
+			determinant *= rDiag[k];
+		}
+		return determinant;
+	}
+	
+	
+	/**
+	 * Returns a cheap estimate of the condition number in the 2-norm, the ratio of the largest
+	 * to the smallest diagonal value of R. It is never more than the true condition number of
+	 * a matrix with full column rank, and is usually close to it; use a
+	 * SingularValueDecomposition for the exact value.
+	 * 
+	 * @return The estimated condition number, or infinity if the columns are dependent.
+	 */
+	public double getConditionNumber() {
+		if (rows < columns) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if (columns == 0) {
+			return 1;
+		}
+		return Math.abs(rDiag[0]) / Math.abs(rDiag[columns - 1]);
+	}
+	
+	
+	/**
+	 * Returns the column permutation. Column j of AP is column getPermutation()[j] of A.
+	 * 
+	 * @return The permutation as a new int[].
+	 */
+	public int[] getPermutation() {
+		return permutation.clone();
+	}
+	
+	
+	/**
+	 * Returns the upper triangular factor R, which has min(m, n) rows and n columns.
+	 * 
+	 * @return The matrix R as a new double[][].
+	 */
+	public double[][] getR() {
+		int steps = Math.min(rows, columns);
+		double[][] result = new double[steps][columns];
+		for (int i = 0; i < steps; i++) {
+			result[i][i] = rDiag[i];
+			for (int j = i + 1; j < columns; j++) {
+				result[i][j] = qr[j][i];
+			}
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Returns the factor Q, which has m rows and min(m, n) orthonormal columns. It is found by
+	 * applying the reflections to the columns of the identity.
+	 * 
+	 * @return The matrix Q as a new double[][].
+	 */
+	public double[][] getQ() {
+		int steps = Math.min(rows, columns);
+		double[][] columnsOfQ = new double[steps][rows];
+		for (int j = 0; j < steps; j++) {
+			double[] column = columnsOfQ[j];
+			column[j] = 1;
+			for (int k = j; k >= 0; k--) { // Reflections after column j don't change it
+				this.reflect(k, column);
+			}
+		}
+		return MatrixBlock.of(columnsOfQ).transpose().toArray();
+	}
+	
+	
+	/**
+	 * Applies reflection k to a vector of length m in place.
+	 */
+	private void reflect(int k, double[] vector) {
+		double[] v = qr[k];
+		if (rDiag[k] == 0) { // No reflection was needed
+			return;
+		}
+		double s = -VectorKernels.dot(v, k, vector, k, rows - k) / v[k];
+		VectorKernels.axpy(s, v, k, vector, k, rows - k);
+	}
+	
+	
+	/**
+	 * Finds the least squares solution of Ax = b, the x that makes ||Ax - b|| as small as
+	 * possible. A square matrix of full rank gives the exact solution. If the rank r is less
+	 * than n, this is the basic solution, which uses only the r columns picked as pivots and
+	 * sets the rest of x to zero.
+	 * 
+	 * @param b The right hand side, of length m.
+	 * @return The solution x as a new double[] of length n.
+	 */
+	public double[] solve(double[] b) {
+		return this.solve(b, new double[columns]);
+	}
+	
+	
+	/**
+	 * Finds the least squares solution of Ax = b, and writes it into an array supplied by the
+	 * caller. See solve(double[]).
+	 * 
+	 * @param b The right hand side, of length m. It is not edited.
+	 * @param x The array of length n to write the solution into.
+	 * @return The x array holding the solution.
+	 */
+	public double[] solve(double[] b, double[] x) {
+		if (b.length != rows || x.length != columns) {
+			throw new IllegalArgumentException("Right hand side must have length " + rows + " and solution length " + columns);
+		}
+		double[] y = b.clone();
+		this.solveInPlace(y, x);
+		return x;
+	}
+	
+	
+	/**
+	 * Solves AX = B in the least squares sense, where each column of the (m x k) matrix B is
+	 * a right hand side. See solve(double[]).
+	 * 
+	 * @param b The (m x k) right hand sides.
+	 * @return The (n x k) solutions as a new double[][].
+	 */
+	public double[][] solve(double[][] b) {
+		if (b.length != rows) {
+			throw new IllegalArgumentException("Right hand side must have " + rows + " rows");
+		}
+		double[][] columnsOfB = MatrixBlock.of(b).transpose().toArray();
+		double[][] columnsOfX = new double[columnsOfB.length][columns];
+		for (int j = 0; j < columnsOfB.length; j++) {
+			this.solveInPlace(columnsOfB[j], columnsOfX[j]);
+		}
+		return MatrixBlock.of(columnsOfX).transpose().toArray();
+	}
+	
+	
+	/**
+	 * Computes Q^T y in y, then solves with the leading (r x r) block of R and undoes the
+	 * column permutation into x.
+	 */
+	private void solveInPlace(double[] y, double[] x) {
+		int rank = this.getRank();
+		for (int k = 0; k < Math.min(rows, columns); k++) {
+			this.reflect(k, y);
+		}
+		for (int j = rank - 1; j >= 0; j--) { // Back substitution a column of R at a time
+			y[j] /= rDiag[j];
+			if (y[j] != 0) {
+				VectorKernels.axpy(-y[j], qr[j], 0, y, 0, j);
+			}
+		}
+		for (int j = 0; j < columns; j++) {
+			x[permutation[j]] = j < rank ? y[j] : 0;
+		}
+	}
+	
+}
@@ -0,0 +1,21 @@
+package linear_algebra;
+
+/**
+ * This interface is implemented by objects that want to follow the
+ * progress of an iterative solver, for example to log or plot how fast
+ * the residual goes down. It can be given as a lambda expression.
+ * 
+ * @author Aaron Smith
+ */
+public interface ResidualListener {
+	
+	/**
+	 * Called once before the first iteration, with an iteration number of 0 and the residual
+	 * of the initial guess, and then once after every iteration.
+	 * 
+	 * @param iteration The number of iterations done so far.
+	 * @param residualNorm The Euclidean norm of the residual b - Ax of the current solution.
+	 */
+	void iterationDone(int iteration, double residualNorm);
+	
+}
@@ -0,0 +1,56 @@
+package linear_algebra;
+
+/**
+ * This class holds the results a matrix has derived from its values, such
+ * as its determinant or inverse. Each result is stamped with the matrix's
+ * modification count when it was computed, and is only handed back while
+ * the matrix still has that count. Any change to the matrix makes every
+ * result stale without anything having to be cleared, and a stale result
+ * is simply replaced the next time it is computed.
+ * 
+ * @author Aaron Smith
+ */
+final class ResultCache {
+	
+	/**
+	 * The results that can be cached.
+	 */
+	enum Key {
+		DETERMINANT,
+		INVERSE,
+		QR_DECOMPOSITION,
+		SINGULAR_VALUE_DECOMPOSITION,
+		SOLUTION_ANALYSIS
+	}
+	
+	private final Object[] results = new Object[Key.values().length];
+	private final long[] stamps = new long[Key.values().length]; // Modification count each result was computed at
+	
+	
+	/**
+	 * Returns a result, or null if there is none for the given modification count.
+	 */
+	Object get(Key key, long modificationCount) {
+		int index = key.ordinal();
+		return stamps[index] == modificationCount ? results[index] : null;
+	}
+	
+	
+	/**
+	 * Stores a result computed at the given modification count.
+	 */
+	void put(Key key, Object result, long modificationCount) {
+		int index = key.ordinal();
+		results[index] = result;
+		stamps[index] = modificationCount;
+	}
+	
+	
+	/**
+	 * Throws a result away, such as when a setting it depends on changes.
+	 */
+	void remove(Key key) {
+		results[key.ordinal()] = null;
+	}
+	
+}
@@ -0,0 +1,253 @@
+package linear_algebra;
+
+/**
+ * This class reduces a matrix into reduced row echelon form, in place,
+ * using Gauss-Jordan elimination with partial pivoting. For every column,
+ * the row with the largest absolute value is used as the pivot, which
+ * keeps round off errors from growing. Values that are negligible
+ * compared to the largest value in the matrix are treated as zero, using
+ * a tolerance relative to that value. Matrices stored as a 2d array are
+ * reduced directly; other storage is reached through the Rows interface,
+ * so every kind of matrix is reduced by the same code.
+ * 
+ * @author Aaron Smith
+ */
+final class RowReducer {
+	
+	private RowReducer() {
+		// Only static methods
+	}
+	
+	
+	/**
+	 * This interface gives the reducer access to the rows of a matrix. A row is read into a
+	 * double[], edited, then written back, so storage that can't hand out its rows as arrays
+	 * copies them in and out of a buffer.
+	 */
+	interface Rows {
+		
+		/**
+		 * Returns the number of rows.
+		 */
+		int rows();
+		
+		
+		/**
+		 * Returns the number of columns.
+		 */
+		int columns();
+		
+		
+		/**
+		 * Returns one value.
+		 */
+		double get(int row, int col);
+		
+		
+		/**
+		 * Changes one value.
+		 */
+		void set(int row, int col, double value);
+		
+		
+		/**
+		 * Returns a buffer that rows can be read into, or null if read() never uses one.
+		 */
+		double[] buffer();
+		
+		
+		/**
+		 * Returns an array holding the values of a row from col on, at the same indexes as in
+		 * the row. That is either the row itself or the buffer, filled with the values.
+		 */
+		double[] read(int row, int col, double[] buffer);
+		
+		
+		/**
+		 * Stores the values from col on of an array returned by read() back into a row.
+		 */
+		void write(int row, int col, double[] values);
+		
+		
+		/**
+		 * Swaps two rows.
+		 */
+		void swap(int i, int j);
+		
+	}
+	
+	
+	/**
+	 * Gives access to the rows of a 2d array. The rows are handed out directly, so nothing is
+	 * copied, and the array can be changed so a Workspace can reuse one instance.
+	 */
+	static final class ArrayRows implements Rows {
+		
+		double[][] matrix;
+		
+		ArrayRows(double[][] matrix) {
+			this.matrix = matrix;
+		}
+		
+		@Override
+		public int rows() {
+			return matrix.length;
+		}
+		
+		@Override
+		public int columns() {
+			return matrix.length == 0 ? 0 : matrix[0].length;
+		}
+		
+		@Override
+		public double get(int row, int col) {
+			return matrix[row][col];
+		}
+		
+		@Override
+		public void set(int row, int col, double value) {
+			matrix[row][col] = value;
+		}
+		
+		@Override
+		public double[] buffer() {
+			return null;
+		}
+		
+		@Override
+		public double[] read(int row, int col, double[] buffer) {
+			return matrix[row];
+		}
+		
+		@Override
+		public void write(int row, int col, double[] values) {
+			// The row was edited in place
+		}
+		
+		@Override
+		public void swap(int i, int j) {
+			double[] placeHolder = matrix[i];
+			matrix[i] = matrix[j];
+			matrix[j] = placeHolder;
+		}
+		
+	}
+	
+	
+	/**
+	 * Returns the largest absolute value in a matrix.
+	 * 
+	 * @param matrix The matrix to search.
+	 * @return The largest absolute value, or 0 for an empty matrix.
+	 */
+	static double maxAbsValue(double[][] matrix) {
+		double max = 0;
+		for (double[] row : matrix) {
+			for (double value : row) {
+				max = Math.max(max, Math.abs(value));
+			}
+		}
+		return max;
+	}
+	
+	
+	/**
+	 * Reduces a matrix stored as a 2d array into reduced row echelon form in place.
+	 * 
+	 * @see #reduce(Rows, int, double, int[])
+	 */
+	static int reduce(double[][] matrix, int pivotColumnLimit, double tolerance, int[] pivotColumns) {
+		return reduce(new ArrayRows(matrix), pivotColumnLimit, tolerance, pivotColumns);
+	}
+	
+	
+	/**
+	 * Reduces a matrix into reduced row echelon form in place. Only the first pivotColumnLimit
+	 * columns can hold pivots; for an augmented matrix, this leaves out the last column. Rows
+	 * that end up all zero are moved to the bottom, below any rows that are zero everywhere
+	 * except past the pivot column limit.
+	 * 
+	 * @param matrix The rows of the matrix to reduce. They are edited in place.
+	 * @param pivotColumnLimit The number of columns, starting from the left, to look for pivots in.
+	 * @param tolerance Values at or below tolerance * (largest absolute value in the matrix) are
+	 * treated as zero.
+	 * @param pivotColumns Filled with the column of each pivot, in order. Must have room for
+	 * min(rows, pivotColumnLimit) values.
+	 * @return The rank, which is the number of pivots found.
+	 */
+	static int reduce(Rows matrix, int pivotColumnLimit, double tolerance, int[] pivotColumns) {
+		int rows = matrix.rows();
+		int columns = matrix.columns();
+		double[] pivotBuffer = matrix.buffer();
+		double[] rowBuffer = matrix.buffer();
+		double max = 0;
+		for (int i = 0; i < rows; i++) {
+			double[] row = matrix.read(i, 0, rowBuffer);
+			for (int j = 0; j < columns; j++) {
+				max = Math.max(max, Math.abs(row[j]));
+			}
+		}
+		double threshold = tolerance * max;
+		int rank = 0;
+		for (int col = 0; col < pivotColumnLimit && rank < rows; col++) {
+			int p = rank; // Find the largest value in the column to use as the pivot
+			double largest = Math.abs(matrix.get(p, col));
+			for (int i = rank + 1; i < rows; i++) {
+				double value = Math.abs(matrix.get(i, col));
+				if (value > largest) {
+					p = i;
+					largest = value;
+				}
+			}
+			if (largest <= threshold) { // No pivot in this column
+				for (int i = rank; i < rows; i++) {
+					matrix.set(i, col, 0);
+				}
+				continue;
+			}
+			if (p != rank) { // rowP <-> rowRank
+				matrix.swap(p, rank);
+			}
+			double[] pivotRow = matrix.read(rank, col, pivotBuffer);
+			double pivot = pivotRow[col];
+			for (int j = col + 1; j < columns; j++) { // Divide rather than multiply by 1/pivot to keep exact quotients
+				pivotRow[j] /= pivot;
+			}
+			pivotRow[col] = 1;
+			matrix.write(rank, col, pivotRow);
+			for (int i = 0; i < rows; i++) { // Make every other value in the column zero
+				double value = matrix.get(i, col);
+				if (i != rank && value != 0) {
+					// (-value)rowRank + rowI -> rowI, the columns left of col are already zero in rowRank
+					double[] row = matrix.read(i, col, rowBuffer);
+					VectorKernels.axpy(-value, pivotRow, col, row, col, columns - col);
+					row[col] = 0;
+					matrix.write(i, col, row);
+				}
+			}
+			pivotColumns[rank] = col;
+			rank++;
+		}
+		int next = rank; // Clean up round off left next to the zeros, and -0.0 values, then move
+		for (int i = 0; i < rows; i++) { // rows made up of all zeros to the bottom, keeping the others in order
+			double[] row = matrix.read(i, 0, rowBuffer);
+			boolean zero = true;
+			for (int j = 0; j < columns; j++) {
+				if (Math.abs(row[j]) <= threshold) {
+					row[j] = 0;
+				} else {
+					zero = false;
+				}
+			}
+			matrix.write(i, 0, row);
+			if (i >= rank && !zero) {
+				if (i != next) {
+					matrix.swap(i, next);
+				}
+				next++;
+			}
+		}
+		return rank;
+	}
+	
+}
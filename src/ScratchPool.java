@@ -0,0 +1,304 @@
+package linear_algebra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class keeps scratch arrays that methods like getDeterminant(),
+ * getMatrixOfMinors() and the reduction of an AugmentedMatrix use while
+ * they run, so that calling them over and over on matrices of the same
+ * few sizes reuses the same arrays instead of creating new ones. Each
+ * thread has its own pool, with one bucket of arrays for each of the
+ * sizes used most recently, so borrowing and releasing never need a lock.
+ * When releasing an array would take the memory held by a thread's pool
+ * over the limit set with setMaxRetainedBytes(), arrays of the sizes that
+ * were used least recently are dropped to make room, so sizes that are no
+ * longer used don't keep new ones out of the pool.
+ * 
+ * The hit and miss counts, summed over every thread, show how well the
+ * pool is working: a miss is a borrow that had to create a new array.
+ * 
+ * Code that wants no allocation at all, with result arrays it manages
+ * itself, should use the methods that take a Workspace instead.
+ * 
+ * @author Aaron Smith
+ */
+public final class ScratchPool {
+	
+	/**
+	 * The default limit on the memory held by each thread's pool, 16 MB.
+	 */
+	public static final long DEFAULT_MAX_RETAINED_BYTES = 16L << 20;
+	
+	private static final int MATRIX = 0;
+	private static final int VECTOR = 1;
+	private static final int INDEXES = 2;
+	private static final int MAX_BUCKETS = 32; // Sizes kept by each thread's pool
+	
+	private static final ThreadLocal<Pool> POOLS = ThreadLocal.withInitial(Pool::new);
+	private static final LongAdder HITS = new LongAdder();
+	private static final LongAdder MISSES = new LongAdder();
+	private static volatile long maxRetainedBytes = DEFAULT_MAX_RETAINED_BYTES;
+	
+	
+	private ScratchPool() {
+		// Only static methods
+	}
+	
+	
+	/**
+	 * Returns the number of borrows, over every thread, that reused a pooled array.
+	 * 
+	 * @return The hit count.
+	 */
+	public static long getHitCount() {
+		return HITS.sum();
+	}
+	
+	
+	/**
+	 * Returns the number of borrows, over every thread, that had to create a new array.
+	 * 
+	 * @return The miss count.
+	 */
+	public static long getMissCount() {
+		return MISSES.sum();
+	}
+	
+	
+	/**
+	 * Sets the hit and miss counts back to zero.
+	 */
+	public static void resetCounters() {
+		HITS.reset();
+		MISSES.reset();
+	}
+	
+	
+	/**
+	 * Returns the limit on the memory held by each thread's pool.
+	 * 
+	 * @return The limit in bytes.
+	 */
+	public static long getMaxRetainedBytes() {
+		return maxRetainedBytes;
+	}
+	
+	
+	/**
+	 * Sets the limit on the memory held by each thread's pool. A pool holding more than the
+	 * new limit is trimmed the next time an array is released to it. A limit of 0 turns
+	 * pooling off.
+	 * 
+	 * @param bytes The limit in bytes, counting the values of the arrays.
+	 */
+	public static void setMaxRetainedBytes(long bytes) {
+		if (bytes < 0) {
+			throw new IllegalArgumentException("Limit can't be negative");
+		}
+		maxRetainedBytes = bytes;
+	}
+	
+	
+	/**
+	 * Returns the memory held by the calling thread's pool.
+	 * 
+	 * @return The bytes taken up by the values of the pooled arrays.
+	 */
+	public static long getRetainedBytes() {
+		return POOLS.get().retainedBytes;
+	}
+	
+	
+	/**
+	 * Empties the calling thread's pool, so the memory can be reclaimed.
+	 */
+	public static void clear() {
+		Pool pool = POOLS.get();
+		pool.buckets.clear();
+		pool.retainedBytes = 0;
+	}
+	
+	
+	/**
+	 * Borrows a (rows x columns) 2d array. Its contents are undefined. Give it back with
+	 * release() once it is no longer used, and don't keep any reference to it after that.
+	 */
+	static double[][] borrowMatrix(int rows, int columns) {
+		double[][] matrix = (double[][]) POOLS.get().take(MATRIX, rows, columns);
+		return matrix != null ? matrix : new double[rows][columns];
+	}
+	
+	
+	/**
+	 * Borrows a double[] of exactly the given length. Its contents are undefined.
+	 */
+	static double[] borrowVector(int length) {
+		double[] vector = (double[]) POOLS.get().take(VECTOR, length, 0);
+		return vector != null ? vector : new double[length];
+	}
+	
+	
+	/**
+	 * Borrows an int[] of exactly the given length. Its contents are undefined.
+	 */
+	static int[] borrowIndexes(int length) {
+		int[] indexes = (int[]) POOLS.get().take(INDEXES, length, 0);
+		return indexes != null ? indexes : new int[length];
+	}
+	
+	
+	/**
+	 * Gives a borrowed 2d array back to the pool. Its rows may have been reordered, but each
+	 * row must still be one of the rows it was borrowed with.
+	 */
+	static void release(double[][] matrix) {
+		int columns = matrix.length == 0 ? 0 : matrix[0].length;
+		POOLS.get().put(MATRIX, matrix.length, columns, (long) matrix.length * columns * Double.BYTES, matrix);
+	}
+	
+	
+	/**
+	 * Gives a borrowed double[] back to the pool.
+	 */
+	static void release(double[] vector) {
+		POOLS.get().put(VECTOR, vector.length, 0, (long) vector.length * Double.BYTES, vector);
+	}
+	
+	
+	/**
+	 * Gives a borrowed int[] back to the pool.
+	 */
+	static void release(int[] indexes) {
+		POOLS.get().put(INDEXES, indexes.length, 0, (long) indexes.length * Integer.BYTES, indexes);
+	}
+	
+	
+	/**
+	 * The arrays of one kind and size that are ready to be borrowed.
+	 */
+	private static final class Bucket {
+		
+		final int kind;
+		final int rows; // The length, for kinds other than MATRIX
+		final int columns;
+		final long bytes; // Size of one array
+		Object[] arrays = new Object[4];
+		int count;
+		long lastUsed; // Value of the pool's clock when the bucket was last borrowed from or released to
+		
+		Bucket(int kind, int rows, int columns, long bytes) {
+			this.kind = kind;
+			this.rows = rows;
+			this.columns = columns;
+			this.bytes = bytes;
+		}
+		
+	}
+	
+	
+	/**
+	 * One thread's pool. The buckets are searched in order, since there are at most
+	 * MAX_BUCKETS of them, which keeps borrowing free of allocation. A bucket that is
+	 * emptied by borrowing is kept, so the arrays of a size in use always have a place to go
+	 * back to; buckets are only dropped when they are the least recently used.
+	 */
+	private static final class Pool {
+		
+		final ArrayList<Bucket> buckets = new ArrayList<>();
+		long retainedBytes;
+		long clock; // Goes up on every borrow and release, to order the buckets by use
+		
+		private Bucket find(int kind, int rows, int columns) {
+			for (int b = 0; b < buckets.size(); b++) {
+				Bucket bucket = buckets.get(b);
+				if (bucket.kind == kind && bucket.rows == rows && bucket.columns == columns) {
+					return bucket;
+				}
+			}
+			return null;
+		}
+		
+		/**
+		 * Returns the least recently used bucket, leaving out keep and, if nonEmpty is true,
+		 * buckets holding no arrays. Returns null if there is none.
+		 */
+		private Bucket leastRecentlyUsed(Bucket keep, boolean nonEmpty) {
+			Bucket result = null;
+			for (int b = 0; b < buckets.size(); b++) {
+				Bucket bucket = buckets.get(b);
+				if (bucket != keep && (!nonEmpty || bucket.count > 0)
+						&& (result == null || bucket.lastUsed < result.lastUsed)) {
+					result = bucket;
+				}
+			}
+			return result;
+		}
+		
+		/**
+		 * Drops a bucket and the arrays in it.
+		 */
+		private void remove(Bucket bucket) {
+			retainedBytes -= bucket.count * bucket.bytes;
+			buckets.remove(bucket);
+		}
+		
+		/**
+		 * Takes an array out of its bucket, or returns null if there is none.
+		 */
+		Object take(int kind, int rows, int columns) {
+			Bucket bucket = this.find(kind, rows, columns);
+			if (bucket != null) {
+				bucket.lastUsed = ++clock;
+			}
+			if (bucket == null || bucket.count == 0) {
+				MISSES.increment();
+				return null;
+			}
+			HITS.increment();
+			Object array = bucket.arrays[--bucket.count];
+			bucket.arrays[bucket.count] = null;
+			retainedBytes -= bucket.bytes;
+			return array;
+		}
+		
+		/**
+		 * Puts an array into its bucket. If that would go over the limit, arrays are dropped
+		 * from the least recently used other buckets first, and buckets emptied that way are
+		 * dropped too. The array itself is only dropped when nothing else can make room.
+		 */
+		void put(int kind, int rows, int columns, long bytes, Object array) {
+			if (bytes > maxRetainedBytes) {
+				return;
+			}
+			Bucket bucket = this.find(kind, rows, columns);
+			if (bucket == null) {
+				if (buckets.size() >= MAX_BUCKETS) { // Make room for the new size
+					this.remove(this.leastRecentlyUsed(null, false));
+				}
+				bucket = new Bucket(kind, rows, columns, bytes);
+				buckets.add(bucket);
+			}
+			bucket.lastUsed = ++clock;
+			while (retainedBytes + bytes > maxRetainedBytes) {
+				Bucket oldest = this.leastRecentlyUsed(bucket, true);
+				if (oldest == null) { // Only arrays of this size are left, so keep those
+					return;
+				}
+				oldest.arrays[--oldest.count] = null;
+				retainedBytes -= oldest.bytes;
+				if (oldest.count == 0) {
+					buckets.remove(oldest);
+				}
+			}
+			if (bucket.count == bucket.arrays.length) {
+				bucket.arrays = Arrays.copyOf(bucket.arrays, 2 * bucket.count);
+			}
+			bucket.arrays[bucket.count++] = array;
+			retainedBytes += bytes;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,195 @@
+package linear_algebra;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of the loops in VectorKernels, written with the incubating
+ * Vector API. This class is only loaded by VectorKernels after it has checked
+ * that the jdk.incubator.vector module is present. Multiplies and adds are
+ * kept as separate operations (not fused) so every lane rounds the same way
+ * as the scalar loops.
+ * 
+ * @author Aaron Smith
+ */
+final class SimdKernels {
+	
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	
+	
+	private SimdKernels() {
+		// Only static methods
+	}
+	
+	
+	static int vectorBits() {
+		return SPECIES.vectorBitSize();
+	}
+	
+	
+	static int lanes() {
+		return SPECIES.length();
+	}
+	
+	
+	static void scale(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+		int i = 0;
+		int bound = SPECIES.loopBound(length);
+		for (; i < bound; i += SPECIES.length()) {
+			DoubleVector.fromArray(SPECIES, x, xOffset + i).mul(alpha).intoArray(y, yOffset + i);
+		}
+		for (; i < length; i++) {
+			y[yOffset + i] = x[xOffset + i] * alpha;
+		}
+	}
+	
+	
+	static void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+		int i = 0;
+		int bound = SPECIES.loopBound(length);
+		for (; i < bound; i += SPECIES.length()) {
+			DoubleVector vectorX = DoubleVector.fromArray(SPECIES, x, xOffset + i);
+			DoubleVector vectorY = DoubleVector.fromArray(SPECIES, y, yOffset + i);
+			vectorY.add(vectorX.mul(alpha)).intoArray(y, yOffset + i);
+		}
+		for (; i < length; i++) {
+			y[yOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+	
+	
+	static double dot(double[] x, int xOffset, double[] y, int yOffset, int length) {
+		int i = 0;
+		int bound = SPECIES.loopBound(length);
+		DoubleVector sum = DoubleVector.zero(SPECIES);
+		for (; i < bound; i += SPECIES.length()) {
+			DoubleVector vectorX = DoubleVector.fromArray(SPECIES, x, xOffset + i);
+			DoubleVector vectorY = DoubleVector.fromArray(SPECIES, y, yOffset + i);
+			sum = sum.add(vectorX.mul(vectorY));
+		}
+		double value = sum.reduceLanes(VectorOperators.ADD);
+		for (; i < length; i++) {
+			value += x[xOffset + i] * y[yOffset + i];
+		}
+		return value;
+	}
+	
+	
+	static void rotate(double c, double s, double[] x, int xOffset, double[] y, int yOffset, int length) {
+		int i = 0;
+		int bound = SPECIES.loopBound(length);
+		for (; i < bound; i += SPECIES.length()) {
+			DoubleVector vectorX = DoubleVector.fromArray(SPECIES, x, xOffset + i);
+			DoubleVector vectorY = DoubleVector.fromArray(SPECIES, y, yOffset + i);
+			vectorX.mul(c).sub(vectorY.mul(s)).intoArray(x, xOffset + i);
+			vectorX.mul(s).add(vectorY.mul(c)).intoArray(y, yOffset + i);
+		}
+		for (; i < length; i++) {
+			double valueX = x[xOffset + i];
+			double valueY = y[yOffset + i];
+			x[xOffset + i] = c * valueX - s * valueY;
+			y[yOffset + i] = s * valueX + c * valueY;
+		}
+	}
+	
+	
+	static void axpy4(double a0, double a1, double a2, double a3, double[] b, int bOffset,
+			double[] c0, int c0Offset, double[] c1, int c1Offset,
+			double[] c2, int c2Offset, double[] c3, int c3Offset, int length) {
+		int j = 0;
+		int bound = SPECIES.loopBound(length);
+		for (; j < bound; j += SPECIES.length()) {
+			DoubleVector vectorB = DoubleVector.fromArray(SPECIES, b, bOffset + j);
+			DoubleVector.fromArray(SPECIES, c0, c0Offset + j).add(vectorB.mul(a0)).intoArray(c0, c0Offset + j);
+			DoubleVector.fromArray(SPECIES, c1, c1Offset + j).add(vectorB.mul(a1)).intoArray(c1, c1Offset + j);
+			DoubleVector.fromArray(SPECIES, c2, c2Offset + j).add(vectorB.mul(a2)).intoArray(c2, c2Offset + j);
+			DoubleVector.fromArray(SPECIES, c3, c3Offset + j).add(vectorB.mul(a3)).intoArray(c3, c3Offset + j);
+		}
+		for (; j < length; j++) {
+			double valueB = b[bOffset + j];
+			c0[c0Offset + j] += a0 * valueB;
+			c1[c1Offset + j] += a1 * valueB;
+			c2[c2Offset + j] += a2 * valueB;
+			c3[c3Offset + j] += a3 * valueB;
+		}
+	}
+	
+	
+	static void multiply4(double[] a, int aOffset, int kCount, double[] b, int bOffset, int bStride,
+			double[] c0, int c0Offset, double[] c1, int c1Offset,
+			double[] c2, int c2Offset, double[] c3, int c3Offset, int width) {
+		int lanes = SPECIES.length();
+		int j = 0;
+		for (; j + 2 * lanes <= width; j += 2 * lanes) { // A (4 x 2 vectors) tile of C
+			DoubleVector sum00 = DoubleVector.fromArray(SPECIES, c0, c0Offset + j);
+			DoubleVector sum01 = DoubleVector.fromArray(SPECIES, c0, c0Offset + j + lanes);
+			DoubleVector sum10 = DoubleVector.fromArray(SPECIES, c1, c1Offset + j);
+			DoubleVector sum11 = DoubleVector.fromArray(SPECIES, c1, c1Offset + j + lanes);
+			DoubleVector sum20 = DoubleVector.fromArray(SPECIES, c2, c2Offset + j);
+			DoubleVector sum21 = DoubleVector.fromArray(SPECIES, c2, c2Offset + j + lanes);
+			DoubleVector sum30 = DoubleVector.fromArray(SPECIES, c3, c3Offset + j);
+			DoubleVector sum31 = DoubleVector.fromArray(SPECIES, c3, c3Offset + j + lanes);
+			for (int k = 0; k < kCount; k++) {
+				int index = bOffset + k * bStride + j;
+				DoubleVector b0 = DoubleVector.fromArray(SPECIES, b, index);
+				DoubleVector b1 = DoubleVector.fromArray(SPECIES, b, index + lanes);
+				double a0 = a[aOffset + 4 * k];
+				double a1 = a[aOffset + 4 * k + 1];
+				double a2 = a[aOffset + 4 * k + 2];
+				double a3 = a[aOffset + 4 * k + 3];
+				sum00 = sum00.add(b0.mul(a0));
+				sum01 = sum01.add(b1.mul(a0));
+				sum10 = sum10.add(b0.mul(a1));
+				sum11 = sum11.add(b1.mul(a1));
+				sum20 = sum20.add(b0.mul(a2));
+				sum21 = sum21.add(b1.mul(a2));
+				sum30 = sum30.add(b0.mul(a3));
+				sum31 = sum31.add(b1.mul(a3));
+			}
+			sum00.intoArray(c0, c0Offset + j);
+			sum01.intoArray(c0, c0Offset + j + lanes);
+			sum10.intoArray(c1, c1Offset + j);
+			sum11.intoArray(c1, c1Offset + j + lanes);
+			sum20.intoArray(c2, c2Offset + j);
+			sum21.intoArray(c2, c2Offset + j + lanes);
+			sum30.intoArray(c3, c3Offset + j);
+			sum31.intoArray(c3, c3Offset + j + lanes);
+		}
+		for (; j + lanes <= width; j += lanes) { // A (4 x 1 vector) tile of C
+			DoubleVector sum0 = DoubleVector.fromArray(SPECIES, c0, c0Offset + j);
+			DoubleVector sum1 = DoubleVector.fromArray(SPECIES, c1, c1Offset + j);
+			DoubleVector sum2 = DoubleVector.fromArray(SPECIES, c2, c2Offset + j);
+			DoubleVector sum3 = DoubleVector.fromArray(SPECIES, c3, c3Offset + j);
+			for (int k = 0; k < kCount; k++) {
+				DoubleVector vectorB = DoubleVector.fromArray(SPECIES, b, bOffset + k * bStride + j);
+				sum0 = sum0.add(vectorB.mul(a[aOffset + 4 * k]));
+				sum1 = sum1.add(vectorB.mul(a[aOffset + 4 * k + 1]));
+				sum2 = sum2.add(vectorB.mul(a[aOffset + 4 * k + 2]));
+				sum3 = sum3.add(vectorB.mul(a[aOffset + 4 * k + 3]));
+			}
+			sum0.intoArray(c0, c0Offset + j);
+			sum1.intoArray(c1, c1Offset + j);
+			sum2.intoArray(c2, c2Offset + j);
+			sum3.intoArray(c3, c3Offset + j);
+		}
+		for (; j < width; j++) { // Columns left over
+			double sum0 = c0[c0Offset + j];
+			double sum1 = c1[c1Offset + j];
+			double sum2 = c2[c2Offset + j];
+			double sum3 = c3[c3Offset + j];
+			for (int k = 0; k < kCount; k++) {
+				double valueB = b[bOffset + k * bStride + j];
+				sum0 += a[aOffset + 4 * k] * valueB;
+				sum1 += a[aOffset + 4 * k + 1] * valueB;
+				sum2 += a[aOffset + 4 * k + 2] * valueB;
+				sum3 += a[aOffset + 4 * k + 3] * valueB;
+			}
+			c0[c0Offset + j] = sum0;
+			c1[c1Offset + j] = sum1;
+			c2[c2Offset + j] = sum2;
+			c3[c3Offset + j] = sum3;
+		}
+	}
+	
+}
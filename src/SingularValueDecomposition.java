@@ -0,0 +1,368 @@
+package linear_algebra;
+
+import java.util.Arrays;
+
+/**
+ * This class computes the singular value decomposition of any
+ * (m x n)-matrix, written as A = USV^T, where U has orthonormal columns,
+ * S is diagonal with the singular values in decreasing order, and V is
+ * orthogonal. The singular values give the exact rank, 2-norm and
+ * condition number of the matrix, and the decomposition gives the
+ * minimum norm least squares solution of Ax = b even when A is singular.
+ * 
+ * It uses the one-sided Jacobi method: pairs of columns are rotated until
+ * every pair is orthogonal, which leaves US in place of the matrix and the
+ * product of the rotations in V. It is slower than bidiagonalization for
+ * large matrices, but it is simple and finds small singular values to high
+ * relative accuracy. Rotations only ever touch whole columns, so it works
+ * on a transposed copy of the matrix, where every inner loop reads memory
+ * in order. A matrix with more columns than rows is handled through its
+ * transpose. If the columns are still not orthogonal after the sweep limit,
+ * the decomposition is kept but isConverged() returns false.
+ * 
+ * @author Aaron Smith
+ */
+public class SingularValueDecomposition {
+	
+	private static final int MAX_SWEEPS = 64; // Convergence is quadratic, so 10 or so sweeps is typical
+	
+	private double[][] u; // (m x k), where k = min(m, n)
+	private double[] singularValues; // k values in decreasing order
+	private double[][] v; // (n x k)
+	private int rows;
+	private int columns;
+	private boolean converged;
+	
+	
+	/**
+	 * Constructs the singular value decomposition of a matrix. The given array is copied,
+	 * so the original matrix is never edited.
+	 * 
+	 * @param matrix The 2d array to decompose.
+	 */
+	public SingularValueDecomposition(double[][] matrix) {
+		this(MatrixBlock.of(matrix));
+	}
+	
+	
+	/**
+	 * Constructs the singular value decomposition of a Matrix object. The values are copied
+	 * once, and the original matrix is never edited.
+	 * 
+	 * @param m The matrix to decompose.
+	 */
+	public SingularValueDecomposition(Matrix m) {
+		this(MatrixBlock.of(m));
+	}
+	
+	
+	private SingularValueDecomposition(MatrixBlock block) {
+		this.rows = block.rows;
+		this.columns = block.columns;
+		boolean wide = rows < columns;
+		double[][] work = (wide ? block : block.transpose()).toArray(); // Each row holds a column of A, or of A^T when wide
+		int count = work.length;
+		int length = wide ? columns : rows;
+		double[][] rotations = new double[count][count]; // Each row holds a column of V, or of U when wide
+		for (int j = 0; j < count; j++) {
+			rotations[j][j] = 1;
+		}
+		this.converged = orthogonalize(work, length, rotations);
+		
+		// The norms of the columns are the singular values, and the normalized columns are U
+		double[] norms = new double[count];
+		Integer[] order = new Integer[count];
+		for (int j = 0; j < count; j++) {
+			norms[j] = Math.sqrt(VectorKernels.dot(work[j], 0, work[j], 0, length));
+			order[j] = j;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(norms[b], norms[a]));
+		double[][] left = new double[count][];
+		double[][] right = new double[count][];
+		this.singularValues = new double[count];
+		for (int j = 0; j < count; j++) {
+			int column = order[j];
+			singularValues[j] = norms[column];
+			left[j] = work[column];
+			if (norms[column] != 0) {
+				VectorKernels.scale(1 / norms[column], left[j], 0, left[j], 0, length);
+			}
+			right[j] = rotations[column];
+		}
+		this.u = MatrixBlock.of(wide ? right : left).transpose().toArray();
+		this.v = MatrixBlock.of(wide ? left : right).transpose().toArray();
+	}
+	
+	
+	/**
+	 * Rotates pairs of columns of work until they are all orthogonal, applying the same
+	 * rotations to the columns of rotations. Each column is a row of the 2d arrays. The squared
+	 * norms of the columns are updated after each rotation rather than recomputed, and are
+	 * computed afresh at the start of every sweep so the updates can't drift.
+	 * 
+	 * @return True if the columns are orthogonal, false if the sweep limit was reached first.
+	 */
+	private static boolean orthogonalize(double[][] work, int length, double[][] rotations) {
+		int count = work.length;
+		double tolerance = Math.max(length, 1) * Math.ulp(1.0);
+		double[] norms = new double[count];
+		for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+			for (int j = 0; j < count; j++) {
+				norms[j] = VectorKernels.dot(work[j], 0, work[j], 0, length);
+			}
+			boolean rotated = false;
+			for (int p = 0; p < count - 1; p++) {
+				for (int q = p + 1; q < count; q++) {
+					double alpha = norms[p];
+					double beta = norms[q];
+					double gamma = VectorKernels.dot(work[p], 0, work[q], 0, length);
+					if (Math.abs(gamma) <= tolerance * Math.sqrt(alpha * beta)) { // Already orthogonal
+						continue;
+					}
+					rotated = true;
+					double zeta = (beta - alpha) / (2 * gamma); // Rotation that zeroes the (p, q) value of A^T A
+					double t = Math.signum(zeta) / (Math.abs(zeta) + Math.sqrt(1 + zeta * zeta));
+					if (zeta == 0) {
+						t = 1;
+					}
+					double c = 1 / Math.sqrt(1 + t * t);
+					double s = c * t;
+					VectorKernels.rotate(c, s, work[p], 0, work[q], 0, length);
+					VectorKernels.rotate(c, s, rotations[p], 0, rotations[q], 0, count);
+					norms[p] = Math.max(alpha - t * gamma, 0); // The rotation moves t * gamma from one norm to the other
+					norms[q] = Math.max(beta + t * gamma, 0);
+				}
+			}
+			if (!rotated) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	
+	/**
+	 * Checks if the Jacobi rotations converged. When they didn't, within the sweep limit, the
+	 * columns of U and V aren't fully orthogonal and the singular values are less accurate.
+	 * 
+	 * @return True if the rotations converged, false if not.
+	 */
+	public boolean isConverged() {
+		return converged;
+	}
+	
+	
+	/**
+	 * Returns the number of rows m of the matrix that was decomposed.
+	 * 
+	 * @return The number of rows.
+	 */
+	public int getRowCount() {
+		return rows;
+	}
+	
+	
+	/**
+	 * Returns the number of columns n of the matrix that was decomposed.
+	 * 
+	 * @return The number of columns.
+	 */
+	public int getColumnCount() {
+		return columns;
+	}
+	
+	
+	/**
+	 * Returns the min(m, n) singular values in decreasing order.
+	 * 
+	 * @return The singular values as a new double[].
+	 */
+	public double[] getSingularValues() {
+		return singularValues.clone();
+	}
+	
+	
+	/**
+	 * Returns the diagonal matrix S of singular values, which is (k x k) with k = min(m, n).
+	 * 
+	 * @return The matrix S as a new double[][].
+	 */
+	public double[][] getS() {
+		double[][] result = new double[singularValues.length][singularValues.length];
+		for (int i = 0; i < singularValues.length; i++) {
+			result[i][i] = singularValues[i];
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Returns the left singular vectors U, which is (m x k) with k = min(m, n). A column for a
+	 * singular value of zero is left as zeros.
+	 * 
+	 * @return The matrix U as a new double[][].
+	 */
+	public double[][] getU() {
+		return MatrixBlock.of(u).toArray();
+	}
+	
+	
+	/**
+	 * Returns the right singular vectors V, which is (n x k) with k = min(m, n). A column for a
+	 * singular value of zero is left as zeros when the matrix has more columns than rows.
+	 * 
+	 * @return The matrix V as a new double[][].
+	 */
+	public double[][] getV() {
+		return MatrixBlock.of(v).toArray();
+	}
+	
+	
+	/**
+	 * Returns the tolerance used by getRank() and solve(): max(m, n) ulps of the largest
+	 * singular value.
+	 * 
+	 * @return The tolerance.
+	 */
+	public double getTolerance() {
+		return singularValues.length == 0 ? 0 : Math.max(rows, columns) * Math.ulp(singularValues[0]);
+	}
+	
+	
+	/**
+	 * Returns the numerical rank of the matrix, the number of singular values larger than
+	 * getTolerance().
+	 * 
+	 * @return The rank.
+	 */
+	public int getRank() {
+		return this.getRank(this.getTolerance());
+	}
+	
+	
+	/**
+	 * Returns the number of singular values larger than a tolerance.
+	 * 
+	 * @param tolerance The value a singular value must be larger than.
+	 * @return The rank.
+	 */
+	public int getRank(double tolerance) {
+		int rank = 0;
+		while (rank < singularValues.length && singularValues[rank] > tolerance) {
+			rank++;
+		}
+		return rank;
+	}
+	
+	
+	/**
+	 * Returns the 2-norm of the matrix, which is its largest singular value.
+	 * 
+	 * @return The 2-norm.
+	 */
+	public double getNorm() {
+		return singularValues.length == 0 ? 0 : singularValues[0];
+	}
+	
+	
+	/**
+	 * Returns the condition number in the 2-norm, the ratio of the largest to the smallest
+	 * singular value. It is infinite for a matrix with more columns than rows.
+	 * 
+	 * @return The condition number.
+	 */
+	public double getConditionNumber() {
+		if (rows < columns) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if (columns == 0) {
+			return 1;
+		}
+		return singularValues[0] / singularValues[columns - 1];
+	}
+	
+	
+	/**
+	 * Returns the determinant of a square matrix. Its absolute value is the product of the
+	 * singular values, and its sign is the sign of det(U) det(V), found from their LU
+	 * decompositions.
+	 * 
+	 * @return The determinant.
+	 */
+	public double getDeterminant() {
+		if (rows != columns) {
+			throw new IllegalArgumentException("Matrix # of rows != # of columns");
+		}
+		double product = 1;
+		for (double value : singularValues) {
+			product *= value;
+		}
+		if (product == 0) {
+			return 0;
+		}
+		return Math.signum(new LUDecomposition(u).getDeterminant()) * Math.signum(new LUDecomposition(v).getDeterminant()) * product;
+	}
+	
+	
+	/**
+	 * Finds the minimum norm least squares solution of Ax = b: of the x that make ||Ax - b|| as
+	 * small as possible, the one with the smallest norm. Singular values no larger than
+	 * getTolerance() are treated as zero.
+	 * 
+	 * @param b The right hand side, of length m.
+	 * @return The solution x as a new double[] of length n.
+	 */
+	public double[] solve(double[] b) {
+		return this.solve(b, new double[columns]);
+	}
+	
+	
+	/**
+	 * Finds the minimum norm least squares solution of Ax = b, and writes it into an array
+	 * supplied by the caller. See solve(double[]).
+	 * 
+	 * @param b The right hand side, of length m.
+	 * @param x The array of length n to write the solution into. Must not be b.
+	 * @return The x array holding the solution.
+	 */
+	public double[] solve(double[] b, double[] x) {
+		if (b.length != rows || x.length != columns) {
+			throw new IllegalArgumentException("Right hand side must have length " + rows + " and solution length " + columns);
+		}
+		int rank = this.getRank();
+		double[] coefficients = new double[rank]; // S^-1 U^T b
+		for (int i = 0; i < rows; i++) {
+			if (b[i] != 0) {
+				VectorKernels.axpy(b[i], u[i], 0, coefficients, 0, rank);
+			}
+		}
+		for (int j = 0; j < rank; j++) {
+			coefficients[j] /= singularValues[j];
+		}
+		for (int i = 0; i < columns; i++) { // x = V S^-1 U^T b
+			x[i] = VectorKernels.dot(v[i], 0, coefficients, 0, rank);
+		}
+		return x;
+	}
+	
+	
+	/**
+	 * Returns the pseudo-inverse V S^-1 U^T of the matrix, which is (n x m). Singular values no
+	 * larger than getTolerance() are treated as zero.
+	 * 
+	 * @return The pseudo-inverse as a new double[][].
+	 */
+	public double[][] getPseudoInverse() {
+		int rank = this.getRank();
+		double[][] scaled = new double[columns][rank]; // V S^-1
+		for (int i = 0; i < columns; i++) {
+			for (int j = 0; j < rank; j++) {
+				scaled[i][j] = v[i][j] / singularValues[j];
+			}
+		}
+		double[][] result = new double[columns][rows];
+		MatrixMultiplier.multiply(columns, rank, rows, 1, scaled, 0, 0, false, u, 0, 0, true, result, 0, 0);
+		return result;
+	}
+	
+}
@@ -0,0 +1,216 @@
+package linear_algebra;
+
+/**
+ * This class holds everything that one reduction of an augmented matrix
+ * says about its system of equations: the rank, which columns have pivots,
+ * which variables are free, whether the system is consistent, and if it is,
+ * a particular solution together with a basis for the null space. Every
+ * solution of the system is the particular solution plus some combination
+ * of the null space basis vectors.
+ * 
+ * Get one by calling getSolutionAnalysis() on an AugmentedMatrix, or analyze() on
+ * any matrix.
+ * 
+ * @author Aaron Smith
+ */
+public class SolutionAnalysis {
+	
+	private final double[][] reducedMatrix;
+	private final int rank;
+	private final int[] pivotColumns;
+	private final int[] freeVariables;
+	private final boolean consistent;
+	private final double[] particularSolution;
+	private final double[][] nullSpaceBasis;
+	
+	
+	/**
+	 * Constructs a SolutionAnalysis object from an augmented matrix that is already in
+	 * reduced row echelon form.
+	 * 
+	 * @param reducedMatrix The reduced augmented matrix. It is kept, not copied.
+	 * @param rank The number of pivots.
+	 * @param pivotColumns The column of each pivot, the first rank values are used.
+	 */
+	SolutionAnalysis(double[][] reducedMatrix, int rank, int[] pivotColumns) {
+		int unknowns = reducedMatrix[0].length - 1;
+		this.reducedMatrix = reducedMatrix;
+		this.rank = rank;
+		this.pivotColumns = new int[rank];
+		System.arraycopy(pivotColumns, 0, this.pivotColumns, 0, rank);
+	
+		boolean consistent = true;
+		for (int i = rank; i < reducedMatrix.length; i++) { // Rows below the pivots must be [0 ... 0 | 0]
+			if (reducedMatrix[i][unknowns] != 0) {
+				consistent = false;
+				break;
+			}
+		}
+		this.consistent = consistent;
+	
+		this.freeVariables = new int[unknowns - rank];
+		boolean[] isPivot = new boolean[unknowns];
+		for (int col : this.pivotColumns) {
+			isPivot[col] = true;
+		}
+		for (int j = 0, f = 0; j < unknowns; j++) {
+			if (!isPivot[j]) {
+				freeVariables[f++] = j;
+			}
+		}
+	
+		if (consistent) { // Set each free variable to zero to get a particular solution
+			particularSolution = new double[unknowns];
+			for (int r = 0; r < rank; r++) {
+				particularSolution[this.pivotColumns[r]] = reducedMatrix[r][unknowns];
+			}
+		} else {
+			particularSolution = null;
+		}
+	
+		// Each free variable gives one basis vector: set it to one, the other free variables to
+		// zero, and solve the homogeneous system for the pivot variables.
+		nullSpaceBasis = new double[freeVariables.length][unknowns];
+		for (int f = 0; f < freeVariables.length; f++) {
+			int free = freeVariables[f];
+			nullSpaceBasis[f][free] = 1;
+			for (int r = 0; r < rank; r++) {
+				nullSpaceBasis[f][this.pivotColumns[r]] = -reducedMatrix[r][free];
+			}
+		}
+	}
+	
+	
+	/**
+	 * Reduces any augmented matrix, including a view of part of a matrix, and analyzes the
+	 * system of equations it represents. The last column is the right hand side. The
+	 * reduction runs in place on one copy of the matrix, which is read straight from the
+	 * array the matrix is stored in, so the original matrix isn't edited.
+	 * 
+	 * @param augmentedMatrix The augmented matrix.
+	 * @param tolerance Values at or below tolerance * (largest absolute value in the matrix)
+	 * are treated as zero.
+	 * @return The solution analysis.
+	 */
+	public static SolutionAnalysis analyze(Matrix augmentedMatrix, double tolerance) {
+		double[][] reducedMatrix = MatrixBlock.of(augmentedMatrix).toArray();
+		int unknowns = augmentedMatrix.getColumnCount() - 1;
+		int[] pivotColumns = ScratchPool.borrowIndexes(Math.min(reducedMatrix.length, unknowns)); // Copied by the constructor
+		try {
+			int rank = RowReducer.reduce(reducedMatrix, unknowns, tolerance, pivotColumns);
+			return new SolutionAnalysis(reducedMatrix, rank, pivotColumns);
+		} finally {
+			ScratchPool.release(pivotColumns);
+		}
+	}
+	
+	
+	/**
+	 * Returns a copy of the augmented matrix in reduced row echelon form.
+	 * 
+	 * @return The reduced matrix.
+	 */
+	public double[][] getReducedMatrix() {
+		double[][] copy = new double[reducedMatrix.length][];
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = reducedMatrix[i].clone();
+		}
+		return copy;
+	}
+	
+	
+	/**
+	 * Returns the rank of the coefficient matrix, which is the number of pivots.
+	 * 
+	 * @return The rank.
+	 */
+	public int getRank() {
+		return rank;
+	}
+	
+	
+	/**
+	 * Returns the index of the column of each pivot, from the top row down.
+	 * 
+	 * @return The pivot columns.
+	 */
+	public int[] getPivotColumns() {
+		return pivotColumns.clone();
+	}
+	
+	
+	/**
+	 * Returns the indexes of the variables that don't have a pivot, which can take any value.
+	 * 
+	 * @return The free variables.
+	 */
+	public int[] getFreeVariables() {
+		return freeVariables.clone();
+	}
+	
+	
+	/**
+	 * Checks if the system has at least one solution.
+	 * 
+	 * @return True if consistent, false if not.
+	 */
+	public boolean isConsistent() {
+		return consistent;
+	}
+	
+	
+	/**
+	 * Checks if the system has no solution.
+	 * 
+	 * @return True if no solution, false if otherwise.
+	 */
+	public boolean hasNoSolution() {
+		return !consistent;
+	}
+	
+	
+	/**
+	 * Checks if the system has only one solution.
+	 * 
+	 * @return True if only one solution, false if otherwise.
+	 */
+	public boolean hasOneSolution() {
+		return consistent && freeVariables.length == 0;
+	}
+	
+	
+	/**
+	 * Checks if the system has infinite solutions.
+	 * 
+	 * @return True if it has infinite solutions, false if not.
+	 */
+	public boolean hasInfiniteSolutions() {
+		return consistent && freeVariables.length > 0;
+	}
+	
+	
+	/**
+	 * Returns one solution of the system, found by setting every free variable to zero.
+	 * 
+	 * @return The particular solution, or null if the system has no solution.
+	 */
+	public double[] getParticularSolution() {
+		return particularSolution == null ? null : particularSolution.clone();
+	}
+	
+	
+	/**
+	 * Returns a basis for the null space of the coefficient matrix, one vector per row.
+	 * The basis is empty when there are no free variables.
+	 * 
+	 * @return The null space basis as a double[][].
+	 */
+	public double[][] getNullSpaceBasis() {
+		double[][] copy = new double[nullSpaceBasis.length][];
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = nullSpaceBasis[i].clone();
+		}
+		return copy;
+	}
+	
+}
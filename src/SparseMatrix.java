@@ -0,0 +1,412 @@
+package linear_algebra;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class is the base of the compressed sparse matrix formats, which
+ * only store the values that are not zero. The matrix is split into
+ * "major" lines (rows for CsrMatrix, columns for CscMatrix), and the
+ * values of major line k are stored in values[pointers[k]] up to
+ * values[pointers[k + 1] - 1], with their positions along the line (the
+ * "minor" index) in the same places of indexes, sorted in increasing
+ * order. A sparse matrix is still a Matrix, so it can be passed to code
+ * written against Matrix. Methods that have to return a double[][], like
+ * getMatrix(), create a dense copy, so avoid them for very large matrices.
+ * 
+ * @author Aaron Smith
+ */
+public abstract class SparseMatrix extends Matrix {
+	
+	int rows;
+	int columns;
+	int[] pointers; // pointers[k] is the index in values of the first value of major line k
+	int[] indexes; // Minor index of each value
+	double[] values; // Only the first pointers[majorCount()] values are used
+	
+	
+	/**
+	 * Constructs a SparseMatrix object from its compressed arrays, without copying them.
+	 * 
+	 * @param rows The number of rows.
+	 * @param columns The number of columns.
+	 * @param pointers Start of each major line in values, followed by the number of values.
+	 * @param indexes Minor index of each value, increasing within each major line.
+	 * @param values The values.
+	 */
+	SparseMatrix(int rows, int columns, int[] pointers, int[] indexes, double[] values) {
+		super(null); // Values live in the compressed arrays, not in a double[][]
+		if (rows < 0 || columns < 0) {
+			throw new IllegalArgumentException("Invalid matrix dimensions");
+		}
+		this.rows = rows;
+		this.columns = columns;
+		this.pointers = pointers;
+		this.indexes = indexes;
+		this.values = values;
+		this.validate();
+	}
+	
+	
+	/**
+	 * Returns the number of major lines: rows for CSR, columns for CSC.
+	 */
+	abstract int majorCount();
+	
+	
+	/**
+	 * Returns the length of each major line: columns for CSR, rows for CSC.
+	 */
+	abstract int minorCount();
+	
+	
+	/**
+	 * Computes rows rowStart to rowEnd (exclusive) of the product with a vector.
+	 */
+	abstract void multiplyRange(double[] vector, double[] result, int rowStart, int rowEnd);
+	
+	
+	/**
+	 * Adds alpha times the product with a dense 2d array to result, for the part of result
+	 * from start to end (exclusive) of the range returned by productRange().
+	 */
+	abstract void multiplyRange(double[][] other, double alpha, double[][] result, int start, int end);
+	
+	
+	/**
+	 * Returns the length of the range the product with a dense matrix of the given number of
+	 * columns is split along: the rows of the result for CSR, its columns for CSC.
+	 */
+	abstract int productRange(int otherColumns);
+	
+	
+	/**
+	 * Checks that the compressed arrays describe a valid matrix.
+	 */
+	private void validate() {
+		int majors = this.majorCount();
+		if (pointers.length != majors + 1 || pointers[0] != 0) {
+			throw new IllegalArgumentException("Pointers must have " + (majors + 1) + " values, starting at 0");
+		}
+		int count = pointers[majors];
+		if (count > indexes.length || count > values.length) {
+			throw new IllegalArgumentException("Indexes and values must hold " + count + " entries");
+		}
+		for (int k = 0; k < majors; k++) {
+			if (pointers[k] > pointers[k + 1]) {
+				throw new IllegalArgumentException("Pointers must not decrease");
+			}
+			for (int p = pointers[k]; p < pointers[k + 1]; p++) {
+				if (indexes[p] < 0 || indexes[p] >= this.minorCount() || (p > pointers[k] && indexes[p] <= indexes[p - 1])) {
+					throw new IllegalArgumentException("Indexes must be in range and increasing within each line");
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Returns the number of values that are stored, which are the non zero values
+	 * (plus any zeros that were explicitly set).
+	 * 
+	 * @return The number of stored values.
+	 */
+	public int getNonZeroCount() {
+		return pointers[this.majorCount()];
+	}
+	
+	
+	@Override
+	public int getRowCount() {
+		return rows;
+	}
+	
+	
+	@Override
+	public int getColumnCount() {
+		return columns;
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by a vector using the threads of a ForkJoinPool. The rows of
+	 * the result are split between tasks, each of which only visits the stored values in its
+	 * rows, so the matrix is never copied and the result is identical to multiplyBy(Vector).
+	 * 
+	 * @param v Vector to multiply by.
+	 * @param pool The pool to run the multiplication on, such as ForkJoinPool.commonPool().
+	 * @return The resulting vector as a double[].
+	 */
+	@Override
+	public double[] multiplyBy(Vector v, ForkJoinPool pool) {
+		double[] vector = v.getVector();
+		if (columns != vector.length) {
+			throw new IllegalArgumentException("Number of columns in matrix != number of rows in vector");
+		}
+		double[] result = new double[rows];
+		long work = Math.max(1, this.getNonZeroCount() / Math.max(1, rows));
+		pool.invoke(new RangeTask(vector, result, null, 0, null, 0, rows, work));
+		return result;
+	}
+	
+	
+	/**
+	 * This multiplies the matrix by another matrix using the threads of a ForkJoinPool. The
+	 * rows of the result (for CSR) or its columns (for CSC) are split between tasks, so the
+	 * work stays proportional to the number of non zero values and the result is identical
+	 * to multiplyBy(Matrix).
+	 * 
+	 * @param m Other matrix to multiply by. A sparse m is copied into a dense 2d array first.
+	 * @param pool The pool to run the multiplication on, such as ForkJoinPool.commonPool().
+	 * @return The resulting matrix as a double[][].
+	 */
+	@Override
+	public double[][] multiplyBy(Matrix m, ForkJoinPool pool) {
+		if (columns != m.getRowCount()) {
+			throw new IllegalArgumentException("Number of columns in matrix 1 != number of rows in matrix 2");
+		}
+		int otherColumns = m.getColumnCount();
+		double[][] result = new double[rows][otherColumns];
+		int range = this.productRange(otherColumns);
+		long work = Math.max(1, (long) this.getNonZeroCount() * otherColumns / Math.max(1, range));
+		pool.invoke(new RangeTask(null, null, m.getMatrix(), 1, result, 0, range, work));
+		return result;
+	}
+	
+	
+	/**
+	 * Returns the position in values of the value at (major, minor), or a negative number if
+	 * it isn't stored. The negative number is -(insertion point) - 1, like Arrays.binarySearch().
+	 */
+	int find(int major, int minor) {
+		return Arrays.binarySearch(indexes, pointers[major], pointers[major + 1], minor);
+	}
+	
+	
+	/**
+	 * Returns the value at (major, minor), which is zero if it isn't stored.
+	 */
+	double getEntry(int major, int minor) {
+		int position = this.find(major, minor);
+		return position >= 0 ? values[position] : 0;
+	}
+	
+	
+	/**
+	 * Sets the value at (major, minor). Setting a value that isn't stored yet inserts it,
+	 * which moves every value after it, so build large matrices with fromEntries() instead.
+	 */
+	void setEntry(int major, int minor, double value) {
+		this.markModified();
+		int position = this.find(major, minor);
+		if (position >= 0) {
+			values[position] = value;
+			return;
+		}
+		if (value == 0) { // Nothing to store
+			return;
+		}
+		position = -position - 1;
+		int count = this.getNonZeroCount();
+		if (count == values.length || count == indexes.length) { // Grow the arrays
+			int capacity = Math.max(8, 2 * count);
+			values = Arrays.copyOf(values, capacity);
+			indexes = Arrays.copyOf(indexes, capacity);
+		}
+		System.arraycopy(values, position, values, position + 1, count - position);
+		System.arraycopy(indexes, position, indexes, position + 1, count - position);
+		values[position] = value;
+		indexes[position] = minor;
+		for (int k = major + 1; k < pointers.length; k++) {
+			pointers[k]++;
+		}
+	}
+	
+	
+	/**
+	 * Compresses a dense 2d array, keeping the values that are not zero. When byRows is true
+	 * the major lines are the rows, otherwise they are the columns. The arrays are stored in
+	 * this object.
+	 */
+	void compress(double[][] matrix, boolean byRows) {
+		int denseRows = matrix.length;
+		int denseColumns = denseRows == 0 ? 0 : matrix[0].length;
+		int majors = byRows ? denseRows : denseColumns;
+		int minors = byRows ? denseColumns : denseRows;
+		int count = 0;
+		for (double[] row : matrix) {
+			for (double value : row) {
+				if (value != 0) {
+					count++;
+				}
+			}
+		}
+		int[] newPointers = new int[majors + 1];
+		int[] newIndexes = new int[count];
+		double[] newValues = new double[count];
+		int position = 0;
+		for (int k = 0; k < majors; k++) {
+			for (int m = 0; m < minors; m++) {
+				double value = byRows ? matrix[k][m] : matrix[m][k];
+				if (value != 0) {
+					newIndexes[position] = m;
+					newValues[position] = value;
+					position++;
+				}
+			}
+			newPointers[k + 1] = position;
+		}
+		this.rows = denseRows;
+		this.columns = denseColumns;
+		this.pointers = newPointers;
+		this.indexes = newIndexes;
+		this.values = newValues;
+		this.markModified();
+	}
+	
+	
+	/**
+	 * Fills another sparse matrix with the compressed arrays of this matrix with major and
+	 * minor swapped, using a counting sort over the minor indexes in O(nonzeros + rows + columns)
+	 * time. Used to convert between CSR and CSC.
+	 * 
+	 * @param target The matrix to fill. Its major lines must be this matrix's minor lines.
+	 */
+	void swapMajorInto(SparseMatrix target) {
+		int majors = this.majorCount();
+		int minors = this.minorCount();
+		int count = this.getNonZeroCount();
+		int[] newPointers = new int[minors + 1];
+		int[] newIndexes = new int[count];
+		double[] newValues = new double[count];
+		for (int p = 0; p < count; p++) { // Count the values in each minor line
+			newPointers[indexes[p] + 1]++;
+		}
+		for (int m = 0; m < minors; m++) {
+			newPointers[m + 1] += newPointers[m];
+		}
+		int[] next = Arrays.copyOf(newPointers, minors);
+		for (int k = 0; k < majors; k++) { // Major lines are visited in order, so the new indexes stay sorted
+			for (int p = pointers[k]; p < pointers[k + 1]; p++) {
+				int position = next[indexes[p]]++;
+				newIndexes[position] = k;
+				newValues[position] = values[p];
+			}
+		}
+		target.rows = rows;
+		target.columns = columns;
+		target.pointers = newPointers;
+		target.indexes = newIndexes;
+		target.values = newValues;
+		target.markModified();
+	}
+	
+	
+	/**
+	 * Fills this matrix from lists of entries, replacing what it held. Entries at the same
+	 * position are added up.
+	 * 
+	 * @param majorIndexes Major index of each entry.
+	 * @param minorIndexes Minor index of each entry.
+	 * @param entries The value of each entry.
+	 */
+	void fillFromEntries(int[] majorIndexes, int[] minorIndexes, double[] entries) {
+		if (majorIndexes.length != minorIndexes.length || majorIndexes.length != entries.length) {
+			throw new IllegalArgumentException("Entry arrays must have the same length");
+		}
+		int majors = this.majorCount();
+		int minors = this.minorCount();
+		int[] newPointers = new int[majors + 1];
+		for (int e = 0; e < entries.length; e++) {
+			if (majorIndexes[e] < 0 || majorIndexes[e] >= majors || minorIndexes[e] < 0 || minorIndexes[e] >= minors) {
+				throw new IllegalArgumentException("Column/Row does not exist");
+			}
+			newPointers[majorIndexes[e] + 1]++;
+		}
+		for (int k = 0; k < majors; k++) {
+			newPointers[k + 1] += newPointers[k];
+		}
+		int[] next = Arrays.copyOf(newPointers, majors);
+		int[] order = new int[entries.length];
+		for (int e = 0; e < entries.length; e++) { // Bucket the entries by major line
+			order[next[majorIndexes[e]]++] = e;
+		}
+		int[] newIndexes = new int[entries.length];
+		double[] newValues = new double[entries.length];
+		int position = 0;
+		for (int k = 0; k < majors; k++) { // Sort each line by minor index and add up duplicates
+			int start = newPointers[k];
+			int end = newPointers[k + 1];
+			long[] keys = new long[end - start];
+			for (int p = start; p < end; p++) {
+				keys[p - start] = ((long) minorIndexes[order[p]] << 32) | order[p];
+			}
+			Arrays.sort(keys);
+			newPointers[k] = position;
+			for (long key : keys) {
+				int e = (int) key;
+				int minor = (int) (key >>> 32);
+				if (position > newPointers[k] && newIndexes[position - 1] == minor) {
+					newValues[position - 1] += entries[e];
+				} else {
+					newIndexes[position] = minor;
+					newValues[position] = entries[e];
+					position++;
+				}
+			}
+		}
+		newPointers[majors] = position;
+		this.pointers = newPointers;
+		this.indexes = newIndexes;
+		this.values = newValues;
+		this.markModified();
+	}
+	
+	
+	/**
+	 * Task that computes part of a product with a vector (when vector isn't null) or with a
+	 * dense matrix. The range is split in half while it holds more than
+	 * MatrixMultiplier.PARALLEL_THRESHOLD multiply-adds, and the pieces never share a value
+	 * of the result.
+	 */
+	private class RangeTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		private final double[] vector, vectorResult;
+		private final double[][] other, result;
+		private final double alpha;
+		private final int start, end;
+		private final long workPerIndex;
+		
+		RangeTask(double[] vector, double[] vectorResult, double[][] other, double alpha, double[][] result,
+				int start, int end, long workPerIndex) {
+			this.vector = vector;
+			this.vectorResult = vectorResult;
+			this.other = other;
+			this.alpha = alpha;
+			this.result = result;
+			this.start = start;
+			this.end = end;
+			this.workPerIndex = workPerIndex;
+		}
+		
+		@Override
+		protected void compute() {
+			int count = end - start;
+			if (count <= 1 || count * workPerIndex <= MatrixMultiplier.PARALLEL_THRESHOLD) {
+				if (vector != null) {
+					multiplyRange(vector, vectorResult, start, end);
+				} else {
+					multiplyRange(other, alpha, result, start, end);
+				}
+			} else {
+				int middle = start + count / 2;
+				invokeAll(new RangeTask(vector, vectorResult, other, alpha, result, start, middle, workPerIndex),
+						new RangeTask(vector, vectorResult, other, alpha, result, middle, end, workPerIndex));
+			}
+		}
+		
+	}
+	
+}
@@ -9,6 +9,11 @@ package linear_algebra;
  */
 public class SquareMatrix extends Matrix {
 	
+	/**
+	 * The largest matrix size that getDeterminant(true) will expand with the Laplace expansion.
+	 */
+	public static final int LAPLACE_EXPANSION_LIMIT = 10;
+	
 	
 	/**
 	 * Constructs a SquareMatrix object with an initial 2d array.
@@ -24,18 +29,124 @@ public class SquareMatrix extends Matrix {
 
 	
 	/**
-	 * Returns the determinant of a square matrix.
+	 * Returns the determinant of a square matrix. This uses an LU decomposition
+	 * with partial pivoting, which takes O(n^3) time. The determinant is cached, so
+	 * asking again before the matrix changes takes no time.
 	 * 
 	 * @return The determinant of the square matrix.
 	 */
 	public double getDeterminant() {
-		return this.getDeterminant(this.getMatrix());
+		Double cached = (Double) this.getCachedResult(ResultCache.Key.DETERMINANT);
+		if (cached != null) {
+			return cached;
+		}
+		int size = this.getRowCount();
+		double[][] lu = ScratchPool.borrowMatrix(size, size);
+		int[] pivot = ScratchPool.borrowIndexes(size);
+		try {
+			LUDecomposition decomposition = new LUDecomposition(lu, pivot);
+			decomposition.decompose(this);
+			double determinant = decomposition.getDeterminant();
+			this.setCachedResult(ResultCache.Key.DETERMINANT, determinant);
+			return determinant;
+		} finally {
+			ScratchPool.release(lu);
+			ScratchPool.release(pivot);
+		}
+	}
+	
+	
+	/**
+	 * Returns the LU decomposition of the square matrix. Keep the decomposition to solve
+	 * systems with this matrix as the coefficient matrix for many right hand sides.
+	 * 
+	 * @return The LU decomposition.
+	 */
+	public LUDecomposition getLUDecomposition() {
+		return new LUDecomposition(this);
+	}
+	
+	
+	/**
+	 * Sets one value of the matrix and updates an inverse of the matrix that is already known
+	 * to match, in O(n^2) time instead of calling getInverse() again. See InverseUpdater for
+	 * changes to whole rows and columns.
+	 * 
+	 * @param row The row of the value.
+	 * @param col The column of the value.
+	 * @param value The new value.
+	 * @param inverse The inverse of the matrix before the change. It is replaced by the new inverse.
+	 * @throws IllegalArgumentException If the new matrix is singular, in which case neither the
+	 * matrix nor the inverse is changed.
+	 */
+	public void setValue(int row, int col, double value, double[][] inverse) {
+		InverseUpdater.updateValue(inverse, row, col, value - this.getValue(row, col));
+		this.setValue(row, col, value);
+	}
+	
+	
+	/**
+	 * Returns the Cholesky decomposition of the square matrix, which should be symmetric and
+	 * positive definite, like a covariance matrix. Check isPositiveDefinite() on the result.
+	 * 
+	 * @return The Cholesky decomposition.
+	 */
+	public CholeskyDecomposition getCholeskyDecomposition() {
+		return new CholeskyDecomposition(this);
+	}
+	
+	
+	/**
+	 * Returns the determinant of the square matrix, decomposing it in a workspace so that
+	 * nothing is allocated once the workspace has a decomposition of this size.
+	 * 
+	 * @param workspace The workspace to hold the decomposition.
+	 * @return The determinant of the square matrix.
+	 */
+	public double getDeterminant(Workspace workspace) {
+		return this.getLUDecomposition(workspace).getDeterminant();
+	}
+	
+	
+	/**
+	 * Returns the LU decomposition of the square matrix, computed in a decomposition that
+	 * belongs to the workspace. It is only valid until the workspace is used for another
+	 * decomposition of the same size, so use it right away or call getLUDecomposition().
+	 * 
+	 * @param workspace The workspace to hold the decomposition.
+	 * @return The LU decomposition.
+	 */
+	public LUDecomposition getLUDecomposition(Workspace workspace) {
+		LUDecomposition decomposition = workspace.decomposition(this.getRowCount());
+		decomposition.decompose(this);
+		return decomposition;
+	}
+	
+	
+	/**
+	 * Returns the determinant of a square matrix, optionally calculated with the Laplace
+	 * expansion instead of an LU decomposition. The Laplace expansion only adds and
+	 * multiplies entries, so it returns exact results for small matrices of integers, but it
+	 * takes O(n!) time and is limited to matrices of size LAPLACE_EXPANSION_LIMIT or less.
+	 * 
+	 * @param laplaceExpansion True to use the Laplace expansion, false to use an LU decomposition.
+	 * @return The determinant of the square matrix.
+	 */
+	public double getDeterminant(boolean laplaceExpansion) {
+		if (!laplaceExpansion) {
+			return this.getDeterminant();
+		}
+		if (this.getMatrix().length > LAPLACE_EXPANSION_LIMIT) {
+			throw new IllegalArgumentException("Laplace expansion is limited to matrices of size "
+					+ LAPLACE_EXPANSION_LIMIT + " or less");
+		}
+		return this.getLaplaceDeterminant(this.getMatrix());
 	}
 	
 	
 	/**
 	 * This calculates and returns the determinant of a square matrix. Note that
-	 * this method is private, it is only used in the no args getDeterminant() 
+	 * this method is private, it is only used in the getDeterminant(boolean) 
 	 * method above. In order to get the determinant of an (n x n)-matrix, this
 	 * method calls itself recursively in order to use a method of calculation 
 	 * known as the Laplace expansion.
@@ -43,7 +154,7 @@ public class SquareMatrix extends Matrix {
 	 * @param matrix The matrix to get the determinant of.
 	 * @return The determinant.
 	 */
-	private double getDeterminant(double[][] matrix) {
+	private double getLaplaceDeterminant(double[][] matrix) {
 		int size = matrix.length;
 		double determinant = 0;
 		if (size == 1) { // Base case for the recursion method
@@ -64,7 +175,7 @@ public class SquareMatrix extends Matrix {
 				}
 			}
 			// Pattern follows + - + - + ..., which explains Math.pow(-1, i)
-			determinant += matrix[0][i] * Math.pow(-1, i) * getDeterminant(innerMatrix);
+			determinant += matrix[0][i] * Math.pow(-1, i) * getLaplaceDeterminant(innerMatrix);
 		}
 		return determinant;
 	}
@@ -77,36 +188,71 @@ public class SquareMatrix extends Matrix {
 	 * @return The matrix of minors as a double[][].
 	 */
 	public double[][] getMatrixOfMinors() {
+		return this.computeMinors(false, false);
+	}
+	
+	
+	/**
+	 * This calculates a matrix of minors and writes it into a 2d array supplied by the
+	 * caller. Each minor is copied straight into a decomposition that belongs to the
+	 * workspace, so nothing is allocated once the workspace has one of size n - 1.
+	 * 
+	 * @param result The (n x n) 2d array to write the matrix of minors into. Must not be this
+	 * matrix's own array.
+	 * @param workspace The workspace to hold the decompositions.
+	 * @return The result array.
+	 */
+	public double[][] getMatrixOfMinors(double[][] result, Workspace workspace) {
+		return this.computeMinors(result, workspace.decomposition(this.getRowCount() - 1), false, false);
+	}
+	
+	
+	/**
+	 * Returns a new array filled by computeMinors(), with the decomposition working in arrays
+	 * borrowed from ScratchPool.
+	 */
+	private double[][] computeMinors(boolean cofactors, boolean transposed) {
+		int size = this.getRowCount();
+		double[][] lu = ScratchPool.borrowMatrix(size - 1, size - 1);
+		int[] pivot = ScratchPool.borrowIndexes(size - 1);
+		try {
+			return this.computeMinors(new double[size][size], new LUDecomposition(lu, pivot), cofactors, transposed);
+		} finally {
+			ScratchPool.release(lu);
+			ScratchPool.release(pivot);
+		}
+	}
+	
+	
+	/**
+	 * Fills result with the minors, optionally with the cofactor signs and transposed. Every
+	 * minor is read from the matrix before anything is written, one at a time, so result
+	 * can't be the matrix's own array.
+	 */
+	private double[][] computeMinors(double[][] result, LUDecomposition decomposition, boolean cofactors, boolean transposed) {
 		double[][] matrix = this.getMatrix();
 		int size = matrix.length;
-		double[][] matrixOfMinors = new double[size][size];
+		if (result.length != size || result[0].length != size) {
+			throw new IllegalArgumentException("Result must be a " + size + " x " + size + " array");
+		}
+		if (result == matrix) {
+			throw new IllegalArgumentException("Result must not be the matrix's own array");
+		}
 		for (int i = 0; i < size; i++) {
 			for (int j = 0; j < size; j++) {
-				// These first two loops (i and j) are to fill the matrixOfMinors.
-				// The next two loops (k and c) are to fill the innerMatrix.
-				double[][] innerMatrix = new double[size - 1][size - 1];
-				for (int k = 0; k < size; k++) {
-					for (int c = 0; c < size; c++) {
-						// We don't want the column or the row of matrix[i][j] in our innerMatrix,
-						// so when k == i, we don't do anything, and in other cases, we adjust
-						// values to fill the innerMatrix correctly. Note that i and j represent 
-						// the matrixOfMinors's rows and columns respectively, and k and c represent
-						// the innerMatrix's rows and columns respectively.
-						if (k < i && c < j) {
-							innerMatrix[k][c] = matrix[k][c];
-						} else if (k < i && c > j) {
-							innerMatrix[k][c - 1] = matrix[k][c];
-						} else if (k > i && c < j) {
-							innerMatrix[k - 1][c] = matrix[k][c];
-						} else if (k > i && c > j) {
-							innerMatrix[k - 1][c - 1] = matrix[k][c];
-						}
-					}
-				matrixOfMinors[i][j] = this.getDeterminant(innerMatrix);
+				decomposition.decomposeMinor(matrix, i, j);
+				double minor = decomposition.getDeterminant();
+				if (cofactors && ((i + j) & 1) == 1) { // Pattern follows + - + - + ...
+					minor = -minor;
+				}
+				if (transposed) {
+					result[j][i] = minor;
+				} else {
+					result[i][j] = minor;
 				}
 			}
 		}
-		return matrixOfMinors;
+		return result;
 	}
 	
 	
@@ -117,14 +263,21 @@ public class SquareMatrix extends Matrix {
 	 * @return The matrix of cofactors as a double[][].
 	 */
 	public double[][] getMatrixOfCofactors() {
-		double[][] matrix = this.getMatrixOfMinors();
-		for (int i = 0; i < matrix.length; i++) {
-			for (int j = 0; j < matrix.length; j++) {
-				// Use Math.pow() to decide which values become negative.
-				matrix[i][j] = Math.pow(-1, i + j) * matrix[i][j];
-			}
-		}
-		return matrix;
+		return this.computeMinors(true, false);
+	}
+	
+	
+	/**
+	 * Calculates a matrix of cofactors and writes it into a 2d array supplied by the caller,
+	 * without allocating once the workspace is set up.
+	 * 
+	 * @param result The (n x n) 2d array to write the matrix of cofactors into. Must not be this
+	 * matrix's own array.
+	 * @param workspace The workspace to hold the decompositions.
+	 * @return The result array.
+	 */
+	public double[][] getMatrixOfCofactors(double[][] result, Workspace workspace) {
+		return this.computeMinors(result, workspace.decomposition(this.getRowCount() - 1), true, false);
 	}
 	
 	
@@ -135,24 +288,166 @@ public class SquareMatrix extends Matrix {
 	 * @return The adjoint of a matrix.
 	 */
 	public double[][] getAdjoint() {
-		return new SquareMatrix(this.getMatrixOfCofactors()).getTranspose();
+		return this.computeMinors(true, true);
+	}
+	
+	
+	/**
+	 * Calculates the adjoint of a matrix and writes it into a 2d array supplied by the caller.
+	 * Each cofactor is written straight into its transposed place, so no matrix of cofactors
+	 * is built first.
+	 * 
+	 * @param result The (n x n) 2d array to write the adjoint into. Must not be this matrix's own array.
+	 * @param workspace The workspace to hold the decompositions.
+	 * @return The result array.
+	 */
+	public double[][] getAdjoint(double[][] result, Workspace workspace) {
+		return this.computeMinors(result, workspace.decomposition(this.getRowCount() - 1), true, true);
 	}
 	
 
 	/**
-	 * Calculates and returns the inverse of a square matrix. It does this by multiplying
-	 * the adjoint by 1/determinant, which will equal the inverse as long as the determinant
-	 * is not equal to 0. 
+	 * Calculates and returns the inverse of a square matrix. It does this with
+	 * Gauss-Jordan elimination on a single working copy of the matrix, which takes
+	 * O(n^3) time. Returns null if the matrix is singular, meaning its determinant is 0
+	 * and the inverse does not exist. The inverse is cached, so asking again before the
+	 * matrix changes only copies it, in O(n^2) time.
 	 * 
 	 * @return The inverse of a matrix.
 	 */
 	public double[][] getInverse() {
-		double determinant = this.getDeterminant();
-		// If determinant is zero, inverse does not exist.
-		if (determinant == 0) {
-			return null;
+		double[][] cached = (double[][]) this.getCachedResult(ResultCache.Key.INVERSE);
+		if (cached != null) {
+			return MatrixBlock.of(cached).toArray();
+		}
+		int size = this.getMatrix().length;
+		double[][] inverse = this.getInverse(new double[size][size]);
+		if (inverse != null && this.isResultCaching()) {
+			this.setCachedResult(ResultCache.Key.INVERSE, MatrixBlock.of(inverse).toArray());
+		}
+		return inverse;
+	}
+	
+	
+	/**
+	 * Calculates the inverse of a square matrix and writes it into a 2d array supplied by
+	 * the caller, so that repeatedly inverting matrices of the same size doesn't allocate a 
+	 * new array every time. The inverse is computed in place with Gauss-Jordan elimination
+	 * using partial pivoting: each row interchange is remembered, and once the elimination
+	 * is done the same interchanges are undone on the columns of the result.
+	 * 
+	 * An inverse cached by getInverse() is copied into the result instead of being computed
+	 * again, but a new one isn't cached, so this never allocates.
+	 * 
+	 * @param result The (n x n) 2d array to write the inverse into. It may be this matrix's own array,
+	 * but must not share only some of its rows.
+	 * @return The result array holding the inverse, or null if the matrix is singular. In that 
+	 * case the contents of the result array are undefined.
+	 */
+	public double[][] getInverse(double[][] result) {
+		double[][] cached = (double[][]) this.getCachedResult(ResultCache.Key.INVERSE);
+		if (cached != null && !this.sharesArray(result)) {
+			int size = cached.length;
+			if (result.length != size || result[0].length != size) {
+				throw new IllegalArgumentException("Result must be a " + size + " x " + size + " array");
+			}
+			for (int i = 0; i < cached.length; i++) {
+				System.arraycopy(cached[i], 0, result[i], 0, size);
+			}
+			return result;
+		}
+		int[] interchanges = ScratchPool.borrowIndexes(this.getRowCount());
+		try {
+			return this.invert(result, interchanges);
+		} finally {
+			ScratchPool.release(interchanges);
+		}
+	}
+	
+	
+	/**
+	 * Calculates the inverse of a square matrix into a 2d array supplied by the caller, like
+	 * getInverse(double[][]), keeping the record of row interchanges in a workspace so that
+	 * nothing at all is allocated.
+	 * 
+	 * @param result The (n x n) 2d array to write the inverse into. It may be this matrix's own array,
+	 * but must not share only some of its rows.
+	 * @param workspace The workspace to hold the row interchanges.
+	 * @return The result array holding the inverse, or null if the matrix is singular. In that 
+	 * case the contents of the result array are undefined.
+	 */
+	public double[][] getInverse(double[][] result, Workspace workspace) {
+		return this.invert(result, workspace.indexes(this.getRowCount()));
+	}
+	
+	
+	/**
+	 * Computes the inverse into result, using interchanges to remember the row interchanges.
+	 */
+	private double[][] invert(double[][] result, int[] interchanges) {
+		double[][] matrix = this.getMatrix();
+		int size = matrix.length;
+		if (result.length != size || result[0].length != size) {
+			throw new IllegalArgumentException("Result must be a " + size + " x " + size + " array");
+		}
+		if (this.sharesArray(result)) { // Inverting in place changes the matrix
+			this.markModified();
+		}
+		double maxAbsValue = 0;
+		for (int i = 0; i < size; i++) {
+			if (result[i] != matrix[i]) {
+				System.arraycopy(matrix[i], 0, result[i], 0, size);
+			}
+			for (int j = 0; j < size; j++) {
+				maxAbsValue = Math.max(maxAbsValue, Math.abs(result[i][j]));
+			}
+		}
+		double tolerance = size * Math.ulp(maxAbsValue); // Same singularity test as LUDecomposition
+		// interchanges[k] is the row that was swapped with row k
+		for (int k = 0; k < size; k++) {
+			int p = k; // Find the largest value in the column to use as the pivot
+			for (int i = k + 1; i < size; i++) {
+				if (Math.abs(result[i][k]) > Math.abs(result[p][k])) {
+					p = i;
+				}
+			}
+			if (Math.abs(result[p][k]) <= tolerance) { // No usable pivot means the matrix is singular
+				return null;
+			}
+			interchanges[k] = p;
+			if (p != k) { // rowP <-> rowK
+				double[] placeHolder = result[p];
+				result[p] = result[k];
+				result[k] = placeHolder;
+			}
+			double[] pivotRow = result[k];
+			double pivotInverse = 1 / pivotRow[k];
+			pivotRow[k] = 1; // The column of the identity matrix takes the place of the pivot column
+			for (int j = 0; j < size; j++) {
+				pivotRow[j] *= pivotInverse;
+			}
+			for (int i = 0; i < size; i++) { // Eliminate the pivot column from every other row
+				double[] row = result[i];
+				double factor = row[k];
+				if (i != k && factor != 0) {
+					row[k] = 0;
+					for (int j = 0; j < size; j++) {
+						row[j] -= factor * pivotRow[j]; // (-factor)rowK + rowI -> rowI
+					}
+				}
+			}
+		}
+		for (int k = size - 1; k >= 0; k--) { // Undo the row interchanges as column interchanges
+			int p = interchanges[k];
+			if (p != k) {
+				for (int i = 0; i < size; i++) {
+					double placeHolder = result[i][p];
+					result[i][p] = result[i][k];
+					result[i][k] = placeHolder;
+				}
+			}
 		}
-		return new SquareMatrix(this.getAdjoint()).multiplyBy(1/determinant);
+		return result;
 	}
 
 }
@@ -0,0 +1,270 @@
+package linear_algebra;
+
+import java.util.Arrays;
+
+/**
+ * This class finds the least squares solution of an overdetermined system
+ * whose equations arrive one at a time, without ever storing them. It keeps
+ * only the (n x n) triangular factor R of a QR decomposition of the rows
+ * seen so far, with Q^T b beside it, and folds each new row in with n Givens
+ * rotations in O(n^2) time. Memory stays O(n^2) however many rows are added,
+ * so a regression over 10^8 observations can be read straight from a file.
+ * 
+ * Like QRDecomposition, this never forms the normal equations A^T Ax = A^T b,
+ * so it doesn't square the condition number of the system.
+ * 
+ * @author Aaron Smith
+ */
+public class StreamingLeastSquares {
+	
+	private static final int CHUNK_ROWS = 256; // Rows copied at a time by add(Matrix)
+	
+	private final double[][] r; // Upper triangular factor, row i only used from column i on
+	private final double[] qtb; // Q^T b
+	private final double[] work; // Copy of the row being added, with its right hand side last
+	private double residualSumOfSquares;
+	private long rowCount;
+	
+	
+	/**
+	 * Constructs an empty least squares problem with the given number of unknowns.
+	 * 
+	 * @param unknowns The number of unknowns n, which is the length of every row.
+	 */
+	public StreamingLeastSquares(int unknowns) {
+		if (unknowns < 0) {
+			throw new IllegalArgumentException("Invalid number of unknowns");
+		}
+		this.r = new double[unknowns][unknowns];
+		this.qtb = new double[unknowns];
+		this.work = new double[unknowns + 1];
+	}
+	
+	
+	/**
+	 * Returns the number of unknowns n.
+	 * 
+	 * @return The number of unknowns.
+	 */
+	public int getUnknownCount() {
+		return qtb.length;
+	}
+	
+	
+	/**
+	 * Returns the number of rows added so far.
+	 * 
+	 * @return The number of rows.
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+	
+	
+	/**
+	 * Adds one equation, row . x = value. The row is not edited.
+	 * 
+	 * @param row The n coefficients of the equation.
+	 * @param value The right hand side of the equation.
+	 */
+	public void add(double[] row, double value) {
+		if (row.length != qtb.length) {
+			throw new IllegalArgumentException("Row must have length " + qtb.length);
+		}
+		System.arraycopy(row, 0, work, 0, row.length);
+		work[row.length] = value;
+		this.rotateIn(work);
+	}
+	
+	
+	/**
+	 * Adds every row of an augmented matrix, where the last column holds the right hand sides
+	 * and the others hold the coefficients, so it has n + 1 columns. The rows are copied a
+	 * block at a time, so a MappedMatrix is streamed from its file and never loaded whole.
+	 * 
+	 * @param augmented The (m x (n + 1)) rows to add.
+	 */
+	public void add(Matrix augmented) {
+		int unknowns = qtb.length;
+		if (augmented.getColumnCount() != unknowns + 1) {
+			throw new IllegalArgumentException("Augmented matrix must have " + (unknowns + 1) + " columns");
+		}
+		int rows = augmented.getRowCount();
+		double[][] chunk = ScratchPool.borrowMatrix(Math.min(CHUNK_ROWS, rows), unknowns + 1);
+		try {
+			for (int start = 0; start < rows; start += chunk.length) {
+				int count = Math.min(chunk.length, rows - start);
+				augmented.readBlock(start, 0, count, unknowns + 1, chunk);
+				for (int i = 0; i < count; i++) {
+					this.rotateIn(chunk[i]);
+				}
+			}
+		} finally {
+			ScratchPool.release(chunk);
+		}
+	}
+	
+	
+	/**
+	 * Rotates a row, with its right hand side in the last place, into R and Q^T b. Rotation k
+	 * zeroes value k of the row against row k of R, so the row is used up as it goes, and what
+	 * is left of the right hand side at the end is the part no solution can fit.
+	 */
+	private void rotateIn(double[] row) {
+		int unknowns = qtb.length;
+		double value = row[unknowns];
+		for (int k = 0; k < unknowns; k++) {
+			double w = row[k];
+			if (w == 0) {
+				continue;
+			}
+			double[] rowK = r[k];
+			double diagonal = rowK[k];
+			double norm = Math.sqrt(diagonal * diagonal + w * w);
+			double c = diagonal / norm;
+			double s = w / norm;
+			rowK[k] = norm;
+			for (int j = k + 1; j < unknowns; j++) {
+				double t = rowK[j];
+				rowK[j] = c * t + s * row[j];
+				row[j] = c * row[j] - s * t;
+			}
+			double t = qtb[k];
+			qtb[k] = c * t + s * value;
+			value = c * value - s * t;
+		}
+		residualSumOfSquares += value * value;
+		rowCount++;
+	}
+	
+	
+	/**
+	 * Returns the sum of the squared residuals ||Ax - b||^2 of the least squares solution for
+	 * the rows added so far. It is known without solving.
+	 * 
+	 * @return The residual sum of squares.
+	 */
+	public double getResidualSumOfSquares() {
+		return residualSumOfSquares;
+	}
+	
+	
+	/**
+	 * Returns the numerical rank of the rows added so far: the number of diagonal values of R
+	 * larger than getTolerance(). Without column pivoting this can overstate the rank of a
+	 * nearly dependent system; use a SingularValueDecomposition of getR() to be sure.
+	 * 
+	 * @return The rank.
+	 */
+	public int getRank() {
+		return this.getRank(this.getTolerance());
+	}
+	
+	
+	/**
+	 * Returns the number of diagonal values of R larger than a tolerance.
+	 * 
+	 * @param tolerance The absolute value a diagonal value of R must be larger than.
+	 * @return The rank.
+	 */
+	public int getRank(double tolerance) {
+		int rank = 0;
+		for (int k = 0; k < qtb.length; k++) {
+			if (Math.abs(r[k][k]) > tolerance) {
+				rank++;
+			}
+		}
+		return rank;
+	}
+	
+	
+	/**
+	 * Returns the tolerance used by getRank() and solve(): max(m, n) ulps of the largest
+	 * diagonal value of R, where m is the number of rows added so far. Every row adds its own
+	 * round off to R, so the tolerance grows with the number of rows, as it does in
+	 * QRDecomposition.
+	 * 
+	 * @return The tolerance.
+	 */
+	public double getTolerance() {
+		double max = 0;
+		for (int k = 0; k < qtb.length; k++) {
+			max = Math.max(max, Math.abs(r[k][k]));
+		}
+		return Math.max((double) rowCount, qtb.length) * Math.ulp(max);
+	}
+	
+	
+	/**
+	 * Returns the triangular factor R of the rows added so far, which has R^T R = A^T A.
+	 * 
+	 * @return The (n x n) matrix R as a new double[][].
+	 */
+	public double[][] getR() {
+		return MatrixBlock.of(r).toArray();
+	}
+	
+	
+	/**
+	 * Finds the least squares solution for the rows added so far. More rows can be added
+	 * afterwards and the system solved again.
+	 * 
+	 * @return The solution as a new double[].
+	 * @throws IllegalArgumentException If the columns of the rows added so far are linearly dependent.
+	 */
+	public double[] solve() {
+		return this.solve(new double[qtb.length]);
+	}
+	
+	
+	/**
+	 * Finds the least squares solution for the rows added so far, and writes it into an array
+	 * supplied by the caller.
+	 * 
+	 * @param x The array of length n to write the solution into.
+	 * @return The x array holding the solution.
+	 * @throws IllegalArgumentException If the columns of the rows added so far are linearly dependent.
+	 */
+	public double[] solve(double[] x) {
+		return this.solve(x, this.getTolerance());
+	}
+	
+	
+	/**
+	 * Finds the least squares solution for the rows added so far, treating the system as
+	 * singular if a diagonal value of R is no larger than the given tolerance, and writes it
+	 * into an array supplied by the caller.
+	 * 
+	 * @param x The array of length n to write the solution into.
+	 * @param tolerance The absolute value every diagonal value of R must be larger than.
+	 * @return The x array holding the solution.
+	 * @throws IllegalArgumentException If a diagonal value of R is at or below the tolerance.
+	 */
+	public double[] solve(double[] x, double tolerance) {
+		int unknowns = qtb.length;
+		if (x.length != unknowns) {
+			throw new IllegalArgumentException("Solution must have length " + unknowns);
+		}
+		for (int i = unknowns - 1; i >= 0; i--) { // Back substitution, Rx = Q^T b
+			if (Math.abs(r[i][i]) <= tolerance) {
+				throw new IllegalArgumentException("Matrix is singular");
+			}
+			x[i] = (qtb[i] - VectorKernels.dot(r[i], i + 1, x, i + 1, unknowns - i - 1)) / r[i][i];
+		}
+		return x;
+	}
+	
+	
+	/**
+	 * Removes every row, so the object can be used for a new problem of the same size.
+	 */
+	public void clear() {
+		for (double[] row : r) {
+			Arrays.fill(row, 0);
+		}
+		Arrays.fill(qtb, 0);
+		residualSumOfSquares = 0;
+		rowCount = 0;
+	}
+	
+}
@@ -0,0 +1,246 @@
+package linear_algebra;
+
+/**
+ * This class is a view of some of the rows and columns of another matrix,
+ * such as a block of it, or the minor left after leaving out one row and
+ * one column. Nothing is copied: the view keeps the indexes of the rows and
+ * columns it shows, so changes to either one show in the other. When the
+ * rows and the columns are each one unbroken range, multiplying by the view
+ * reads the backing matrix's 2d array directly. A minor is copied only once,
+ * into the working array of whatever is computed from it.
+ * 
+ * @author Aaron Smith
+ */
+public class SubMatrixView extends Matrix {
+	
+	private final Matrix backing;
+	private final int[] rowIndexes; // Row of the backing matrix shown in each row of the view
+	private final int[] columnIndexes; // Column of the backing matrix shown in each column of the view
+	private final boolean contiguous; // True when both index lists are unbroken increasing ranges
+	
+	
+	/**
+	 * Constructs a view of a block of a matrix. End indexes are exclusive.
+	 * 
+	 * @param backing The matrix to view.
+	 * @param rowStart The first row of the block.
+	 * @param rowEnd The row to stop at.
+	 * @param colStart The first column of the block.
+	 * @param colEnd The column to stop at.
+	 */
+	public SubMatrixView(Matrix backing, int rowStart, int rowEnd, int colStart, int colEnd) {
+		this(backing, range(rowStart, rowEnd, backing.getRowCount()), range(colStart, colEnd, backing.getColumnCount()));
+	}
+	
+	
+	/**
+	 * Constructs a view of any rows and columns of a matrix, in any order.
+	 * 
+	 * @param backing The matrix to view.
+	 * @param rowIndexes The row of the backing matrix to show in each row of the view. It is copied.
+	 * @param columnIndexes The column of the backing matrix to show in each column of the view. It is copied.
+	 */
+	public SubMatrixView(Matrix backing, int[] rowIndexes, int[] columnIndexes) {
+		super(null); // Values live in the backing matrix
+		this.backing = backing;
+		this.rowIndexes = rowIndexes.clone();
+		this.columnIndexes = columnIndexes.clone();
+		checkIndexes(this.rowIndexes, backing.getRowCount());
+		checkIndexes(this.columnIndexes, backing.getColumnCount());
+		this.contiguous = isRange(this.rowIndexes) && isRange(this.columnIndexes);
+	}
+	
+	
+	/**
+	 * Returns a view of a matrix with one row and one column left out, whose determinant is
+	 * the minor of entry (row, col).
+	 * 
+	 * @param backing The matrix to view.
+	 * @param row The row to leave out.
+	 * @param col The column to leave out.
+	 * @return The view.
+	 */
+	public static SubMatrixView minor(Matrix backing, int row, int col) {
+		return new SubMatrixView(backing, skip(row, backing.getRowCount()), skip(col, backing.getColumnCount()));
+	}
+	
+	
+	/**
+	 * Returns the indexes start up to end, checked against the size.
+	 */
+	private static int[] range(int start, int end, int size) {
+		if (start < 0 || end > size || start > end) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		int[] indexes = new int[end - start];
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = start + i;
+		}
+		return indexes;
+	}
+	
+	
+	/**
+	 * Returns the indexes 0 up to size, leaving out one.
+	 */
+	private static int[] skip(int index, int size) {
+		if (index < 0 || index >= size) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		int[] indexes = new int[size - 1];
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = i < index ? i : i + 1;
+		}
+		return indexes;
+	}
+	
+	
+	private static void checkIndexes(int[] indexes, int size) {
+		for (int index : indexes) {
+			if (index < 0 || index >= size) {
+				throw new IllegalArgumentException("Column/Row " + index + " does not exist");
+			}
+		}
+	}
+	
+	
+	private static boolean isRange(int[] indexes) {
+		for (int i = 1; i < indexes.length; i++) {
+			if (indexes[i] != indexes[i - 1] + 1) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	
+	/**
+	 * Returns the matrix this is a view of.
+	 * 
+	 * @return The backing matrix.
+	 */
+	public Matrix getBacking() {
+		return backing;
+	}
+	
+	
+	/**
+	 * Returns the modification count of the backing matrix, since the values of the view
+	 * change whenever the backing matrix does.
+	 */
+	@Override
+	public long getModificationCount() {
+		return backing.getModificationCount();
+	}
+	
+	
+	@Override
+	public void markModified() {
+		backing.markModified();
+	}
+	
+	
+	@Override
+	MatrixBlock getBlock() {
+		if (!contiguous) {
+			return null;
+		}
+		MatrixBlock block = backing.getBlock();
+		if (block == null) {
+			return null;
+		}
+		int rowStart = rowIndexes.length == 0 ? 0 : rowIndexes[0];
+		int colStart = columnIndexes.length == 0 ? 0 : columnIndexes[0];
+		return block.slice(rowStart, rowStart + rowIndexes.length, colStart, colStart + columnIndexes.length);
+	}
+	
+	
+	/**
+	 * Returns a copy of the values shown by the view.
+	 */
+	@Override
+	public double[][] getMatrix() {
+		double[][] result = new double[rowIndexes.length][columnIndexes.length];
+		MatrixBlock block = backing.getBlock();
+		for (int i = 0; i < rowIndexes.length; i++) {
+			for (int j = 0; j < columnIndexes.length; j++) {
+				result[i][j] = block != null ? block.get(rowIndexes[i], columnIndexes[j])
+						: backing.getValue(rowIndexes[i], columnIndexes[j]);
+			}
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Writes the values of the given 2d array into the backing matrix.
+	 */
+	@Override
+	public void setMatrix(double[][] matrix) {
+		if (matrix.length != rowIndexes.length || (matrix.length > 0 && matrix[0].length != columnIndexes.length)) {
+			throw new IllegalArgumentException("Matrix is not " + rowIndexes.length + " x " + columnIndexes.length);
+		}
+		for (int i = 0; i < matrix.length; i++) {
+			for (int j = 0; j < matrix[i].length; j++) {
+				backing.setValue(rowIndexes[i], columnIndexes[j], matrix[i][j]);
+			}
+		}
+	}
+	
+	
+	@Override
+	public double getValue(int row, int col) {
+		if (row < 0 || col < 0 || row >= rowIndexes.length || col >= columnIndexes.length) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		return backing.getValue(rowIndexes[row], columnIndexes[col]);
+	}
+	
+	
+	@Override
+	public void setValue(int row, int col, double value) {
+		if (row < 0 || col < 0 || row >= rowIndexes.length || col >= columnIndexes.length) {
+			throw new IllegalArgumentException("Column/Row does not exist");
+		}
+		backing.setValue(rowIndexes[row], columnIndexes[col], value);
+	}
+	
+	
+	@Override
+	public int getRowCount() {
+		return rowIndexes.length;
+	}
+	
+	
+	@Override
+	public int getColumnCount() {
+		return columnIndexes.length;
+	}
+	
+	
+	@Override
+	public double[] getRow(int rowNumber) {
+		if (rowNumber < 0 || rowNumber >= rowIndexes.length) {
+			throw new IllegalArgumentException("Row " + rowNumber + " does not exist");
+		}
+		double[] result = new double[columnIndexes.length];
+		for (int j = 0; j < result.length; j++) {
+			result[j] = backing.getValue(rowIndexes[rowNumber], columnIndexes[j]);
+		}
+		return result;
+	}
+	
+	
+	@Override
+	public double[] getColumn(int columnNumber) {
+		if (columnNumber < 0 || columnNumber >= columnIndexes.length) {
+			throw new IllegalArgumentException("Column " + columnNumber + " does not exist");
+		}
+		double[] result = new double[rowIndexes.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = backing.getValue(rowIndexes[i], columnIndexes[columnNumber]);
+		}
+		return result;
+	}
+	
+}
@@ -0,0 +1,130 @@
+package linear_algebra;
+
+/**
+ * This class is a view of the transpose of another matrix. Nothing is
+ * copied: entry (i, j) of the view is entry (j, i) of the backing matrix,
+ * so changes to either one show in the other. Multiplying by the view or
+ * taking its determinant reads the backing matrix's 2d array directly,
+ * with rows and columns swapped, instead of building the transpose first.
+ * 
+ * @author Aaron Smith
+ */
+public class TransposedView extends Matrix {
+	
+	private final Matrix backing;
+	
+	
+	/**
+	 * Constructs a view of the transpose of a matrix.
+	 * 
+	 * @param backing The matrix to view.
+	 */
+	public TransposedView(Matrix backing) {
+		super(null); // Values live in the backing matrix
+		this.backing = backing;
+	}
+	
+	
+	/**
+	 * Returns the matrix this is a view of.
+	 * 
+	 * @return The backing matrix.
+	 */
+	public Matrix getBacking() {
+		return backing;
+	}
+	
+	
+	/**
+	 * Returns the modification count of the backing matrix, since the values of the view
+	 * change whenever the backing matrix does.
+	 */
+	@Override
+	public long getModificationCount() {
+		return backing.getModificationCount();
+	}
+	
+	
+	@Override
+	public void markModified() {
+		backing.markModified();
+	}
+	
+	
+	@Override
+	MatrixBlock getBlock() {
+		MatrixBlock block = backing.getBlock();
+		return block == null ? null : block.transpose();
+	}
+	
+	
+	/**
+	 * Returns a copy of the transposed matrix.
+	 */
+	@Override
+	public double[][] getMatrix() {
+		return backing.getTranspose();
+	}
+	
+	
+	/**
+	 * Writes the transpose of the given 2d array into the backing matrix.
+	 */
+	@Override
+	public void setMatrix(double[][] matrix) {
+		if (matrix.length != this.getRowCount() || (matrix.length > 0 && matrix[0].length != this.getColumnCount())) {
+			throw new IllegalArgumentException("Matrix is not " + this.getRowCount() + " x " + this.getColumnCount());
+		}
+		for (int i = 0; i < matrix.length; i++) {
+			for (int j = 0; j < matrix[i].length; j++) {
+				backing.setValue(j, i, matrix[i][j]);
+			}
+		}
+	}
+	
+	
+	@Override
+	public double getValue(int row, int col) {
+		return backing.getValue(col, row);
+	}
+	
+	
+	@Override
+	public void setValue(int row, int col, double value) {
+		backing.setValue(col, row, value);
+	}
+	
+	
+	@Override
+	public int getRowCount() {
+		return backing.getColumnCount();
+	}
+	
+	
+	@Override
+	public int getColumnCount() {
+		return backing.getRowCount();
+	}
+	
+	
+	@Override
+	public double[] getRow(int rowNumber) {
+		return backing.getColumn(rowNumber);
+	}
+	
+	
+	@Override
+	public double[] getColumn(int columnNumber) {
+		return backing.getRow(columnNumber);
+	}
+	
+	
+	/**
+	 * Returns a copy of the backing matrix, which is the transpose of the view.
+	 */
+	@Override
+	public double[][] getTranspose() {
+		return MatrixBlock.of(backing).toArray();
+	}
+	
+}
@@ -44,6 +44,44 @@ public class Vector {
 	}
 	
 	
+	/**
+	 * Returns the number of values in the vector.
+	 * 
+	 * @return The length of the vector.
+	 */
+	public int getLength() {
+		return vector.length;
+	}
+	
+	
+	/**
+	 * Gets the value at index i.
+	 * 
+	 * @param i The index of the value.
+	 * @return The value to return.
+	 */
+	public double getValue(int i) {
+		if (i < 0 || i >= vector.length) {
+			throw new IllegalArgumentException("Row " + i + " does not exist");
+		}
+		return vector[i];
+	}
+	
+	
+	/**
+	 * Sets the value at index i.
+	 * 
+	 * @param i The index of the value.
+	 * @param value The new value.
+	 */
+	public void setValue(int i, double value) {
+		if (i < 0 || i >= vector.length) {
+			throw new IllegalArgumentException("Row " + i + " does not exist");
+		}
+		vector[i] = value;
+	}
+	
+	
 	/**
 	 * Prints the vector in an easily readable format.
 	 * 
@@ -60,9 +98,10 @@ public class Vector {
 	
 	/**
 	 * Checks if an ArrayList of Vector objects is linearly independent. In Linear Algebra,
-	 * this is found by putting column vectors into an augmented matrix consisting of a 
-	 * homogeneous system of equations and checking whether or not that augmented matrix 
-	 * has more than one solution. If it doesn't, then those vectors are linearly independent. 
+	 * this means the rank of the matrix made from the vectors equals the number of vectors.
+	 * The vectors are reduced one at a time against the ones before them (see 
+	 * LinearlyIndependentSet), and the check stops as soon as one of them turns out to be
+	 * a linear combination of the others.
 	 * 
 	 * @param vectors An ArrayList containing Vector objects of equivalent lengths.
 	 * @return True if set is linearly independent, false if not.
@@ -70,33 +109,39 @@ public class Vector {
 	public static boolean isLinearlyIndependent(ArrayList<Vector> vectors) {
 		if (vectors.isEmpty()) { // Returns false for an empty ArrayList
 			return false;
-		} else if (vectors.size() == 1) { // Handles an ArrayList of size 1
-			for (double value : vectors.get(0).getVector()) {
-				if (value != 0) {
-					return false;
-				}
-			}
 		}
-		for (int i = 0; i < vectors.size() - 1; i++) { // Makes sure each vector is the same size
-			if (vectors.get(i).getVector().length != vectors.get(i+1).getVector().length) {
-				throw new IllegalArgumentException("Not all vectors are the same length");
-			}
+		double[][] arrays = new double[vectors.size()][];
+		for (int i = 0; i < arrays.length; i++) {
+			arrays[i] = vectors.get(i).getVector();
 		}
-		double[][] matrix = new double[vectors.get(0).getVector().length][vectors.size() + 1];
-		for (int i = 0; i < matrix.length; i++) { // Fill a double[][] properly with each vector representing a column
-			for (int j = 0; j < matrix[0].length; j++) {
-				if (j == matrix[0].length - 1) { // Fill the last row with zeros
-					matrix[i][j] = 0;
-				} else {
-					matrix[i][j] = vectors.get(j).getVector()[i];
-				}
+		return isLinearlyIndependent(arrays);
+	}
+	
+	
+	/**
+	 * Checks if a set of vectors, each given as a row of a double[][], is linearly independent.
+	 * 
+	 * @param vectors The vectors, one per row, all of the same length.
+	 * @return True if set is linearly independent, false if not.
+	 */
+	public static boolean isLinearlyIndependent(double[][] vectors) {
+		if (vectors.length == 0) {
+			return false;
+		}
+		for (int i = 0; i < vectors.length - 1; i++) { // Makes sure each vector is the same size
+			if (vectors[i].length != vectors[i + 1].length) {
+				throw new IllegalArgumentException("Not all vectors are the same length");
 			}
 		}
-		AugmentedMatrix augMatrix = new AugmentedMatrix(matrix);
-		// Check if augMatrix has infinite solutions (which means not linearly independent)
-		if (augMatrix.hasInfiniteSolutions()) {
+		if (vectors.length > vectors[0].length) { // More vectors than entries is always dependent
 			return false;
 		}
+		LinearlyIndependentSet set = new LinearlyIndependentSet(vectors[0].length);
+		for (double[] vector : vectors) {
+			if (!set.add(vector)) {
+				return false;
+			}
+		}
 		return true;
 	}
 	
@@ -106,7 +151,7 @@ public class Vector {
 	 * allow for printing the vector already created.
 	 */
 	public void printVector() {
-		this.printVector(this.vector);
+		this.printVector(this.getVector());
 	}
 	
 }
@@ -0,0 +1,228 @@
+package linear_algebra;
+
+/**
+ * This class holds the small loops that most of the arithmetic in this
+ * package is built on: scaling a row, adding a multiple of one row to
+ * another (axpy), the dot product of two rows, and the four row update
+ * used by the matrix multiplication kernel. When the JVM is started with
+ * the incubating Vector API (--add-modules jdk.incubator.vector), the
+ * loops run on SIMD registers, otherwise they fall back to plain scalar
+ * loops. Use getImplementation() to see which one is active.
+ * 
+ * Scaling, axpy and the four row update treat every lane separately, so
+ * both paths return exactly the same values. The dot product adds its
+ * terms in a different order on the SIMD path, so it may differ from the
+ * scalar path in the last bits.
+ * 
+ * @author Aaron Smith
+ */
+public final class VectorKernels {
+	
+	/**
+	 * Set this system property to true to force the scalar loops even when the Vector API is present.
+	 */
+	public static final String DISABLE_SIMD_PROPERTY = "linear_algebra.disableSimd";
+	
+	private static final boolean SIMD = simdAvailable();
+	
+	
+	private VectorKernels() {
+		// Only static methods
+	}
+	
+	
+	/**
+	 * Checks if the Vector API module is present and the SIMD loops can be loaded.
+	 */
+	private static boolean simdAvailable() {
+		if (Boolean.getBoolean(DISABLE_SIMD_PROPERTY)
+				|| !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			return false;
+		}
+		try {
+			Class.forName("linear_algebra.SimdKernels", true, VectorKernels.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+	
+	
+	/**
+	 * Returns true if the SIMD loops are active.
+	 * 
+	 * @return True if the Vector API is being used, false if the scalar loops are.
+	 */
+	public static boolean isSimdEnabled() {
+		return SIMD;
+	}
+	
+	
+	/**
+	 * Returns a description of the active implementation, such as
+	 * "SIMD (256-bit, 4 doubles per vector)" or "scalar".
+	 * 
+	 * @return The name of the active implementation.
+	 */
+	public static String getImplementation() {
+		if (!SIMD) {
+			return "scalar";
+		}
+		return "SIMD (" + SimdKernels.vectorBits() + "-bit, " + SimdKernels.lanes() + " doubles per vector)";
+	}
+	
+	
+	/**
+	 * Computes y = alpha * x over length values.
+	 */
+	static void scale(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+		if (SIMD) {
+			SimdKernels.scale(alpha, x, xOffset, y, yOffset, length);
+			return;
+		}
+		for (int i = 0; i < length; i++) {
+			y[yOffset + i] = x[xOffset + i] * alpha;
+		}
+	}
+	
+	
+	/**
+	 * Computes y += alpha * x over length values.
+	 */
+	static void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+		if (SIMD) {
+			SimdKernels.axpy(alpha, x, xOffset, y, yOffset, length);
+			return;
+		}
+		for (int i = 0; i < length; i++) {
+			y[yOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+	
+	
+	/**
+	 * Returns the dot product of length values of x and y.
+	 */
+	static double dot(double[] x, int xOffset, double[] y, int yOffset, int length) {
+		if (SIMD) {
+			return SimdKernels.dot(x, xOffset, y, yOffset, length);
+		}
+		double value = 0;
+		for (int i = 0; i < length; i++) {
+			value += x[xOffset + i] * y[yOffset + i];
+		}
+		return value;
+	}
+	
+	
+	/**
+	 * Applies a plane rotation to length values of x and y: x = cx - sy and y = sx + cy.
+	 */
+	static void rotate(double c, double s, double[] x, int xOffset, double[] y, int yOffset, int length) {
+		if (SIMD) {
+			SimdKernels.rotate(c, s, x, xOffset, y, yOffset, length);
+			return;
+		}
+		for (int i = 0; i < length; i++) {
+			double valueX = x[xOffset + i];
+			double valueY = y[yOffset + i];
+			x[xOffset + i] = c * valueX - s * valueY;
+			y[yOffset + i] = s * valueX + c * valueY;
+		}
+	}
+	
+	
+	/**
+	 * Adds a0 * b, a1 * b, a2 * b and a3 * b to four rows c0 to c3 over length values, so
+	 * each value of b is loaded once and used for four rows. The matrix multiplication uses
+	 * this for products too small to be worth packing panels for multiply4().
+	 */
+	static void axpy4(double a0, double a1, double a2, double a3, double[] b, int bOffset,
+			double[] c0, int c0Offset, double[] c1, int c1Offset,
+			double[] c2, int c2Offset, double[] c3, int c3Offset, int length) {
+		if (SIMD) {
+			SimdKernels.axpy4(a0, a1, a2, a3, b, bOffset, c0, c0Offset, c1, c1Offset,
+					c2, c2Offset, c3, c3Offset, length);
+			return;
+		}
+		for (int j = 0; j < length; j++) {
+			double valueB = b[bOffset + j];
+			c0[c0Offset + j] += a0 * valueB;
+			c1[c1Offset + j] += a1 * valueB;
+			c2[c2Offset + j] += a2 * valueB;
+			c3[c3Offset + j] += a3 * valueB;
+		}
+	}
+	
+	
+	/**
+	 * The micro kernel of the matrix multiplication. Adds A * B to four rows c0 to c3 over
+	 * width values, where A is a (4 x kCount) panel packed one column at a time, so
+	 * a[aOffset + 4k + r] is entry (r, k), and row k of B starts at b[bOffset + k * bStride]. C is worked through
+	 * in tiles of four rows by a few columns; each tile is loaded once, has all kCount terms
+	 * added to it in increasing k order while it is held in registers, and is stored once.
+	 */
+	static void multiply4(double[] a, int aOffset, int kCount, double[] b, int bOffset, int bStride,
+			double[] c0, int c0Offset, double[] c1, int c1Offset,
+			double[] c2, int c2Offset, double[] c3, int c3Offset, int width) {
+		if (SIMD) {
+			SimdKernels.multiply4(a, aOffset, kCount, b, bOffset, bStride, c0, c0Offset, c1, c1Offset,
+					c2, c2Offset, c3, c3Offset, width);
+			return;
+		}
+		int j = 0;
+		for (; j + 1 < width; j += 2) { // A (4 x 2) tile of C
+			double sum00 = c0[c0Offset + j];
+			double sum01 = c0[c0Offset + j + 1];
+			double sum10 = c1[c1Offset + j];
+			double sum11 = c1[c1Offset + j + 1];
+			double sum20 = c2[c2Offset + j];
+			double sum21 = c2[c2Offset + j + 1];
+			double sum30 = c3[c3Offset + j];
+			double sum31 = c3[c3Offset + j + 1];
+			for (int k = 0; k < kCount; k++) {
+				int index = bOffset + k * bStride + j;
+				double b0 = b[index];
+				double b1 = b[index + 1];
+				double a0 = a[aOffset + 4 * k];
+				double a1 = a[aOffset + 4 * k + 1];
+				double a2 = a[aOffset + 4 * k + 2];
+				double a3 = a[aOffset + 4 * k + 3];
+				sum00 += a0 * b0;
+				sum01 += a0 * b1;
+				sum10 += a1 * b0;
+				sum11 += a1 * b1;
+				sum20 += a2 * b0;
+				sum21 += a2 * b1;
+				sum30 += a3 * b0;
+				sum31 += a3 * b1;
+			}
+			c0[c0Offset + j] = sum00;
+			c0[c0Offset + j + 1] = sum01;
+			c1[c1Offset + j] = sum10;
+			c1[c1Offset + j + 1] = sum11;
+			c2[c2Offset + j] = sum20;
+			c2[c2Offset + j + 1] = sum21;
+			c3[c3Offset + j] = sum30;
+			c3[c3Offset + j + 1] = sum31;
+		}
+		if (j < width) { // Last column
+			double sum0 = c0[c0Offset + j];
+			double sum1 = c1[c1Offset + j];
+			double sum2 = c2[c2Offset + j];
+			double sum3 = c3[c3Offset + j];
+			for (int k = 0; k < kCount; k++) {
+				double valueB = b[bOffset + k * bStride + j];
+				sum0 += a[aOffset + 4 * k] * valueB;
+				sum1 += a[aOffset + 4 * k + 1] * valueB;
+				sum2 += a[aOffset + 4 * k + 2] * valueB;
+				sum3 += a[aOffset + 4 * k + 3] * valueB;
+			}
+			c0[c0Offset + j] = sum0;
+			c1[c1Offset + j] = sum1;
+			c2[c2Offset + j] = sum2;
+			c3[c3Offset + j] = sum3;
+		}
+	}
+	
+}
@@ -0,0 +1,99 @@
+package linear_algebra;
+
+/**
+ * This class is a view of one row or one column of a matrix as a Vector.
+ * Nothing is copied: entry i of a column view is entry (i, column) of the
+ * matrix, which for a 2d array means stepping from row to row, and changes
+ * to either one show in the other. Use getValue() and setValue() to work
+ * with the view; getVector() returns a copy of its values.
+ * 
+ * @author Aaron Smith
+ */
+public class VectorView extends Vector {
+	
+	private final Matrix backing;
+	private final int index; // The row or column of the backing matrix
+	private final boolean column; // True for a column view, false for a row view
+	
+	
+	private VectorView(Matrix backing, int index, boolean column) {
+		super(null); // Values live in the backing matrix
+		int count = column ? backing.getColumnCount() : backing.getRowCount();
+		if (index < 0 || index >= count) {
+			throw new IllegalArgumentException((column ? "Column " : "Row ") + index + " does not exist");
+		}
+		this.backing = backing;
+		this.index = index;
+		this.column = column;
+	}
+	
+	
+	/**
+	 * Returns a view of one row of a matrix.
+	 * 
+	 * @param backing The matrix to view.
+	 * @param row The row to view.
+	 * @return The view.
+	 */
+	public static VectorView row(Matrix backing, int row) {
+		return new VectorView(backing, row, false);
+	}
+	
+	
+	/**
+	 * Returns a view of one column of a matrix.
+	 * 
+	 * @param backing The matrix to view.
+	 * @param col The column to view.
+	 * @return The view.
+	 */
+	public static VectorView column(Matrix backing, int col) {
+		return new VectorView(backing, col, true);
+	}
+	
+	
+	@Override
+	public int getLength() {
+		return column ? backing.getRowCount() : backing.getColumnCount();
+	}
+	
+	
+	@Override
+	public double getValue(int i) {
+		return column ? backing.getValue(i, index) : backing.getValue(index, i);
+	}
+	
+	
+	@Override
+	public void setValue(int i, double value) {
+		if (column) {
+			backing.setValue(i, index, value);
+		} else {
+			backing.setValue(index, i, value);
+		}
+	}
+	
+	
+	/**
+	 * Returns a copy of the values of the view.
+	 */
+	@Override
+	public double[] getVector() {
+		return column ? backing.getColumn(index) : backing.getRow(index);
+	}
+	
+	
+	/**
+	 * Writes the values of the given double[] into the backing matrix.
+	 */
+	@Override
+	public void setVector(double[] vector) {
+		if (vector.length != this.getLength()) {
+			throw new IllegalArgumentException("Vector length != " + this.getLength());
+		}
+		for (int i = 0; i < vector.length; i++) {
+			this.setValue(i, vector[i]);
+		}
+	}
+	
+}
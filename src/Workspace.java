@@ -0,0 +1,93 @@
+package linear_algebra;
+
+/**
+ * This class holds the temporary arrays that operations need while they
+ * run, such as pivot arrays, scratch rows and LU decompositions, so they
+ * can be reused instead of allocated on every call. Pass the same
+ * Workspace to the methods that take one, together with a result array
+ * of the right size, and once every buffer has been created for the
+ * sizes in use those methods allocate nothing. That keeps loops which
+ * solve or invert matrices of a fixed size from creating any garbage.
+ * 
+ * A Workspace isn't thread safe; give each thread its own.
+ * 
+ * @author Aaron Smith
+ */
+public final class Workspace {
+	
+	private double[] vector = new double[0];
+	private int[] indexes = new int[0];
+	private final RowReducer.ArrayRows rows = new RowReducer.ArrayRows(null);
+	private final LUDecomposition[] decompositions = new LUDecomposition[2]; // Kept for the two most recent sizes
+	private int nextDecomposition;
+	
+	
+	/**
+	 * Constructs an empty Workspace. Buffers are created the first time they are needed.
+	 */
+	public Workspace() {
+		// Nothing to create up front
+	}
+	
+	
+	/**
+	 * Drops every buffer, so the memory can be reclaimed.
+	 */
+	public void clear() {
+		vector = new double[0];
+		indexes = new int[0];
+		rows.matrix = null;
+		decompositions[0] = null;
+		decompositions[1] = null;
+	}
+	
+	
+	/**
+	 * Returns a scratch double[] of exactly the given length. Its contents are undefined.
+	 */
+	double[] vector(int length) {
+		if (vector.length != length) {
+			vector = new double[length];
+		}
+		return vector;
+	}
+	
+	
+	/**
+	 * Returns a scratch int[] of exactly the given length. Its contents are undefined.
+	 */
+	int[] indexes(int length) {
+		if (indexes.length != length) {
+			indexes = new int[length];
+		}
+		return indexes;
+	}
+	
+	
+	/**
+	 * Returns a reusable view of the rows of a 2d array, for the row reducer.
+	 */
+	RowReducer.Rows rows(double[][] matrix) {
+		rows.matrix = matrix;
+		return rows;
+	}
+	
+	
+	/**
+	 * Returns a reusable LUDecomposition for (size x size) matrices, to be filled with one of
+	 * its decompose() methods. Decompositions for two different sizes are kept, so computing
+	 * minors and determinants with the same workspace doesn't create new ones each time.
+	 */
+	LUDecomposition decomposition(int size) {
+		for (LUDecomposition decomposition : decompositions) {
+			if (decomposition != null && decomposition.getSize() == size) {
+				return decomposition;
+			}
+		}
+		LUDecomposition decomposition = new LUDecomposition(size);
+		decompositions[nextDecomposition] = decomposition;
+		nextDecomposition = 1 - nextDecomposition;
+		return decomposition;
+	}
+	
+}